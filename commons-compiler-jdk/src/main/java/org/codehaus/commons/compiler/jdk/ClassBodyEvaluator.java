@@ -291,6 +291,23 @@ class ClassBodyEvaluator extends Cookable implements IClassBodyEvaluator {
         r.skip(afterLastImport);
         return imports.toArray(new String[imports.size()]);
     }
+
+    /**
+     * @return The offset after the last IMPORT declaration in the <var>text</var>, as {@link
+     *         #parseImportDeclarations(Reader)} determines it
+     */
+    static int
+    endOfImportDeclarations(String text) {
+        int afterLastImport = 0;
+        for (
+            Matcher matcher = ClassBodyEvaluator.IMPORT_STATEMENT_PATTERN.matcher(
+                text.substring(0, Math.min(text.length(), 10000))
+            );
+            matcher.find();
+        ) afterLastImport = matcher.end();
+        return afterLastImport;
+    }
+
     private static final Pattern IMPORT_STATEMENT_PATTERN = Pattern.compile(
         "\\bimport\\s+"
         + "("
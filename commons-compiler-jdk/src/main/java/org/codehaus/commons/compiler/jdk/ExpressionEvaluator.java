@@ -323,6 +323,23 @@ class ExpressionEvaluator extends MultiCookable implements IExpressionEvaluator
         this.se.cook(new String[] { fileName }, new Reader[] { reader }, imports);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation requires that the system Java compiler is JAVAC.
+     * </p>
+     */
+    @Override public CompileException[]
+    checkSyntax(String... expressions) {
+
+        CompileException[] result = new CompileException[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            result[i] = ScriptEvaluator.checkSyntax(expressions[i], expressions.length == 1, true);
+        }
+
+        return result;
+    }
+
     @Override public void
     cook(String[] fileNames, Reader[] readers) throws CompileException, IOException {
 
@@ -34,18 +34,30 @@ import java.io.StringReader;
 import java.io.StringWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
 import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.commons.compiler.Cookable;
 import org.codehaus.commons.compiler.ErrorHandler;
 import org.codehaus.commons.compiler.IClassBodyEvaluator;
 import org.codehaus.commons.compiler.IExpressionEvaluator;
 import org.codehaus.commons.compiler.IScriptEvaluator;
+import org.codehaus.commons.compiler.InternalCompilerException;
+import org.codehaus.commons.compiler.Location;
 import org.codehaus.commons.compiler.MultiCookable;
 import org.codehaus.commons.compiler.WarningHandler;
 import org.codehaus.commons.compiler.io.Readers;
@@ -448,6 +460,236 @@ class ScriptEvaluator extends MultiCookable implements IScriptEvaluator {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     *   This implementation requires that the system Java compiler is JAVAC.
+     * </p>
+     */
+    @Override public CompileException[]
+    checkSyntax(String... scripts) {
+
+        CompileException[] result = new CompileException[scripts.length];
+        for (int i = 0; i < scripts.length; i++) {
+            result[i] = ScriptEvaluator.checkSyntax(scripts[i], scripts.length == 1, false);
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses the <var>text</var> as the body of a method, or, iff <var>isExpression</var>, as the operand of a RETURN
+     * statement, but does not compile it.
+     *
+     * @param allowImports                   Whether the <var>text</var> may start with IMPORT declarations
+     * @return                               The first syntax error, or {@code null}
+     * @throws UnsupportedOperationException The system Java compiler is not JAVAC, and thus cannot parse only
+     */
+    @Nullable static CompileException
+    checkSyntax(final String text, boolean allowImports, boolean isExpression) {
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new UnsupportedOperationException(
+                "JDK Java compiler not available - probably you're running a JRE, not a JDK"
+            );
+        }
+
+        // Notice: The line breaks keep an end-of-line comment at the end of the text from commenting out the
+        // closing ";" and "}".
+        final int    afterImports = allowImports ? ClassBodyEvaluator.endOfImportDeclarations(text) : 0;
+        final String header       = " class SC { void m() throws Throwable { " + (isExpression ? "return " : "");
+        final String source       = (
+            text.substring(0, afterImports)
+            + header
+            + text.substring(afterImports)
+            + (isExpression ? "\n;" : "")
+            + "\n} }"
+        );
+
+        final CompileException[] firstError = new CompileException[1];
+        DiagnosticListener<JavaFileObject> dl = new DiagnosticListener<JavaFileObject>() {
+
+            @Override public void
+            report(@Nullable Diagnostic<? extends JavaFileObject> diagnostic) {
+                assert diagnostic != null;
+
+                if (diagnostic.getKind() != Diagnostic.Kind.ERROR || firstError[0] != null) return;
+
+                firstError[0] = new CompileException(
+                    diagnostic.getMessage(null) + " (" + diagnostic.getCode() + ")",
+                    ScriptEvaluator.location(text, afterImports, header.length(), diagnostic.getPosition())
+                );
+            }
+        };
+
+        JavaFileObject
+        sourceFileObject = new SimpleJavaFileObject(URI.create("string:///SC.java"), JavaFileObject.Kind.SOURCE) {
+
+            @Override public CharSequence
+            getCharContent(boolean ignoreEncodingErrors) { return source; }
+        };
+
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+        try {
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                null,                                       // out
+                fileManager,                                // fileManager
+                dl,                                         // diagnosticListener
+                Arrays.asList("-proc:none"),                // options
+                null,                                       // classes
+                Collections.singletonList(sourceFileObject) // compilationUnits
+            );
+
+            // Only JAVAC's tasks can parse without analyzing, through "com.sun.source.util.JavacTask.parse()". That
+            // API is not part of the JRE (on Java 8, it is in "tools.jar"), thus it is accessed reflectively.
+            ClassLoader cl = task.getClass().getClassLoader();
+            Class<?>    javacTaskClass;
+            try {
+                javacTaskClass = Class.forName("com.sun.source.util.JavacTask", false, cl);
+            } catch (ClassNotFoundException cnfe) {
+                javacTaskClass = null;
+            }
+            if (javacTaskClass == null || !javacTaskClass.isInstance(task)) {
+                throw new UnsupportedOperationException("The system Java compiler is not JAVAC; cannot parse only");
+            }
+
+            Iterable<?> cus = (Iterable<?>) ScriptEvaluator.invoke(cl, "com.sun.source.util.JavacTask", "parse", task);
+            if (firstError[0] != null) return firstError[0];
+
+            // The source is syntactically valid, but the text may have closed the synthetic method (or class) early,
+            // e.g. "1; System.exit(0)" or "} void m2() {".
+            Object   cu          = cus.iterator().next();
+            String[] message     = new String[1];
+            Object   invalidTree = ScriptEvaluator.findInvalidTree(cl, cu, isExpression, message);
+            if (invalidTree == null) return null;
+
+            return new CompileException(message[0], ScriptEvaluator.location(
+                text,
+                afterImports,
+                header.length(),
+                ScriptEvaluator.startPosition(cl, task, cu, invalidTree)
+            ));
+        } finally {
+            try { fileManager.close(); } catch (IOException e) {}
+        }
+    }
+
+    /**
+     * Verifies that the compilation unit declares exactly one class with exactly one member (the synthetic method),
+     * and, iff <var>isExpression</var>, that the method body is exactly one RETURN statement with an operand.
+     *
+     * @param message Is set to the error message iff a tree is returned
+     * @return        The tree that violates that structure, or {@code null}
+     */
+    @Nullable private static Object
+    findInvalidTree(@Nullable ClassLoader cl, Object cu, boolean isExpression, String[] message) {
+
+        message[0] = isExpression ? "Unexpected text after the expression" : "Unexpected text after the script";
+
+        List<?> typeDecls = (List<?>) ScriptEvaluator.invoke(
+            cl,
+            "com.sun.source.tree.CompilationUnitTree",
+            "getTypeDecls",
+            cu
+        );
+        assert typeDecls != null;
+        if (typeDecls.size() > 1) return typeDecls.get(1);
+
+        List<?> members = (List<?>) ScriptEvaluator.invoke(
+            cl,
+            "com.sun.source.tree.ClassTree",
+            "getMembers",
+            typeDecls.get(0)
+        );
+        assert members != null;
+        if (members.size() > 1) return members.get(1);
+
+        if (!isExpression) return null;
+
+        Object body = ScriptEvaluator.invoke(cl, "com.sun.source.tree.MethodTree", "getBody", members.get(0));
+        assert body != null;
+
+        List<?>
+        statements = (List<?>) ScriptEvaluator.invoke(cl, "com.sun.source.tree.BlockTree", "getStatements", body);
+        assert statements != null;
+        if (statements.size() > 1) return statements.get(1);
+
+        Object returnStatement = statements.get(0);
+        if (ScriptEvaluator.invoke(cl, "com.sun.source.tree.ReturnTree", "getExpression", returnStatement) != null) {
+            return null;
+        }
+
+        message[0] = "Expression expected";
+        return returnStatement;
+    }
+
+    /**
+     * @return The position of the <var>tree</var> in the source of the <var>compilationUnit</var>, or {@link
+     *         Diagnostic#NOPOS}
+     */
+    private static long
+    startPosition(@Nullable ClassLoader cl, Object task, Object compilationUnit, Object tree) {
+        try {
+            Class<?> treesClass      = Class.forName("com.sun.source.util.Trees", false, cl);
+            Object   trees           = treesClass.getMethod("instance", JavaCompiler.CompilationTask.class).invoke(
+                null,
+                task
+            );
+            Object   sourcePositions = treesClass.getMethod("getSourcePositions").invoke(trees);
+            return (Long) Class.forName("com.sun.source.util.SourcePositions", false, cl).getMethod(
+                "getStartPosition",
+                Class.forName("com.sun.source.tree.CompilationUnitTree", false, cl),
+                Class.forName("com.sun.source.tree.Tree", false, cl)
+            ).invoke(sourcePositions, compilationUnit, tree);
+        } catch (Exception e) {
+            return Diagnostic.NOPOS;
+        }
+    }
+
+    /**
+     * @return The location in the <var>text</var> that corresponds with the position <var>pos</var> in the synthetic
+     *         source that {@link #checkSyntax(String, boolean, boolean)} wraps the <var>text</var> in
+     */
+    private static Location
+    location(String text, int afterImports, int headerLength, long pos) {
+
+        int offset = (
+            pos == Diagnostic.NOPOS ? text.length() :
+            pos < afterImports      ? (int) pos :
+            (int) Math.min(Math.max(afterImports, pos - headerLength), text.length())
+        );
+
+        int lineNumber = 1, columnNumber = 1;
+        for (int i = 0; i < offset; i++) {
+            if (text.charAt(i) == '\n') {
+                lineNumber++;
+                columnNumber = 1;
+            } else {
+                columnNumber++;
+            }
+        }
+
+        return new Location(null, lineNumber, columnNumber);
+    }
+
+    /**
+     * Invokes the named parameterless method of the named JAVAC API interface on the <var>target</var>.
+     */
+    @Nullable private static Object
+    invoke(@Nullable ClassLoader cl, String interfaceName, String methodName, Object target) {
+        try {
+            return Class.forName(interfaceName, false, cl).getMethod(methodName).invoke(target);
+        } catch (InvocationTargetException ite) {
+            Throwable te = ite.getTargetException();
+            if (te instanceof RuntimeException) throw (RuntimeException) te;
+            if (te instanceof Error)            throw (Error) te;
+            throw new InternalCompilerException(interfaceName + "." + methodName + "()", te);
+        } catch (Exception e) {
+            throw new InternalCompilerException(interfaceName + "." + methodName + "()", e);
+        }
+    }
+
     /**
      * @param readers The scripts to cook
      */
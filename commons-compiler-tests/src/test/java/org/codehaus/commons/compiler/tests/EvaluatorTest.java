@@ -35,7 +35,9 @@ import java.io.StringWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -49,6 +51,7 @@ import org.codehaus.commons.compiler.IExpressionEvaluator;
 import org.codehaus.commons.compiler.IScriptEvaluator;
 import org.codehaus.commons.compiler.ISimpleCompiler;
 import org.codehaus.commons.compiler.Location;
+import org.codehaus.commons.compiler.util.CookableCache;
 import org.codehaus.commons.compiler.util.resource.MapResourceFinder;
 import org.codehaus.commons.nullanalysis.Nullable;
 import org.junit.Assert;
@@ -178,6 +181,54 @@ class EvaluatorTest extends CommonsCompilerTestSuite {
         }
     }
 
+    @Test public void
+    testCheckSyntax() throws Exception {
+
+        IExpressionEvaluator ee = this.compilerFactory.newExpressionEvaluator();
+        ee.setParameters(new String[] { "a" }, new Class<?>[] { int.class });
+
+        CompileException[] errors = ee.checkSyntax("a + 1", "a +", "(a + 1", "Unknown.meth(a) * 2", "a b");
+        Assert.assertEquals(5, errors.length);
+        Assert.assertNull(errors[0]);
+        Assert.assertNotNull(errors[1]);
+        Assert.assertNotNull(errors[2]);
+        Assert.assertNull(errors[3]); // Syntactically valid, although "Unknown" cannot be resolved.
+        Assert.assertNotNull(errors[4]);
+
+        // Leading imports are allowed iff there is exactly one expression.
+        Assert.assertNull(ee.checkSyntax("import java.util.*;\nnew ArrayList()")[0]);
+
+        // The syntax error is reported at its location in the expression.
+        Location location = ee.checkSyntax("a\n+ * 3")[0].getLocation();
+        Assert.assertNotNull(location);
+        Assert.assertEquals(2, location.getLineNumber());
+
+        // The text must be exactly one expression; it must not escape from the code that wraps it.
+        errors = ee.checkSyntax("1; System.exit(0)", "1; } void m2() { return", "", "a // comment");
+        Assert.assertNotNull(errors[0]);
+        Assert.assertNotNull(errors[1]);
+        Assert.assertNotNull(errors[2]);
+        Assert.assertNull(errors[3]);
+
+        // Checking the syntax does not cook the evaluator.
+        ee.cook("a * 3");
+        Assert.assertEquals(6, ee.evaluate(new Object[] { 2 }));
+
+        IScriptEvaluator se = this.compilerFactory.newScriptEvaluator();
+        errors = se.checkSyntax(
+            "int x = 1; return;",
+            "int x = ;",
+            "for (;;) { break; }",
+            "return; } void m2() { System.exit(0);",
+            "return; } } class C2 { void m2() { System.exit(0);"
+        );
+        Assert.assertNull(errors[0]);
+        Assert.assertNotNull(errors[1]);
+        Assert.assertNull(errors[2]);
+        Assert.assertNotNull(errors[3]);
+        Assert.assertNotNull(errors[4]);
+    }
+
     @Test public void
     testFastClassBodyEvaluator1() throws Exception {
         IClassBodyEvaluator cbe = this.compilerFactory.newClassBodyEvaluator();
@@ -1294,4 +1345,56 @@ class EvaluatorTest extends CommonsCompilerTestSuite {
             );
         }
     }
+
+    @Test public void
+    testCookableCache() throws Exception {
+
+        final List<String> evicted = new ArrayList<>();
+        CookableCache<String, IExpressionEvaluator>
+        cache = new CookableCache<String, IExpressionEvaluator>(2, Long.MAX_VALUE) {
+
+            @Override protected IExpressionEvaluator
+            cook(String expression) throws CompileException {
+                IExpressionEvaluator ee = EvaluatorTest.this.compilerFactory.newExpressionEvaluator();
+                ee.setParameters(new String[] { "a", "b" }, new Class<?>[] { int.class, int.class });
+                ee.setExpressionType(int.class);
+                ee.cook(expression);
+                return ee;
+            }
+
+            @Override protected void
+            evicted(String key, IExpressionEvaluator cookable) { evicted.add(key); }
+        };
+
+        IExpressionEvaluator ee1 = cache.get("a + b");
+        Assert.assertEquals(7, ee1.evaluate(new Object[] { 3, 4 }));
+        Assert.assertSame(ee1, cache.get("a + b"));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertTrue(cache.getBytecodeSize() > 0);
+
+        // Exceed the maximum count; "a - b" is the least recently used entry and must be evicted.
+        Assert.assertEquals(-1, cache.get("a - b").evaluate(new Object[] { 3, 4 }));
+        cache.get("a + b");
+        Assert.assertEquals(12, cache.get("a * b").evaluate(new Object[] { 3, 4 }));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertEquals(1, evicted.size());
+        Assert.assertEquals("a - b", evicted.get(0));
+        Assert.assertNull(cache.getIfPresent("a - b"));
+        Assert.assertSame(ee1, cache.getIfPresent("a + b"));
+
+        // Compilation errors are not cached.
+        try {
+            cache.get("a +");
+            Assert.fail("CompileException expected");
+        } catch (CompileException ce) {
+            ;
+        }
+        Assert.assertEquals(2, cache.size());
+
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getBytecodeSize());
+    }
 }
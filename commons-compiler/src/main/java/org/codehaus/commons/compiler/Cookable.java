@@ -31,8 +31,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
 
+import org.codehaus.commons.compiler.io.CharSequenceReader;
 import org.codehaus.commons.nullanalysis.Nullable;
 
 /**
@@ -79,11 +79,11 @@ class Cookable implements ICookable {
     @Override public final void
     cook(@Nullable String fileName, String s) throws CompileException {
         try {
-            this.cook(fileName, new StringReader(s));
+            this.cook(fileName, new CharSequenceReader(s));
         } catch (IOException ioe) {
             ioe.printStackTrace();
             // SUPPRESS CHECKSTYLE AvoidHidingCause
-            throw new RuntimeException("SNO: StringReader throws IOException");
+            throw new RuntimeException("SNO: CharSequenceReader throws IOException");
         }
     }
 
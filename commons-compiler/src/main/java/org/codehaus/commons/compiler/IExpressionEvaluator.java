@@ -440,6 +440,23 @@ interface IExpressionEvaluator extends ICookable, IMultiCookable {
     createFastEvaluator(Reader reader, Class<? extends T> interfaceToImplement, String... parameterNames)
     throws CompileException, IOException;
 
+    /**
+     * Scans and parses the <var>expressions</var>, but neither resolves names nor generates code, and loads no
+     * classes. That is much faster than {@link #cook(String[])}, and is useful e.g. for validating user input. The
+     * configuration of this {@link IExpressionEvaluator} is not modified, and it can still be cooked afterwards.
+     * <p>
+     *   Iff the number of expressions is one, then that single expression may be preceded by IMPORT declarations.
+     * </p>
+     * <p>
+     *   Notice that a syntactically valid expression may nevertheless fail to cook, e.g. because it references an
+     *   unknown type, or because its type is not assignable to the {@link #setExpressionType(Class) expression type}.
+     * </p>
+     *
+     * @return For each of the <var>expressions</var>, its (first) syntax error, or {@code null} iff it is
+     *         syntactically valid
+     */
+    CompileException[] checkSyntax(String... expressions);
+
     /**
      * @return The generated and loaded {@link java.lang.reflect.Method}
      * @throws IllegalStateException This IExpressionEvaluator is not yet cooked
@@ -31,7 +31,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.io.StringReader;
+
+import org.codehaus.commons.compiler.io.CharSequenceReader;
 
 /**
  * Implements all methods of {@link IMultiCookable}, except for {@link IMultiCookable#cook(String[], Reader[])}.
@@ -82,12 +83,12 @@ class MultiCookable extends Cookable implements IMultiCookable {
         final int count = fileNames.length;
 
         Reader[] readers = new Reader[count];
-        for (int i = 0; i < count; i++) readers[i] = new StringReader(strings[i]);
+        for (int i = 0; i < count; i++) readers[i] = new CharSequenceReader(strings[i]);
 
         try {
             this.cook(fileNames, readers);
         } catch (IOException ioe) {
-            throw new InternalCompilerException("SNO: IOException despite StringReader", ioe);
+            throw new InternalCompilerException("SNO: IOException despite CharSequenceReader", ioe);
         }
     }
 
@@ -0,0 +1,102 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.commons.compiler.io;
+
+import java.io.Reader;
+
+import org.codehaus.commons.nullanalysis.NotNullByDefault;
+
+/**
+ * A {@link Reader} that reads from a {@link CharSequence}. Similar to {@link java.io.StringReader}, but
+ * unsynchronized, and consumers that are aware of this class can get at the remaining characters directly, without
+ * reading them one by one; see {@link #readRemaining()}.
+ */
+public
+class CharSequenceReader extends Reader {
+
+    private final CharSequence cs;
+    private int                position;
+    private int                mark;
+
+    public
+    CharSequenceReader(CharSequence cs) { this.cs = cs; }
+
+    /**
+     * Returns the characters that were not yet read, and marks them as read. Does not copy the characters if no
+     * characters were read yet.
+     */
+    public CharSequence
+    readRemaining() {
+        int          length = this.cs.length();
+        CharSequence result = this.position == 0 ? this.cs : this.cs.subSequence(this.position, length);
+        this.position = length;
+        return result;
+    }
+
+    @Override public int
+    read() {
+        if (this.position >= this.cs.length()) return -1;
+        return this.cs.charAt(this.position++);
+    }
+
+    @Override @NotNullByDefault(false) public int
+    read(char[] cbuf, int off, int len) {
+
+        int remaining = this.cs.length() - this.position;
+        if (remaining <= 0) return len == 0 ? 0 : -1;
+
+        int n = Math.min(len, remaining);
+        if (this.cs instanceof String) {
+            ((String) this.cs).getChars(this.position, this.position + n, cbuf, off);
+            this.position += n;
+        } else {
+            for (int i = 0; i < n; i++) cbuf[off + i] = this.cs.charAt(this.position++);
+        }
+        return n;
+    }
+
+    @Override public long
+    skip(long n) {
+        int result = (int) Math.min(Math.max(n, 0), this.cs.length() - this.position);
+        this.position += result;
+        return result;
+    }
+
+    @Override public boolean
+    ready() { return true; }
+
+    @Override public boolean
+    markSupported() { return true; }
+
+    @Override public void
+    mark(int readAheadLimit) { this.mark = this.position; }
+
+    @Override public void
+    reset() { this.position = this.mark; }
+
+    @Override public void
+    close() {}
+}
@@ -25,12 +25,20 @@
 
 package org.codehaus.commons.compiler.io;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilterReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.Arrays;
 import java.util.Iterator;
 
@@ -234,6 +242,80 @@ class Readers {
         return sw.toString();
     }
 
+    /**
+     * Reads the entire contents of the <var>file</var>. Other than reading the file through an {@link
+     * java.io.InputStreamReader}, this method reads it into one buffer and decodes it in bulk, which is much faster
+     * for large files. (The file is not memory-mapped, because on some operating systems, a mapped file remains locked
+     * until the mapping is garbage-collected.) Pure ASCII content is decoded by simply widening the bytes, iff the
+     * <var>charset</var> is a superset of ASCII. Like with {@link java.io.InputStreamReader}, malformed and unmappable
+     * input is replaced.
+     *
+     * @return A {@link CharSequence}, which can be scanned very efficiently through a {@link CharSequenceReader}
+     */
+    public static CharSequence
+    readAll(File file, Charset charset) throws IOException {
+
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            FileChannel fc   = fis.getChannel();
+            long        size = fc.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("\"" + file + "\" is too large");
+
+            ByteBuffer bb = ByteBuffer.allocate((int) size);
+            while (bb.hasRemaining()) {
+                if (fc.read(bb) == -1) break;
+            }
+            bb.flip();
+
+            if (!Readers.isAsciiSuperset(charset)) return Readers.newDecoder(charset).decode(bb);
+
+            byte[] ba = bb.array();
+            char[] ca = new char[bb.limit()];
+            for (int i = 0; i < ca.length; i++) {
+                byte b = ba[i];
+                if (b < 0) {
+
+                    // Non-ASCII byte; decode the rest of the file the hard way.
+                    bb.position(i);
+                    CharBuffer rest   = Readers.newDecoder(charset).decode(bb);
+                    char[]     result = Arrays.copyOf(ca, i + rest.remaining());
+                    rest.get(result, i, rest.remaining());
+                    return CharBuffer.wrap(result);
+                }
+                ca[i] = (char) b;
+            }
+            return CharBuffer.wrap(ca);
+        } finally {
+            fis.close();
+        }
+    }
+
+    private static CharsetDecoder
+    newDecoder(Charset charset) {
+        return (
+            charset
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE)
+        );
+    }
+
+    /**
+     * @return Whether the <var>charset</var> decodes each byte in the range 0...127 into the same char (and no
+     *         multi-byte sequence contains such a byte)
+     */
+    private static boolean
+    isAsciiSuperset(Charset charset) {
+        String name = charset.name();
+        return (
+            "UTF-8".equals(name)
+            || "US-ASCII".equals(name)
+            || "ISO-8859-1".equals(name)
+            || "ISO-8859-15".equals(name)
+            || "windows-1252".equals(name)
+        );
+    }
+
     public static void
     copy(Reader in, Writer out) throws IOException {
         char[] buffer = new char[8192];
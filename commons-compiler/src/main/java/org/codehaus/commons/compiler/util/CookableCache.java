@@ -0,0 +1,339 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.commons.compiler.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.ICookable;
+import org.codehaus.commons.nullanalysis.Nullable;
+
+/**
+ * A bounded, thread-safe, in-memory cache of cooked {@link ICookable}s (typically {@link
+ * org.codehaus.commons.compiler.IExpressionEvaluator}s and the like), with least-recently-used eviction.
+ * <p>
+ *   Derived classes implement {@link #cook(Object)}, which creates, configures and cooks a new {@link ICookable} for a
+ *   given key. Notice that the key must capture <em>everything</em> that {@link #cook(Object)} depends on; e.g. for
+ *   expression evaluators that differ only in the expression, the expression string is a good key.
+ * </p>
+ * <p>
+ *   Example:
+ * </p>
+ * <pre>
+ *     CookableCache&lt;String, IExpressionEvaluator&gt; cache = new CookableCache&lt;String, IExpressionEvaluator&gt;(
+ *         1000,      // maximumCount
+ *         10000000L  // maximumBytecodeSize
+ *     ) {
+ *
+ *         &#64;Override protected IExpressionEvaluator
+ *         cook(String expression) throws CompileException {
+ *             IExpressionEvaluator ee = compilerFactory.newExpressionEvaluator();
+ *             ee.setParameters(new String[] { "a", "b" }, new Class[] { int.class, int.class });
+ *             ee.cook(expression);
+ *             return ee;
+ *         }
+ *     };
+ *
+ *     Object result = cache.get("a + b").evaluate(new Object[] { 3, 4 });
+ * </pre>
+ * <p>
+ *   The "weight" of an entry is the total size of its {@link ICookable#getBytecodes() bytecodes}. When the number of
+ *   entries exceeds the <var>maximumCount</var>, or their total weight exceeds the <var>maximumBytecodeSize</var>, then
+ *   the least recently used entries are evicted.
+ * </p>
+ * <p>
+ *   When an entry is evicted, the cache drops its reference to the cookable; if the application holds no other
+ *   references to the cookable and the classes it generated, then its class loader and the generated classes become
+ *   eligible for garbage collection ("class unloading"). Derived classes may override {@link #evicted(Object,
+ *   ICookable)} to be notified.
+ * </p>
+ * <p>
+ *   If two threads {@link #get(Object)} the same (uncached) key at the same time, then only one of them cooks, and the
+ *   other one waits for the result.
+ * </p>
+ *
+ * @param <K> The type of the keys
+ * @param <C> The type of the cached cookables
+ */
+public abstract
+class CookableCache<K, C extends ICookable> {
+
+    private final int  maximumCount;
+    private final long maximumBytecodeSize;
+
+    /**
+     * The cached cookables, in least-recently-used order; guarded by {@code this}.
+     */
+    private final LinkedHashMap<K, Entry<C>> entries = new LinkedHashMap<>(16, .75f, true);
+
+    /**
+     * The keys that are currently being cooked; guarded by {@code this}.
+     */
+    private final Map<K, FutureTask<C>> cooking = new HashMap<>();
+
+    // Statistics; guarded by "this".
+    private long bytecodeSize, hitCount, missCount, evictionCount;
+
+    private static final
+    class Entry<C extends ICookable> {
+
+        final C    cookable;
+        final long bytecodeSize;
+
+        Entry(C cookable, long bytecodeSize) {
+            this.cookable     = cookable;
+            this.bytecodeSize = bytecodeSize;
+        }
+    }
+
+    /**
+     * @param maximumCount        The maximum number of cached cookables
+     * @param maximumBytecodeSize The maximum total size of the {@link ICookable#getBytecodes() bytecodes} of the
+     *                            cached cookables
+     */
+    public
+    CookableCache(int maximumCount, long maximumBytecodeSize) {
+        this.maximumCount        = maximumCount;
+        this.maximumBytecodeSize = maximumBytecodeSize;
+    }
+
+    /**
+     * Creates, configures and cooks a new {@link ICookable} for the given <var>key</var>.
+     */
+    protected abstract C
+    cook(K key) throws CompileException;
+
+    /**
+     * Is invoked after the <var>cookable</var> was evicted from the cache. This method is not invoked for entries that
+     * are removed through {@link #invalidate(Object)} or {@link #invalidateAll()}.
+     * <p>
+     *   This implementation does nothing.
+     * </p>
+     */
+    protected void
+    evicted(K key, C cookable) {}
+
+    /**
+     * @return The cached cookable for the <var>key</var>, or, iff there is none, the result of {@link #cook(Object)},
+     *         which is then cached
+     */
+    public final C
+    get(final K key) throws CompileException {
+
+        FutureTask<C> ft;
+        boolean       cookHere = false;
+        synchronized (this) {
+
+            Entry<C> e = (Entry<C>) this.entries.get(key);
+            if (e != null) {
+                this.hitCount++;
+                return e.cookable;
+            }
+
+            this.missCount++;
+
+            ft = (FutureTask<C>) this.cooking.get(key);
+            if (ft == null) {
+                ft = new FutureTask<C>(new Callable<C>() {
+
+                    @Override public C
+                    call() throws CompileException { return CookableCache.this.cook(key); }
+                });
+                this.cooking.put(key, ft);
+                cookHere = true;
+            }
+        }
+
+        // Cook outside of the lock, so that other keys can be looked up meanwhile.
+        if (cookHere) ft.run();
+
+        if (!cookHere) return this.getUninterruptibly(ft);
+
+        C       result;
+        boolean cooked = false;
+        try {
+            result = this.getUninterruptibly(ft);
+            cooked = true;
+        } finally {
+            if (!cooked) {
+                synchronized (this) { this.cooking.remove(key); }
+            }
+        }
+
+        this.put(key, result);
+
+        return result;
+    }
+
+    /**
+     * @return The cached cookable for the <var>key</var>, or {@code null}
+     */
+    @Nullable public final synchronized C
+    getIfPresent(K key) {
+        Entry<C> e = (Entry<C>) this.entries.get(key);
+        return e == null ? null : e.cookable;
+    }
+
+    /**
+     * Removes the entry for the <var>key</var>, if any.
+     */
+    public final synchronized void
+    invalidate(K key) {
+        Entry<C> e = (Entry<C>) this.entries.remove(key);
+        if (e != null) this.bytecodeSize -= e.bytecodeSize;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public final synchronized void
+    invalidateAll() {
+        this.entries.clear();
+        this.bytecodeSize = 0;
+    }
+
+    /**
+     * @return The number of cached cookables
+     */
+    public final synchronized int
+    size() { return this.entries.size(); }
+
+    /**
+     * @return The total size of the {@link ICookable#getBytecodes() bytecodes} of the cached cookables
+     */
+    public final synchronized long
+    getBytecodeSize() { return this.bytecodeSize; }
+
+    /**
+     * @return How often {@link #get(Object)} found a cached cookable
+     */
+    public final synchronized long
+    getHitCount() { return this.hitCount; }
+
+    /**
+     * @return How often {@link #get(Object)} did not find a cached cookable
+     */
+    public final synchronized long
+    getMissCount() { return this.missCount; }
+
+    /**
+     * @return How many cookables were evicted because the cache was full
+     */
+    public final synchronized long
+    getEvictionCount() { return this.evictionCount; }
+
+    @Override public synchronized String
+    toString() {
+        return (
+            "size="
+            + this.entries.size()
+            + ", bytecodeSize="
+            + this.bytecodeSize
+            + ", hits="
+            + this.hitCount
+            + ", misses="
+            + this.missCount
+            + ", evictions="
+            + this.evictionCount
+        );
+    }
+
+    /**
+     * Caches the freshly cooked <var>cookable</var>, and, in the same critical section, removes the <var>key</var>
+     * from {@link #cooking}, so that a concurrent {@link #get(Object)} finds the one or the other.
+     */
+    private void
+    put(K key, C cookable) {
+
+        long size = 0;
+        for (byte[] bytecode : cookable.getBytecodes().values()) size += bytecode.length;
+
+        List<K> evictedKeys      = new ArrayList<>();
+        List<C> evictedCookables = new ArrayList<>();
+        synchronized (this) {
+
+            this.cooking.remove(key);
+
+            Entry<C> prev = (Entry<C>) this.entries.put(key, new Entry<C>(cookable, size));
+            if (prev != null) this.bytecodeSize -= prev.bytecodeSize;
+            this.bytecodeSize += size;
+
+            // Evict the least recently used entries. (If the new entry alone exceeds the limit, then it is evicted,
+            // too.)
+            for (
+                Iterator<Map.Entry<K, Entry<C>>> it = this.entries.entrySet().iterator();
+                it.hasNext() && (
+                    this.entries.size() > this.maximumCount
+                    || this.bytecodeSize > this.maximumBytecodeSize
+                );
+            ) {
+                Map.Entry<K, Entry<C>> me = (Map.Entry<K, Entry<C>>) it.next();
+                Entry<C>               e  = (Entry<C>) me.getValue();
+                it.remove();
+                this.bytecodeSize -= e.bytecodeSize;
+                this.evictionCount++;
+                evictedKeys.add(me.getKey());
+                evictedCookables.add(e.cookable);
+            }
+        }
+
+        // Notify outside of the lock.
+        for (int i = 0; i < evictedKeys.size(); i++) this.evicted(evictedKeys.get(i), (C) evictedCookables.get(i));
+    }
+
+    /**
+     * Waits for the <var>ft</var> to complete, and unwraps any exception that it threw.
+     */
+    private C
+    getUninterruptibly(FutureTask<C> ft) throws CompileException {
+        boolean interrupted = false;
+        try {
+            for (;;) {
+                try {
+                    return (C) ft.get();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                } catch (ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof CompileException) throw (CompileException) cause;
+                    if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                    if (cause instanceof Error)            throw (Error) cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
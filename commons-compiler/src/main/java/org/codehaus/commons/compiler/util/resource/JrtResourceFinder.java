@@ -0,0 +1,196 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.commons.compiler.util.resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.commons.nullanalysis.Nullable;
+
+/**
+ * A {@link ResourceFinder} that finds the resources of the modules of the running JVM (Java 9+) through the "{@code
+ * jrt:/}" file system.
+ * <p>
+ *   When constructed, it reads the {@code /packages} directory of the file system, which maps each package to the
+ *   module(s) that contain it. The names of the resources of a package are read (once) when the first resource of
+ *   that package is looked up. Thus, after warm-up, each {@link #findResource(String)} is a map lookup, and opening
+ *   the resource reads exactly one file.
+ * </p>
+ */
+public
+class JrtResourceFinder extends ResourceFinder {
+
+    /**
+     * Package name (e.g. "java/lang") => the directories of the modules that contain the package (e.g.
+     * "/modules/java.base").
+     */
+    private final Map<String /*packageName*/, List<Path> /*moduleDirectory*/> moduleDirectories = new HashMap<>();
+
+    /**
+     * Resource name (e.g. "java/lang/Object.class") => file; lazily filled per package.
+     */
+    private final Map<String /*resourceName*/, Path> files = new ConcurrentHashMap<>();
+
+    /**
+     * The names of the packages of which the resources were already put into {@link #files}.
+     */
+    private final Set<String /*packageName*/> indexedPackages = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>()
+    );
+
+    /**
+     * Equivalent with {@link #JrtResourceFinder(FileSystem) JrtResourceFinder}{@code
+     * (FileSystems.getFileSystem(URI.create("jrt:/")))}.
+     *
+     * @throws java.nio.file.FileSystemNotFoundException The running JVM has no "{@code jrt:/}" file system (Java 8-)
+     */
+    public
+    JrtResourceFinder() throws IOException { this(FileSystems.getFileSystem(URI.create("jrt:/"))); }
+
+    /**
+     * @param jrtFileSystem A "{@code jrt:/}" file system, typically the one of the running JVM, or one that was opened
+     *                      for a different Java installation
+     */
+    public
+    JrtResourceFinder(FileSystem jrtFileSystem) throws IOException {
+
+        Path modulesDirectory = jrtFileSystem.getPath("/modules");
+
+        DirectoryStream<Path> packageDirectories = Files.newDirectoryStream(jrtFileSystem.getPath("/packages"));
+        try {
+            for (Path packageDirectory : packageDirectories) {
+
+                // The entries of "/packages/java.lang" are links named after the modules, e.g. "java.base".
+                List<Path>            mds     = new ArrayList<>(1);
+                DirectoryStream<Path> modules = Files.newDirectoryStream(packageDirectory);
+                try {
+                    for (Path module : modules) {
+                        mds.add(modulesDirectory.resolve(JrtResourceFinder.fileName(module)));
+                    }
+                } finally {
+                    try { modules.close(); } catch (IOException e) {}
+                }
+
+                this.moduleDirectories.put(JrtResourceFinder.fileName(packageDirectory).replace('.', '/'), mds);
+            }
+        } finally {
+            try { packageDirectories.close(); } catch (IOException e) {}
+        }
+    }
+
+    @Override @Nullable public Resource
+    findResource(final String resourceName) {
+
+        int idx = resourceName.lastIndexOf('/');
+        if (idx == -1) return null;
+
+        String packageName = resourceName.substring(0, idx);
+        if (!this.indexedPackages.contains(packageName)) this.indexPackage(packageName);
+
+        final Path file = (Path) this.files.get(resourceName);
+        if (file == null) return null;
+
+        return new LocatableResource() {
+
+            @Override public URL
+            getLocation() throws IOException { return file.toUri().toURL(); }
+
+            @Override public InputStream
+            open() throws IOException { return Files.newInputStream(file); }
+
+            @Override public String
+            getFileName() { return file.toUri().toString(); }
+
+            @Override public long
+            lastModified() {
+                try {
+                    return Files.getLastModifiedTime(file).toMillis();
+                } catch (IOException ioe) {
+                    return 0L;
+                }
+            }
+
+            @Override public String
+            toString() { return this.getFileName(); }
+        };
+    }
+
+    /**
+     * Puts the resources of the given package into {@link #files}.
+     */
+    private void
+    indexPackage(String packageName) {
+
+        List<Path> mds = (List<Path>) this.moduleDirectories.get(packageName);
+        if (mds != null) {
+            for (Path md : mds) {
+                try {
+                    DirectoryStream<Path> ds = Files.newDirectoryStream(md.resolve(packageName));
+                    try {
+                        for (Path file : ds) {
+                            if (Files.isDirectory(file)) continue; // Subpackage.
+
+                            String resourceName = packageName + '/' + JrtResourceFinder.fileName(file);
+                            if (!this.files.containsKey(resourceName)) this.files.put(resourceName, file);
+                        }
+                    } finally {
+                        try { ds.close(); } catch (IOException e) {}
+                    }
+                } catch (IOException ioe) {
+
+                    // The "/packages" directory is inconsistent with the "/modules" directory?
+                    continue;
+                }
+            }
+        }
+
+        this.indexedPackages.add(packageName);
+    }
+
+    private static String
+    fileName(Path path) {
+        Path result = path.getFileName();
+        assert result != null;
+        return result.toString();
+    }
+
+    @Override public String
+    toString() { return "jrt:/"; }
+}
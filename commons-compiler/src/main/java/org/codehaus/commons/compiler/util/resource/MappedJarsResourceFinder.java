@@ -0,0 +1,489 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.commons.compiler.util.resource;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.codehaus.commons.nullanalysis.Nullable;
+
+/**
+ * A {@link ResourceFinder} that finds resources in a sequence of JAR (or ZIP) files, like a class path.
+ * <p>
+ *   When constructed, it memory-maps each JAR file, reads its central directory, and puts the names of its entries
+ *   into <em>one</em> hash map. Thus, each {@link #findResource(String)} is a single map lookup, no matter how many
+ *   JAR files there are; particularly, a "miss" does not probe each and every JAR file. If two JAR files contain an
+ *   entry with the same name, then the one that comes first wins (as with a class path).
+ * </p>
+ * <p>
+ *   The contents of "stored" (uncompressed) entries are returned as slices of the mapped JAR file, i.e. without any
+ *   copying; the contents of "deflated" entries are inflated directly from the mapped JAR file into a buffer of
+ *   exactly the right size. See {@link #getContents(String)}.
+ * </p>
+ * <p>
+ *   JAR files that cannot be memory-mapped or parsed (e.g. ZIP64 files) are read through {@link ZipFile}s instead;
+ *   their entries are nonetheless part of the one hash map. Files that do not exist or are not readable are silently
+ *   ignored, like in a class path.
+ * </p>
+ * <p>
+ *   {@link #close()} closes these {@link ZipFile}s, and drops the references to the mapped JAR files; afterwards, the
+ *   finder finds no more resources, and the resources that it found before throw an {@link IOException} when opened.
+ *   Notice that there is no way to explicitly un-map a memory-mapped file; the
+ *   mappings are released only when they are garbage-collected, i.e. after {@link #close()} (or when this object is
+ *   garbage-collected), and when no buffer returned by {@link #getContents(String)} is referenced any longer. (On
+ *   some operating systems, a mapped file cannot be deleted or modified.)
+ * </p>
+ */
+public
+class MappedJarsResourceFinder extends ResourceFinder implements Closeable {
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE        = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER_SIGNATURE      = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private static final int STORED   = 0;
+    private static final int DEFLATED = 8;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Resource name => where to find the entry; filled by the constructor and not modified thereafter, and replaced
+     * with an empty map by {@link #close()}.
+     */
+    private volatile Map<String /*resourceName*/, JarEntry> entries = new HashMap<>();
+
+    /**
+     * The JAR files that could not be memory-mapped; closed by {@link #close()}.
+     */
+    private final List<ZipFile> zipFiles = new ArrayList<>();
+
+    private volatile boolean closed;
+
+    private final String toString;
+
+    /**
+     * @param jarFiles The JAR or ZIP files to search, in that order; entries that are not files are ignored
+     */
+    public
+    MappedJarsResourceFinder(File[] jarFiles) {
+
+        StringBuilder sb = new StringBuilder();
+        for (File jarFile : jarFiles) {
+            if (!jarFile.isFile()) continue;
+
+            try {
+                this.indexMappedJarFile(jarFile);
+            } catch (IOException ioe) {
+
+                // Fall back to "java.util.zip.ZipFile", which handles ZIP64 and other exotic formats.
+                try {
+                    this.indexZipFile(new ZipFile(jarFile));
+                } catch (IOException ioe2) {
+                    continue;
+                }
+            }
+            if (sb.length() > 0) sb.append(File.pathSeparatorChar);
+            sb.append(jarFile.getPath());
+        }
+        this.toString = "mappedJars:" + sb;
+    }
+
+    @Override public String
+    toString() { return this.toString; }
+
+    /**
+     * Closes the JAR files that could not be memory-mapped, and drops the references to the mapped JAR files.
+     * Afterwards, this finder finds no more resources, and {@link Resource#open()} throws an {@link IOException} for
+     * the resources that it found before.
+     */
+    @Override public void
+    close() throws IOException {
+
+        this.closed  = true;
+        this.entries = Collections.emptyMap();
+
+        IOException firstException = null;
+        synchronized (this.zipFiles) {
+            for (ZipFile zf : this.zipFiles) {
+                try {
+                    zf.close();
+                } catch (IOException ioe) {
+                    if (firstException == null) firstException = ioe;
+                }
+            }
+            this.zipFiles.clear();
+        }
+        if (firstException != null) throw firstException;
+    }
+
+    // Implement ResourceFinder.
+
+    @Override @Nullable public Resource
+    findResource(final String resourceName) {
+
+        final JarEntry je = (JarEntry) this.entries.get(resourceName);
+        if (je == null) return null;
+
+        return new LocatableResource() {
+
+            @Override public URL
+            getLocation() throws IOException {
+                return new URL("jar", null, je.getJarFile().toURI() + "!/" + resourceName);
+            }
+
+            @Override public InputStream
+            open() throws IOException {
+                if (MappedJarsResourceFinder.this.closed) {
+                    throw new IOException(this.getFileName() + ": Finder is closed");
+                }
+                return MappedJarsResourceFinder.inputStream(je.getContents());
+            }
+
+            @Override public String
+            getFileName() { return je.getJarFile().getPath() + ':' + resourceName; }
+
+            @Override public long
+            lastModified() { return je.lastModified(); }
+
+            @Override public String
+            toString() { return this.getFileName(); }
+        };
+    }
+
+    /**
+     * @return The contents of the named resource, or {@code null} iff no such resource exists; for "stored" JAR
+     *         entries, the returned buffer is a (read-only) slice of the memory-mapped JAR file
+     */
+    @Nullable public ByteBuffer
+    getContents(String resourceName) throws IOException {
+        JarEntry je = (JarEntry) this.entries.get(resourceName);
+        return je == null ? null : je.getContents();
+    }
+
+    private void
+    indexMappedJarFile(File jarFile) throws IOException {
+
+        ByteBuffer mbb;
+        {
+            RandomAccessFile raf = new RandomAccessFile(jarFile, "r");
+            try {
+                FileChannel fc = raf.getChannel();
+                if (fc.size() > Integer.MAX_VALUE) throw new IOException("JAR file too large to map");
+                mbb = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+            } finally {
+                try { raf.close(); } catch (IOException e) {}
+            }
+        }
+        ByteBuffer bb = MappedJarsResourceFinder.littleEndian(mbb);
+
+        // Locate the "end of central directory record"; it is followed by a comment of up to 65535 bytes.
+        int eocd = bb.limit() - 22;
+        for (;; eocd--) {
+            if (eocd < 0 || eocd < bb.limit() - 22 - 65535) throw new IOException("No central directory");
+            if (bb.getInt(eocd) == MappedJarsResourceFinder.END_OF_CENTRAL_DIRECTORY_SIGNATURE) break;
+        }
+
+        int entryCount = bb.getShort(eocd + 10) & 0xffff;
+        int cdOffset   = bb.getInt(eocd + 16);
+        if (entryCount == 0xffff || cdOffset == -1) throw new IOException("ZIP64 not supported");
+
+        // Parse the central directory, and index the entries. Entries of earlier JAR files take precedence.
+        MappedJar mj = new MappedJar(jarFile, mbb);
+        int       p  = cdOffset;
+        for (int i = 0; i < entryCount; i++) {
+            if (p < 0 || p + 46 > bb.limit() || bb.getInt(p) != MappedJarsResourceFinder.CENTRAL_FILE_HEADER_SIGNATURE) {
+                throw new IOException("Corrupt central directory");
+            }
+            int nameLength    = bb.getShort(p + 28) & 0xffff;
+            int extraLength   = bb.getShort(p + 30) & 0xffff;
+            int commentLength = bb.getShort(p + 32) & 0xffff;
+
+            // Encrypted entries (general purpose flag bit 0) cannot be read.
+            if ((bb.getShort(p + 8) & 1) == 0) {
+                String name = MappedJarsResourceFinder.decode(bb, p + 46, nameLength);
+                if (!name.endsWith("/") && !this.entries.containsKey(name)) {
+                    this.entries.put(name, new MappedJarEntry(mj, p));
+                }
+            }
+
+            p += 46 + nameLength + extraLength + commentLength;
+        }
+    }
+
+    private void
+    indexZipFile(ZipFile zipFile) {
+        this.zipFiles.add(zipFile);
+        for (Enumeration<? extends ZipEntry> en = zipFile.entries(); en.hasMoreElements();) {
+            ZipEntry ze = (ZipEntry) en.nextElement();
+            if (!ze.isDirectory() && !this.entries.containsKey(ze.getName())) {
+                this.entries.put(ze.getName(), new ZipFileJarEntry(zipFile, ze));
+            }
+        }
+    }
+
+    /**
+     * @return A duplicate of <var>bb</var> (with independent position and limit) with little-endian byte order, as is
+     *         used by the ZIP file format
+     */
+    private static ByteBuffer
+    littleEndian(ByteBuffer bb) {
+
+        // The casts to "ByteBuffer" (here and elsewhere) are necessary for JANINO, which otherwise binds to the
+        // "Buffer.duplicate()" and "Buffer.slice()" methods of JRE 9+.
+        ByteBuffer result = (ByteBuffer) bb.duplicate();
+        result.order(ByteOrder.LITTLE_ENDIAN);
+        return result;
+    }
+
+    private static String
+    decode(ByteBuffer bb, int offset, int length) {
+        ByteBuffer bb2 = (ByteBuffer) bb.duplicate();
+        bb2.limit(offset + length);
+        bb2.position(offset);
+        return MappedJarsResourceFinder.UTF_8.decode(bb2).toString();
+    }
+
+    /**
+     * Where to find the contents of one JAR entry.
+     */
+    private abstract static
+    class JarEntry {
+
+        abstract File getJarFile();
+
+        abstract ByteBuffer getContents() throws IOException;
+
+        abstract long lastModified();
+    }
+
+    private static final
+    class MappedJar {
+
+        final File       file;
+        final ByteBuffer buffer;
+
+        MappedJar(File file, ByteBuffer buffer) {
+            this.file   = file;
+            this.buffer = buffer;
+        }
+    }
+
+    private static final
+    class MappedJarEntry extends JarEntry {
+
+        private final MappedJar mappedJar;
+
+        /**
+         * The offset of the entry's "central file header" within the mapped JAR file.
+         */
+        private final int centralHeaderOffset;
+
+        MappedJarEntry(MappedJar mappedJar, int centralHeaderOffset) {
+            this.mappedJar           = mappedJar;
+            this.centralHeaderOffset = centralHeaderOffset;
+        }
+
+        @Override File
+        getJarFile() { return this.mappedJar.file; }
+
+        @Override ByteBuffer
+        getContents() throws IOException {
+
+            // Use a duplicate of the buffer, so that concurrent invocations don't interfere.
+            ByteBuffer bb = MappedJarsResourceFinder.littleEndian(this.mappedJar.buffer);
+
+            int ch               = this.centralHeaderOffset;
+            int method           = bb.getShort(ch + 10) & 0xffff;
+            int compressedSize   = bb.getInt(ch + 20);
+            int uncompressedSize = bb.getInt(ch + 24);
+            int lh               = bb.getInt(ch + 42);
+
+            if (
+                lh < 0
+                || lh + 30 > bb.limit()
+                || bb.getInt(lh) != MappedJarsResourceFinder.LOCAL_FILE_HEADER_SIGNATURE
+            ) throw new IOException(this.mappedJar.file + ": Corrupt local file header");
+
+            // The lengths of the name and the extra field in the local header may differ from those in the central
+            // header.
+            int dataOffset = lh + 30 + (bb.getShort(lh + 26) & 0xffff) + (bb.getShort(lh + 28) & 0xffff);
+            if (compressedSize < 0 || uncompressedSize < 0 || dataOffset + compressedSize > bb.limit()) {
+                throw new IOException(this.mappedJar.file + ": Corrupt entry size");
+            }
+
+            bb.limit(dataOffset + compressedSize);
+            bb.position(dataOffset);
+            ByteBuffer data = (ByteBuffer) bb.slice();
+
+            switch (method) {
+
+            case STORED:
+                return data.asReadOnlyBuffer();
+
+            case DEFLATED:
+
+                // Java 7's "Inflater" accepts only byte arrays, so the compressed data must be copied once.
+                byte[] in = new byte[compressedSize];
+                data.get(in);
+
+                byte[]   out      = new byte[uncompressedSize];
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(in);
+                    int n = 0;
+                    while (n < uncompressedSize) {
+                        int k = inflater.inflate(out, n, uncompressedSize - n);
+                        if (k == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        n += k;
+                    }
+                    if (n != uncompressedSize) throw new IOException(this.mappedJar.file + ": Truncated entry");
+                } catch (DataFormatException dfe) {
+                    throw new IOException(this.mappedJar.file + ": " + dfe.getMessage(), dfe);
+                } finally {
+                    inflater.end();
+                }
+                return ByteBuffer.wrap(out);
+
+            default:
+                throw new IOException(this.mappedJar.file + ": Unsupported compression method " + method);
+            }
+        }
+
+        @Override long
+        lastModified() {
+            ByteBuffer bb = MappedJarsResourceFinder.littleEndian(this.mappedJar.buffer);
+            int        t  = bb.getShort(this.centralHeaderOffset + 12) & 0xffff;
+            int        d  = bb.getShort(this.centralHeaderOffset + 14) & 0xffff;
+
+            // Convert the MS-DOS date and time to Java time, like "ZipEntry.getTime()" does.
+            Calendar c = new GregorianCalendar(
+                1980 + (d >> 9),      // year
+                ((d >> 5) & 0xf) - 1, // month
+                d & 0x1f,             // dayOfMonth
+                t >> 11,              // hourOfDay
+                (t >> 5) & 0x3f,      // minute
+                (t & 0x1f) << 1       // second
+            );
+            return c.getTimeInMillis();
+        }
+    }
+
+    private static final
+    class ZipFileJarEntry extends JarEntry {
+
+        private final ZipFile  zipFile;
+        private final ZipEntry zipEntry;
+
+        ZipFileJarEntry(ZipFile zipFile, ZipEntry zipEntry) {
+            this.zipFile  = zipFile;
+            this.zipEntry = zipEntry;
+        }
+
+        @Override File
+        getJarFile() { return new File(this.zipFile.getName()); }
+
+        @Override ByteBuffer
+        getContents() throws IOException {
+            InputStream is = this.zipFile.getInputStream(this.zipEntry);
+            try {
+                long   size   = this.zipEntry.getSize();
+                byte[] buffer = new byte[size >= 0 && size <= Integer.MAX_VALUE ? (int) size : 4096];
+                int    n      = 0;
+                for (;;) {
+                    if (n == buffer.length) {
+                        int b = is.read();
+                        if (b == -1) break;
+                        byte[] tmp = new byte[2 * buffer.length];
+                        System.arraycopy(buffer, 0, tmp, 0, n);
+                        buffer = tmp;
+                        buffer[n++] = (byte) b;
+                    }
+                    int k = is.read(buffer, n, buffer.length - n);
+                    if (k == -1) break;
+                    n += k;
+                }
+                return ByteBuffer.wrap(buffer, 0, n);
+            } finally {
+                try { is.close(); } catch (IOException e) {}
+            }
+        }
+
+        @Override long
+        lastModified() { long l = this.zipEntry.getTime(); return l == -1L ? 0L : l; }
+    }
+
+    private static InputStream
+    inputStream(final ByteBuffer bb) {
+
+        return new InputStream() {
+
+            @Override public int
+            read() { return bb.hasRemaining() ? bb.get() & 0xff : -1; }
+
+            @Override public int
+            read(@Nullable byte[] b, int off, int len) {
+                assert b != null;
+                if (len == 0) return 0;
+                if (!bb.hasRemaining()) return -1;
+                len = Math.min(len, bb.remaining());
+                bb.get(b, off, len);
+                return len;
+            }
+
+            @Override public long
+            skip(long n) {
+                int k = (int) Math.max(0, Math.min(n, bb.remaining()));
+                bb.position(bb.position() + k);
+                return k;
+            }
+
+            @Override public int
+            available() { return bb.remaining(); }
+        };
+    }
+}
@@ -26,17 +26,27 @@
 package org.codehaus.commons.compiler.util.tests;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
 import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 
 import org.codehaus.commons.compiler.lang.ClassLoaders;
+import org.codehaus.commons.compiler.util.resource.JrtResourceFinder;
 import org.codehaus.commons.compiler.util.resource.LocatableResource;
+import org.codehaus.commons.compiler.util.resource.MappedJarsResourceFinder;
 import org.codehaus.commons.compiler.util.resource.Resource;
 import org.codehaus.commons.compiler.util.resource.ResourceFinders;
 import org.codehaus.commons.compiler.util.resource.ZipFileResourceFinder;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
 // SUPPRESS CHECKSTYLE Javadoc:9999
@@ -80,6 +90,116 @@ class ResourceFinderTest {
 
     }
 
+    @SuppressWarnings("static-method") @Test public void
+    testJrtResource() throws Exception {
+
+        // The "jrt:/" file system exists only in Java 9+.
+        Assume.assumeTrue(System.getProperty("sun.boot.class.path") == null);
+
+        JrtResourceFinder rf = new JrtResourceFinder();
+
+        Resource r = rf.findResource("java/lang/Object.class");
+        Assert.assertNotNull(r);
+        Assert.assertEquals("jrt:/java.base/java/lang/Object.class", r.getFileName());
+
+        InputStream is = r.open();
+        try {
+            Assert.assertEquals(0xca, is.read());
+            Assert.assertEquals(0xfe, is.read());
+        } finally {
+            is.close();
+        }
+
+        Assert.assertNotNull(rf.findResource("java/sql/Connection.class"));
+        Assert.assertNull(rf.findResource("java/lang/NoSuchClass.class"));
+        Assert.assertNull(rf.findResource("java/lang/reflect"));
+        Assert.assertNull(rf.findResource("no/such/pkg/Foo.class"));
+    }
+
+    @SuppressWarnings("static-method") @Test public void
+    testMappedJarsResource() throws Exception {
+
+        File jar1 = File.createTempFile("jar1-", ".jar");
+        File jar2 = File.createTempFile("jar2-", ".jar");
+        try {
+            ResourceFinderTest.createJar(jar1, "a/Stored.txt", "STORED1", false, "a/Deflated.txt", "DEFLATED1", true);
+            ResourceFinderTest.createJar(jar2, "a/Stored.txt", "STORED2", false, "b/Other.txt", "OTHER2", true);
+
+            MappedJarsResourceFinder rf = new MappedJarsResourceFinder(
+                new File[] { jar1, new File("no_such_file.jar"), jar2 }
+            );
+
+            // The first JAR file wins.
+            Assert.assertEquals("STORED1", ResourceFinderTest.contents(rf.findResource("a/Stored.txt")));
+            Assert.assertEquals("DEFLATED1", ResourceFinderTest.contents(rf.findResource("a/Deflated.txt")));
+            Assert.assertEquals("OTHER2", ResourceFinderTest.contents(rf.findResource("b/Other.txt")));
+            Assert.assertNull(rf.findResource("a/NoSuchResource.txt"));
+            Assert.assertNull(rf.findResource("a/"));
+
+            ByteBuffer bb = rf.getContents("a/Stored.txt");
+            Assert.assertNotNull(bb);
+            Assert.assertTrue(bb.isReadOnly());
+            Assert.assertEquals(7, bb.remaining());
+
+            Resource r = rf.findResource("b/Other.txt");
+            Assert.assertNotNull(r);
+            Assert.assertEquals(
+                "jar:" + jar2.toURI() + "!/b/Other.txt",
+                ((LocatableResource) r).getLocation().toString()
+            );
+            Assert.assertTrue(r.lastModified() > 0);
+
+            // After closing, the finder finds nothing, and the resources found before can no longer be opened.
+            rf.close();
+            Assert.assertNull(rf.findResource("a/Stored.txt"));
+            try {
+                r.open();
+                Assert.fail();
+            } catch (IOException ioe) {
+                Assert.assertTrue(ioe.getMessage(), ioe.getMessage().endsWith("Finder is closed"));
+            }
+        } finally {
+            jar1.delete();
+            jar2.delete();
+        }
+    }
+
+    private static void
+    createJar(File file, Object... nameContentsCompresseds) throws Exception {
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < nameContentsCompresseds.length; i += 3) {
+                byte[]   contents = ((String) nameContentsCompresseds[i + 1]).getBytes("UTF-8");
+                ZipEntry ze       = new ZipEntry((String) nameContentsCompresseds[i]);
+                if (!(Boolean) nameContentsCompresseds[i + 2]) {
+                    CRC32 crc = new CRC32();
+                    crc.update(contents);
+                    ze.setMethod(ZipEntry.STORED);
+                    ze.setSize(contents.length);
+                    ze.setCrc(crc.getValue());
+                }
+                zos.putNextEntry(ze);
+                zos.write(contents);
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+    }
+
+    private static String
+    contents(Resource r) throws Exception {
+        Assert.assertNotNull(r);
+        InputStream is = r.open();
+        try {
+            StringBuilder sb = new StringBuilder();
+            for (int c = is.read(); c != -1; c = is.read()) sb.append((char) c);
+            return sb.toString();
+        } finally {
+            is.close();
+        }
+    }
+
     private static void
     assertMatches(String regex, String actual) {
         Assert.assertTrue("\"" + actual + "\" does not match regex \"" + regex + "\"", Pattern.matches(regex, actual));
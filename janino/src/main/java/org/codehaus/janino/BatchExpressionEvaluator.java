@@ -0,0 +1,392 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.InternalCompilerException;
+import org.codehaus.commons.nullanalysis.Nullable;
+import org.codehaus.janino.CodeContext.CodeTooLargeException;
+import org.codehaus.janino.util.ClassFile.ClassFileException;
+
+/**
+ * Cooks a large number of expressions into as few generated classes as possible.
+ * <p>
+ *   Cooking each expression with its own {@link ExpressionEvaluator} means one parser, one {@link UnitCompiler}, one
+ *   {@link ClassLoader} and one loaded class <em>per expression</em>, which dominates the cost when thousands of small
+ *   expressions must be compiled (e.g. rule engines, spreadsheet formulas). This class instead puts up to {@link
+ *   #setMaxExpressionsPerClass(int) a configurable number} of expressions into each generated class, one static
+ *   method per expression.
+ * </p>
+ * <p>
+ *   If a generated class exceeds one of the limits of the JVM (constant pool of 64K entries, 64 KB code per method),
+ *   then the set of expressions is split in two halves, which are cooked separately.
+ * </p>
+ * <p>
+ *   Example:
+ * </p>
+ * <pre>
+ *     BatchExpressionEvaluator bee = new BatchExpressionEvaluator();
+ *     Method[] methods = bee.cook(
+ *         new String[]     { "a + b",                "s.length()"         },
+ *         new Class[]      { int.class,              int.class            },
+ *         new String[][]   { { "a", "b" },           { "s" }              },
+ *         new Class[][]    { { int.class, int.class }, { String.class }   }
+ *     );
+ *     int x = (Integer) methods[0].invoke(null, 3, 4);
+ * </pre>
+ */
+public
+class BatchExpressionEvaluator {
+
+    /**
+     * The default value for {@link #setMaxExpressionsPerClass(int)}.
+     */
+    public static final int DEFAULT_MAX_EXPRESSIONS_PER_CLASS = 1000;
+
+    private static final String CLASS_NAME            = "BatchExpressions";
+    private static final String DISPATCHER_CLASS_NAME = "BatchExpressionsDispatcher";
+    private static final String METHOD_NAME           = "eval";
+
+    @Nullable private ClassLoader parentClassLoader;
+    private String[]              defaultImports          = new String[0];
+    private int                   maxExpressionsPerClass  = BatchExpressionEvaluator.DEFAULT_MAX_EXPRESSIONS_PER_CLASS;
+    private int                   generatedClassCount;
+
+    /**
+     * @see SimpleCompiler#setParentClassLoader(ClassLoader)
+     */
+    public void
+    setParentClassLoader(@Nullable ClassLoader parentClassLoader) { this.parentClassLoader = parentClassLoader; }
+
+    /**
+     * @see ExpressionEvaluator#setDefaultImports(String...)
+     */
+    public void
+    setDefaultImports(String... defaultImports) { this.defaultImports = defaultImports; }
+
+    /**
+     * Limits the number of expressions that are compiled into one class; defaults to {@link
+     * #DEFAULT_MAX_EXPRESSIONS_PER_CLASS}.
+     */
+    public void
+    setMaxExpressionsPerClass(int maxExpressionsPerClass) {
+        if (maxExpressionsPerClass < 1) throw new IllegalArgumentException(Integer.toString(maxExpressionsPerClass));
+        this.maxExpressionsPerClass = maxExpressionsPerClass;
+    }
+
+    /**
+     * @return The number of classes that were generated by this object so far, including the dispatcher classes
+     *         generated by {@link #createFastEvaluators(String[], Class, String[][])}
+     */
+    public int
+    getGeneratedClassCount() { return this.generatedClassCount; }
+
+    /**
+     * Compiles the <var>expressions</var> into static methods.
+     *
+     * @param expressionTypes The types of the expressions, or {@code null} elements for the {@link
+     *                        ExpressionEvaluator#setDefaultExpressionType(Class) default expression type}
+     * @return                The generated methods, one per expression, in the same order as the
+     *                        <var>expressions</var>
+     */
+    public Method[]
+    cook(
+        String[]              expressions,
+        @Nullable Class<?>[]  expressionTypes,
+        String[][]            parameterNames,
+        Class<?>[][]          parameterTypes
+    ) throws CompileException {
+
+        int n = expressions.length;
+        if (
+            (expressionTypes != null && expressionTypes.length != n)
+            || parameterNames.length != n
+            || parameterTypes.length != n
+        ) throw new IllegalArgumentException("Array lengths do not match");
+
+        Method[] result = new Method[n];
+        for (int from = 0; from < n; from += this.maxExpressionsPerClass) {
+            this.cook(
+                expressions,
+                expressionTypes,
+                parameterNames,
+                parameterTypes,
+                null,
+                from,
+                Math.min(n, from + this.maxExpressionsPerClass),
+                result
+            );
+        }
+        return result;
+    }
+
+    /**
+     * Compiles the <var>expressions</var> into objects that implement the <var>interfaceToImplement</var>; the
+     * batch equivalent of {@link ExpressionEvaluator#createFastEvaluator(String, Class, String[])}.
+     * <p>
+     *   Each returned object is an instance of a small dispatcher class (one per generated expression class), which
+     *   forwards the interface method to the static method that implements "its" expression.
+     * </p>
+     *
+     * @param interfaceToImplement Must declare exactly one method
+     * @param parameterNames       The parameter names of each expression; their number must match the parameters of
+     *                             the interface method
+     * @return                     One object per expression, in the same order as the <var>expressions</var>
+     */
+    public <T> List<T>
+    createFastEvaluators(String[] expressions, Class<T> interfaceToImplement, String[][] parameterNames)
+    throws CompileException {
+
+        if (!interfaceToImplement.isInterface()) {
+            throw new InternalCompilerException("\"" + interfaceToImplement + "\" is not an interface");
+        }
+
+        Method methodToImplement;
+        {
+            Method[] methods = interfaceToImplement.getDeclaredMethods();
+            if (methods.length != 1) {
+                throw new InternalCompilerException(
+                    "Interface \""
+                    + interfaceToImplement
+                    + "\" must declare exactly one method"
+                );
+            }
+            methodToImplement = methods[0];
+        }
+
+        int n = expressions.length;
+        if (parameterNames.length != n) throw new IllegalArgumentException("Array lengths do not match");
+
+        Class<?>[]   expressionTypes = new Class<?>[n];
+        Class<?>[][] parameterTypes  = new Class<?>[n][];
+        Arrays.fill(expressionTypes, methodToImplement.getReturnType());
+        Arrays.fill(parameterTypes, methodToImplement.getParameterTypes());
+
+        Object[] evaluators = new Object[n];
+        for (int from = 0; from < n; from += this.maxExpressionsPerClass) {
+            this.cook(
+                expressions,
+                expressionTypes,
+                parameterNames,
+                parameterTypes,
+                methodToImplement,
+                from,
+                Math.min(n, from + this.maxExpressionsPerClass),
+                evaluators
+            );
+        }
+
+        List<T> result = new ArrayList<T>(n);
+        for (Object evaluator : evaluators) result.add(interfaceToImplement.cast(evaluator));
+        return result;
+    }
+
+    /**
+     * Cooks the expressions <var>from</var> ... <var>to</var>-1 into one class, or, if that class would exceed a JVM
+     * limit, into two or more classes.
+     *
+     * @param methodToImplement {@code null} to store the generated {@link Method}s in the <var>result</var>,
+     *                          non-{@code null} to store fast evaluator objects
+     */
+    private void
+    cook(
+        String[]             expressions,
+        @Nullable Class<?>[] expressionTypes,
+        String[][]           parameterNames,
+        Class<?>[][]         parameterTypes,
+        @Nullable Method     methodToImplement,
+        int                  from,
+        int                  to,
+        Object[]             result
+    ) throws CompileException {
+
+        try {
+            this.cook2(
+                expressions,
+                expressionTypes,
+                parameterNames,
+                parameterTypes,
+                methodToImplement,
+                from,
+                to,
+                result
+            );
+            return;
+        } catch (CompileException ce) {
+            if (to - from == 1 || !BatchExpressionEvaluator.isJvmLimitExceeded(ce)) throw ce;
+        } catch (InternalCompilerException ice) {
+            if (to - from == 1 || !BatchExpressionEvaluator.isJvmLimitExceeded(ice)) throw ice;
+        } catch (ClassFileException cfe) {
+            if (to - from == 1) throw cfe;
+        }
+
+        // The class got too large; split the expressions in two halves.
+        int mid = (from + to) >>> 1;
+        this.cook(expressions, expressionTypes, parameterNames, parameterTypes, methodToImplement, from, mid, result);
+        this.cook(expressions, expressionTypes, parameterNames, parameterTypes, methodToImplement, mid, to, result);
+    }
+
+    private void
+    cook2(
+        String[]             expressions,
+        @Nullable Class<?>[] expressionTypes,
+        String[][]           parameterNames,
+        Class<?>[][]         parameterTypes,
+        @Nullable Method     methodToImplement,
+        int                  from,
+        int                  to,
+        Object[]             result
+    ) throws CompileException {
+
+        int n = to - from;
+
+        String[] fileNames   = new String[n];
+        String[] methodNames = new String[n];
+        for (int i = 0; i < n; i++) {
+            fileNames[i]   = "expression #" + (from + i);
+            methodNames[i] = BatchExpressionEvaluator.METHOD_NAME + i;
+        }
+
+        ExpressionEvaluator ee = new ExpressionEvaluator();
+        ee.setParentClassLoader(this.parentClassLoader);
+        ee.setDefaultImports(this.defaultImports);
+        ee.setClassName(BatchExpressionEvaluator.CLASS_NAME);
+        ee.setMethodNames(methodNames);
+        if (expressionTypes != null) ee.setExpressionTypes((Class[]) Arrays.copyOfRange(expressionTypes, from, to));
+        ee.setParameters(
+            (String[][]) Arrays.copyOfRange(parameterNames, from, to),
+            (Class[][]) Arrays.copyOfRange(parameterTypes, from, to)
+        );
+        if (methodToImplement != null) {
+            Class<?>[][] thrownExceptions = new Class<?>[n][];
+            Arrays.fill(thrownExceptions, methodToImplement.getExceptionTypes());
+            ee.setThrownExceptions(thrownExceptions);
+        }
+        ee.cook(fileNames, (String[]) Arrays.copyOfRange(expressions, from, to));
+        this.generatedClassCount++;
+
+        if (methodToImplement == null) {
+            for (int i = 0; i < n; i++) result[from + i] = ee.getMethod(i);
+            return;
+        }
+
+        // Now generate the dispatcher class, which implements the interface and forwards to the static methods.
+        Class<?> dispatcherClass = this.generateDispatcher(ee.getClazz(), methodToImplement, n);
+        try {
+            Constructor<?> constructor = dispatcherClass.getConstructor(int.class);
+            for (int i = 0; i < n; i++) result[from + i] = constructor.newInstance(i);
+        } catch (NoSuchMethodException e) {
+            throw new InternalCompilerException(e.toString(), e);
+        } catch (InstantiationException e) {
+            throw new InternalCompilerException(e.toString(), e);
+        } catch (IllegalAccessException e) {
+            throw new InternalCompilerException(e.toString(), e);
+        } catch (InvocationTargetException e) {
+            throw new InternalCompilerException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Generates a class that implements the <var>methodToImplement</var> by switching on its (final) {@code index}
+     * field and invoking the corresponding static method of the <var>expressionsClass</var>.
+     */
+    private Class<?>
+    generateDispatcher(Class<?> expressionsClass, Method methodToImplement, int n) throws CompileException {
+
+        Class<?>[] parameterTypes = methodToImplement.getParameterTypes();
+        Class<?>[] exceptionTypes = methodToImplement.getExceptionTypes();
+        boolean    isVoid         = methodToImplement.getReturnType() == void.class;
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("private final int index;\n");
+        sb.append("public ").append(BatchExpressionEvaluator.DISPATCHER_CLASS_NAME).append("(int index) { ");
+        sb.append("this.index = index; }\n");
+
+        sb.append("public ").append(BatchExpressionEvaluator.typeName(methodToImplement.getReturnType())).append(' ');
+        sb.append(methodToImplement.getName()).append('(');
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(BatchExpressionEvaluator.typeName(parameterTypes[i])).append(" p").append(i);
+        }
+        sb.append(')');
+        for (int i = 0; i < exceptionTypes.length; i++) {
+            sb.append(i == 0 ? " throws " : ", ").append(BatchExpressionEvaluator.typeName(exceptionTypes[i]));
+        }
+        sb.append(" {\n");
+
+        StringBuilder arguments = new StringBuilder();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) arguments.append(", ");
+            arguments.append('p').append(i);
+        }
+
+        sb.append("switch (this.index) {\n");
+        for (int i = 0; i < n; i++) {
+            sb.append("case ").append(i).append(": ");
+            if (!isVoid) sb.append("return ");
+            sb.append(BatchExpressionEvaluator.CLASS_NAME).append('.').append(BatchExpressionEvaluator.METHOD_NAME);
+            sb.append(i).append('(').append(arguments).append(");");
+            if (isVoid) sb.append(" return;");
+            sb.append('\n');
+        }
+        sb.append("default: throw new AssertionError(this.index);\n");
+        sb.append("}\n");
+        sb.append("}\n");
+
+        ClassBodyEvaluator cbe = new ClassBodyEvaluator();
+        cbe.setParentClassLoader(expressionsClass.getClassLoader());
+        cbe.setClassName(BatchExpressionEvaluator.DISPATCHER_CLASS_NAME);
+        cbe.setImplementedInterfaces(new Class<?>[] { methodToImplement.getDeclaringClass() });
+        cbe.cook(sb.toString());
+        this.generatedClassCount++;
+
+        return cbe.getClazz();
+    }
+
+    private static String
+    typeName(Class<?> clazz) {
+        String result = clazz.getCanonicalName();
+        return result != null ? result : clazz.getName();
+    }
+
+    /**
+     * @return Whether the <var>t</var> or one of its causes indicates that the generated class exceeded a JVM limit
+     */
+    private static boolean
+    isJvmLimitExceeded(Throwable t) {
+        for (Throwable t2 = t; t2 != null; t2 = t2.getCause()) {
+            if (t2 instanceof ClassFileException || t2 instanceof CodeTooLargeException) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,300 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.codehaus.commons.compiler.InternalCompilerException;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
+import org.codehaus.commons.compiler.io.Readers;
+import org.codehaus.commons.compiler.util.resource.DirectoryResourceCreator;
+import org.codehaus.commons.compiler.util.resource.DirectoryResourceFinder;
+import org.codehaus.commons.compiler.util.resource.Resource;
+import org.codehaus.commons.compiler.util.resource.ResourceCreator;
+import org.codehaus.commons.compiler.util.resource.ResourceFinder;
+import org.codehaus.commons.nullanalysis.Nullable;
+
+/**
+ * A persistent cache for the bytecode that {@link SimpleCompiler}, {@link ClassBodyEvaluator}, {@link
+ * ScriptEvaluator} and {@link ExpressionEvaluator} generate when they are cooked from a {@link Reader} (or a string,
+ * or a file); see {@link SimpleCompiler#setBytecodeCache(BytecodeCache)} et al.
+ * <p>
+ *   The cache key is a SHA-256 hash of the source code, the file name, the JANINO version, and all configuration
+ *   settings that affect the generated bytecode (parameter names and types, return types, implemented interfaces,
+ *   default imports, source and target version, {@link JaninoOption}s, debugging information, ...). Iff the cache
+ *   holds bytecode for that key, then that bytecode is loaded, and the Scanner, the Parser and the UnitCompiler are not
+ *   used at all.
+ * </p>
+ * <p>
+ *   Notice that the types that are referenced by the source code are <em>not</em> part of the key. Thus, like with
+ *   class files generated by any other compiler, if the classes available through the parent class loader change
+ *   incompatibly, then the cache must be cleared.
+ * </p>
+ * <p>
+ *   Notice that on a cache hit no warnings are reported, because nothing is compiled.
+ * </p>
+ * <p>
+ *   I/O problems with the cache storage are logged and are otherwise treated like cache misses. Resources that were
+ *   written only partially (e.g. by a concurrent process, or by a process that was killed) are detected and also
+ *   treated like cache misses.
+ * </p>
+ */
+public
+class BytecodeCache {
+
+    private static final Logger LOGGER = Logger.getLogger(BytecodeCache.class.getName());
+
+    private static final int MAGIC = 0x4a424331; // "JBC1"
+
+    /**
+     * Is part of each cache key, so that bytecode generated by a different version of JANINO is not re-used.
+     */
+    @Nullable private static final String JANINO_VERSION;
+    static {
+        Package p = BytecodeCache.class.getPackage();
+        JANINO_VERSION = p == null ? null : p.getImplementationVersion();
+    }
+
+    private final ResourceFinder  resourceFinder;
+    private final ResourceCreator resourceCreator;
+
+    /**
+     * Stores the cached bytecode in files in the given <var>directory</var>.
+     */
+    public
+    BytecodeCache(File directory) {
+        this(new DirectoryResourceFinder(directory), new DirectoryResourceCreator(directory));
+    }
+
+    /**
+     * @param resourceFinder  Finds the resources previously stored through the <var>resourceCreator</var>
+     * @param resourceCreator Stores the cached bytecode in resources named "<var>key</var>{@code .bytecodes}"
+     */
+    public
+    BytecodeCache(ResourceFinder resourceFinder, ResourceCreator resourceCreator) {
+        this.resourceFinder  = resourceFinder;
+        this.resourceCreator = resourceCreator;
+    }
+
+    /**
+     * @return The bytecodes stored under the <var>key</var>, or {@code null} iff the cache has no (or no readable)
+     *         entry for the <var>key</var>
+     */
+    @Nullable public Map<String /*className*/, byte[] /*bytecode*/>
+    get(String key) {
+
+        Resource r = this.resourceFinder.findResource(BytecodeCache.resourceName(key));
+        if (r == null) return null;
+
+        try {
+            InputStream is = r.open();
+            try {
+                DataInputStream dis = new DataInputStream(is);
+
+                if (dis.readInt() != BytecodeCache.MAGIC) return null;
+
+                int                 count  = dis.readInt();
+                Map<String, byte[]> result = new HashMap<>();
+                for (int i = 0; i < count; i++) {
+                    String className = dis.readUTF();
+                    byte[] bytecode  = new byte[dis.readInt()];
+                    dis.readFully(bytecode);
+                    result.put(className, bytecode);
+                }
+
+                // A trailing magic number proves that the resource was completely written.
+                if (dis.readInt() != BytecodeCache.MAGIC) return null;
+
+                return result;
+            } finally {
+                try { is.close(); } catch (IOException e) {}
+            }
+        } catch (IOException ioe) {
+            BytecodeCache.LOGGER.log(Level.FINE, "Reading \"" + r.getFileName() + "\"", ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the <var>bytecodes</var> under the <var>key</var>.
+     */
+    public void
+    put(String key, Map<String /*className*/, byte[] /*bytecode*/> bytecodes) {
+
+        String resourceName = BytecodeCache.resourceName(key);
+        try {
+            OutputStream os = this.resourceCreator.createResource(resourceName);
+            try {
+                DataOutputStream dos = new DataOutputStream(os);
+
+                dos.writeInt(BytecodeCache.MAGIC);
+                dos.writeInt(bytecodes.size());
+                for (Map.Entry<String, byte[]> e : bytecodes.entrySet()) {
+                    String className = (String) e.getKey();
+                    byte[] bytecode  = (byte[]) e.getValue();
+
+                    dos.writeUTF(className);
+                    dos.writeInt(bytecode.length);
+                    dos.write(bytecode);
+                }
+                dos.writeInt(BytecodeCache.MAGIC);
+                dos.flush();
+            } finally {
+                os.close();
+            }
+        } catch (IOException ioe) {
+            BytecodeCache.LOGGER.log(Level.WARNING, "Writing \"" + resourceName + "\"", ioe);
+            this.resourceCreator.deleteResource(resourceName);
+        }
+    }
+
+    /**
+     * Computes a cache key from the given <var>components</var>, and the JANINO version.
+     *
+     * @param components Each element must be {@code null}, a {@link String}, {@link Boolean}, {@link Integer}, {@link
+     *                   Class}, {@link Enum}, an array of these, a {@code boolean[]}, or an {@link Iterable} with a
+     *                   deterministic iteration order (e.g. an {@link java.util.EnumSet}) of these
+     * @return           A (hexadecimal) SHA-256 hash of the <var>components</var>
+     */
+    public static String
+    key(Object... components) {
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new InternalCompilerException("SHA-256", nsae);
+        }
+
+        try {
+            DataOutputStream dos = new DataOutputStream(new DigestOutputStream(new OutputStream() {
+
+                @Override public void
+                write(int b) {}
+            }, md));
+
+            BytecodeCache.update(dos, BytecodeCache.JANINO_VERSION);
+            BytecodeCache.update(dos, components);
+            dos.flush();
+        } catch (IOException ioe) {
+            throw new InternalCompilerException("SNO: Digesting into a null output stream", ioe);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads each of the <var>readers</var> to end-of-input.
+     */
+    static String[]
+    readAll(Reader[] readers) throws IOException {
+        String[] result = new String[readers.length];
+        for (int i = 0; i < readers.length; i++) result[i] = Readers.readAll(readers[i]);
+        return result;
+    }
+
+    /**
+     * @return Readers that read the given <var>strings</var>
+     */
+    static Reader[]
+    stringReaders(String[] strings) {
+        Reader[] result = new Reader[strings.length];
+        for (int i = 0; i < strings.length; i++) result[i] = new CharSequenceReader(strings[i]);
+        return result;
+    }
+
+    private static void
+    update(DataOutputStream dos, @Nullable Object component) throws IOException {
+
+        // Each component is prefixed with a distinct tag, so that e.g. "{ "ab", "c" }" and "{ "a", "bc" }" yield
+        // different keys.
+        if (component == null) {
+            dos.writeByte(0);
+        } else
+        if (component instanceof String) {
+            String s = (String) component;
+            dos.writeByte(1);
+            dos.writeInt(s.length());
+            dos.writeChars(s);
+        } else
+        if (component instanceof Boolean) {
+            dos.writeByte(2);
+            dos.writeBoolean((Boolean) component);
+        } else
+        if (component instanceof Integer) {
+            dos.writeByte(3);
+            dos.writeInt((Integer) component);
+        } else
+        if (component instanceof Class) {
+            dos.writeByte(4);
+            dos.writeUTF(((Class<?>) component).getName());
+        } else
+        if (component instanceof Enum) {
+            dos.writeByte(5);
+            dos.writeUTF(((Enum<?>) component).name());
+        } else
+        if (component instanceof Object[]) {
+            Object[] oa = (Object[]) component;
+            dos.writeByte(6);
+            dos.writeInt(oa.length);
+            for (Object o : oa) BytecodeCache.update(dos, o);
+        } else
+        if (component instanceof boolean[]) {
+            boolean[] ba = (boolean[]) component;
+            dos.writeByte(7);
+            dos.writeInt(ba.length);
+            for (boolean b : ba) dos.writeBoolean(b);
+        } else
+        if (component instanceof Iterable) {
+            dos.writeByte(8);
+            for (Object o : (Iterable<?>) component) BytecodeCache.update(dos, o);
+            dos.writeByte(9);
+        } else
+        {
+            throw new IllegalArgumentException(component.getClass().getName());
+        }
+    }
+
+    private static String
+    resourceName(String key) { return key + ".bytecodes"; }
+}
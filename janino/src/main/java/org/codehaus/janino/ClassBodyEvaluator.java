@@ -28,7 +28,6 @@ package org.codehaus.janino;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
@@ -43,6 +42,7 @@ import org.codehaus.commons.compiler.ICompilerFactory;
 import org.codehaus.commons.compiler.InternalCompilerException;
 import org.codehaus.commons.compiler.Location;
 import org.codehaus.commons.compiler.WarningHandler;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
 import org.codehaus.commons.nullanalysis.Nullable;
 import org.codehaus.janino.Java.AbstractCompilationUnit;
 import org.codehaus.janino.Java.CompilationUnit;
@@ -54,6 +54,7 @@ class ClassBodyEvaluator extends Cookable implements IClassBodyEvaluator {
 
     @Nullable private WarningHandler warningHandler;
     private final SimpleCompiler     sc = new SimpleCompiler();
+    @Nullable private BytecodeCache  bytecodeCache;
 
     private String[]           defaultImports = new String[0];
     private int                sourceVersion  = -1;
@@ -260,11 +261,61 @@ class ClassBodyEvaluator extends Cookable implements IClassBodyEvaluator {
         return this;
     }
 
+    /**
+     * @see SimpleCompiler#setBytecodeCache(BytecodeCache)
+     */
+    public void
+    setBytecodeCache(@Nullable BytecodeCache bytecodeCache) { this.bytecodeCache = bytecodeCache; }
+
     // ================================= END OF CONFIGURATION SETTERS AND GETTERS =================================
 
     @Override public final void
     cook(@Nullable String fileName, Reader r) throws CompileException, IOException {
-        this.cook(new Scanner(fileName, r));
+
+        BytecodeCache bc = this.bytecodeCache;
+        if (bc == null) {
+            this.cook(new Scanner(fileName, r));
+            return;
+        }
+
+        String text = BytecodeCache.readAll(new Reader[] { r })[0];
+
+        List<Object> keyComponents = new ArrayList<>();
+        keyComponents.add(ClassBodyEvaluator.class);
+        keyComponents.add(fileName);
+        keyComponents.add(text);
+        this.addCacheKeyComponents(keyComponents);
+        String key = BytecodeCache.key(keyComponents.toArray());
+
+        Map<String, byte[]> bytecodes = bc.get(key);
+        if (bytecodes != null) {
+            this.cookBytecodes(bytecodes);
+            return;
+        }
+
+        this.cook(new Scanner(fileName, new CharSequenceReader(text)));
+        bc.put(key, this.getBytecodes());
+    }
+
+    /**
+     * @see SimpleCompiler#addCacheKeyComponents(List)
+     */
+    void
+    addCacheKeyComponents(List<Object> result) {
+        result.add(this.defaultImports);
+        result.add(this.className);
+        result.add(this.extendedType);
+        result.add(this.implementedTypes);
+        this.sc.addCacheKeyComponents(result);
+    }
+
+    /**
+     * @see SimpleCompiler#cookBytecodes(Map)
+     */
+    void
+    cookBytecodes(Map<String /*className*/, byte[] /*bytecode*/> bytecodes) {
+        this.sc.cookBytecodes(bytecodes);
+        this.loadClass();
     }
 
     public void
@@ -281,6 +332,7 @@ class ClassBodyEvaluator extends Cookable implements IClassBodyEvaluator {
 
         Parser parser = new Parser(scanner);
         parser.setSourceVersion(this.sourceVersion);
+        if (this.options().contains(JaninoOption.COMPACT_AST)) parser.setNameTable(new NameTable());
 
         Java.AbstractCompilationUnit.ImportDeclaration[] importDeclarations = this.makeImportDeclarations(parser);
 
@@ -301,6 +353,11 @@ class ClassBodyEvaluator extends Cookable implements IClassBodyEvaluator {
     cook(CompilationUnit compilationUnit) throws CompileException {
 
         this.sc.cook(compilationUnit);
+        this.loadClass();
+    }
+
+    private void
+    loadClass() {
 
         // Find the generated class by name.
         Class<?> c;
@@ -338,7 +395,7 @@ class ClassBodyEvaluator extends Cookable implements IClassBodyEvaluator {
         // Honor the default imports.
         for (String defaultImport : this.defaultImports) {
 
-            final Parser p = new Parser(new Scanner(null, new StringReader(defaultImport)));
+            final Parser p = new Parser(new Scanner(null, new CharSequenceReader(defaultImport)));
             p.setSourceVersion(this.sourceVersion);
             p.setWarningHandler(this.warningHandler);
 
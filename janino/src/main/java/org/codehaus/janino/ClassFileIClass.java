@@ -30,6 +30,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
 import org.codehaus.commons.compiler.CompileException;
@@ -74,7 +76,9 @@ class ClassFileIClass extends IClass {
     private final short                    accessFlags;
     @Nullable private final ClassSignature classSignature;
 
-    private final Map<ClassFile.FieldInfo, IField> resolvedFields = new HashMap<>();
+    // The resolution caches are concurrent, because IClasses loaded from class files are shared between threads,
+    // e.g. when the JANINO Compiler compiles in parallel.
+    private final ConcurrentMap<ClassFile.FieldInfo, IField> resolvedFields = new ConcurrentHashMap<>();
 
     /**
      * @param classFile Source of data
@@ -536,7 +540,7 @@ class ClassFileIClass extends IClass {
         this.resolvedClasses.put(descriptor, result);
         return result;
     }
-    private final Map<String /*descriptor*/, IClass> resolvedClasses = new HashMap<>();
+    private final ConcurrentMap<String /*descriptor*/, IClass> resolvedClasses = new ConcurrentHashMap<>();
 
     private IClass[]
     resolveClasses(short[] ifs) throws CompileException {
@@ -649,12 +653,15 @@ class ClassFileIClass extends IClass {
                 @Override public IClass[]      getThrownExceptions2() { return thrownExceptions;                            }
             };
         }
-        this.resolvedMethods.put(methodInfo, result);
-        return result;
+
+        // Another thread may have resolved the same method in the meantime; make sure that all threads use the same
+        // IInvocable.
+        IInvocable prev = (IInvocable) this.resolvedMethods.putIfAbsent(methodInfo, result);
+        return prev != null ? prev : result;
     }
 
-    private final Map<ClassFile.MethodInfo, IInvocable>
-    resolvedMethods = new HashMap<>();
+    private final ConcurrentMap<ClassFile.MethodInfo, IInvocable>
+    resolvedMethods = new ConcurrentHashMap<>();
 
     private IField
     resolveField(final ClassFile.FieldInfo fieldInfo) throws ClassNotFoundException {
@@ -703,8 +710,8 @@ class ClassFileIClass extends IClass {
             @Override public Access        getAccess()        { return access;                                   }
             @Override public IAnnotation[] getAnnotations()   { return iAnnotations;                             }
         };
-        this.resolvedFields.put(fieldInfo, result);
-        return result;
+        IField prev = (IField) this.resolvedFields.putIfAbsent(fieldInfo, result);
+        return prev != null ? prev : result;
     }
 
     private static Access
@@ -28,25 +28,67 @@ package org.codehaus.janino;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.codehaus.commons.compiler.lang.ClassLoaders;
+import org.codehaus.commons.compiler.util.SystemProperties;
 import org.codehaus.commons.nullanalysis.Nullable;
 
 /**
  * An {@link IClassLoader} that loads {@link IClass}es through a reflection {@link ClassLoader}.
+ * <p>
+ *   The {@link IClass}es of classes that were defined by the bootstrap class loader (e.g. {@link Object} and {@link
+ *   String}) are not re-created by each {@link ClassLoaderIClassLoader}, but are loaded only once and shared by all
+ *   {@link ClassLoaderIClassLoader}s of the JVM (including their methods, fields, and the {@code TYPE_*}, {@code
+ *   METH_*} and {@code CTOR_*} members that {@link #postConstruct()} resolves). This sharing can be switched off
+ *   through the system property "{@code org.codehaus.janino.ClassLoaderIClassLoader.shareBootstrapIClasses}".
+ * </p>
  */
 public
 class ClassLoaderIClassLoader extends IClassLoader {
 
     private static final Logger LOGGER = Logger.getLogger(ClassLoaderIClassLoader.class.getName());
 
+    private static final boolean
+    shareBootstrapIClasses = SystemProperties.getBooleanClassProperty(
+        ClassLoaderIClassLoader.class,
+        "shareBootstrapIClasses",
+        true
+    );
+
+    /**
+     * The (lazily created) {@link ClassLoaderIClassLoader} that loads (only) the {@link IClass}es of the classes that
+     * were defined by the bootstrap class loader. These classes are identical for all {@link ClassLoader}s, and
+     * reference only other bootstrap classes, thus their {@link IClass}es can be shared.
+     */
+    private static final
+    class BootstrapIClassLoader {
+
+        private BootstrapIClassLoader() {}
+
+        static final ClassLoaderIClassLoader INSTANCE = new ClassLoaderIClassLoader(
+            ClassLoaders.BOOTCLASSPATH_CLASS_LOADER,
+            null                                     // bootstrapIClassLoader
+        );
+    }
+
     /**
      * @param classLoader The delegate that loads the classes
      */
     public
     ClassLoaderIClassLoader(ClassLoader classLoader) {
+        this(
+            classLoader,
+            ClassLoaderIClassLoader.shareBootstrapIClasses ? BootstrapIClassLoader.INSTANCE : null
+        );
+    }
+
+    private
+    ClassLoaderIClassLoader(ClassLoader classLoader, @Nullable ClassLoaderIClassLoader bootstrapIClassLoader) {
         super(
-            null   // parentIClassLoader
+            null,  // parentIClassLoader
+            true   // concurrentFindIClass
         );
-        this.classLoader = classLoader;
+        this.classLoader           = classLoader;
+        this.bootstrapIClassLoader = bootstrapIClassLoader;
 
         super.postConstruct();
     }
@@ -103,10 +145,46 @@ class ClassLoaderIClassLoader extends IClassLoader {
 
         ClassLoaderIClassLoader.LOGGER.log(Level.FINE, "clazz={0}", clazz);
 
-        IClass result = new ReflectionIClass(clazz, this);
+        IClass result = null;
+
+        // Bootstrap classes are identical for all class loaders, so re-use the shared IClass.
+        ClassLoaderIClassLoader bicl = this.bootstrapIClassLoader;
+        if (bicl != null && clazz.getClassLoader() == null) result = bicl.loadIClass(descriptor);
+
+        if (result == null) result = new ReflectionIClass(clazz, this);
         this.defineIClass(result);
         return result;
     }
 
+    /**
+     * Array types of shared bootstrap classes (and of primitive types) must also be shared, because {@link IClass}es
+     * are compared by identity.
+     */
+    @Override public IClass
+    getArrayIClass(IClass componentType) {
+
+        ClassLoaderIClassLoader bicl = this.bootstrapIClassLoader;
+        if (bicl != null) {
+            IClass elementType = componentType;
+            while (elementType.isArray()) {
+                IClass ct = elementType.getComponentType();
+                assert ct != null;
+                elementType = ct;
+            }
+
+            if (elementType.isPrimitive() || bicl.getLoadedIClass(elementType.getDescriptor()) == elementType) {
+                return bicl.getArrayIClass(componentType);
+            }
+        }
+
+        return super.getArrayIClass(componentType);
+    }
+
     private final ClassLoader classLoader;
+
+    /**
+     * {@code null} iff bootstrap {@link IClass}es are not shared, or if this <em>is</em> the bootstrap {@link
+     * ClassLoaderIClassLoader}.
+     */
+    @Nullable private final ClassLoaderIClassLoader bootstrapIClassLoader;
 }
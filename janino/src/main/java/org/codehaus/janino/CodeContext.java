@@ -28,9 +28,11 @@ package org.codehaus.janino;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -61,6 +63,14 @@ import org.codehaus.janino.util.ClassFile.StackMapTableAttribute.VerificationTyp
 public
 class CodeContext {
 
+    /**
+     * Indicates that the code of a method exceeds the JVM limit of 64 KB.
+     */
+    public static
+    class CodeTooLargeException extends InternalCompilerException {
+        public CodeTooLargeException(String message) { super(message); }
+    }
+
     private static final boolean SUPPRESS_STACK_MAP_TABLE = Boolean.getBoolean(CodeContext.class.getName() + ".suppressStackMapTable");
 
     private static final int INITIAL_SIZE = 128;
@@ -69,7 +79,9 @@ class CodeContext {
 
     private int                             maxStack;
     private short                           maxLocals;
-    private byte[]                          code;
+    private final Segment                   firstSegment;
+    private int                             codeSize;
+    private boolean                         segmentStartsValid;
     private final Offset                    beginning;
     private final Inserter                  end;
     private Inserter                        currentInserter;
@@ -104,6 +116,12 @@ class CodeContext {
     private short                   nextLocalVariableSlot;
     private final List<Relocatable> relocatables = new ArrayList<>();
 
+    /**
+     * The local variable slots below {@link #nextLocalVariableSlot} that were released by {@link
+     * #releaseLocalVariable(Java.LocalVariableSlot, short)}, and can be allocated again in the same scope.
+     */
+    private final BitSet deadLocalVariableSlots = new BitSet();
+
     /**
      * Creates an empty "Code" attribute.
      */
@@ -111,22 +129,26 @@ class CodeContext {
     CodeContext(ClassFile classFile) {
         this.classFile = classFile;
 
-        this.maxStack               = 0;
-        this.maxLocals              = 0;
-        this.code                   = new byte[CodeContext.INITIAL_SIZE];
-        this.exceptionTableEntries  = new ArrayList<>();
+        this.maxStack                 = 0;
+        this.maxLocals                = 0;
+        this.firstSegment             = new Segment(new byte[CodeContext.INITIAL_SIZE]);
+        this.codeSize                 = 0;
+        this.segmentStartsValid       = true;
+        this.exceptionTableEntries    = new ArrayList<>();
 
-        this.beginning              = new Offset();
-        this.beginning.offset       = 0;
+        this.beginning                = new Offset();
+        this.beginning.segment        = this.firstSegment;
+        this.beginning.position       = 0;
 
-        this.currentInserter        = new Inserter();
-        this.currentInserter.offset = 0;
+        this.currentInserter          = new Inserter();
+        this.currentInserter.segment  = this.firstSegment;
+        this.currentInserter.position = 0;
         this.currentInserter.setStackMap(new StackMap(new VerificationTypeInfo[0], new VerificationTypeInfo[0]));
 
-        this.beginning.next         = this.currentInserter;
-        this.currentInserter.prev   = this.beginning;
+        this.beginning.next           = this.currentInserter;
+        this.currentInserter.prev     = this.beginning;
 
-        this.end                    = this.currentInserter;
+        this.end                      = this.currentInserter;
     }
 
     /**
@@ -141,8 +163,8 @@ class CodeContext {
      *   As a side effect, the "max_locals" field of the "Code" attribute is updated.
      * </p>
      * <p>
-     *   The only way to deallocate local variables is to {@link #saveLocalVariables()} and later {@link
-     *   #restoreLocalVariables()}.
+     *   Local variables are deallocated through {@link #releaseLocalVariable(Java.LocalVariableSlot, short)}, or by
+     *   {@link #saveLocalVariables()} and later {@link #restoreLocalVariables()}.
      * </p>
      *
      * @param size The number of slots to allocate (1 or 2)
@@ -155,8 +177,12 @@ class CodeContext {
      * Allocates space for a local variable of the given size (1 or 2) on the local variable array. As a side effect,
      * the "max_locals" field of the "Code" attribute is updated.
      * <p>
-     *   The only way to deallocate local variables is to {@link #saveLocalVariables()} and later {@link
-     *   #restoreLocalVariables()}.
+     *   Dead slots of the current scope (see {@link #releaseLocalVariable(Java.LocalVariableSlot, short)}) are
+     *   reused before the local variable array is grown.
+     * </p>
+     * <p>
+     *   Local variables are deallocated through {@link #releaseLocalVariable(Java.LocalVariableSlot, short)}, or by
+     *   {@link #saveLocalVariables()} and later {@link #restoreLocalVariables()}.
      * </p>
      *
      * @param size Number of slots to use (1 or 2)
@@ -172,7 +198,16 @@ class CodeContext {
 
         final List<Java.LocalVariableSlot> currentVars = currentScope.localVars;
 
-        Java.LocalVariableSlot slot = new Java.LocalVariableSlot(name, this.nextLocalVariableSlot, type);
+        short slotIndex = this.findDeadLocalVariableSlots(currentScope, size);
+        if (slotIndex == -1) {
+            slotIndex = this.nextLocalVariableSlot;
+            this.nextLocalVariableSlot += size;
+        } else {
+            this.deadLocalVariableSlots.clear(slotIndex, slotIndex + size);
+            this.killStackMapLocals(slotIndex, slotIndex + size);
+        }
+
+        Java.LocalVariableSlot slot = new Java.LocalVariableSlot(name, slotIndex, type);
 
         if (name != null) {
             slot.setStart(this.newOffset());
@@ -183,7 +218,6 @@ class CodeContext {
 //            throw new InternalCompilerException(...);
 //        }
 
-        this.nextLocalVariableSlot += size;
         currentVars.add(slot);
         this.allLocalVars.add(slot);
 
@@ -194,6 +228,60 @@ class CodeContext {
         return slot;
     }
 
+    /**
+     * @return The first of <var>size</var> consecutive dead local variable slots of the <var>scope</var>, or -1
+     */
+    private short
+    findDeadLocalVariableSlots(LocalScope scope, short size) {
+
+        BitSet dead = this.deadLocalVariableSlots;
+        for (int i = dead.nextSetBit(scope.startingLocalVariableSlot); i != -1; i = dead.nextSetBit(i + 1)) {
+            if (size == 1 || dead.get(i + 1)) return (short) i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Releases the slot(s) of a local variable of the current scope that is dead from here on, i.e. will not be read
+     * before it is written again. The slot(s) may then be reused by a following {@link
+     * #allocateLocalVariable(short, String, IType)} in the same scope, which keeps the "max_locals" of the "Code"
+     * attribute small.
+     * <p>
+     *   Dead slots are not reused by nested scopes, because a loop in a nested scope would then change the slot's
+     *   type between the loop's beginning and its end. For the same reason, the stack map keeps the type of a dead
+     *   slot until the slot is reused; only dead slots at the end of the local variable array are removed from the
+     *   stack map, which keeps the stack map frames short.
+     * </p>
+     *
+     * @param size The number of slots that the variable occupies (1 or 2)
+     */
+    public void
+    releaseLocalVariable(Java.LocalVariableSlot slot, short size) {
+
+        LocalScope currentScope = this.currentLocalScope;
+        assert currentScope != null;
+
+        if (!currentScope.localVars.remove(slot)) {
+            throw new InternalCompilerException(slot + " was not allocated in the current scope");
+        }
+
+        if (slot.getName() != null) slot.setEnd(this.newOffset());
+        this.allLocalVars.remove(slot);
+
+        this.deadLocalVariableSlots.set(slot.getSlotIndex(), slot.getSlotIndex() + size);
+
+        // Give dead slots at the end of the local variable array back.
+        while (
+            this.nextLocalVariableSlot > currentScope.startingLocalVariableSlot
+            && this.deadLocalVariableSlots.get(this.nextLocalVariableSlot - 1)
+        ) {
+            this.nextLocalVariableSlot--;
+            this.deadLocalVariableSlots.clear(this.nextLocalVariableSlot);
+        }
+        this.truncateStackMapLocals();
+    }
+
     /**
      * Remembers the current size of the local variables array.
      */
@@ -228,23 +316,64 @@ class CodeContext {
 
         // Reuse local variable slots of the popped scope.
         this.nextLocalVariableSlot = scopeToPop.startingLocalVariableSlot;
+        if (this.deadLocalVariableSlots.length() > this.nextLocalVariableSlot) {
+            this.deadLocalVariableSlots.clear(this.nextLocalVariableSlot, this.deadLocalVariableSlots.length());
+        }
 
         // To truncate the stack map, remove local variables indicated by the popped scope.
-        if (this.currentLocalScope != null) {
-            StackMap sm = this.currentInserter.getStackMap();
-
-            if (sm != null && sm.locals().length > 0) {
-                int numActiveSlots = 0;
-                int nextLvIndex = 0;
-                for (VerificationTypeInfo slot : sm.locals()) {
-                    if (nextLvIndex >= this.nextLocalVariableSlot) break;
-                    nextLvIndex += slot.category();
-                    numActiveSlots += 1;
-                }
-                int numRemovedSlots = sm.locals().length - numActiveSlots;
-                while (numRemovedSlots-- > 0) sm = sm.popLocal();
-                this.currentInserter.setStackMap(sm);
+        if (this.currentLocalScope != null) this.truncateStackMapLocals();
+    }
+
+    /**
+     * Sets the local variable slots <var>from</var> (inclusive) through <var>to</var> (exclusive) to "top" in the
+     * current stack map. This is necessary when a dead slot is reused, because the new variable may be unassigned
+     * where, e.g., an exception handler takes its stack map frame; the slot's stale type would then be wrong.
+     */
+    private void
+    killStackMapLocals(int from, int to) {
+        StackMap sm = this.currentInserter.getStackMap();
+        if (sm == null) return;
+
+        List<VerificationTypeInfo> result  = new ArrayList<VerificationTypeInfo>();
+        boolean                    changed = false;
+        int                        lvIndex = 0;
+        for (VerificationTypeInfo vti : sm.locals()) {
+            int category = vti.category();
+            if (lvIndex + category > from && lvIndex < to && vti != StackMapTableAttribute.TOP_VARIABLE_INFO) {
+                for (int i = 0; i < category; i++) result.add(StackMapTableAttribute.TOP_VARIABLE_INFO);
+                changed = true;
+            } else {
+                result.add(vti);
+            }
+            lvIndex += category;
+        }
+
+        if (changed) {
+            this.currentInserter.setStackMap(sm.withLocals(
+                (VerificationTypeInfo[]) result.toArray(new VerificationTypeInfo[result.size()])
+            ));
+        }
+    }
+
+    /**
+     * Removes the local variables at and above the {@link #nextLocalVariableSlot} from the current stack map.
+     */
+    private void
+    truncateStackMapLocals() {
+        StackMap sm = this.currentInserter.getStackMap();
+
+        if (sm != null && sm.localsCount() > 0) {
+            VerificationTypeInfo[] locals = sm.locals();
+            int numActiveSlots = 0;
+            int nextLvIndex = 0;
+            for (VerificationTypeInfo slot : locals) {
+                if (nextLvIndex >= this.nextLocalVariableSlot) break;
+                nextLvIndex += slot.category();
+                numActiveSlots += 1;
             }
+            int numRemovedSlots = locals.length - numActiveSlots;
+            while (numRemovedSlots-- > 0) sm = sm.popLocal();
+            this.currentInserter.setStackMap(sm);
         }
     }
 
@@ -254,6 +383,8 @@ class CodeContext {
     public ClassFile.CodeAttribute
     newCodeAttribute(int initialLocalsCount, boolean debugLines, boolean debugVars) {
 
+        this.flatten();
+
         // Transform the exception table from o.c.j.CodeContext to o.c.j.u.ClassFile.
         ClassFile.CodeAttribute.ExceptionTableEntry[]
         etes = new ClassFile.CodeAttribute.ExceptionTableEntry[this.exceptionTableEntries.size()];
@@ -261,10 +392,10 @@ class CodeContext {
         for (int i = 0; i < etes.length; i++) {
             ExceptionTableEntry ete = (ExceptionTableEntry) this.exceptionTableEntries.get(i);
             etes[i] = new ClassFile.CodeAttribute.ExceptionTableEntry(
-                (short) ete.startPc.offset,   // startPc
-                (short) ete.endPc.offset,     // endPc
-                (short) ete.handlerPc.offset, // handlerPc
-                ete.catchType                 // catchType
+                (short) ete.startPc.getOffset(),   // startPc
+                (short) ete.endPc.getOffset(),     // endPc
+                (short) ete.handlerPc.getOffset(), // handlerPc
+                ete.catchType                      // catchType
             );
         }
 
@@ -292,12 +423,12 @@ class CodeContext {
         ClassFile.AttributeInfo[]
         aia = (ClassFile.AttributeInfo[]) attributes.toArray(new ClassFile.AttributeInfo[attributes.size()]);
         return new ClassFile.CodeAttribute(
-            this.classFile.addConstantUtf8Info("Code"), // attributeNameIndex
-            (short) this.maxStack,                      // maxStack
-            this.maxLocals,                             // maxLocals
-            Arrays.copyOf(this.code, this.end.offset),  // code
-            etes,                                       // exceptionTableEntries
-            aia                                         // attributes
+            this.classFile.addConstantUtf8Info("Code"),            // attributeNameIndex
+            (short) this.maxStack,                                 // maxStack
+            this.maxLocals,                                        // maxLocals
+            Arrays.copyOf(this.firstSegment.bytes, this.codeSize), // code
+            etes,                                                  // exceptionTableEntries
+            aia                                                    // attributes
         );
     }
 
@@ -308,7 +439,7 @@ class CodeContext {
         for (Offset o = this.beginning; o != null; o = o.next) {
             if (o instanceof LineNumberOffset) {
 
-                int offset = o.offset;
+                int offset = o.getOffset();
                 if (offset > 0xffff) {
                     throw new InternalCompilerException("LineNumberTable entry offset out of range");
                 }
@@ -337,31 +468,35 @@ class CodeContext {
         Offset frame = this.beginning.next;
         Offset previousFrame = null;
 
-        for (; frame != this.end && frame.stackMap.locals().length < initialLocalsCount; frame = frame.next);
+        for (; frame != this.end && frame.stackMap.localsCount() < initialLocalsCount; frame = frame.next);
 
         previousFrame = frame;
         frame = frame.next;
 
+        // Materialize the locals only for the frames that actually go into the stack map table.
+        @Nullable VerificationTypeInfo[] previousFrameLocals = null;
+
         List<StackMapFrame> smfs = new ArrayList<>();
-        for (; frame != null && frame.offset != this.end.offset; frame = frame.next) {
+        for (; frame != null && frame.getOffset() != this.codeSize; frame = frame.next) {
 
             if (!(frame instanceof BasicBlock)) continue;
 
             // Sometimes, e.g. when the last statement in a FOREACH body is an IF statement, the first BasicBlock
             // sees "too many" local variables, and the second BB is right.
-            for (Offset o = frame.next; o != null && o.offset == frame.offset; o = o.next) {
+            for (Offset o = frame.next; o != null && o.getOffset() == frame.getOffset(); o = o.next) {
                 if (o instanceof BasicBlock) frame = o;
             }
 
             // Some intermediate offsets (e.g. right before a branch target) have no stack map.
             if (frame.getStackMap() == null) continue;
 
-            final int                    offsetDelta               = smfs.isEmpty() ? frame.offset : frame.offset - previousFrame.offset - 1;
+            if (previousFrameLocals == null) previousFrameLocals = previousFrame.getStackMap().locals();
+
+            final int                    offsetDelta               = smfs.isEmpty() ? frame.getOffset() : frame.getOffset() - previousFrame.getOffset() - 1;
             final VerificationTypeInfo[] frameOperands             = frame.getStackMap().operands();
             final int                    frameOperandsLength       = frameOperands.length;
             final VerificationTypeInfo[] frameLocals               = frame.getStackMap().locals();
             final int                    frameLocalsLength         = frameLocals.length;
-            final VerificationTypeInfo[] previousFrameLocals       = previousFrame.getStackMap().locals();
             final int                    previousFrameLocalsLength = previousFrameLocals.length;
             int                          k = 99; // SMT: Workaround for a known SMT bug in Janino.
 
@@ -427,7 +562,8 @@ class CodeContext {
                 ));
             }
 
-            previousFrame = frame;
+            previousFrame       = frame;
+            previousFrameLocals = frameLocals;
         }
 
         if (smfs.isEmpty()) return null;
@@ -470,8 +606,8 @@ class CodeContext {
                 assert end2 != null;
 
                 entryList.add(new ClassFile.LocalVariableTableAttribute.Entry(
-                    (short) start.offset,
-                    (short) (end2.offset - start.offset),
+                    (short) start.getOffset(),
+                    (short) (end2.getOffset() - start.getOffset()),
                     varNameSlot,
                     classSlot,
                     slot.getSlotIndex()
@@ -490,24 +626,204 @@ class CodeContext {
     }
 
     /**
-     * Fixes up all of the offsets and relocate() all relocatables.
+     * Applies two peephole optimizations to the branches of this code context. Must be invoked <em>before</em> {@link
+     * #fixUpAndRelocate()}.
+     * <ul>
+     *   <li>
+     *     A branch to a GOTO instruction is redirected to the destination of that GOTO ("jump threading"); the GOTO
+     *     itself remains.
+     *   </li>
+     *   <li>
+     *     "IF* L1; GOTO L2; L1:" is replaced with "IF-NEGATE-* L2", iff nothing else refers to the GOTO instruction.
+     *   </li>
+     * </ul>
+     *
+     * @see JaninoOption#PEEPHOLE_OPTIMIZATION
+     */
+    public void
+    optimizeBranches() {
+
+        // Index the GOTO instructions by their offsets.
+        Map<Integer, Branch> gotos = new HashMap<>();
+        for (Relocatable r : this.relocatables) {
+            if (r instanceof Branch && ((Branch) r).opcode == Opcode.GOTO) {
+                Branch b = (Branch) r;
+                gotos.put(b.source.getOffset(), b);
+            }
+        }
+        if (gotos.isEmpty()) return;
+
+        @SuppressWarnings("deprecation") final int opcodeJsr = Opcode.JSR;
+
+        // Redirect branches to GOTOs. Notice that GOTOs may form a cycle, e.g. for "while (true);".
+        for (Relocatable r : this.relocatables) {
+            if (!(r instanceof Branch)) continue;
+
+            Branch b = (Branch) r;
+            if (b.opcode == opcodeJsr) continue;
+
+            Offset dst = b.destination;
+            for (int i = gotos.size(); i > 0 && dst.position != Offset.UNSET; i--) {
+                Branch g = (Branch) gotos.get(dst.getOffset());
+                if (g == null || g == b) break;
+                dst = g.destination;
+            }
+            b.destination = dst;
+        }
+
+        // Collect the offsets that must be preserved, because they are referred to otherwise.
+        Set<Integer> targets = new HashSet<>();
+        for (Relocatable r : this.relocatables) {
+            if (r instanceof Branch) {
+                Offset dst = ((Branch) r).destination;
+                if (dst.position != Offset.UNSET) targets.add(dst.getOffset());
+            } else
+            if (r instanceof OffsetBranch) {
+                targets.add(((OffsetBranch) r).destination.getOffset());
+            }
+        }
+        for (ExceptionTableEntry ete : this.exceptionTableEntries) {
+            targets.add(ete.startPc.getOffset());
+            targets.add(ete.endPc.getOffset());
+            targets.add(ete.handlerPc.getOffset());
+        }
+
+        // Find all "IF* L1; GOTO L2; L1:" sequences.
+        List<Branch> conditionals = new ArrayList<>();
+        List<Branch> skippedGotos = new ArrayList<>();
+        for (Relocatable r : this.relocatables) {
+            if (!(r instanceof Branch)) continue;
+
+            Branch b = (Branch) r;
+            if (
+                !(b.opcode >= Opcode.IFEQ && b.opcode <= Opcode.IF_ACMPNE)    // IF??, IF_ICMP??, IF_ACMP??
+                && !(b.opcode >= Opcode.IFNULL && b.opcode <= Opcode.IFNONNULL) // IFNULL, IFNONNULL
+            ) continue;
+            if (b.destination.position == Offset.UNSET) continue;
+
+            int    so = b.source.getOffset();
+            Branch g  = (Branch) gotos.get(so + 3);
+            if (g == null || b.destination.getOffset() != so + 6 || targets.contains(so + 3)) continue;
+
+            conditionals.add(b);
+            skippedGotos.add(g);
+        }
+        if (conditionals.isEmpty()) return;
+
+        for (int i = 0; i < conditionals.size(); i++) {
+            Branch b = (Branch) conditionals.get(i);
+            Branch g = (Branch) skippedGotos.get(i);
+
+            b.opcode      = CodeContext.invertBranchOpcode(b.opcode);
+            b.destination = g.destination;
+            this.removeBytes(g.source, 3);
+        }
+        this.relocatables.removeAll(new HashSet<Relocatable>(skippedGotos));
+    }
+
+    /**
+     * Fixes up all of the offsets and relocate() all relocatables. Flattens the code into one contiguous byte array.
      */
     public void
     fixUpAndRelocate() {
-        this.maybeGrow();
+        this.relaxBranches();
         this.fixUp();
+        this.flatten();
         this.relocate();
     }
 
     /**
-     * Grow the code if relocatables are required to.
+     * Determines which of the 16-bit branches cannot reach their destination, and widens exactly these.
+     * <p>
+     *   Widening a branch moves the code behind it, which may put <em>other</em> branches out of reach. Therefore
+     *   the decision is made on plain integer arithmetic first: Each pass over the branches (in code order) computes
+     *   the branch distances under the widenings decided so far, and marks the branches that are out of range.
+     *   Because branches are only ever widened, this converges after very few passes (typically one). Only then the
+     *   code is modified, once per widened branch.
+     * </p>
+     * <p>
+     *   Each {@link FixUp} (i.e. the padding of a TABLESWITCH or LOOKUPSWITCH instruction) is accounted for with its
+     *   maximum growth of three bytes, so that no branch can become out of reach when the fix-ups execute later.
+     * </p>
      */
     private void
-    maybeGrow() {
+    relaxBranches() {
+
+        // Collect all 16-bit branches, and the destinations they refer to.
+        Map<Offset, Branch>  branchesBySource        = new IdentityHashMap<>();
+        Map<Offset, Integer> eventsBeforeDestination = new IdentityHashMap<>();
+        for (Relocatable r : this.relocatables) {
+            if (!(r instanceof Branch)) continue;
+
+            Branch b = (Branch) r;
+            if (b.opcode >= Opcode.GOTO_W && b.opcode <= Opcode.JSR_W) continue;
+            if (b.destination.position == Offset.UNSET) {
+                throw new InternalCompilerException("Cannot relocate branch to unset destination offset");
+            }
 
-        // "Relocatable.grow()" may add relocatables, so iterate with index instead of Iterator.
-        for (int i = 0; i < this.relocatables.size(); i++) {
-            ((Relocatable) this.relocatables.get(i)).grow();
+            branchesBySource.put(b.source, b);
+            eventsBeforeDestination.put(b.destination, null);
+        }
+        if (branchesBySource.isEmpty()) return;
+
+        // Walk the offsets in code order and record the "events", i.e. the places where the code may grow: The 16-bit
+        // branches and the fix-ups.
+        int      n         = branchesBySource.size();
+        Branch[] branches  = new Branch[n];
+        int[]    srcEvent  = new int[n];
+        int[]    growth    = new int[n + 16];
+        int      nb        = 0;
+        int      ne        = 0;
+        for (Offset o = this.beginning; o != null; o = o.next) {
+
+            if (eventsBeforeDestination.containsKey(o)) eventsBeforeDestination.put(o, ne);
+
+            Branch b = (Branch) branchesBySource.get(o);
+            if (b != null) {
+                branches[nb] = b;
+                srcEvent[nb] = ne;
+                nb++;
+            } else
+            if (!(o instanceof FixUp)) {
+                continue;
+            }
+
+            if (ne == growth.length) growth = Arrays.copyOf(growth, 2 * ne);
+            growth[ne++] = b != null ? 0 : 3;
+        }
+        assert nb == n;
+
+        int[] srcOffset = new int[n];
+        int[] dstOffset = new int[n];
+        int[] dstEvent  = new int[n];
+        for (int i = 0; i < n; i++) {
+            Branch b = branches[i];
+            srcOffset[i] = b.source.getOffset();
+            dstOffset[i] = b.destination.getOffset();
+            dstEvent[i]  = (Integer) eventsBeforeDestination.get(b.destination);
+        }
+
+        // "shift[e]" is the number of bytes by which the code grows before event "e".
+        int[] shift = new int[ne + 1];
+        for (boolean changed = true; changed;) {
+            changed = false;
+
+            for (int e = 0; e < ne; e++) shift[e + 1] = shift[e] + growth[e];
+
+            for (int i = 0; i < n; i++) {
+                int e = srcEvent[i];
+                if (growth[e] != 0) continue;
+
+                int offset = dstOffset[i] + shift[dstEvent[i]] - srcOffset[i] - shift[e];
+                if (offset > Short.MAX_VALUE || offset < Short.MIN_VALUE) {
+                    growth[e] = branches[i].widening();
+                    changed   = true;
+                }
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (growth[srcEvent[i]] != 0) branches[i].widen();
         }
     }
 
@@ -540,9 +856,8 @@ class CodeContext {
 
         if (b.length == 0) return;
 
-        // CAVEAT: "makeSpace()" may change "this.code", so make sure to call "makeSpace()" _before_ using "this.code"!
-        int o = this.makeSpace(b.length);
-        System.arraycopy(b, 0, this.code, o, b.length);
+        int o = this.reserve(b.length);
+        System.arraycopy(b, 0, this.currentSegmentBytes(), o, b.length);
     }
 
     /**
@@ -554,9 +869,9 @@ class CodeContext {
     public void
     write(byte b1) {
 
-        // CAVEAT: "makeSpace()" may change "this.code", so make sure to call "makeSpace()" _before_ using "this.code"!
-        int o = this.makeSpace(1);
-        this.code[o] = b1;
+        int    o    = this.reserve(1);
+        byte[] code = this.currentSegmentBytes();
+        code[o] = b1;
     }
 
     /**
@@ -568,10 +883,11 @@ class CodeContext {
     public void
     write(byte b1, byte b2) {
 
-        int o = this.makeSpace(2);
+        int    o    = this.reserve(2);
+        byte[] code = this.currentSegmentBytes();
 
-        this.code[o++] = b1;
-        this.code[o]   = b2;
+        code[o++] = b1;
+        code[o]   = b2;
     }
 
     /**
@@ -583,11 +899,12 @@ class CodeContext {
     public void
     write(byte b1, byte b2, byte b3) {
 
-        int o = this.makeSpace(3);
+        int    o    = this.reserve(3);
+        byte[] code = this.currentSegmentBytes();
 
-        this.code[o++] = b1;
-        this.code[o++] = b2;
-        this.code[o]   = b3;
+        code[o++] = b1;
+        code[o++] = b2;
+        code[o]   = b3;
     }
 
     /**
@@ -599,12 +916,13 @@ class CodeContext {
     public void
     write(byte b1, byte b2, byte b3, byte b4) {
 
-        int o = this.makeSpace(4);
+        int    o    = this.reserve(4);
+        byte[] code = this.currentSegmentBytes();
 
-        this.code[o++] = b1;
-        this.code[o++] = b2;
-        this.code[o++] = b3;
-        this.code[o]   = b4;
+        code[o++] = b1;
+        code[o++] = b2;
+        code[o++] = b3;
+        code[o]   = b4;
     }
 
     /**
@@ -616,13 +934,14 @@ class CodeContext {
     public void
     write(byte b1, byte b2, byte b3, byte b4, byte b5) {
 
-        int o = this.makeSpace(5);
+        int    o    = this.reserve(5);
+        byte[] code = this.currentSegmentBytes();
 
-        this.code[o++] = b1;
-        this.code[o++] = b2;
-        this.code[o++] = b3;
-        this.code[o++] = b4;
-        this.code[o]   = b5;
+        code[o++] = b1;
+        code[o++] = b2;
+        code[o++] = b3;
+        code[o++] = b4;
+        code[o]   = b5;
     }
 
     public void
@@ -643,7 +962,9 @@ class CodeContext {
         }
 
         // Insert a LineNumberOffset _before_ the current inserter.
-        LineNumberOffset lno = new LineNumberOffset(this.currentInserter.offset, this.currentInserter.getStackMap(), (short) lineNumber);
+        LineNumberOffset lno = new LineNumberOffset(this.currentInserter.getStackMap(), (short) lineNumber);
+        lno.segment  = this.currentInserter.segment;
+        lno.position = this.currentInserter.position;
 
         Offset cip = this.currentInserter.prev;
         assert cip != null;
@@ -670,7 +991,7 @@ class CodeContext {
     public int
     makeSpace(final int size) {
 
-        final int cio = this.currentInserter.offset;
+        final int cio = this.currentInserter.getOffset();
 
         if (size == 0) {
             ;
@@ -678,33 +999,180 @@ class CodeContext {
         if (size < 0) {
 
             // Make "negative space", i.e. remove bytes after current position.
-            assert cio <= this.end.offset + size; // Are there enough bytes to remove?
-            System.arraycopy(this.code, cio - size, this.code, cio, this.end.offset - cio + size);
-            for (Offset o = this.currentInserter.next; o != null; o = o.next) o.offset += size;
+            assert cio <= this.codeSize + size; // Are there enough bytes to remove?
+            this.removeBytes(this.currentInserter, -size);
         } else
-        if (this.end.offset + size <= this.code.length) {
+        {
+            int o = this.reserve(size);
+            Arrays.fill(this.currentSegmentBytes(), o, o + size, (byte) 0);
+        }
 
-            // Make space; no need to enlarge the byte array.
-            if (cio != this.end.offset) { // Optimization to avoid a trivial method call in the common case
-                System.arraycopy(this.code, cio, this.code, cio + size, this.end.offset - cio);
-                Arrays.fill(this.code, cio, cio + size, (byte) 0);
-            }
-            for (Offset o = this.currentInserter; o != null; o = o.next) o.offset += size;
-        } else {
+        return cio;
+    }
+
+    /**
+     * Appends <var>size</var> bytes to the current inserter's {@link Segment} (splitting the segment iff the current
+     * inserter is not at its end), and advances the current inserter's offset by <var>size</var>. Other than
+     * inserting the bytes into one contiguous byte array, this takes constant time, i.e. does not depend on the amount
+     * of code (and the number of {@link Offset}s) behind the insertion point.
+     *
+     * @return The index of the first of the bytes within the {@link #currentSegmentBytes()}; the bytes are
+     *         <em>not</em> necessarily NUL
+     */
+    private int
+    reserve(int size) {
+
+        Inserter ci = this.currentInserter;
+        Segment  s  = ci.segment;
+        assert s != null;
+
+        Offset n = ci.next;
+        if (ci.position != s.length || (n != null && n.segment == s)) this.split(ci);
+
+        if (this.codeSize + size > 0xffff) throw new CodeTooLargeException("Code grows beyond 64 KB");
+
+        int result = s.length;
+        if (result + size > s.bytes.length) {
 
-            // Enlarge the byte array to make enough space.
-            byte[] oldCode = this.code;
-            //double size to avoid horrible performance, but don't grow over our limit
-            int newSize = Math.max(Math.min(oldCode.length * 2, 0xffff), oldCode.length + size);
-            if (newSize > 0xffff) throw new InternalCompilerException("Code grows beyond 64 KB");
-            this.code = new byte[newSize];
-            System.arraycopy(oldCode, 0, this.code, 0, cio);
-            System.arraycopy(oldCode, cio, this.code, cio + size, this.end.offset - cio);
-            Arrays.fill(this.code, cio, cio + size, (byte) 0);
-            for (Offset o = this.currentInserter; o != null; o = o.next) o.offset += size;
+            // Double the size to avoid horrible performance.
+            s.bytes = Arrays.copyOf(s.bytes, Math.max(s.bytes.length * 2, result + size));
         }
 
-        return cio;
+        s.length      += size;
+        ci.position   += size;
+        this.codeSize += size;
+
+        // The starts of all segments behind "s" have changed.
+        if (s.next != null) this.segmentStartsValid = false;
+
+        return result;
+    }
+
+    private byte[]
+    currentSegmentBytes() {
+        Segment s = this.currentInserter.segment;
+        assert s != null;
+        return s.bytes;
+    }
+
+    /**
+     * Moves the bytes and the {@link Offset}s behind <var>ins</var> out of its segment and into a new segment, which
+     * is linked in right after it.
+     */
+    private void
+    split(Inserter ins) {
+
+        Segment s = ins.segment;
+        assert s != null;
+
+        int     p = ins.position;
+        Segment t = new Segment(Arrays.copyOfRange(s.bytes, p, s.length));
+        t.length = s.length - p;
+        t.next   = s.next;
+        s.next   = t;
+        s.length = p;
+
+        for (Offset o = ins.next; o != null && o.segment == s; o = o.next) {
+            o.segment  = t;
+            o.position -= p;
+        }
+
+        this.segmentStartsValid = false;
+    }
+
+    /**
+     * Removes the <var>size</var> bytes behind <var>from</var> (which may span several segments), and moves all
+     * {@link Offset}s behind <var>from</var> accordingly.
+     */
+    private void
+    removeBytes(Offset from, int size) {
+
+        Segment s = from.segment;
+        int     p = from.position;
+        Offset  o = from.next;
+
+        this.codeSize -= size;
+
+        for (;;) {
+            assert s != null;
+
+            int n = Math.min(size, s.length - p);
+            System.arraycopy(s.bytes, p + n, s.bytes, p, s.length - p - n);
+            s.length -= n;
+            size     -= n;
+
+            for (; o != null && o.segment == s; o = o.next) o.position = Math.max(p, o.position - n);
+
+            if (size == 0) break;
+
+            s = s.next;
+            p = 0;
+        }
+
+        this.segmentStartsValid = false;
+    }
+
+    /**
+     * Concatenates the bytes of all {@link Segment}s into the first segment.
+     */
+    private void
+    flatten() {
+
+        Segment first = this.firstSegment;
+        if (first.next == null) return;
+
+        if (!this.segmentStartsValid) this.computeSegmentStarts();
+
+        byte[] code = new byte[this.codeSize];
+        for (Segment s = first; s != null; s = s.next) System.arraycopy(s.bytes, 0, code, s.start, s.length);
+
+        for (Offset o = this.beginning; o != null; o = o.next) {
+            Segment s = o.segment;
+            assert s != null;
+            o.segment  = first;
+            o.position += s.start;
+        }
+
+        first.bytes  = code;
+        first.length = this.codeSize;
+        first.next   = null;
+    }
+
+    private void
+    computeSegmentStarts() {
+
+        int start = 0;
+        for (Segment s = this.firstSegment; s != null; s = s.next) {
+            s.start = start;
+            start   += s.length;
+        }
+
+        this.segmentStartsValid = true;
+    }
+
+    /**
+     * A piece of the byte code of this {@link CodeContext}. The segments form a chain, which is concatenated into one
+     * contiguous byte array only by {@link CodeContext#fixUpAndRelocate()}.
+     */
+    private static final
+    class Segment {
+
+        byte[] bytes;
+
+        /**
+         * The number of bytes of {@link #bytes} that are actually used.
+         */
+        int length;
+
+        /**
+         * The offset of the first byte of this segment within the code; valid only iff {@link
+         * CodeContext#segmentStartsValid}.
+         */
+        int start;
+
+        @Nullable Segment next;
+
+        Segment(byte[] bytes) { this.bytes = bytes; }
     }
 
     /**
@@ -723,7 +1191,7 @@ class CodeContext {
 
         assert dst instanceof CodeContext.BasicBlock;
 
-        if (dst.offset == -1) {
+        if (dst.position == Offset.UNSET) {
             if (dst.stackMap == null) {
                 dst.stackMap = this.currentInserter.getStackMap();
             }
@@ -755,107 +1223,126 @@ class CodeContext {
             this.destination = destination;
         }
 
-        @Override public void
-        grow() {
-            if (this.destination.offset == Offset.UNSET) {
-                throw new InternalCompilerException("Cannot relocate branch to unset destination offset");
-            }
-            int offset = this.destination.offset - this.source.offset;
+        /**
+         * @return By how many bytes the code grows when this (16-bit) branch is {@link #widen()}ed
+         */
+        int
+        widening() {
 
             @SuppressWarnings("deprecation") final int opcodeJsr = Opcode.JSR;
 
-            if (this.opcode >= Opcode.GOTO && this.opcode <= opcodeJsr) { // GOTO, JSR
-                if (offset > Short.MAX_VALUE || offset < Short.MIN_VALUE) {
-                    CodeContext.this.pushInserter(this.source);
-                    {
-                        this.source = CodeContext.this.newInserter();
+            if (this.opcode >= Opcode.GOTO && this.opcode <= opcodeJsr) return 2; // GOTO => GOTO_W, JSR => JSR_W
 
-                        // Remove the original GOTO or JSR instruction.
-                        CodeContext.this.makeSpace(-3);
+            // IF* => IF-NEGATE-* + GOTO_W
+            return 5;
+        }
 
-                        // Insert a GOTO_W resp. JSR_instruction.
-                        CodeContext.this.writeBranch((this.opcode = this.opcode + 33), this.destination);
-                    }
-                    CodeContext.this.popInserter();
-                }
-            } else
-            if (
-                (this.opcode >= Opcode.IFEQ && this.opcode <= Opcode.IF_ACMPNE)      // 6xIF??, 6xIF_ICMP??, 2xIF_ACMP??
-                || (this.opcode >= Opcode.IFNULL && this.opcode <= Opcode.IFNONNULL) // IFNULL, IFNONNULL
-            ) {
-                if (offset > Short.MAX_VALUE || offset < Short.MIN_VALUE) {
-                    CodeContext.this.pushInserter(this.source);
+        /**
+         * Replaces this 16-bit branch with a 32-bit branch; afterwards, this object represents the GOTO_W resp. JSR_W
+         * instruction.
+         */
+        void
+        widen() {
+
+            @SuppressWarnings("deprecation") final int opcodeJsr = Opcode.JSR;
+
+            CodeContext.this.pushInserter(this.source);
+            {
+                this.source = CodeContext.this.newInserter();
+
+                // Remove the original GOTO, JSR or IF* instruction.
+                CodeContext.this.removeBytes(this.source, 3);
+
+                @Nullable BasicBlock skip = null;
+                if (this.opcode >= Opcode.GOTO && this.opcode <= opcodeJsr) { // GOTO, JSR
+
+                    // Insert a GOTO_W resp. JSR_W instruction.
+                    this.opcode += 33;
+                } else
+                if (
+                    (this.opcode >= Opcode.IFEQ && this.opcode <= Opcode.IF_ACMPNE)      // IF??, IF_ICMP??, IF_ACMP??
+                    || (this.opcode >= Opcode.IFNULL && this.opcode <= Opcode.IFNONNULL) // IFNULL, IFNONNULL
+                ) {
+
+                    // Insert "IF-NEGATE-* skip; GOTO_W offset; skip:"
+                    skip = CodeContext.this.new BasicBlock();
+                    int io = CodeContext.invertBranchOpcode(this.opcode);
+                    CodeContext.this.writeBranch(io, skip);
+                    if (io >= Opcode.IFEQ && io <= Opcode.IFLE) {
+                        CodeContext.this.popIntOperand();
+                    } else
+                    if (io >= Opcode.IF_ICMPEQ && io <= Opcode.IF_ICMPLE) {
+                        CodeContext.this.popIntOperand();
+                        CodeContext.this.popIntOperand();
+                    } else
+                    if (io == Opcode.IF_ACMPEQ || io == Opcode.IF_ACMPNE) {
+                        CodeContext.this.popReferenceOperand();
+                        CodeContext.this.popReferenceOperand();
+                    } else
+                    if (io == Opcode.IFNULL || io == Opcode.IFNONNULL) {
+                        CodeContext.this.popReferenceOperand();
+                    } else
                     {
-                        this.source = CodeContext.this.newInserter();
-
-                        // Remove the original IF* instruction.
-                        CodeContext.this.makeSpace(-3);
-
-                        // Insert "IF-NEGATE-* skip; GOTO_W offset; skip:"
-                        BasicBlock skip = CodeContext.this.new BasicBlock();
-                        CodeContext.this.writeBranch((this.opcode = CodeContext.invertBranchOpcode(this.opcode)), skip);
-                        if (this.opcode >= Opcode.IFEQ && this.opcode <= Opcode.IFLE) {
-                            CodeContext.this.popIntOperand();
-                        } else
-                        if (this.opcode >= Opcode.IF_ICMPEQ && this.opcode <= Opcode.IF_ICMPLE) {
-                            CodeContext.this.popIntOperand();
-                            CodeContext.this.popIntOperand();
-                        } else
-                        if (this.opcode == Opcode.IF_ACMPEQ || this.opcode == Opcode.IF_ACMPNE) {
-                            CodeContext.this.popReferenceOperand();
-                            CodeContext.this.popReferenceOperand();
-                        } else
-                        if (this.opcode == Opcode.IFNULL || this.opcode == Opcode.IFNONNULL) {
-                            CodeContext.this.popReferenceOperand();
-                        } else
-                        {
-                            throw new AssertionError(this.opcode);
-                        }
-                        CodeContext.this.writeBranch(Opcode.GOTO_W, this.destination);
-                        skip.setStackMap(CodeContext.this.currentInserter.getStackMap());
-                        skip.set();
+                        throw new AssertionError(io);
                     }
-                    CodeContext.this.popInserter();
+
+                    this.source = CodeContext.this.newInserter();
+                    this.opcode = Opcode.GOTO_W;
+                } else
+                {
+                    throw new AssertionError(this.opcode);
+                }
+
+                CodeContext.this.write((byte) this.opcode, (byte) -1, (byte) -1, (byte) -1, (byte) -1);
+
+                if (skip != null) {
+                    skip.setStackMap(CodeContext.this.currentInserter.getStackMap());
+                    skip.set();
                 }
-            } else
-            if (this.opcode >= Opcode.GOTO_W && this.opcode <= Opcode.JSR_W) { // GOTO_W, JSR_W
-                ;
-            } else {
-                throw new AssertionError(this.opcode);
             }
+            CodeContext.this.popInserter();
         }
 
         @Override public void
         relocate() {
-            if (this.destination.offset == Offset.UNSET) {
+            if (this.destination.position == Offset.UNSET) {
                 throw new InternalCompilerException("Cannot relocate branch to unset destination offset");
             }
 
             @SuppressWarnings("deprecation") final int opcodeJsr = Opcode.JSR;
 
+            byte[] code = CodeContext.this.firstSegment.bytes;
+            int    so   = this.source.getOffset();
+
+            // The opcode may have changed since the branch was written, see "optimizeBranches()".
+            code[so] = (byte) this.opcode;
+
             if (
                 (this.opcode >= Opcode.IFEQ && this.opcode <= opcodeJsr)             // 6xIF??, 6xIF_ICMP??, 2xIF_ACMP??, GOTO, JSR
                 || (this.opcode >= Opcode.IFNULL && this.opcode <= Opcode.IFNONNULL) // IFNULL, IFNONNULL
             ) {
-                int offset = this.destination.offset - this.source.offset;
-                CodeContext.this.code[this.source.offset + 1] = (byte) (offset >> 8);
-                CodeContext.this.code[this.source.offset + 2] = (byte) offset;
+                int offset = this.destination.getOffset() - so;
+                if (offset > Short.MAX_VALUE || offset < Short.MIN_VALUE) {
+                    throw new InternalCompilerException("Branch offset " + offset + " out of range");
+                }
+                code[so + 1] = (byte) (offset >> 8);
+                code[so + 2] = (byte) offset;
             } else
             if (this.opcode >= Opcode.GOTO_W && this.opcode <= Opcode.JSR_W) {       // GOTO_W, JSR_W
-                int offset = this.destination.offset - this.source.offset;
-                CodeContext.this.code[this.source.offset + 1] = (byte) (offset >> 24);
-                CodeContext.this.code[this.source.offset + 2] = (byte) (offset >> 16);
-                CodeContext.this.code[this.source.offset + 3] = (byte) (offset >> 8);
-                CodeContext.this.code[this.source.offset + 4] = (byte) offset;
+                int offset = this.destination.getOffset() - so;
+                code[so + 1] = (byte) (offset >> 24);
+                code[so + 2] = (byte) (offset >> 16);
+                code[so + 3] = (byte) (offset >> 8);
+                code[so + 4] = (byte) offset;
             } else
             {
                 throw new AssertionError(this.opcode);
             }
         }
 
-        private int          opcode;
-        private Inserter     source;
-        private final Offset destination;
+        private int      opcode;
+        private Inserter source;
+        private Offset   destination;
     }
 
     /**
@@ -901,7 +1388,7 @@ class CodeContext {
         o.set();
 
         this.relocatables.add(new OffsetBranch(o, src, dst));
-        this.makeSpace(4);
+        this.write((byte) 0, (byte) 0, (byte) 0, (byte) 0);
     }
     private final class FourByteOffset extends Offset {}
 
@@ -914,22 +1401,19 @@ class CodeContext {
             this.destination = destination;
         }
 
-        @Override public void
-        grow() {}
-
         @Override public void
         relocate() {
-            if (this.source.offset == Offset.UNSET || this.destination.offset == Offset.UNSET) {
+            if (this.source.position == Offset.UNSET || this.destination.position == Offset.UNSET) {
                 throw new InternalCompilerException("Cannot relocate offset branch to unset destination offset");
             }
-            int    offset = this.destination.offset - this.source.offset;
+            int    offset = this.destination.getOffset() - this.source.getOffset();
             byte[] ba     = new byte[] {
                 (byte) (offset >> 24),
                 (byte) (offset >> 16),
                 (byte) (offset >> 8),
                 (byte) offset
             };
-            System.arraycopy(ba, 0, CodeContext.this.code, this.where.offset, 4);
+            System.arraycopy(ba, 0, CodeContext.this.firstSegment.bytes, this.where.getOffset(), 4);
         }
         private final Offset where, source, destination;
     }
@@ -1008,9 +1492,14 @@ class CodeContext {
     class Offset {
 
         /**
-         * The offset in the code attribute that this object represents.
+         * The segment that holds the code at this offset; {@code null} iff this offset is not set (or was removed).
+         */
+        @Nullable Segment segment;
+
+        /**
+         * The position of this offset within its {@link #segment}; {@link #UNSET} iff this offset is not set.
          */
-        int offset = Offset.UNSET;
+        int position = Offset.UNSET;
 
         /**
          * Links to preceding and succeeding offsets. Both are {@code null} <em>before</em> {@link #set()} is called,
@@ -1020,12 +1509,26 @@ class CodeContext {
         @Nullable Offset prev, next;
 
         /**
-         * Special value for {@link #offset} which indicates that this {@link Offset} has not yet been {@link #set()}
+         * Special value for {@link #position} which indicates that this {@link Offset} has not yet been {@link #set()}
          */
         static final int UNSET = -1;
 
         @Nullable private StackMap stackMap;     // Is null until "set()".
 
+        /**
+         * @return The offset in the code attribute that this object represents, or {@link #UNSET}
+         */
+        public int
+        getOffset() {
+
+            Segment s = this.segment;
+            if (s == null) return this.position;
+
+            if (!CodeContext.this.segmentStartsValid) CodeContext.this.computeSegmentStarts();
+
+            return s.start + this.position;
+        }
+
         /**
          * Sets this "Offset" to the offset of the current inserter; inserts this "Offset" before the current inserter.
          */
@@ -1074,8 +1577,9 @@ class CodeContext {
         setOffset() {
             Inserter ci = CodeContext.this.currentInserter;
 
-            if (this.offset != Offset.UNSET) throw new InternalCompilerException("Offset already set");
-            this.offset = ci.offset;
+            if (this.position != Offset.UNSET) throw new InternalCompilerException("Offset already set");
+            this.segment  = ci.segment;
+            this.position = ci.position;
         }
 
         public StackMap
@@ -1092,7 +1596,7 @@ class CodeContext {
         public final CodeContext getCodeContext() { return CodeContext.this; }
 
         @Override public String
-        toString() { return CodeContext.this.classFile.getThisClassName() + ": " + this.offset; }
+        toString() { return CodeContext.this.classFile.getThisClassName() + ": " + this.getOffset(); }
     }
 
     @Nullable private static final StackMap
@@ -1106,7 +1610,7 @@ class CodeContext {
 
         if (sm1.equals(sm2)) return sm1;
 
-        if (!Arrays.equals(sm1.operands(), sm2.operands())) {
+        if (!sm1.operandsEqual(sm2)) {
             throw new InternalCompilerException("Inconsistent operand stack: " + sm1 + " vs. " + sm2);
         }
 
@@ -1145,7 +1649,7 @@ class CodeContext {
             }
         }
 
-        return new StackMap((VerificationTypeInfo[]) tmp.toArray(new VerificationTypeInfo[tmp.size()]), sm1.operands());
+        return sm1.withLocals((VerificationTypeInfo[]) tmp.toArray(new VerificationTypeInfo[tmp.size()]));
     }
 
     /**
@@ -1198,9 +1702,8 @@ class CodeContext {
          * @param lineNumber 1...65535
          */
         public
-        LineNumberOffset(int offset, StackMap stackMap, short lineNumber) {
+        LineNumberOffset(StackMap stackMap, short lineNumber) {
             this.lineNumber = lineNumber;
-            this.offset     = offset;
             this.setStackMap(stackMap);
         }
     }
@@ -1217,11 +1720,6 @@ class CodeContext {
     private abstract
     class Relocatable {
 
-        /**
-         * Grows the code if the relocation cannot be done without growing code.
-         */
-        public abstract void grow();
-
         /**
          * Relocates this object.
          */
@@ -1259,14 +1757,11 @@ class CodeContext {
 
         if (from == to) return;
 
-        int size = to.offset - from.offset;
+        int size = to.getOffset() - from.getOffset();
         assert size >= 0;
 
         if (size == 0) return; // Short circuit.
 
-        // Shift down the bytecode past "to".
-        System.arraycopy(this.code, to.offset, this.code, from.offset, this.end.offset - to.offset);
-
         // Invalidate all offsets between "from" and "to".
         // Remove all relocatables that originate between "from" and "to".
         Set<Offset> invalidOffsets = new HashSet<>();
@@ -1281,22 +1776,21 @@ class CodeContext {
 
                 // Invalidate the offset for fast failure.
                 final Offset n = o.next;
-                o.offset    = -77;
+                o.segment   = null;
+                o.position  = -77;
                 o.prev      = null;
                 o.next      = null;
 
                 o = n;
                 assert o != null;
             }
-
-            for (;;) {
-                o.offset -= size;
-                if (o == this.end) break;
-                o = o.next;
-                assert o != null;
-            }
         }
 
+        // Remove the bytecode between "from" and "to", and shift down the offsets past "to".
+        from.next = to;
+        to.prev   = from;
+        this.removeBytes(from, size);
+
         // Invalidate all relocatables which originate or target a removed offset.
         for (Iterator<Relocatable> it = this.relocatables.iterator(); it.hasNext();) {
             Relocatable r = (Relocatable) it.next();
@@ -1347,13 +1841,10 @@ class CodeContext {
                 assert !invalidOffsets.contains(var.getEnd());
             }
         }
-
-        from.next = to;
-        to.prev   = from;
     }
 
     @Override public String
-    toString() { return this.classFile.getThisClassName() + "/cio=" + this.currentInserter.offset; }
+    toString() { return this.classFile.getThisClassName() + "/cio=" + this.currentInserter.getOffset(); }
 
     // Convenience methods for "pushOperand(VTI)".
 
@@ -1402,15 +1893,12 @@ class CodeContext {
     pushUninitializedOperand() {
 
         final Offset                    o   = this.newOffset();
-        final UninitializedVariableInfo uvi = this.classFile.newUninitializedVariableInfo((short) o.offset);
+        final UninitializedVariableInfo uvi = this.classFile.newUninitializedVariableInfo((short) o.getOffset());
 
         this.relocatables.add(new Relocatable() {
 
             @Override public void
-            grow() {}
-
-            @Override public void
-            relocate() { uvi.offset = (short) o.offset; }
+            relocate() { uvi.offset = (short) o.getOffset(); }
         });
 
         this.pushOperand(uvi);
@@ -1430,8 +1918,7 @@ class CodeContext {
         sm = sm.pushOperand(topOperand);
         ci.setStackMap(sm);
 
-        int ss = 0;
-        for (VerificationTypeInfo vti : sm.operands()) ss += vti.category();
+        int ss = sm.operandsSize();
         if (ss > this.maxStack) this.maxStack = ss;
     }
 
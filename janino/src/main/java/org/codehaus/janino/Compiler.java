@@ -26,39 +26,62 @@
 package org.codehaus.janino;
 
 import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.lang.reflect.Array;
-import java.net.URI;
-import java.net.URL;
-import java.net.URLConnection;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.codehaus.commons.compiler.AbstractCompiler;
 import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.ErrorHandler;
 import org.codehaus.commons.compiler.ICompiler;
 import org.codehaus.commons.compiler.InternalCompilerException;
 import org.codehaus.commons.compiler.Location;
 import org.codehaus.commons.compiler.WarningHandler;
-import org.codehaus.commons.compiler.java9.java.lang.module.ModuleFinder;
-import org.codehaus.commons.compiler.java9.java.lang.module.ModuleReference;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
+import org.codehaus.commons.compiler.io.Readers;
 import org.codehaus.commons.compiler.util.Benchmark;
 import org.codehaus.commons.compiler.util.StringPattern;
 import org.codehaus.commons.compiler.util.StringUtil;
+import org.codehaus.commons.compiler.util.SystemProperties;
 import org.codehaus.commons.compiler.util.resource.DirectoryResourceFinder;
 import org.codehaus.commons.compiler.util.resource.FileResource;
 import org.codehaus.commons.compiler.util.resource.FileResourceCreator;
 import org.codehaus.commons.compiler.util.resource.JarDirectoriesResourceFinder;
+import org.codehaus.commons.compiler.util.resource.JrtResourceFinder;
+import org.codehaus.commons.compiler.util.resource.MappedJarsResourceFinder;
 import org.codehaus.commons.compiler.util.resource.MultiResourceFinder;
 import org.codehaus.commons.compiler.util.resource.PathResourceFinder;
 import org.codehaus.commons.compiler.util.resource.Resource;
@@ -76,16 +99,45 @@ class Compiler extends AbstractCompiler {
 
     private static final Logger LOGGER = Logger.getLogger(Compiler.class.getName());
 
+    /**
+     * Whether the JAR files on the boot class path, in the extension directories and on the class path are
+     * memory-mapped and indexed, see {@link MappedJarsResourceFinder}. If {@code false}, then each JAR file is searched
+     * individually through a {@link java.util.zip.ZipFile}. The mapped JAR files are closed at the end of each
+     * {@link #compile(Resource[])}.
+     */
+    private static final boolean
+    mapJarFiles = SystemProperties.getBooleanClassProperty(Compiler.class, "mapJarFiles", true);
+
+    /**
+     * Source files of at least this size (in bytes) are read and decoded in bulk, see {@link Readers#readAll(File,
+     * java.nio.charset.Charset)}; smaller source files are read through a {@link Reader}, because for them, the bulk
+     * read does not pay.
+     */
+    private static final int
+    mapSourceFileThreshold = SystemProperties.getIntegerClassProperty(Compiler.class, "mapSourceFileThreshold", 65536);
+
     private EnumSet<JaninoOption> options = EnumSet.noneOf(JaninoOption.class);
 
     @Nullable private IClassLoader iClassLoader;
 
+    /**
+     * The {@link MappedJarsResourceFinder}s that {@link #getIClassLoader()} created for the implicit {@link
+     * IClassLoader}; closed at the end of {@link #compile(Resource[])}.
+     */
+    private final List<Closeable> mappedJarsResourceFinders = new ArrayList<>();
+
     private Benchmark benchmark = new Benchmark(false);
 
+    private int parallelism = 1;
+
+    @Nullable private Executor parseExecutor;
+
     // Compile time state:
 
     private final List<UnitCompiler> parsedCompilationUnits = new ArrayList<>();
 
+    @Nullable private NameTable nameTable;
+
     /**
      * Initializes a new compiler.
      */
@@ -207,13 +259,103 @@ class Compiler extends AbstractCompiler {
         return this;
     }
 
+    /**
+     * Sets the number of threads that parse and compile the compilation units; the default is 1, which means that
+     * everything happens in the calling thread.
+     * <p>
+     *   The generated class files are identical with those of a sequential compilation, but they may be stored in a
+     *   different order. The {@link #setCompileErrorHandler(ErrorHandler) compile error handler} and the {@link
+     *   #setWarningHandler(WarningHandler) warning handler} are then invoked by the worker threads, but never
+     *   concurrently.
+     * </p>
+     */
+    public void
+    setParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException(Integer.toString(parallelism));
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the {@link Executor} that reads and parses the source resources, or {@code null} (the default) to parse
+     * them in the calling thread, or, with a {@link #setParallelism(int) parallelism} greater than 1, on the threads
+     * that also compile them.
+     * <p>
+     *   Parsing does not depend on the {@link IClassLoader}, so it scales well with the number of cores. Notice that
+     *   the executor need not be a thread pool; e.g. on Java 21+, {@code Executors.newVirtualThreadPerTaskExecutor()}
+     *   is a good choice. The executor is not shut down by the compiler.
+     * </p>
+     * <p>
+     *   With a parallelism of 1, all compilation units are parsed concurrently before the first is compiled. With a
+     *   higher parallelism, each compilation unit is compiled as soon as its parsing is complete.
+     * </p>
+     */
+    public void
+    setParseExecutor(@Nullable Executor parseExecutor) { this.parseExecutor = parseExecutor; }
+
     @Override public void
     compile(Resource[] sourceResources) throws CompileException, IOException {
+
+        final ErrorHandler   ceh = this.compileErrorHandler;
+        final WarningHandler wh  = this.warningHandler;
+
+        // The handlers are not necessarily thread-safe; serialize their invocations.
+        if (this.parallelism > 1 || this.parseExecutor != null) {
+            final Object handlerLock = new Object();
+            if (ceh != null) {
+                this.compileErrorHandler = new ErrorHandler() {
+
+                    @Override public void
+                    handleError(String message, @Nullable Location location) throws CompileException {
+                        synchronized (handlerLock) { ceh.handleError(message, location); }
+                    }
+                };
+            }
+            if (wh != null) {
+                this.warningHandler = new WarningHandler() {
+
+                    @Override public void
+                    handleWarning(@Nullable String handle, String message, @Nullable Location location)
+                    throws CompileException {
+                        synchronized (handlerLock) { wh.handleWarning(handle, message, location); }
+                    }
+                };
+            }
+        }
+
+        // All compilation units of this compilation share one name table.
+        this.nameTable = this.options.contains(JaninoOption.COMPACT_AST) ? new NameTable() : null;
+
         try {
-            this.compile2(sourceResources);
+            if (this.parallelism > 1) {
+                this.compileParallel(sourceResources);
+            } else {
+                this.compile2(sourceResources);
+            }
         } catch (StackOverflowError soe) {
             throw new CompileException("Compilation unit is nested too deeply", null, soe);
+        } finally {
+            this.compileErrorHandler = ceh;
+            this.warningHandler      = wh;
+            this.nameTable           = null;
+            this.closeMappedJarsResourceFinders();
+        }
+    }
+
+    /**
+     * Closes the {@link MappedJarsResourceFinder}s that {@link #getIClassLoader()} created, and discards the implicit
+     * {@link IClassLoader} that uses them, so that the JAR files are not held open between compilations.
+     */
+    private void
+    closeMappedJarsResourceFinders() {
+
+        if (this.mappedJarsResourceFinders.isEmpty()) return;
+
+        this.iClassLoader = null;
+
+        for (Closeable c : this.mappedJarsResourceFinders) {
+            try { c.close(); } catch (IOException e) {}
         }
+        this.mappedJarsResourceFinders.clear();
     }
 
     private void
@@ -222,30 +364,57 @@ class Compiler extends AbstractCompiler {
         this.benchmark.beginReporting();
         try {
 
-            final IClassLoader
-            iClassLoader = new CompilerIClassLoader(this.sourceFinder, this.classFileFinder, this.getIClassLoader());
+            final IClassLoader iClassLoader = new CompilerIClassLoader(
+                this.sourceFinder,
+                this.classFileFinder,
+                this.getIClassLoader(),
+                this.benchmark
+            );
 
             // Initialize compile time fields.
             this.parsedCompilationUnits.clear();
 
+            // Iff there is a parse executor, then parse all source files concurrently.
+            List<FutureTask<Java.AbstractCompilationUnit>> parseResults = null;
+            Executor                                       pe           = this.parseExecutor;
+            if (pe != null) {
+                parseResults = new ArrayList<>(sourceResources.length);
+                for (int i = 0; i < sourceResources.length; i++) {
+                    FutureTask<Java.AbstractCompilationUnit>
+                    ft = new FutureTask<>(this.parser(sourceResources[i], null, i));
+                    parseResults.add(ft);
+                    pe.execute(ft);
+                }
+            }
+
             // Parse all source files.
-            for (Resource sourceResource : sourceResources) {
-                Compiler.LOGGER.log(Level.FINE, "Compiling \"{0}\"", sourceResource);
+            try {
+                for (int i = 0; i < sourceResources.length; i++) {
+                    Resource sourceResource = sourceResources[i];
 
-                UnitCompiler uc = new UnitCompiler(
-                    this.parseAbstractCompilationUnit(
-                        sourceResource.getFileName(),                   // fileName
-                        new BufferedInputStream(sourceResource.open()), // inputStream
-                        this.sourceCharset                              // charset
-                    ),
-                    iClassLoader
-                );
-                uc.setTargetVersion(this.targetVersion);
-                uc.setCompileErrorHandler(this.compileErrorHandler);
-                uc.setWarningHandler(this.warningHandler);
-                uc.options(this.options);
+                    Java.AbstractCompilationUnit acu;
+                    if (parseResults != null) {
+                        acu = (Java.AbstractCompilationUnit) Compiler.getResult((Future<?>) parseResults.get(i));
+                    } else {
+                        Compiler.LOGGER.log(Level.FINE, "Compiling \"{0}\"", sourceResource);
+
+                        acu = this.parseAbstractCompilationUnit(sourceResource, this.benchmark);
+                    }
+
+                    UnitCompiler uc = new UnitCompiler(acu, iClassLoader);
+                    uc.setTargetVersion(this.targetVersion);
+                    uc.setCompileErrorHandler(this.compileErrorHandler);
+                    uc.setWarningHandler(this.warningHandler);
+                    uc.options(this.options);
+
+                    this.parsedCompilationUnits.add(uc);
+                }
+            } finally {
 
-                this.parsedCompilationUnits.add(uc);
+                // Iff parsing failed, then there's no need to parse the rest.
+                if (parseResults != null) {
+                    for (Future<?> f : parseResults) f.cancel(false);
+                }
             }
 
             // Compile all parsed compilation units. The vector of parsed CUs may grow while they are being compiled,
@@ -253,33 +422,11 @@ class Compiler extends AbstractCompiler {
             for (int i = 0; i < this.parsedCompilationUnits.size(); ++i) {
                 UnitCompiler unitCompiler = (UnitCompiler) this.parsedCompilationUnits.get(i);
 
-                final File sourceFile;
-                {
-                    Java.AbstractCompilationUnit acu = unitCompiler.getAbstractCompilationUnit();
-                    if (acu.fileName == null) throw new InternalCompilerException();
-                    sourceFile = new File(acu.fileName);
-                }
-
-                unitCompiler.setTargetVersion(this.targetVersion);
-                unitCompiler.setCompileErrorHandler(this.compileErrorHandler);
-                unitCompiler.setWarningHandler(this.warningHandler);
-
-                this.benchmark.beginReporting("Compiling compilation unit \"" + sourceFile + "\"");
+                this.benchmark.beginReporting(
+                    "Compiling compilation unit \"" + unitCompiler.getAbstractCompilationUnit().fileName + "\""
+                );
                 try {
-
-                    // Compile the compilation unit.
-                    unitCompiler.compileUnit(
-                        this.debugSource,
-                        this.debugLines,
-                        this.debugVars,
-                        new ClassFileConsumer() {
-
-                            @Override public void
-                            consume(ClassFile classFile) throws IOException {
-                                Compiler.this.storeClassFile(classFile, sourceFile);
-                            }
-                        }
-                    );
+                    this.compileUnit(unitCompiler, this);
                 } finally {
                     this.benchmark.endReporting();
                 }
@@ -290,35 +437,341 @@ class Compiler extends AbstractCompiler {
     }
 
     /**
-     * Reads one compilation unit from a file and parses it.
+     * Parses the <var>sourceResources</var> on the {@link #setParseExecutor(Executor) parse executor} (or, iff none
+     * is set, on a separate {@link ForkJoinPool}), and compiles them with {@link #parallelism} concurrent workers as
+     * soon as they are parsed.
      * <p>
-     *   The <var>inputStream</var> is closed before the method returns.
+     *   {@link UnitCompiler}s and ASTs are not thread-safe, so each worker has its own {@link CompilerIClassLoader}
+     *   with private ASTs of the compilation units that it compiles or needs to resolve: The first worker that needs a
+     *   compilation unit takes the AST that was parsed up front, and any other worker re-parses the source text. Only
+     *   the parent {@link IClassLoader} (and the {@link IClass}es it loads) is shared between the workers. That way,
+     *   each class file is generated from exactly the same input as in sequential mode.
      * </p>
+     * <p>
+     *   A compilation unit that is not one of the <var>sourceResources</var>, but is found on the source path, is
+     *   queued for compilation by the worker that first needs it, and is then compiled by the next idle worker.
+     * </p>
+     */
+    private void
+    compileParallel(final Resource[] sourceResources) throws CompileException, IOException {
+
+        this.benchmark.beginReporting();
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+
+        final int                                            n            = sourceResources.length;
+        final List<FutureTask<Java.AbstractCompilationUnit>> parseResults = new ArrayList<>(n);
+        ForkJoinPool                                         parsePool    = null;
+        try {
+            final IClassLoader parentIClassLoader = this.getIClassLoader();
+
+            // Read and parse all source files concurrently. As each unit is parsed, enter the names of its top-level
+            // types, and queue it for compilation.
+            final CharSequence[]                                     sourceTexts = new CharSequence[n];
+            final AtomicReferenceArray<Java.AbstractCompilationUnit> parsedUnits = new AtomicReferenceArray<>(n);
+            final ConcurrentMap<String /*className*/, Integer /*index*/>
+            parsedUnitIndexes = new ConcurrentHashMap<>();
+            final CountDownLatch         unparsedUnits = new CountDownLatch(n);
+            final BlockingQueue<Integer> parsedUnitQueue = new LinkedBlockingQueue<>();
+
+            // Notice: The workers block until units are parsed, so they must not share their pool with the parsers.
+            Executor pe = this.parseExecutor;
+            if (pe == null) pe = (parsePool = new ForkJoinPool(this.parallelism));
+            for (int i = 0; i < n; i++) {
+                final int                                    idx    = i;
+                final Callable<Java.AbstractCompilationUnit> parser = this.parser(sourceResources[i], sourceTexts, i);
+
+                FutureTask<Java.AbstractCompilationUnit> ft = new FutureTask<Java.AbstractCompilationUnit>(
+                    new Callable<Java.AbstractCompilationUnit>() {
+
+                        @Override public Java.AbstractCompilationUnit
+                        call() throws Exception {
+                            Java.AbstractCompilationUnit acu = (Java.AbstractCompilationUnit) parser.call();
+                            parsedUnits.set(idx, acu);
+                            Compiler.indexParsedUnit(acu, idx, parsedUnitIndexes);
+                            return acu;
+                        }
+                    }
+                ) {
+
+                    @Override protected void
+                    done() {
+                        parsedUnitQueue.add(idx);
+                        unparsedUnits.countDown();
+                    }
+                };
+                parseResults.add(ft);
+                pe.execute(ft);
+            }
+
+            // Now compile the units concurrently, in the order in which their parsing completes.
+            final AtomicInteger nextUnit            = new AtomicInteger();
+            final AtomicInteger unitCount           = new AtomicInteger(n);
+            final Set<String>   claimedSourceFiles  = Collections.newSetFromMap(
+                new ConcurrentHashMap<String, Boolean>()
+            );
+            final ConcurrentLinkedQueue<Resource> discoveredSources = new ConcurrentLinkedQueue<>();
+            final Object        classFileLock       = new Object();
+            final AtomicBoolean abort               = new AtomicBoolean();
+            List<Callable<Object>> workers = new ArrayList<>(this.parallelism);
+            for (int i = 0; i < this.parallelism; i++) {
+                workers.add(new Callable<Object>() {
+
+                    @Override @Nullable public Object
+                    call() throws CompileException, IOException {
+
+                        WorkerIClassLoader wicl = new WorkerIClassLoader(
+                            parentIClassLoader,
+                            sourceResources,
+                            sourceTexts,
+                            parseResults,
+                            parsedUnits,
+                            parsedUnitIndexes,
+                            unparsedUnits,
+                            claimedSourceFiles,
+                            discoveredSources,
+                            classFileLock
+                        );
+
+                        // Stop all workers as soon as one of them fails.
+                        boolean completed = false;
+                        try {
+                            while (!abort.get()) {
+                                UnitCompiler uc;
+
+                                Resource discoveredSource;
+                                if (nextUnit.getAndIncrement() < n) {
+                                    Integer idx;
+                                    try {
+                                        idx = (Integer) parsedUnitQueue.take();
+                                    } catch (InterruptedException ie) {
+                                        Thread.currentThread().interrupt();
+                                        throw (IOException) new InterruptedIOException().initCause(ie);
+                                    }
+                                    uc = wicl.getParsedUnit(idx);
+                                } else
+                                if ((discoveredSource = (Resource) discoveredSources.poll()) != null) {
+                                    uc = wicl.getDiscoveredUnit(discoveredSource);
+                                    unitCount.incrementAndGet();
+                                } else
+                                {
+                                    break;
+                                }
+
+                                Compiler.this.compileUnit(uc, classFileLock);
+                            }
+                            completed = true;
+                        } finally {
+                            if (!completed) abort.set(true);
+                        }
+                        return null;
+                    }
+                });
+            }
+            List<Future<Object>> futures = pool.invokeAll(workers);
+            try {
+                for (Future<Object> future : futures) Compiler.getResult(future);
+            } catch (CompileException ce) {
+
+                // A syntax error takes precedence over the compile errors that it may have caused, like in sequential
+                // mode.
+                for (Future<?> f : parseResults) Compiler.getResult(f);
+                throw ce;
+            }
+
+            this.benchmark.endReporting("Compiled " + unitCount.get() + " compilation unit(s)");
+        } finally {
+
+            // Iff compilation failed, then there's no need to parse the rest.
+            for (Future<?> f : parseResults) f.cancel(false);
+            if (parsePool != null) parsePool.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return A task that reads and parses the <var>sourceResource</var>, and, iff <var>sourceTexts</var> is not
+     *         {@code null}, stores the source text in {@code sourceTexts[idx]}
+     */
+    private Callable<Java.AbstractCompilationUnit>
+    parser(final Resource sourceResource, @Nullable final CharSequence[] sourceTexts, final int idx) {
+
+        return new Callable<Java.AbstractCompilationUnit>() {
+
+            @Override public Java.AbstractCompilationUnit
+            call() throws CompileException, IOException {
+                Compiler.LOGGER.log(Level.FINE, "Compiling \"{0}\"", sourceResource);
+
+                if (sourceTexts == null) {
+                    return Compiler.this.parseAbstractCompilationUnit(sourceResource, new Benchmark(false));
+                }
+
+                sourceTexts[idx] = Compiler.this.readSource(sourceResource);
+
+                return Compiler.this.parseAbstractCompilationUnit(
+                    sourceResource.getFileName(),             // fileName
+                    new CharSequenceReader(sourceTexts[idx]), // reader
+                    new Benchmark(false)                      // benchmark
+                );
+            }
+        };
+    }
+
+    /**
+     * Maps the names of the top-level types that the <var>acu</var> declares to the <var>idx</var>. Iff more than one
+     * compilation unit declares the same type, then the one with the lowest index wins, like in sequential mode.
+     */
+    private static void
+    indexParsedUnit(
+        Java.AbstractCompilationUnit         acu,
+        Integer                              idx,
+        ConcurrentMap<String, Integer>       parsedUnitIndexes
+    ) {
+        if (!(acu instanceof Java.CompilationUnit)) return;
+
+        Java.CompilationUnit    cu = (Java.CompilationUnit) acu;
+        Java.PackageDeclaration pd = cu.packageDeclaration;
+        for (Java.PackageMemberTypeDeclaration pmtd : cu.getPackageMemberTypeDeclarations()) {
+            String className = pd == null ? pmtd.getName() : pd.packageName + '.' + pmtd.getName();
+            for (;;) {
+                Integer prev = (Integer) parsedUnitIndexes.putIfAbsent(className, idx);
+                if (prev == null || prev <= idx || parsedUnitIndexes.replace(className, prev, idx)) break;
+            }
+        }
+    }
+
+    /**
+     * Compiles the given compilation unit and stores the generated class files, synchronized by the
+     * <var>classFileLock</var>.
+     */
+    private void
+    compileUnit(UnitCompiler unitCompiler, final Object classFileLock) throws CompileException, IOException {
+
+        final File sourceFile;
+        {
+            Java.AbstractCompilationUnit acu = unitCompiler.getAbstractCompilationUnit();
+            if (acu.fileName == null) throw new InternalCompilerException();
+            sourceFile = new File(acu.fileName);
+        }
+
+        unitCompiler.setTargetVersion(this.targetVersion);
+        unitCompiler.setCompileErrorHandler(this.compileErrorHandler);
+        unitCompiler.setWarningHandler(this.warningHandler);
+
+        unitCompiler.compileUnit(
+            this.debugSource,
+            this.debugLines,
+            this.debugVars,
+            new ClassFileConsumer() {
+
+                @Override public void
+                consume(ClassFile classFile) throws IOException {
+                    synchronized (classFileLock) {
+                        Compiler.this.storeClassFile(classFile, sourceFile);
+                    }
+                }
+            }
+        );
+    }
+
+    /**
+     * Waits for the <var>future</var> and unwraps the exception that the task threw.
+     */
+    @Nullable private static Object
+    getResult(Future<?> future) throws CompileException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw (IOException) new InterruptedIOException().initCause(ie);
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+
+            // "ForkJoinTask" wraps checked exceptions in plain "RuntimeException"s.
+            while (cause != null && cause.getClass() == RuntimeException.class && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+
+            if (cause instanceof CompileException) throw (CompileException) cause;
+            if (cause instanceof IOException)      throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error)            throw (Error) cause;
+            throw new InternalCompilerException(String.valueOf(cause), cause);
+        }
+    }
+
+    /**
+     * Reads one compilation unit from a resource and parses it. Large source files are memory-mapped and scanned
+     * directly, see {@link #readSource(Resource)}.
      *
      * @return the parsed compilation unit
      */
     private Java.AbstractCompilationUnit
-    parseAbstractCompilationUnit(
-        String      fileName,
-        InputStream inputStream,
-        Charset     charset
-    ) throws CompileException, IOException {
+    parseAbstractCompilationUnit(Resource sourceResource, Benchmark benchmark) throws CompileException, IOException {
+
+        if (Compiler.isLargeFile(sourceResource)) {
+            return this.parseAbstractCompilationUnit(
+                sourceResource.getFileName(),                            // fileName
+                new CharSequenceReader(this.readSource(sourceResource)), // reader
+                benchmark                                                // benchmark
+            );
+        }
+
+        InputStream is = new BufferedInputStream(sourceResource.open());
         try {
+            return this.parseAbstractCompilationUnit(
+                sourceResource.getFileName(),                  // fileName
+                new InputStreamReader(is, this.sourceCharset), // reader
+                benchmark                                      // benchmark
+            );
+        } finally {
+            is.close();
+        }
+    }
 
-            Scanner scanner = new Scanner(fileName, new InputStreamReader(inputStream, charset));
+    /**
+     * Reads the entire contents of the <var>sourceResource</var>. Source files of at least {@link
+     * #mapSourceFileThreshold} bytes are read and decoded in bulk, which skips the {@link InputStream} and
+     * {@link Reader} layers.
+     */
+    private CharSequence
+    readSource(Resource sourceResource) throws IOException {
 
-            Parser parser = new Parser(scanner);
-            parser.setSourceVersion(this.sourceVersion);
-            parser.setWarningHandler(this.warningHandler);
+        if (Compiler.isLargeFile(sourceResource)) {
+            return Readers.readAll(((FileResource) sourceResource).getFile(), this.sourceCharset);
+        }
 
-            this.benchmark.beginReporting("Parsing \"" + fileName + "\"");
-            try {
-                return parser.parseAbstractCompilationUnit();
-            } finally {
-                this.benchmark.endReporting();
-            }
+        Reader r = new InputStreamReader(new BufferedInputStream(sourceResource.open()), this.sourceCharset);
+        try {
+            return Readers.readAll(r);
+        } finally {
+            r.close();
+        }
+    }
+
+    private static boolean
+    isLargeFile(Resource resource) {
+        return (
+            resource instanceof FileResource
+            && ((FileResource) resource).getFile().length() >= Compiler.mapSourceFileThreshold
+        );
+    }
+
+    private Java.AbstractCompilationUnit
+    parseAbstractCompilationUnit(String fileName, Reader reader, Benchmark benchmark)
+    throws CompileException, IOException {
+
+        Scanner scanner = new Scanner(fileName, reader);
+
+        Parser parser = new Parser(scanner);
+        parser.setSourceVersion(this.sourceVersion);
+        parser.setWarningHandler(this.warningHandler);
+        parser.setNameTable(this.nameTable);
+
+        benchmark.beginReporting("Parsing \"" + fileName + "\"");
+        try {
+            return parser.parseAbstractCompilationUnit();
         } finally {
-            inputStream.close();
+            benchmark.endReporting();
         }
     }
 
@@ -440,67 +893,94 @@ class Compiler extends AbstractCompiler {
 
             // JVM 1.0-1.8; BOOTCLASSPATH supported:
             classPathResourceFinder = new MultiResourceFinder(Arrays.asList(
-                new PathResourceFinder(bcp),
-                new JarDirectoriesResourceFinder(this.extensionDirectories),
-                new PathResourceFinder(this.classPath)
+                this.pathResourceFinder(bcp),
+                this.jarDirectoriesResourceFinder(this.extensionDirectories),
+                this.pathResourceFinder(this.classPath)
             ));
         } else {
 
             // JVM 9+: "Modules" replace the BOOTCLASSPATH:
-            URL r = ClassLoader.getSystemClassLoader().getResource("java/lang/Object.class");
-            assert r != null;
-
-            assert "jrt".equalsIgnoreCase(r.getProtocol()) : r.toString();
-
-            ResourceFinder rf = new ResourceFinder() {
-
-                @Override @Nullable public Resource
-                findResource(final String resourceName) {
-
-                    try {
-                        final Set<ModuleReference> mrs = ModuleFinder.ofSystem().findAll();
-
-                        for (final ModuleReference mr : mrs) {
-                            final URI           moduleContentLocation = (URI) mr.location().get();
-                            final URL           classFileUrl          = new URL(moduleContentLocation + "/" + resourceName);
-                            final URLConnection uc                    = classFileUrl.openConnection();
-                            try {
-                                uc.connect();
-                                return new Resource() {
-
-                                    @Override public InputStream
-                                    open() throws IOException {
-                                        try {
-                                            return uc.getInputStream();
-                                        } catch (IOException ioe) {
-                                            throw new IOException(moduleContentLocation + ", " + resourceName, ioe);
-                                        }
-                                    }
-
-                                    @Override public String getFileName()  { return resourceName;         }
-                                    @Override public long   lastModified() { return uc.getLastModified(); }
-                                };
-                            } catch (IOException ioe) {
-                                ;
-                            }
-                        }
-                        return null;
-                    } catch (Exception e) {
-                        throw new AssertionError(e);
-                    }
-                }
-            };
+            // Index the modules' packages once, so that each class lookup is a map lookup.
+            ResourceFinder rf;
+            try {
+                rf = new JrtResourceFinder();
+            } catch (IOException ioe) {
+                throw new AssertionError(ioe);
+            }
 
             classPathResourceFinder = new MultiResourceFinder(Arrays.asList(
                 rf,
-                new JarDirectoriesResourceFinder(this.extensionDirectories),
-                new PathResourceFinder(this.classPath)
+                this.jarDirectoriesResourceFinder(this.extensionDirectories),
+                this.pathResourceFinder(this.classPath)
             ));
         }
 
         return (this.iClassLoader = new ResourceFinderIClassLoader(classPathResourceFinder, null));
     }
 
+    /**
+     * @return A {@link ResourceFinder} that finds resources along the given "path" of JAR files, ZIP files and
+     *         directories; consecutive JAR and ZIP files are indexed together (if {@link #mapJarFiles})
+     */
+    private ResourceFinder
+    pathResourceFinder(File[] entries) {
+
+        if (!Compiler.mapJarFiles) return new PathResourceFinder(entries);
+
+        // Preserve the order of the entries, but group each run of consecutive files into one
+        // "MappedJarsResourceFinder".
+        List<ResourceFinder> result = new ArrayList<>();
+        List<File>           files  = new ArrayList<>();
+        for (File entry : entries) {
+            if (entry.isFile()) {
+                files.add(entry);
+                continue;
+            }
+            if (!files.isEmpty()) {
+                result.add(this.mappedJarsResourceFinder((File[]) files.toArray(new File[files.size()])));
+                files.clear();
+            }
+            if (entry.isDirectory()) result.add(new DirectoryResourceFinder(entry));
+        }
+        if (!files.isEmpty()) {
+            result.add(this.mappedJarsResourceFinder((File[]) files.toArray(new File[files.size()])));
+        }
+
+        return new MultiResourceFinder(result);
+    }
+
+    /**
+     * @return A {@link ResourceFinder} that finds resources in the "*.jar" files in the given directories; all these
+     *         JAR files are indexed together (if {@link #mapJarFiles})
+     */
+    private ResourceFinder
+    jarDirectoriesResourceFinder(File[] directories) {
+
+        if (!Compiler.mapJarFiles) return new JarDirectoriesResourceFinder(directories);
+
+        List<File> jarFiles = new ArrayList<>();
+        for (File directory : directories) {
+            File[] files = directory.listFiles(new FilenameFilter() {
+
+                @Override public boolean
+                accept(@Nullable File dir, @Nullable String name) {
+                    assert name != null;
+                    return name.endsWith(".jar");
+                }
+            });
+            if (files != null) jarFiles.addAll(Arrays.asList(files));
+        }
+
+        return this.mappedJarsResourceFinder((File[]) jarFiles.toArray(new File[jarFiles.size()]));
+    }
+
+    private MappedJarsResourceFinder
+    mappedJarsResourceFinder(File[] jarFiles) {
+        MappedJarsResourceFinder result = new MappedJarsResourceFinder(jarFiles);
+        this.mappedJarsResourceFinders.add(result);
+        return result;
+    }
+
     /**
      * A specialized {@link IClassLoader} that loads {@link IClass}es from the following sources:
      * <ol>
@@ -519,24 +999,46 @@ class Compiler extends AbstractCompiler {
 
         private final ResourceFinder           sourceFinder;
         @Nullable private final ResourceFinder classFileFinder;
+        private final Benchmark                benchmark;
 
         /**
          * @param sourceFinder       Where to look for more source files
          * @param classFileFinder    Where to look for previously generated .class resources, or {@link
          *                           #FIND_NEXT_TO_SOURCE_FILE}
          * @param parentIClassLoader {@link IClassLoader} through which {@link IClass}es are to be loaded
+         * @param benchmark          Reports parsing and class file loading
          */
         CompilerIClassLoader(
             ResourceFinder           sourceFinder,
             @Nullable ResourceFinder classFileFinder,
-            IClassLoader             parentIClassLoader
+            IClassLoader             parentIClassLoader,
+            Benchmark                benchmark
         ) {
             super(parentIClassLoader);
             this.sourceFinder    = sourceFinder;
             this.classFileFinder = classFileFinder;
+            this.benchmark       = benchmark;
             super.postConstruct();
         }
 
+        /**
+         * @return The already-parsed compilation unit that declares the given top-level type, or {@code null}
+         */
+        @Nullable UnitCompiler
+        findParsedUnit(String topLevelClassName) {
+            for (int i = 0; i < Compiler.this.parsedCompilationUnits.size(); ++i) {
+                UnitCompiler uc = (UnitCompiler) Compiler.this.parsedCompilationUnits.get(i);
+                if (uc.findClass(topLevelClassName) != null) return uc;
+            }
+            return null;
+        }
+
+        /**
+         * Remembers a compilation unit that was found on the source path, for later compilation.
+         */
+        void
+        addParsedUnit(UnitCompiler uc, Resource sourceResource) { Compiler.this.parsedCompilationUnits.add(uc); }
+
         /**
          * @param type                    field descriptor of the {@link IClass} to load, e.g. {@code
          *                                "Lpkg1/pkg2/Outer$Inner;"}
@@ -563,17 +1065,12 @@ class Compiler extends AbstractCompiler {
                 String topLevelClassName = idx == -1 ? className : className.substring(0, idx);
 
                 // Check the already-parsed compilation units.
-                for (int i = 0; i < Compiler.this.parsedCompilationUnits.size(); ++i) {
-                    UnitCompiler uc  = (UnitCompiler) Compiler.this.parsedCompilationUnits.get(i);
-                    IClass       res = uc.findClass(topLevelClassName);
-                    if (res != null) {
-                        if (!className.equals(topLevelClassName)) {
-                            res = uc.findClass(className);
-                            if (res == null) return null;
-                        }
-                        this.defineIClass(res);
-                        return res;
-                    }
+                UnitCompiler uc = this.findParsedUnit(topLevelClassName);
+                if (uc != null) {
+                    IClass res = uc.findClass(className);
+                    if (res == null) return null;
+                    this.defineIClass(res);
+                    return res;
                 }
 
                 if (idx == -1) break;
@@ -582,6 +1079,27 @@ class Compiler extends AbstractCompiler {
             // Search source path for uncompiled class.
             final Resource sourceResource = this.sourceFinder.findResource(ClassFile.getSourceResourceName(className));
             if (sourceResource == null) return null;
+            if (
+                this.classFileFinder == ICompiler.FIND_NEXT_TO_SOURCE_FILE
+                && !(sourceResource instanceof FileResource)
+            ) return null;
+
+            // Find an existing, up-to-date class file.
+            ClassFile cf = this.loadUpToDateClassFile(sourceResource, className);
+            if (cf != null) return this.defineIClassFromClassFile(cf);
+
+            // Source file not yet compiled or younger than class file.
+            return this.defineIClassFromSourceResource(sourceResource, className);
+        }
+
+        /**
+         * Finds the class file for the given <var>className</var>, and, iff it is not older than the
+         * <var>sourceResource</var>, reads it.
+         *
+         * @return {@code null} iff there is no such class file, or it is older than the <var>sourceResource</var>
+         */
+        @Nullable ClassFile
+        loadUpToDateClassFile(Resource sourceResource, String className) throws ClassNotFoundException {
 
             // Find an existing class file.
             ResourceFinder cff = this.classFileFinder;
@@ -593,7 +1111,6 @@ class Compiler extends AbstractCompiler {
                     ClassFile.getClassFileResourceName(className)
                 );
             } else {
-                if (!(sourceResource instanceof FileResource)) return null;
                 File classFile = new File(
                     ((FileResource) sourceResource).getFile().getParentFile(),
                     ClassFile.getClassFileResourceName(className.substring(className.lastIndexOf('.') + 1))
@@ -602,14 +1119,26 @@ class Compiler extends AbstractCompiler {
             }
 
             // Compare source modification time against class file modification time.
-            if (classFileResource != null && sourceResource.lastModified() <= classFileResource.lastModified()) {
-
-                // The class file is up-to-date; load it.
-                return this.defineIClassFromClassFileResource(classFileResource);
-            } else {
+            if (classFileResource == null || sourceResource.lastModified() > classFileResource.lastModified()) {
+                return null;
+            }
 
-                // Source file not yet compiled or younger than class file.
-                return this.defineIClassFromSourceResource(sourceResource, className);
+            // The class file is up-to-date; read it.
+            this.benchmark.beginReporting("Loading class file \"" + classFileResource.getFileName() + "\"");
+            try {
+                InputStream is = null;
+                ClassFile   cf;
+                try {
+                    is = classFileResource.open();
+                    cf = new ClassFile(new BufferedInputStream(is));
+                } catch (IOException ex) {
+                    throw new ClassNotFoundException("Opening class file resource \"" + classFileResource + "\"", ex);
+                } finally {
+                    if (is != null) try { is.close(); } catch (IOException e) {}
+                }
+                return cf;
+            } finally {
+                this.benchmark.endReporting();
             }
         }
 
@@ -627,11 +1156,8 @@ class Compiler extends AbstractCompiler {
             // Parse the source file.
             UnitCompiler uc;
             try {
-                Java.AbstractCompilationUnit acu = Compiler.this.parseAbstractCompilationUnit(
-                    sourceResource.getFileName(),                   // fileName
-                    new BufferedInputStream(sourceResource.open()), // inputStream
-                    Compiler.this.sourceCharset                     // charset
-                );
+                Java.AbstractCompilationUnit
+                acu = Compiler.this.parseAbstractCompilationUnit(sourceResource, this.benchmark);
                 uc = new UnitCompiler(acu, this).options(Compiler.this.options);
             } catch (IOException ex) {
                 throw new ClassNotFoundException("Parsing compilation unit \"" + sourceResource + "\"", ex);
@@ -640,7 +1166,7 @@ class Compiler extends AbstractCompiler {
             }
 
             // Remember compilation unit for later compilation.
-            Compiler.this.parsedCompilationUnits.add(uc);
+            this.addParsedUnit(uc, sourceResource);
 
             // Define the class.
             IClass res = uc.findClass(className);
@@ -658,39 +1184,164 @@ class Compiler extends AbstractCompiler {
         }
 
         /**
-         * Opens the given <var>classFileResource</var>, reads its contents, defines it in the {@link IClassLoader},
-         * and resolves it (this step may involve loading more classes).
+         * Defines the given <var>classFile</var> in the {@link IClassLoader}, and resolves it (this step may involve
+         * loading more classes).
          */
         private IClass
-        defineIClassFromClassFileResource(Resource classFileResource) throws ClassNotFoundException {
-            Compiler.this.benchmark.beginReporting("Loading class file \"" + classFileResource.getFileName() + "\"");
-            try {
-                InputStream is = null;
-                ClassFile   cf;
+        defineIClassFromClassFile(ClassFile classFile) throws ClassNotFoundException {
+            ClassFileIClass result = new ClassFileIClass(
+                classFile,                // classFile
+                CompilerIClassLoader.this // iClassLoader
+            );
+
+            // Important: We must FIRST call "defineIClass()" so that the
+            // new IClass is known to the IClassLoader, and THEN
+            // "resolveAllClasses()", because otherwise endless recursion could
+            // occur.
+            this.defineIClass(result);
+            result.resolveAllClasses();
+
+            return result;
+        }
+    }
+
+    /**
+     * The {@link CompilerIClassLoader} of one worker of {@link #compileParallel(Resource[])}. Lazily gets hold of
+     * private ASTs of the compilation units that are parsed up front, and claims the compilation units that it finds
+     * on the source path, unless another worker has already claimed them.
+     */
+    private
+    class WorkerIClassLoader extends CompilerIClassLoader {
+
+        private final Resource[]                                         sourceResources;
+        private final CharSequence[]                                     sourceTexts;
+        private final List<? extends Future<?>>                          parseResults;
+        private final AtomicReferenceArray<Java.AbstractCompilationUnit> parsedUnits;
+        private final Map<String, Integer>                               parsedUnitIndexes;
+        private final CountDownLatch                                     unparsedUnits;
+        private final UnitCompiler[]                                     parsedUnitCompilers;
+        private final Set<String>                                        claimedSourceFiles;
+        private final ConcurrentLinkedQueue<Resource>                    discoveredSources;
+        private final Object                                             classFileLock;
+        private final Map<String /*fileName*/, UnitCompiler>             discoveredUnits = new LinkedHashMap<>();
+
+        WorkerIClassLoader(
+            IClassLoader                                       parentIClassLoader,
+            Resource[]                                         sourceResources,
+            CharSequence[]                                     sourceTexts,
+            List<? extends Future<?>>                          parseResults,
+            AtomicReferenceArray<Java.AbstractCompilationUnit> parsedUnits,
+            Map<String, Integer>                               parsedUnitIndexes,
+            CountDownLatch                                     unparsedUnits,
+            Set<String>                                        claimedSourceFiles,
+            ConcurrentLinkedQueue<Resource>                    discoveredSources,
+            Object                                             classFileLock
+        ) {
+            super(Compiler.this.sourceFinder, Compiler.this.classFileFinder, parentIClassLoader, new Benchmark(false));
+            this.sourceResources     = sourceResources;
+            this.sourceTexts         = sourceTexts;
+            this.parseResults        = parseResults;
+            this.parsedUnits         = parsedUnits;
+            this.parsedUnitIndexes   = parsedUnitIndexes;
+            this.unparsedUnits       = unparsedUnits;
+            this.parsedUnitCompilers = new UnitCompiler[sourceResources.length];
+            this.claimedSourceFiles  = claimedSourceFiles;
+            this.discoveredSources   = discoveredSources;
+            this.classFileLock       = classFileLock;
+        }
+
+        /**
+         * @return This worker's {@link UnitCompiler} for a source resource that some worker found on the source path
+         */
+        UnitCompiler
+        getDiscoveredUnit(Resource sourceResource) throws CompileException, IOException {
+
+            UnitCompiler result = (UnitCompiler) this.discoveredUnits.get(sourceResource.getFileName());
+            if (result != null) return result;
+
+            result = new UnitCompiler(
+                Compiler.this.parseAbstractCompilationUnit(sourceResource, new Benchmark(false)),
+                this
+            ).options(Compiler.this.options);
+
+            this.discoveredUnits.put(sourceResource.getFileName(), result);
+            return result;
+        }
+
+        /**
+         * @return This worker's {@link UnitCompiler} for the <var>idx</var>th source resource
+         */
+        UnitCompiler
+        getParsedUnit(int idx) throws CompileException, IOException {
+
+            UnitCompiler result = this.parsedUnitCompilers[idx];
+            if (result != null) return result;
+
+            // Wait until the unit is parsed (and re-throw any parse error).
+            Compiler.getResult((Future<?>) this.parseResults.get(idx));
+
+            // Take the AST that was parsed up front, or, if another worker was faster, parse the source text again.
+            Java.AbstractCompilationUnit acu = (Java.AbstractCompilationUnit) this.parsedUnits.getAndSet(idx, null);
+            if (acu == null) {
+                acu = Compiler.this.parseAbstractCompilationUnit(
+                    this.sourceResources[idx].getFileName(),       // fileName
+                    new CharSequenceReader(this.sourceTexts[idx]), // reader
+                    new Benchmark(false)                           // benchmark
+                );
+            }
+
+            return (this.parsedUnitCompilers[idx] = new UnitCompiler(acu, this).options(Compiler.this.options));
+        }
+
+        @Override @Nullable UnitCompiler
+        findParsedUnit(String topLevelClassName) {
+
+            Integer idx = (Integer) this.parsedUnitIndexes.get(topLevelClassName);
+            if (idx == null && this.unparsedUnits.getCount() > 0) {
+
+                // The type may be declared in a unit that is not yet parsed.
                 try {
-                    is = classFileResource.open();
-                    cf = new ClassFile(new BufferedInputStream(is));
-                } catch (IOException ex) {
-                    throw new ClassNotFoundException("Opening class file resource \"" + classFileResource + "\"", ex);
-                } finally {
-                    if (is != null) try { is.close(); } catch (IOException e) {}
+                    this.unparsedUnits.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InternalCompilerException("Waiting for the parsing of compilation units", ie);
                 }
-                ClassFileIClass result = new ClassFileIClass(
-                    cf,                       // classFile
-                    CompilerIClassLoader.this // iClassLoader
-                );
+                idx = (Integer) this.parsedUnitIndexes.get(topLevelClassName);
+            }
+            if (idx != null) {
+                try {
+                    return this.getParsedUnit(idx);
+                } catch (CompileException ce) {
+                    throw new InternalCompilerException("Re-parsing compilation unit", ce);
+                } catch (IOException ioe) {
+                    throw new InternalCompilerException("Re-parsing compilation unit", ioe);
+                }
+            }
 
-                // Important: We must FIRST call "defineIClass()" so that the
-                // new IClass is known to the IClassLoader, and THEN
-                // "resolveAllClasses()", because otherwise endless recursion could
-                // occur.
-                this.defineIClass(result);
-                result.resolveAllClasses();
+            for (UnitCompiler uc : this.discoveredUnits.values()) {
+                if (uc.findClass(topLevelClassName) != null) return uc;
+            }
+            return null;
+        }
 
-                return result;
-            } finally {
-                Compiler.this.benchmark.endReporting();
+        /**
+         * Another worker may have claimed the <var>sourceResource</var>, and may be storing its class file at this
+         * very moment; in that case the class file on hand is stale, or even incomplete. Thus, iff the
+         * <var>sourceResource</var> is claimed, do not use the class file, but parse the source resource, too.
+         * Otherwise, read the class file under the lock that also serializes the storing of class files.
+         */
+        @Override @Nullable ClassFile
+        loadUpToDateClassFile(Resource sourceResource, String className) throws ClassNotFoundException {
+            synchronized (this.classFileLock) {
+                if (this.claimedSourceFiles.contains(sourceResource.getFileName())) return null;
+                return super.loadUpToDateClassFile(sourceResource, className);
             }
         }
+
+        @Override void
+        addParsedUnit(UnitCompiler uc, Resource sourceResource) {
+            this.discoveredUnits.put(sourceResource.getFileName(), uc);
+            if (this.claimedSourceFiles.add(sourceResource.getFileName())) this.discoveredSources.add(sourceResource);
+        }
     }
 }
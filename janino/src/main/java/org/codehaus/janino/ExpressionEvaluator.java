@@ -27,11 +27,12 @@ package org.codehaus.janino;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -47,6 +48,7 @@ import org.codehaus.commons.compiler.InternalCompilerException;
 import org.codehaus.commons.compiler.Location;
 import org.codehaus.commons.compiler.MultiCookable;
 import org.codehaus.commons.compiler.WarningHandler;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
 import org.codehaus.commons.nullanalysis.Nullable;
 import org.codehaus.janino.util.AbstractTraverser;
 
@@ -103,6 +105,7 @@ class ExpressionEvaluator extends MultiCookable implements IExpressionEvaluator
     @Nullable private WarningHandler warningHandler;
 
     private final ScriptEvaluator se = new ScriptEvaluator();
+    @Nullable private BytecodeCache bytecodeCache;
     {
         this.se.setClassName(IExpressionEvaluator.DEFAULT_CLASS_NAME);
         this.se.setDefaultReturnType(IExpressionEvaluator.DEFAULT_EXPRESSION_TYPE);
@@ -389,9 +392,15 @@ class ExpressionEvaluator extends MultiCookable implements IExpressionEvaluator
     @Override public Method[]
     getResult() { return this.se.getResult(); }
 
+    /**
+     * @see SimpleCompiler#setBytecodeCache(BytecodeCache)
+     */
+    public void
+    setBytecodeCache(@Nullable BytecodeCache bytecodeCache) { this.bytecodeCache = bytecodeCache; }
+
     @Override public void
     cook(@Nullable String fileName, Reader reader) throws CompileException, IOException {
-        this.cook(new Scanner(fileName, reader));
+        this.cook(new String[] { fileName }, new Reader[] { reader });
     }
 
     @Override public void
@@ -399,10 +408,38 @@ class ExpressionEvaluator extends MultiCookable implements IExpressionEvaluator
 
         final int count = fileNames.length;
 
+        BytecodeCache bc  = this.bytecodeCache;
+        String        key = null;
+        if (bc != null) {
+            String[] texts = BytecodeCache.readAll(readers);
+
+            this.se.setScriptCount(count);
+
+            List<Object> keyComponents = new ArrayList<>();
+            keyComponents.add(ExpressionEvaluator.class);
+            keyComponents.add(fileNames);
+            keyComponents.add(texts);
+            this.se.addCacheKeyComponents(keyComponents);
+            key = BytecodeCache.key(keyComponents.toArray());
+
+            Map<String, byte[]> bytecodes = bc.get(key);
+            if (bytecodes != null) {
+                this.se.cookBytecodes(bytecodes);
+                return;
+            }
+
+            readers = BytecodeCache.stringReaders(texts);
+        }
+
         Scanner[] scanners = new Scanner[count];
         for (int i = 0; i < count; i++) scanners[i] = new Scanner(fileNames[i], readers[i]);
 
         this.cook(scanners);
+
+        if (bc != null) {
+            assert key != null;
+            bc.put(key, this.getBytecodes());
+        }
     }
 
     public final void
@@ -472,19 +509,10 @@ class ExpressionEvaluator extends MultiCookable implements IExpressionEvaluator
 
         // Create methods with one block each.
         for (int i = 0; i < parsers.length; ++i) {
-
-            Class<?> et     = this.se.getReturnType(i);
-            Parser   parser = parsers[i];
+            Parser parser = parsers[i];
 
             // Parse the expression.
-            Java.Rvalue value = parser.parseExpression();
-
-            Java.BlockStatement statement;
-            if (et == void.class) {
-                statement = new Java.ExpressionStatement(value);
-            } else {
-                statement = new Java.ReturnStatement(parser.location(), value);
-            }
+            Java.BlockStatement statement = this.makeStatement(i, parser.parseExpression(), parser.location());
 
             if (!parser.peek(TokenType.END_OF_INPUT)) {
                 throw new CompileException("Unexpected token \"" + parser.peek() + "\"", parser.location());
@@ -497,6 +525,89 @@ class ExpressionEvaluator extends MultiCookable implements IExpressionEvaluator
         this.se.cook(fileName, importDeclarations, statementss, localMethodss);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override public CompileException[]
+    checkSyntax(String... expressions) {
+
+        CompileException[] result = new CompileException[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            try {
+                Parser parser = new Parser(new Scanner(null, new CharSequenceReader(expressions[i])));
+                parser.setSourceVersion(this.sourceVersion);
+                parser.setWarningHandler(this.warningHandler);
+
+                if (expressions.length == 1) {
+                    while (parser.peek("import")) parser.parseImportDeclaration();
+                }
+
+                parser.parseExpression();
+
+                if (!parser.peek(TokenType.END_OF_INPUT)) {
+                    throw new CompileException("Unexpected token \"" + parser.peek() + "\"", parser.location());
+                }
+            } catch (CompileException ce) {
+                result[i] = ce;
+            } catch (IOException ioe) {
+                throw new InternalCompilerException("SNO: CharSequenceReader throws IOException", ioe);
+            } catch (StackOverflowError soe) {
+                result[i] = new CompileException("Expression is nested too deeply", null, soe);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Cooks one expression that was parsed before, e.g. by an {@link ExpressionTemplate}.
+     *
+     * @param importDeclarations The import declarations that precede the expression; the {@link
+     *                           #setDefaultImports(String...) default imports} are added to these
+     * @param location           The location of the last token of the expression
+     */
+    void
+    cook(
+        @Nullable String                                 fileName,
+        Java.AbstractCompilationUnit.ImportDeclaration[] importDeclarations,
+        Java.Rvalue                                      value,
+        Location                                         location
+    ) throws CompileException, IOException {
+
+        this.se.setScriptCount(1);
+
+        Java.AbstractCompilationUnit.ImportDeclaration[] defaultImports = this.se.parseImports(null);
+
+        Java.AbstractCompilationUnit.ImportDeclaration[]
+        ids = new Java.AbstractCompilationUnit.ImportDeclaration[defaultImports.length + importDeclarations.length];
+        System.arraycopy(defaultImports, 0, ids, 0, defaultImports.length);
+        System.arraycopy(importDeclarations, 0, ids, defaultImports.length, importDeclarations.length);
+
+        try {
+            this.se.cook(
+                fileName,
+                ids,
+                new Java.BlockStatement[][] { { this.makeStatement(0, value, location) } },
+                new Java.MethodDeclarator[][] { {} }
+            );
+        } catch (StackOverflowError soe) {
+            throw new CompileException("Expression is nested too deeply", null, soe);
+        }
+    }
+
+    /**
+     * @return A statement that returns the <var>value</var>, or, iff the expression type of the indexed expression is
+     *         {@code void}, a statement that merely evaluates it
+     */
+    private Java.BlockStatement
+    makeStatement(int idx, Java.Rvalue value, Location location) throws CompileException {
+        return (
+            this.se.getReturnType(idx) == void.class
+            ? new Java.ExpressionStatement(value)
+            : new Java.ReturnStatement(location, value)
+        );
+    }
+
     /**
      * Converts an array of {@link Class}es into an array of{@link Java.Type}s.
      */
@@ -562,7 +673,7 @@ class ExpressionEvaluator extends MultiCookable implements IExpressionEvaluator
     ) throws CompileException {
         try {
             return ExpressionEvaluator.createFastExpressionEvaluator(
-                new Scanner(null, new StringReader(expression)), // scanner
+                new Scanner(null, new CharSequenceReader(expression)), // scanner
                 IExpressionEvaluator.DEFAULT_CLASS_NAME,         // className
                 null,                                            // extendedType
                 interfaceToImplement,                            // interfaceToImplement
@@ -570,7 +681,7 @@ class ExpressionEvaluator extends MultiCookable implements IExpressionEvaluator
                 null                                             // parentClassLoader
             );
         } catch (IOException ioe) {
-            final AssertionError ae = new AssertionError("IOException despite StringReader");
+            final AssertionError ae = new AssertionError("IOException despite CharSequenceReader");
             ae.initCause(ioe);
             throw ae;
         }
@@ -631,12 +742,12 @@ class ExpressionEvaluator extends MultiCookable implements IExpressionEvaluator
     throws CompileException {
         try {
             return this.createFastEvaluator(
-                new StringReader(script),
+                new CharSequenceReader(script),
                 interfaceToImplement,
                 parameterNames
             );
         } catch (IOException ex) {
-            throw new InternalCompilerException("IOException despite StringReader", ex);
+            throw new InternalCompilerException("IOException despite CharSequenceReader", ex);
         }
     }
 
@@ -0,0 +1,125 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.codehaus.janino;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.Location;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
+import org.codehaus.commons.nullanalysis.Nullable;
+import org.codehaus.janino.Java.AbstractCompilationUnit.ImportDeclaration;
+import org.codehaus.janino.util.DeepCopier;
+
+/**
+ * An expression that is scanned and parsed only once, and can then be cooked by any number of {@link
+ * ExpressionEvaluator}s, e.g. with different {@link ExpressionEvaluator#setParameters(String[], Class[]) parameter
+ * types}, {@link ExpressionEvaluator#setExpressionType(Class) expression types}, {@link
+ * ExpressionEvaluator#setDefaultImports(String...) default imports} or {@link
+ * ExpressionEvaluator#setParentClassLoader(ClassLoader) parent class loaders}:
+ * <pre>
+ *     ExpressionTemplate template = new ExpressionTemplate("a + b");
+ *
+ *     ExpressionEvaluator ee1 = new ExpressionEvaluator();
+ *     ee1.setParameters(new String[] { "a", "b" }, new Class[] { int.class, int.class });
+ *     template.cook(ee1);
+ *
+ *     ExpressionEvaluator ee2 = new ExpressionEvaluator();
+ *     ee2.setParameters(new String[] { "a", "b" }, new Class[] { String.class, Object.class });
+ *     template.cook(ee2);
+ * </pre>
+ * <p>
+ *   Like with {@link ExpressionEvaluator#cook(String)}, the expression may be preceded by import declarations.
+ * </p>
+ * <p>
+ *   Compiling an AST modifies it, so each {@link #cook(ExpressionEvaluator)} compiles a deep copy of the parsed AST.
+ *   Because the template itself is never modified, it can be used by multiple threads concurrently.
+ * </p>
+ */
+public
+class ExpressionTemplate {
+
+    @Nullable private final String fileName;
+    private final ImportDeclaration[] importDeclarations;
+    private final Java.Rvalue         value;
+    private final Location            location;
+
+    public
+    ExpressionTemplate(String expression) throws CompileException, IOException {
+        this(null, new CharSequenceReader(expression));
+    }
+
+    /**
+     * @param fileName Is used for the {@link Location}s of the AST, and thus appears in compile error messages and in
+     *                 the generated debugging information
+     */
+    public
+    ExpressionTemplate(@Nullable String fileName, Reader reader) throws CompileException, IOException {
+        this(new Parser(new Scanner(fileName, reader)));
+    }
+
+    /**
+     * Parses the expression with the given <var>parser</var>, which allows for configuring e.g. the {@link
+     * Parser#setSourceVersion(int) source version} and the {@link Parser#setWarningHandler(
+     * org.codehaus.commons.compiler.WarningHandler) warning handler}.
+     */
+    public
+    ExpressionTemplate(Parser parser) throws CompileException, IOException {
+
+        this.fileName = parser.getScanner().getFileName();
+
+        List<ImportDeclaration> l = new ArrayList<>();
+        while (parser.peek("import")) l.add(parser.parseImportDeclaration());
+        this.importDeclarations = (ImportDeclaration[]) l.toArray(new ImportDeclaration[l.size()]);
+
+        this.value    = parser.parseExpression();
+        this.location = parser.location();
+
+        if (!parser.peek(TokenType.END_OF_INPUT)) {
+            throw new CompileException("Unexpected token \"" + parser.peek() + "\"", parser.location());
+        }
+    }
+
+    /**
+     * Cooks the <var>expressionEvaluator</var> with this expression, exactly like {@link
+     * ExpressionEvaluator#cook(String)} would with the expression's text, but without scanning and parsing it again.
+     * The <var>expressionEvaluator</var> must be configured as usual, but must not have been cooked before.
+     */
+    public void
+    cook(ExpressionEvaluator expressionEvaluator) throws CompileException, IOException {
+
+        DeepCopier copier = new DeepCopier();
+
+        expressionEvaluator.cook(
+            this.fileName,
+            copier.copyImportDeclarations(this.importDeclarations),
+            copier.copyRvalue(this.value),
+            this.location
+        );
+    }
+}
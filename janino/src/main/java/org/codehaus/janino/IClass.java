@@ -47,6 +47,12 @@ import org.codehaus.commons.nullanalysis.Nullable;
  *   'JLS7' means a reference to the <a href="http://docs.oracle.com/javase/specs/">Java Language Specification, Java
  *   SE 7 Edition</a>.
  * </p>
+ * <p>
+ *   The lazily computed caches of this class are safe for concurrent use, so that one {@link IClass} can be shared
+ *   between compilations that run in different threads (see e.g. {@link ClassLoaderIClassLoader}). If two threads
+ *   compute the same cache concurrently, then the result of the first thread wins, so that member objects (e.g. the
+ *   {@link IMethod}s) are always identical.
+ * </p>
  */
 public abstract
 class IClass implements ITypeVariableOrIClass {
@@ -166,10 +172,16 @@ class IClass implements ITypeVariableOrIClass {
      */
     public final ITypeVariable[]
     getITypeVariables() throws CompileException {
-        if (this.iTypeVariablesCache != null) return this.iTypeVariablesCache;
-        return (this.iTypeVariablesCache = this.getITypeVariables2());
+        ITypeVariable[] result = this.iTypeVariablesCache;
+        if (result != null) return result;
+
+        result = this.getITypeVariables2();
+        synchronized (this) {
+            if (this.iTypeVariablesCache == null) this.iTypeVariablesCache = result;
+            return this.iTypeVariablesCache;
+        }
     }
-    @Nullable private ITypeVariable[] iTypeVariablesCache;
+    @Nullable private volatile ITypeVariable[] iTypeVariablesCache;
 
     /**
      * The uncached version of {@link #getDeclaredIConstructors()} which must be implemented by derived classes.
@@ -185,11 +197,16 @@ class IClass implements ITypeVariableOrIClass {
      */
     public final IConstructor[]
     getDeclaredIConstructors() {
-        if (this.declaredIConstructorsCache != null) return this.declaredIConstructorsCache;
+        IConstructor[] result = this.declaredIConstructorsCache;
+        if (result != null) return result;
 
-        return (this.declaredIConstructorsCache = this.getDeclaredIConstructors2());
+        result = this.getDeclaredIConstructors2();
+        synchronized (this) {
+            if (this.declaredIConstructorsCache == null) this.declaredIConstructorsCache = result;
+            return this.declaredIConstructorsCache;
+        }
     }
-    @Nullable private IConstructor[] declaredIConstructorsCache;
+    @Nullable private volatile IConstructor[] declaredIConstructorsCache;
 
     /**
      * The uncached version of {@link #getDeclaredIConstructors()} which must be implemented by derived classes.
@@ -205,10 +222,16 @@ class IClass implements ITypeVariableOrIClass {
      */
     public final IMethod[]
     getDeclaredIMethods() {
-        if (this.declaredIMethodsCache != null) return this.declaredIMethodsCache;
-        return (this.declaredIMethodsCache = this.getDeclaredIMethods2());
+        IMethod[] result = this.declaredIMethodsCache;
+        if (result != null) return result;
+
+        result = this.getDeclaredIMethods2();
+        synchronized (this) {
+            if (this.declaredIMethodsCache == null) this.declaredIMethodsCache = result;
+            return this.declaredIMethodsCache;
+        }
     }
-    @Nullable private IMethod[] declaredIMethodsCache;
+    @Nullable private volatile IMethod[] declaredIMethodsCache;
 
     /**
      * The uncached version of {@link #getDeclaredIMethods()} which must be implemented by derived classes.
@@ -264,7 +287,7 @@ class IClass implements ITypeVariableOrIClass {
         IMethod[] methods = (IMethod[]) dimc.get(methodName);
         return methods == null ? IClass.NO_IMETHODS : methods;
     }
-    @Nullable private Map<String /*methodName*/, Object /*IMethod-or-List<IMethod>*/> declaredIMethodCache;
+    @Nullable private volatile Map<String /*methodName*/, Object /*IMethod-or-List<IMethod>*/> declaredIMethodCache;
 
     /**
      * Returns all methods declared in the class or interface, its superclasses and its superinterfaces.
@@ -274,13 +297,14 @@ class IClass implements ITypeVariableOrIClass {
     public final IMethod[]
     getIMethods() throws CompileException {
 
-        if (this.iMethodCache != null) return this.iMethodCache;
+        IMethod[] result = this.iMethodCache;
+        if (result != null) return result;
 
         List<IMethod> iMethods = new ArrayList<>();
         this.getIMethods(iMethods);
         return (this.iMethodCache = (IMethod[]) iMethods.toArray(new IMethod[iMethods.size()]));
     }
-    @Nullable private IMethod[] iMethodCache;
+    @Nullable private volatile IMethod[] iMethodCache;
 
     private void
     getIMethods(List<IMethod> result) throws CompileException {
@@ -383,13 +407,17 @@ class IClass implements ITypeVariableOrIClass {
      */
     private Map<String /*fieldName*/, IField>
     getDeclaredIFieldsCache() {
-        if (this.declaredIFieldsCache != null) return this.declaredIFieldsCache;
+        Map<String /*fieldName*/, IField> result = this.declaredIFieldsCache;
+        if (result != null) return result;
 
         IField[] fields = this.getDeclaredIFields2();
 
         Map<String /*fieldName*/, IField> m = new LinkedHashMap<>();
         for (IField f : fields) m.put(f.getName(), f);
-        return (this.declaredIFieldsCache = m);
+        synchronized (this) {
+            if (this.declaredIFieldsCache == null) this.declaredIFieldsCache = m;
+            return this.declaredIFieldsCache;
+        }
     }
 
     /**
@@ -407,7 +435,7 @@ class IClass implements ITypeVariableOrIClass {
     protected void
     clearIFieldCaches() { this.declaredIFieldsCache = null; }
 
-    @Nullable private Map<String /*fieldName*/, IField> declaredIFieldsCache;
+    @Nullable private volatile Map<String /*fieldName*/, IField> declaredIFieldsCache;
 
     /**
      * Uncached version of {@link #getDeclaredIFields()}.
@@ -429,10 +457,16 @@ class IClass implements ITypeVariableOrIClass {
      */
     public final IClass[]
     getDeclaredIClasses() throws CompileException {
-        if (this.declaredIClassesCache != null) return this.declaredIClassesCache;
-        return (this.declaredIClassesCache = this.getDeclaredIClasses2());
+        IClass[] result = this.declaredIClassesCache;
+        if (result != null) return result;
+
+        result = this.getDeclaredIClasses2();
+        synchronized (this) {
+            if (this.declaredIClassesCache == null) this.declaredIClassesCache = result;
+            return this.declaredIClassesCache;
+        }
     }
-    @Nullable private IClass[] declaredIClassesCache;
+    @Nullable private volatile IClass[] declaredIClassesCache;
 
     /**
      * @return The member types of this type
@@ -450,7 +484,7 @@ class IClass implements ITypeVariableOrIClass {
         }
         return this.declaringIClassCache;
     }
-    private boolean          declaringIClassIsCached;
+    private volatile boolean declaringIClassIsCached;
     @Nullable private IClass declaringIClassCache;
 
     /**
@@ -473,10 +507,12 @@ class IClass implements ITypeVariableOrIClass {
     getOuterIClass() throws CompileException {
         if (this.outerIClassIsCached) return this.outerIClassCache;
 
+        IClass oc = this.getOuterIClass2();
+        this.outerIClassCache    = oc;
         this.outerIClassIsCached = true;
-        return (this.outerIClassCache = this.getOuterIClass2());
+        return oc;
     }
-    private boolean          outerIClassIsCached;
+    private volatile boolean outerIClassIsCached;
     @Nullable private IClass outerIClassCache;
 
     /**
@@ -502,10 +538,11 @@ class IClass implements ITypeVariableOrIClass {
                 null
             );
         }
+        this.superclassCache    = sc;
         this.superclassIsCached = true;
-        return (this.superclassCache = sc);
+        return sc;
     }
-    private boolean          superclassIsCached;
+    private volatile boolean superclassIsCached;
     @Nullable private IClass superclassCache;
 
     /**
@@ -535,7 +572,8 @@ class IClass implements ITypeVariableOrIClass {
      */
     public final IClass[]
     getInterfaces() throws CompileException {
-        if (this.interfacesCache != null) return this.interfacesCache;
+        IClass[] result = this.interfacesCache;
+        if (result != null) return result;
 
         IClass[] is = this.getInterfaces2();
         for (IClass ii : is) {
@@ -548,7 +586,7 @@ class IClass implements ITypeVariableOrIClass {
         }
         return (this.interfacesCache = is);
     }
-    @Nullable private IClass[] interfacesCache;
+    @Nullable private volatile IClass[] interfacesCache;
 
     /**
      * @see #getInterfaces()
@@ -567,10 +605,11 @@ class IClass implements ITypeVariableOrIClass {
      */
     public final String
     getDescriptor() {
-        if (this.descriptorCache != null) return this.descriptorCache;
+        String result = this.descriptorCache;
+        if (result != null) return result;
         return (this.descriptorCache = this.getDescriptor2());
     }
-    @Nullable private String descriptorCache;
+    @Nullable private String descriptorCache; // Strings are immutable, so no need for "volatile".
 
     /**
      * @return The field descriptor for the type as defined by JVMS 4.3.2.
@@ -627,7 +666,7 @@ class IClass implements ITypeVariableOrIClass {
         this.componentTypeIsCached = true;
         return this.componentTypeCache;
     }
-    private boolean          componentTypeIsCached;
+    private volatile boolean componentTypeIsCached;
     @Nullable private IClass componentTypeCache;
 
     /**
@@ -781,7 +820,13 @@ class IClass implements ITypeVariableOrIClass {
      */
     IClass[]
     findMemberType(@Nullable String name) throws CompileException {
-        IClass[] res = (IClass[]) this.memberTypeCache.get(name);
+
+        // Notice: The "memberTypeCache" is guarded by itself, because it is not a concurrent map (which would not
+        // allow the NULL key).
+        IClass[] res;
+        synchronized (this.memberTypeCache) {
+            res = (IClass[]) this.memberTypeCache.get(name);
+        }
         if (res == null) {
 
             // Notice: A type may be added multiply to the result set because we are in its scope
@@ -790,7 +835,11 @@ class IClass implements ITypeVariableOrIClass {
             this.findMemberType(name, s);
             res = s.isEmpty() ? IClass.ZERO_ICLASSES : (IClass[]) s.toArray(new IClass[s.size()]);
 
-            this.memberTypeCache.put(name, res);
+            synchronized (this.memberTypeCache) {
+                IClass[] prev = (IClass[]) this.memberTypeCache.get(name);
+                if (prev != null) return prev;
+                this.memberTypeCache.put(name, res);
+            }
         }
 
         return res;
@@ -845,10 +894,11 @@ class IClass implements ITypeVariableOrIClass {
      */
     public final IAnnotation[]
     getIAnnotations() throws CompileException {
-        if (this.iAnnotationsCache != null) return this.iAnnotationsCache;
+        IAnnotation[] result = this.iAnnotationsCache;
+        if (result != null) return result;
         return (this.iAnnotationsCache = this.getIAnnotations2());
     }
-    @Nullable private IAnnotation[] iAnnotationsCache;
+    @Nullable private volatile IAnnotation[] iAnnotationsCache;
 
     /**
      * @throws CompileException
@@ -894,15 +944,17 @@ class IClass implements ITypeVariableOrIClass {
         private boolean argsNeedAdjust;
 
         /**
-         * TODO
+         * @deprecated No longer used by the {@link UnitCompiler}, because {@link IClass}es may be shared between
+         *             concurrent compilations
          */
-        public void
+        @Deprecated public void
         setArgsNeedAdjust(boolean newVal) { this.argsNeedAdjust = newVal; }
 
         /**
-         * TODO
+         * @deprecated No longer used by the {@link UnitCompiler}, because {@link IClass}es may be shared between
+         *             concurrent compilations
          */
-        public boolean
+        @Deprecated public boolean
         argsNeedAdjust() { return this.argsNeedAdjust; }
 
         /**
@@ -920,10 +972,11 @@ class IClass implements ITypeVariableOrIClass {
          */
         public final IClass[]
         getParameterTypes() throws CompileException {
-            if (this.parameterTypesCache != null) return this.parameterTypesCache;
+            IClass[] result = this.parameterTypesCache;
+            if (result != null) return result;
             return (this.parameterTypesCache = this.getParameterTypes2());
         }
-        @Nullable private IClass[] parameterTypesCache;
+        @Nullable private volatile IClass[] parameterTypesCache;
 
         /**
          * Opposed to the {@link Constructor}, there is no magic "{@code this$0}" parameter.
@@ -943,10 +996,11 @@ class IClass implements ITypeVariableOrIClass {
          */
         public final MethodDescriptor
         getDescriptor() throws CompileException {
-            if (this.descriptorCache != null) return this.descriptorCache;
+            MethodDescriptor result = this.descriptorCache;
+            if (result != null) return result;
             return (this.descriptorCache = this.getDescriptor2());
         }
-        @Nullable private MethodDescriptor descriptorCache;
+        @Nullable private volatile MethodDescriptor descriptorCache;
 
         /**
          * Uncached implementation of {@link #getDescriptor()}.
@@ -959,10 +1013,11 @@ class IClass implements ITypeVariableOrIClass {
          */
         public final IClass[]
         getThrownExceptions() throws CompileException {
-            if (this.thrownExceptionsCache != null) return this.thrownExceptionsCache;
+            IClass[] result = this.thrownExceptionsCache;
+            if (result != null) return result;
             return (this.thrownExceptionsCache = this.getThrownExceptions2());
         }
-        @Nullable private IClass[] thrownExceptionsCache;
+        @Nullable private volatile IClass[] thrownExceptionsCache;
 
         /**
          * @return The types thrown by this constructor or method
@@ -26,10 +26,10 @@
 package org.codehaus.janino;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -114,11 +114,27 @@ class IClassLoader {
     public IConstructor CTOR_java_lang_StringBuilder__java_lang_String;
 
     /**
+     * Equivalent with {@link #IClassLoader(IClassLoader, boolean) IClassLoader(parentIClassLoader, false)}, i.e.
+     * {@link #findIClass(String)} is never invoked concurrently.
+     *
      * @param parentIClassLoader {@code null} iff this {@link IClassLoader} has no parent
      */
-    @SuppressWarnings("null") public
-    IClassLoader(@Nullable IClassLoader parentIClassLoader) {
+    public
+    IClassLoader(@Nullable IClassLoader parentIClassLoader) { this(parentIClassLoader, false); }
+
+    /**
+     * @param parentIClassLoader   {@code null} iff this {@link IClassLoader} has no parent
+     * @param concurrentFindIClass Whether the derived class's {@link #findIClass(String)} method is thread-safe and
+     *                             never loads other types through {@link #loadIClass(String)}; if {@code true}, then
+     *                             {@link #findIClass(String)} may be invoked concurrently for <em>different</em>
+     *                             descriptors
+     */
+    @SuppressWarnings("null") protected
+    IClassLoader(@Nullable IClassLoader parentIClassLoader, boolean concurrentFindIClass) {
         this.parentIClassLoader = parentIClassLoader;
+
+        this.findIClassLocks = new Object[concurrentFindIClass ? IClassLoader.FIND_ICLASS_LOCK_STRIPES : 1];
+        for (int i = 0; i < this.findIClassLocks.length; i++) this.findIClassLocks[i] = new Object();
     }
 
     public IClassLoader
@@ -283,33 +299,36 @@ class IClassLoader {
             if (res != null) return res;
         }
 
-        // We need to synchronize here because "unloadableIClasses" and "loadedIClasses" are unsynchronized
-        // containers. Also, "findIClass()" is not thread safe.
-        IClass result;
+        // Class already loaded? (Lock-free fast path.)
+        IClass result = (IClass) this.loadedIClasses.get(fieldDescriptor);
+        if (result != null) return result;
 
-        synchronized (this) {
+        // Class could not be loaded before?
+        if (this.unloadableIClasses.contains(fieldDescriptor)) return null;
 
-            // Class could not be loaded before?
-            if (this.unloadableIClasses.contains(fieldDescriptor)) return null;
+        // Special handling for array types. Array types need no lock, because "getArrayIClass()" guarantees that
+        // there is exactly one array IClass per component type.
+        if (Descriptor.isArrayReference(fieldDescriptor)) {
 
-            // Class already loaded?
-            result = (IClass) this.loadedIClasses.get(fieldDescriptor);
-            if (result != null) return result;
+            // Load the component type.
+            IClass componentIClass = this.loadIClass(Descriptor.getComponentDescriptor(fieldDescriptor));
+            if (componentIClass == null) return null;
 
-            // Special handling for array types.
-            if (Descriptor.isArrayReference(fieldDescriptor)) {
+            // Now get and define the array type.
+            IClass arrayIClass = this.getArrayIClass(componentIClass);
+            IClass prev        = (IClass) this.loadedIClasses.putIfAbsent(fieldDescriptor, arrayIClass);
+            return prev != null ? prev : arrayIClass;
+        }
 
-                // Load the component type.
-                IClass componentIClass = this.loadIClass(
-                    Descriptor.getComponentDescriptor(fieldDescriptor)
-                );
-                if (componentIClass == null) return null;
+        // We need to lock here because "findIClass()" is not necessarily thread safe, and because each descriptor
+        // must be loaded only once. Iff the derived class declared "concurrentFindIClass", then descriptors are
+        // distributed across several locks, so that different types can be loaded concurrently.
+        synchronized (this.findIClassLocks[fieldDescriptor.hashCode() & (this.findIClassLocks.length - 1)]) {
 
-                // Now get and define the array type.
-                IClass arrayIClass = this.getArrayIClass(componentIClass);
-                this.loadedIClasses.put(fieldDescriptor, arrayIClass);
-                return arrayIClass;
-            }
+            // Loaded or found unloadable by another thread while we were waiting for the lock?
+            result = (IClass) this.loadedIClasses.get(fieldDescriptor);
+            if (result != null) return result;
+            if (this.unloadableIClasses.contains(fieldDescriptor)) return null;
 
             // Load the class through the {@link #findIClass(String)} method implemented by the derived class.
             // By contract, {@link findIClass(String)} <em>must</em> invoke {@link #defineIClass(IClass)}!
@@ -349,6 +368,13 @@ class IClassLoader {
         return result;
     }
 
+    /**
+     * @return The {@link IClass} that this {@link IClassLoader} (not its parent) loaded previously for the
+     *         <var>fieldDescriptor</var>, or {@code null}; never attempts to load the {@link IClass}
+     */
+    @Nullable IClass
+    getLoadedIClass(String fieldDescriptor) { return (IClass) this.loadedIClasses.get(fieldDescriptor); }
+
     /**
      * Finds a new {@link IClass} by descriptor and calls {@link #defineIClass(IClass)}.
      * <p>
@@ -371,8 +397,12 @@ class IClassLoader {
      *   Notice that this method is never called for array types.
      * </p>
      * <p>
-     *   Notice that this method is never called from more than one thread at a time. In other words, implementations
-     *   of this method need not be thread-safe.
+     *   Notice that this method is never called from more than one thread at a time, unless the derived class was
+     *   constructed with {@code concurrentFindIClass}. In other words, implementations of this method need not be
+     *   thread-safe.
+     * </p>
+     * <p>
+     *   Notice that this method is never called twice for the same descriptor.
      * </p>
      *
      * @return                        {@code null} if a class with that descriptor could not be found
@@ -395,7 +425,7 @@ class IClassLoader {
         IClassLoader.LOGGER.log(Level.FINE, "{0}: Defined type \"{0}\"", descriptor);
 
         // Define.
-        IClass prev = (IClass) this.loadedIClasses.put(descriptor, iClass);
+        IClass prev = (IClass) this.loadedIClasses.putIfAbsent(descriptor, iClass);
 
         // Previously defined?
         if (prev != null) {
@@ -421,7 +451,7 @@ class IClassLoader {
      *
      * @param componentType Required because the superclass of an array class is {@link Object} by definition
      */
-    public synchronized IClass
+    public IClass
     getArrayIClass(IClass componentType) {
 
         if (this.parentIClassLoader != null) return this.parentIClassLoader.getArrayIClass(componentType);
@@ -429,10 +459,12 @@ class IClassLoader {
         IClass result = (IClass) this.arrayIClasses.get(componentType);
         if (result != null) return result;
 
-        this.arrayIClasses.put(componentType, (result = this.getArrayIClass2(componentType)));
-        return result;
+        // Another thread may have created the same array type in the meantime; the first one wins.
+        result = this.getArrayIClass2(componentType);
+        IClass prev = (IClass) this.arrayIClasses.putIfAbsent(componentType, result);
+        return prev != null ? prev : result;
     }
-    private final Map<IClass, IClass> arrayIClasses = new HashMap<>();
+    private final ConcurrentMap<IClass, IClass> arrayIClasses = new ConcurrentHashMap<>();
 
     /**
      * @param objectType Must pass {@link IClassLoader#TYPE_java_lang_Object} here
@@ -533,7 +565,16 @@ class IClassLoader {
         return icl;
     }
 
-    private final IClassLoader                       parentIClassLoader;
-    private final Map<String /*descriptor*/, IClass> loadedIClasses     = new HashMap<>();
-    private final Set<String /*descriptor*/>         unloadableIClasses = new HashSet<>();
+    /**
+     * The number of locks that guard {@link #findIClass(String)} iff the derived class declared {@code
+     * concurrentFindIClass}. Must be a power of two.
+     */
+    private static final int FIND_ICLASS_LOCK_STRIPES = 16;
+
+    private final IClassLoader                                 parentIClassLoader;
+    private final ConcurrentMap<String /*descriptor*/, IClass> loadedIClasses     = new ConcurrentHashMap<>();
+    private final Set<String /*descriptor*/>                   unloadableIClasses = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>()
+    );
+    private final Object[]                                     findIClassLocks;
 }
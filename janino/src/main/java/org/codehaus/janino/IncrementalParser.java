@@ -0,0 +1,830 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.codehaus.janino;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.InternalCompilerException;
+import org.codehaus.commons.compiler.Location;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
+import org.codehaus.commons.nullanalysis.Nullable;
+import org.codehaus.janino.Java.AbstractClassDeclaration;
+import org.codehaus.janino.Java.AbstractCompilationUnit;
+import org.codehaus.janino.Java.AbstractCompilationUnit.ImportDeclaration;
+import org.codehaus.janino.Java.CompilationUnit;
+import org.codehaus.janino.Java.ConstructorDeclarator;
+import org.codehaus.janino.Java.EnumDeclaration;
+import org.codehaus.janino.Java.FieldDeclarationOrInitializer;
+import org.codehaus.janino.Java.MemberTypeDeclaration;
+import org.codehaus.janino.Java.MethodDeclarator;
+import org.codehaus.janino.Java.Modifier;
+import org.codehaus.janino.Java.PackageMemberClassDeclaration;
+import org.codehaus.janino.Java.PackageMemberTypeDeclaration;
+import org.codehaus.janino.Java.Type;
+import org.codehaus.janino.Java.TypeBodyDeclaration;
+import org.codehaus.janino.util.DeepCopier;
+
+/**
+ * Parses a compilation unit or a class body, and parses it again <em>incrementally</em> after each {@link #edit(int,
+ * int, String) edit} of the text: If the edit is confined to one class body declaration (field, method,
+ * constructor, initializer or member type) of a top-level class, then only that declaration is scanned and parsed
+ * again, and the ASTs of all other declarations are reused.
+ * <p>
+ *   Edits that touch anything else (e.g. the package declaration, the import declarations, the header of a class
+ *   declaration), and texts that contain unicode escapes, cause the entire text to be parsed again.
+ * </p>
+ * <p>
+ *   Because compiling an AST modifies it, the AST that this object maintains never leaves it; instead, {@link
+ *   #getCompilationUnit()}, {@link #getImportDeclarations()} and {@link #addClassBodyDeclarations(
+ *   AbstractClassDeclaration)} produce deep copies, which can be compiled.
+ * </p>
+ *
+ * @see #cook(ClassBodyEvaluator)
+ */
+public
+class IncrementalParser {
+
+    @Nullable private final String fileName;
+
+    /**
+     * The name of the class that the text declares the body of, or {@code null} iff the text is a compilation unit.
+     */
+    @Nullable private final String className;
+
+    private String text;
+
+    /**
+     * The offsets of the first characters of all lines of {@link #text}, see {@link #lineStarts(CharSequence)}.
+     */
+    private int[] lineStarts;
+
+    /**
+     * The AST of {@link #text}, or {@code null} iff {@link #text} does not parse.
+     */
+    @Nullable private AbstractCompilationUnit compilationUnit;
+
+    /**
+     * The bodies of the top-level classes of {@link #compilationUnit} that can be parsed incrementally.
+     */
+    private List<ClassBody> classBodies = new ArrayList<>();
+
+    /**
+     * The body of a top-level class declaration, divided into contiguous, non-overlapping segments.
+     */
+    private static
+    class ClassBody {
+
+        final PackageMemberClassDeclaration declaration;
+
+        final List<Segment> segments = new ArrayList<>();
+
+        /**
+         * The offset of the closing brace of the class body, or the length of the text iff the text is a class body.
+         */
+        int end;
+
+        ClassBody(PackageMemberClassDeclaration declaration) { this.declaration = declaration; }
+
+        int
+        segmentEnd(int index) {
+            return index + 1 < this.segments.size() ? ((Segment) this.segments.get(index + 1)).start : this.end;
+        }
+    }
+
+    /**
+     * One class body declaration, plus the white space and comments (notably the doc comment) that precede it. Each
+     * segment (except the first segment of a class body text) starts immediately after a "{", "}" or ";" token, so
+     * that it can be scanned and parsed in isolation.
+     */
+    private static
+    class Segment {
+
+        int start;
+
+        /**
+         * {@code null} iff the segment contains only white space, comments or an empty declaration (";").
+         */
+        @Nullable final TypeBodyDeclaration declaration;
+
+        Segment(int start, @Nullable TypeBodyDeclaration declaration) {
+            this.start       = start;
+            this.declaration = declaration;
+        }
+    }
+
+    /**
+     * Parses the given compilation unit.
+     */
+    public
+    IncrementalParser(@Nullable String fileName, String text) throws CompileException, IOException {
+        this(fileName, text, null);
+    }
+
+    /**
+     * Parses the given compilation unit, or the given class body (a sequence of import declarations, followed by a
+     * sequence of class body declarations, see {@link ClassBodyEvaluator}).
+     *
+     * @param className The simple name of the class that the <var>text</var> declares the body of (which is relevant
+     *                  for the parsing of constructor declarations), or {@code null} iff the <var>text</var> is a
+     *                  compilation unit
+     */
+    public
+    IncrementalParser(@Nullable String fileName, String text, @Nullable String className)
+    throws CompileException, IOException {
+        this.fileName   = fileName;
+        this.className  = className;
+        this.text       = text;
+        this.lineStarts = IncrementalParser.lineStarts(text);
+        this.parse();
+    }
+
+    @Nullable public String
+    getFileName() { return this.fileName; }
+
+    /**
+     * @return The current text, i.e. the initial text with all {@link #edit(int, int, String) edits} applied
+     */
+    public String
+    getText() { return this.text; }
+
+    /**
+     * Replaces the <var>length</var> characters at the <var>offset</var> of the text with the <var>replacement</var>,
+     * and parses the changed text, incrementally if possible.
+     * <p>
+     *   Notice that the edit is applied even if the changed text does not parse, so that the offsets of
+     *   subsequent edits always refer to the current {@link #getText() text}.
+     * </p>
+     *
+     * @throws CompileException          The changed text does not parse
+     * @throws IndexOutOfBoundsException <var>offset</var> and <var>length</var> do not denote a region of the text
+     */
+    public void
+    edit(int offset, int length, String replacement) throws CompileException, IOException {
+
+        String oldText = this.text;
+        if (offset < 0 || length < 0 || offset + length > oldText.length()) {
+            throw new IndexOutOfBoundsException("offset=" + offset + ", length=" + length);
+        }
+
+        int[] oldLineStarts = this.lineStarts;
+
+        this.text       = oldText.substring(0, offset) + replacement + oldText.substring(offset + length);
+        this.lineStarts = IncrementalParser.lineStarts(this.text);
+
+        if (!this.reparse(oldText, oldLineStarts, offset, length, replacement.length())) this.parse();
+    }
+
+    /**
+     * Equivalent with one {@link #edit(int, int, String)} that replaces only the part of the current text that
+     * differs from the <var>newText</var>. Useful iff the caller knows only the new text, not the edit.
+     */
+    public void
+    setText(String newText) throws CompileException, IOException {
+
+        String oldText = this.text;
+
+        int prefix = 0, max = Math.min(oldText.length(), newText.length());
+        while (prefix < max && oldText.charAt(prefix) == newText.charAt(prefix)) prefix++;
+
+        int suffix = 0;
+        max -= prefix;
+        while (
+            suffix < max
+            && oldText.charAt(oldText.length() - 1 - suffix) == newText.charAt(newText.length() - 1 - suffix)
+        ) suffix++;
+
+        if (prefix == oldText.length() && prefix == newText.length() && this.compilationUnit != null) return;
+
+        this.edit(
+            prefix,                                                    // offset
+            oldText.length() - suffix - prefix,                        // length
+            newText.substring(prefix, newText.length() - suffix)       // replacement
+        );
+    }
+
+    /**
+     * @return A deep copy of the AST of the current text, which can be compiled
+     * @throws CompileException The current text does not parse
+     */
+    public AbstractCompilationUnit
+    getCompilationUnit() throws CompileException, IOException {
+        return new DeepCopier().copyAbstractCompilationUnit(this.assertParsed());
+    }
+
+    /**
+     * @return Deep copies of the import declarations of the current text
+     * @throws CompileException The current text does not parse
+     */
+    public ImportDeclaration[]
+    getImportDeclarations() throws CompileException, IOException {
+        return new DeepCopier().copyImportDeclarations(this.assertParsed().importDeclarations);
+    }
+
+    /**
+     * Adds deep copies of the class body declarations of the current text to the <var>target</var>.
+     *
+     * @throws CompileException      The current text does not parse
+     * @throws IllegalStateException This object was not created for a class body
+     */
+    public void
+    addClassBodyDeclarations(AbstractClassDeclaration target) throws CompileException, IOException {
+
+        if (this.className == null) throw new IllegalStateException("Not a class body");
+        CompilationUnit cu = (CompilationUnit) this.assertParsed();
+
+        DeepCopier copier = new DeepCopier();
+        if (this.classBodies.isEmpty()) {
+
+            // The text contains unicode escapes, so the class body was not divided into segments.
+            PackageMemberClassDeclaration
+            pmcd = (PackageMemberClassDeclaration) cu.getPackageMemberTypeDeclarations()[0];
+            for (FieldDeclarationOrInitializer fdoi : pmcd.fieldDeclarationsAndInitializers) {
+                target.addFieldDeclarationOrInitializer(copier.copyFieldDeclarationOrInitializer(fdoi));
+            }
+            for (ConstructorDeclarator cd : pmcd.constructors) {
+                target.addConstructor(copier.copyConstructorDeclarator(cd));
+            }
+            for (MethodDeclarator md : pmcd.getMethodDeclarations()) {
+                target.addDeclaredMethod(copier.copyMethodDeclarator(md));
+            }
+            for (MemberTypeDeclaration mtd : pmcd.getMemberTypeDeclarations()) {
+                target.addMemberTypeDeclaration(copier.copyMemberTypeDeclaration(mtd));
+            }
+            return;
+        }
+
+        for (Segment segment : ((ClassBody) this.classBodies.get(0)).segments) {
+            TypeBodyDeclaration tbd = segment.declaration;
+            if (tbd != null) IncrementalParser.addClassBodyDeclaration(target, copier.copyTypeBodyDeclaration(tbd));
+        }
+    }
+
+    /**
+     * @return The location of the class declaration that encloses the class body declarations, as {@link
+     *         ClassBodyEvaluator} would determine it
+     * @throws CompileException      The current text does not parse
+     * @throws IllegalStateException This object was not created for a class body
+     */
+    public Location
+    getClassBodyLocation() throws CompileException, IOException {
+
+        if (this.className == null) throw new IllegalStateException("Not a class body");
+
+        return ((CompilationUnit) this.assertParsed()).getPackageMemberTypeDeclarations()[0].getLocation();
+    }
+
+    /**
+     * Cooks the class body that this object has parsed with the <var>classBodyEvaluator</var>, without scanning or
+     * parsing it again. This is useful iff the same class body is cooked again and again after small edits, e.g.
+     * while it is being typed, because only the class body declarations that an edit affected are parsed again.
+     * <p>
+     *   This object must have been created for a class body, with the simple name of the <var>classBodyEvaluator
+     *   </var>'s {@link ClassBodyEvaluator#setClassName(String) class name}.
+     * </p>
+     *
+     * @throws IllegalStateException This object was not created for a class body
+     */
+    public void
+    cook(ClassBodyEvaluator classBodyEvaluator) throws CompileException, IOException {
+
+        ImportDeclaration[] defaultImports = classBodyEvaluator.makeImportDeclarations(null);
+        ImportDeclaration[] imports        = this.getImportDeclarations();
+
+        ImportDeclaration[] importDeclarations = new ImportDeclaration[defaultImports.length + imports.length];
+        System.arraycopy(defaultImports, 0, importDeclarations, 0, defaultImports.length);
+        System.arraycopy(imports, 0, importDeclarations, defaultImports.length, imports.length);
+
+        CompilationUnit compilationUnit = new CompilationUnit(this.fileName, importDeclarations);
+
+        this.addClassBodyDeclarations(
+            classBodyEvaluator.addPackageMemberClassDeclaration(this.getClassBodyLocation(), compilationUnit)
+        );
+
+        classBodyEvaluator.cook(compilationUnit);
+    }
+
+    private AbstractCompilationUnit
+    assertParsed() throws CompileException, IOException {
+
+        AbstractCompilationUnit result = this.compilationUnit;
+        if (result != null) return result;
+
+        // Parsing the current text failed before; parse it again in order to re-throw the CompileException.
+        this.parse();
+        result = this.compilationUnit;
+        assert result != null;
+        return result;
+    }
+
+    /**
+     * Parses the entire {@link #text}.
+     */
+    private void
+    parse() throws CompileException, IOException {
+
+        this.compilationUnit = null;
+        this.classBodies     = new ArrayList<>();
+
+        // Unicode escapes would break the mapping between offsets and locations.
+        final List<ClassBody> classBodies = (
+            IncrementalParser.mayContainUnicodeEscape(this.text)
+            ? new ArrayList<ClassBody>()
+            : this.classBodies
+        );
+
+        Scanner scanner = new Scanner(this.fileName, new CharSequenceReader(this.text));
+
+        String className = this.className;
+        if (className == null) {
+            Parser parser = new Parser(scanner) {
+
+                @Override public void
+                parseClassBody(AbstractClassDeclaration classDeclaration) throws CompileException, IOException {
+
+                    if (
+                        !(classDeclaration instanceof PackageMemberClassDeclaration)
+                        || classDeclaration instanceof EnumDeclaration
+                    ) {
+                        super.parseClassBody(classDeclaration);
+                        return;
+                    }
+
+                    this.read("{");
+
+                    ClassBody body  = new ClassBody((PackageMemberClassDeclaration) classDeclaration);
+                    int       start = IncrementalParser.this.offsetAfterSeparator(this.location());
+                    if (this.peek("}")) body.segments.add(new Segment(start, null));
+                    while (!this.peekRead("}")) {
+                        start = IncrementalParser.this.parseSegment(this, classDeclaration, start, body.segments);
+                    }
+
+                    int end = IncrementalParser.this.offsetAfterSeparator(this.location());
+                    if (start != -1 && end != -1) {
+                        body.end = end - 1;
+                        classBodies.add(body);
+                    }
+                }
+            };
+
+            this.compilationUnit = parser.parseAbstractCompilationUnit();
+            return;
+        }
+
+        Parser parser = new Parser(scanner);
+
+        List<ImportDeclaration> importDeclarations = new ArrayList<>();
+        while (parser.peek("import")) importDeclarations.add(parser.parseImportDeclaration());
+
+        CompilationUnit cu = new CompilationUnit(
+            this.fileName,
+            (ImportDeclaration[]) importDeclarations.toArray(new ImportDeclaration[importDeclarations.size()])
+        );
+
+        PackageMemberClassDeclaration pmcd = new PackageMemberClassDeclaration(
+            scanner.location(), // location
+            null,               // docComment
+            new Modifier[0],    // modifiers
+            className,          // name
+            null,               // typeParameters
+            null,               // extendedType
+            new Type[0]         // implementedTypes
+        );
+        cu.addPackageMemberTypeDeclaration(pmcd);
+
+        ClassBody body  = new ClassBody(pmcd);
+        int       start = importDeclarations.isEmpty() ? 0 : this.offsetAfterSeparator(parser.location());
+        if (parser.peek(TokenType.END_OF_INPUT)) body.segments.add(new Segment(start, null));
+        while (!parser.peek(TokenType.END_OF_INPUT)) start = this.parseSegment(parser, pmcd, start, body.segments);
+        body.end = this.text.length();
+
+        if (start != -1) classBodies.add(body);
+
+        this.compilationUnit = cu;
+    }
+
+    /**
+     * Parses the part of the text that an edit changed, and updates the AST in place: Only the declarations after the
+     * edit are copied (with relocated locations); all declarations before the edit are reused as they are. Leaves
+     * this object unchanged if the edited part does not parse.
+     *
+     * @return Whether the incremental parsing was possible and successful
+     */
+    private boolean
+    reparse(final String oldText, final int[] oldLineStarts, int offset, int length, int replacementLength)
+    throws IOException {
+
+        final String newText       = this.text;
+        final int[]  newLineStarts = this.lineStarts;
+
+        CompilationUnit oldCu = (CompilationUnit) this.compilationUnit;
+        if (oldCu == null || this.classBodies.isEmpty()) return false;
+
+        if (IncrementalParser.mayContainUnicodeEscape(newText)) return false;
+
+        // Find the segment that contains the edit.
+        ClassBody editedBody    = null;
+        int       editedSegment = -1;
+        FIND:
+        for (ClassBody body : this.classBodies) {
+            for (int i = 0; i < body.segments.size(); i++) {
+                if (((Segment) body.segments.get(i)).start <= offset && offset + length <= body.segmentEnd(i)) {
+                    editedBody    = body;
+                    editedSegment = i;
+                    break FIND;
+                }
+            }
+        }
+        if (editedBody == null) return false;
+
+        final int oldEnd = offset + length;
+        final int delta  = replacementLength - length;
+
+        // Determine the location of the first character after the edit.
+        final int endLineNumber, endColumnNumber, lineNumberDelta;
+        if (oldEnd == oldText.length()) {
+            endLineNumber   = Integer.MAX_VALUE;
+            endColumnNumber = 0;
+            lineNumberDelta = 0;
+        } else {
+
+            // Iff the edit separates a CR from an LF, or joins them, then line numbering changes in a way that is
+            // not worth handling.
+            if (
+                oldText.charAt(oldEnd) == '\n'
+                && (oldEnd > 0 && oldText.charAt(oldEnd - 1) == '\r')
+                != (oldEnd + delta > 0 && newText.charAt(oldEnd + delta - 1) == '\r')
+            ) return false;
+
+            endLineNumber   = IncrementalParser.lineNumber(oldText, oldLineStarts, oldEnd);
+            endColumnNumber = IncrementalParser.columnNumber(oldText, oldLineStarts, oldEnd);
+            lineNumberDelta = IncrementalParser.lineNumber(newText, newLineStarts, oldEnd + delta) - endLineNumber;
+        }
+
+        // Copies the parts of the AST after the edit, and relocates them.
+        DeepCopier relocator = new DeepCopier() {
+
+            @Override public Location
+            copyLocation(Location subject) {
+
+                int ln = subject.getLineNumber(), cn = subject.getColumnNumber();
+
+                if (ln < endLineNumber || (ln == endLineNumber && cn < endColumnNumber)) return subject;
+
+                if (ln > endLineNumber) {
+                    if (lineNumberDelta == 0) return subject;
+                    return new Location(subject.getFileName(), ln + lineNumberDelta, cn);
+                }
+
+                // The location is on the line where the edit ends, so its column number may change.
+                int o = IncrementalParser.offset(oldText, oldLineStarts, ln, cn) + delta;
+                return new Location(
+                    subject.getFileName(),
+                    IncrementalParser.lineNumber(newLineStarts, o),
+                    IncrementalParser.columnNumber(newText, newLineStarts, o)
+                );
+            }
+        };
+
+        // Scan and parse the edited segment, and nothing else. Parse it into a scratch class declaration first, so
+        // that this object remains unchanged if that fails.
+        PackageMemberClassDeclaration editedPmcd = editedBody.declaration;
+        PackageMemberClassDeclaration scratch    = new PackageMemberClassDeclaration(
+            editedPmcd.getLocation(), // location
+            null,                     // docComment
+            new Modifier[0],          // modifiers
+            editedPmcd.name,          // name
+            null,                     // typeParameters
+            null,                     // extendedType
+            new Type[0]               // implementedTypes
+        );
+        List<Segment> editedSegments = new ArrayList<>();
+        try {
+            int    start = ((Segment) editedBody.segments.get(editedSegment)).start;
+            String s     = newText.substring(start, editedBody.segmentEnd(editedSegment) + delta);
+
+            Parser parser = new Parser(new Scanner(
+                this.fileName,
+                new CharSequenceReader(s),
+                start == 0 ? 1 : IncrementalParser.lineNumber(newLineStarts, start - 1),
+                start == 0 ? 0 : IncrementalParser.columnNumber(newText, newLineStarts, start - 1)
+            ));
+
+            if (parser.peek(TokenType.END_OF_INPUT)) editedSegments.add(new Segment(start, null));
+            while (!parser.peek(TokenType.END_OF_INPUT)) {
+                start = this.parseSegment(parser, scratch, start, editedSegments);
+                if (start == -1) return false;
+            }
+        } catch (CompileException ce) {
+
+            // Let the parsing of the entire text report the error.
+            return false;
+        }
+
+        // Now update the AST in place: The segments before the edited segment, and their declarations, remain as they
+        // are. The declarations of the edited segment and of the segments after it are removed from the class
+        // declaration, and then the newly parsed declarations (copied out of the scratch class declaration) and the
+        // relocated declarations are added, in that order.
+        try {
+            List<Segment> tail = editedBody.segments.subList(editedSegment, editedBody.segments.size());
+
+            List<Segment> newTail = new ArrayList<>();
+            DeepCopier    copier  = new DeepCopier();
+            for (Segment segment : editedSegments) {
+                TypeBodyDeclaration tbd = segment.declaration;
+                newTail.add(new Segment(segment.start, tbd == null ? null : copier.copyTypeBodyDeclaration(tbd)));
+            }
+            for (Segment segment : tail.subList(1, tail.size())) {
+                TypeBodyDeclaration tbd = segment.declaration;
+                newTail.add(new Segment(
+                    segment.start + delta,
+                    tbd == null ? null : relocator.copyTypeBodyDeclaration(tbd)
+                ));
+            }
+
+            for (Segment segment : tail) {
+                TypeBodyDeclaration tbd = segment.declaration;
+                if (tbd != null) IncrementalParser.removeClassBodyDeclaration(editedPmcd, tbd);
+            }
+            tail.clear();
+            for (Segment segment : newTail) {
+                TypeBodyDeclaration tbd = segment.declaration;
+                if (tbd != null) IncrementalParser.addClassBodyDeclaration(editedPmcd, tbd);
+                editedBody.segments.add(segment);
+            }
+            editedBody.end += delta;
+
+            // Relocate the top-level type declarations after the edited one.
+            List<PackageMemberTypeDeclaration> pmtds = oldCu.packageMemberTypeDeclarations;
+            pmtds = pmtds.subList(pmtds.indexOf(editedPmcd) + 1, pmtds.size());
+
+            int                                editedBodyIndex = this.classBodies.indexOf(editedBody);
+            List<ClassBody>                    newClassBodies  = new ArrayList<>();
+            List<PackageMemberTypeDeclaration> newPmtds        = new ArrayList<>();
+            Iterator<ClassBody>                it              = (
+                this.classBodies.subList(editedBodyIndex + 1, this.classBodies.size()).iterator()
+            );
+            ClassBody                          body            = it.hasNext() ? (ClassBody) it.next() : null;
+            for (PackageMemberTypeDeclaration pmtd : pmtds) {
+
+                if (body == null || pmtd != body.declaration) {
+                    newPmtds.add(relocator.copyPackageMemberTypeDeclaration(pmtd));
+                    continue;
+                }
+
+                PackageMemberClassDeclaration oldPmcd = body.declaration;
+                PackageMemberClassDeclaration newPmcd = new PackageMemberClassDeclaration(
+                    relocator.copyLocation(oldPmcd.getLocation()),
+                    oldPmcd.getDocComment(),
+                    relocator.copyModifiers(oldPmcd.getModifiers()),
+                    oldPmcd.name,
+                    relocator.copyOptionalTypeParameters(oldPmcd.getOptionalTypeParameters()),
+                    relocator.copyOptionalType(oldPmcd.extendedType),
+                    relocator.copyTypes(oldPmcd.implementedTypes)
+                );
+                newPmtds.add(newPmcd);
+
+                ClassBody newBody = new ClassBody(newPmcd);
+                for (Segment segment : body.segments) {
+                    TypeBodyDeclaration tbd = segment.declaration;
+                    if (tbd != null) {
+                        tbd = relocator.copyTypeBodyDeclaration(tbd);
+                        IncrementalParser.addClassBodyDeclaration(newPmcd, tbd);
+                    }
+                    newBody.segments.add(new Segment(segment.start + delta, tbd));
+                }
+                newBody.end = body.end + delta;
+                newClassBodies.add(newBody);
+
+                body = it.hasNext() ? (ClassBody) it.next() : null;
+            }
+
+            pmtds.clear();
+            for (PackageMemberTypeDeclaration pmtd : newPmtds) oldCu.addPackageMemberTypeDeclaration(pmtd);
+
+            this.classBodies.subList(editedBodyIndex + 1, this.classBodies.size()).clear();
+            this.classBodies.addAll(newClassBodies);
+        } catch (CompileException ce) {
+
+            // Copying an AST should never fail; if it does, the AST is inconsistent, so parse the entire text.
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses one class body declaration into the <var>classDeclaration</var>, and adds the respective segment to the
+     * <var>segments</var>.
+     *
+     * @return The offset immediately after the class body declaration, which is the start of the next segment, or
+     *         -1 iff that offset cannot be determined
+     */
+    private int
+    parseSegment(Parser parser, AbstractClassDeclaration classDeclaration, int start, List<Segment> segments)
+    throws CompileException, IOException {
+
+        int fdois = classDeclaration.fieldDeclarationsAndInitializers.size();
+        int cds   = classDeclaration.constructors.size();
+        int mds   = classDeclaration.getMethodDeclarations().size();
+        int mtds  = classDeclaration.getMemberTypeDeclarations().size();
+
+        parser.parseClassBodyDeclaration(classDeclaration);
+
+        TypeBodyDeclaration declaration = null;
+        if (classDeclaration.fieldDeclarationsAndInitializers.size() > fdois) {
+            declaration = (TypeBodyDeclaration) classDeclaration.fieldDeclarationsAndInitializers.get(fdois);
+        } else
+        if (classDeclaration.constructors.size() > cds) {
+            declaration = (TypeBodyDeclaration) classDeclaration.constructors.get(cds);
+        } else
+        if (classDeclaration.getMethodDeclarations().size() > mds) {
+            declaration = (TypeBodyDeclaration) classDeclaration.getMethodDeclarations().get(mds);
+        } else
+        if (classDeclaration.getMemberTypeDeclarations().size() > mtds) {
+            Iterator<MemberTypeDeclaration> it = classDeclaration.getMemberTypeDeclarations().iterator();
+            for (int i = 0; i < mtds; i++) it.next();
+            declaration = (TypeBodyDeclaration) it.next();
+        }
+        segments.add(new Segment(start, declaration));
+
+        return start == -1 ? -1 : this.offsetAfterSeparator(parser.location());
+    }
+
+    private static void
+    removeClassBodyDeclaration(AbstractClassDeclaration target, TypeBodyDeclaration tbd) {
+        if (
+            !target.fieldDeclarationsAndInitializers.remove(tbd)
+            && !target.constructors.remove(tbd)
+            && !target.getMethodDeclarations().remove(tbd)
+            && !target.getMemberTypeDeclarations().remove(tbd)
+        ) throw new InternalCompilerException("Unexpected class body declaration " + tbd);
+    }
+
+    private static void
+    addClassBodyDeclaration(AbstractClassDeclaration target, TypeBodyDeclaration tbd) {
+        if (tbd instanceof FieldDeclarationOrInitializer) {
+            target.addFieldDeclarationOrInitializer((FieldDeclarationOrInitializer) tbd);
+        } else
+        if (tbd instanceof ConstructorDeclarator) {
+            target.addConstructor((ConstructorDeclarator) tbd);
+        } else
+        if (tbd instanceof MethodDeclarator) {
+            target.addDeclaredMethod((MethodDeclarator) tbd);
+        } else
+        if (tbd instanceof MemberTypeDeclaration) {
+            target.addMemberTypeDeclaration((MemberTypeDeclaration) tbd);
+        } else
+        {
+            throw new InternalCompilerException("Unexpected class body declaration " + tbd);
+        }
+    }
+
+    /**
+     * @return The offset immediately after the "{", "}" or ";" token at the <var>location</var>, or -1 iff there is
+     *         no such token
+     */
+    private int
+    offsetAfterSeparator(Location location) {
+
+        int o = IncrementalParser.offset(
+            this.text,
+            this.lineStarts,
+            location.getLineNumber(),
+            location.getColumnNumber()
+        );
+        if (o == -1) return -1;
+
+        char c = this.text.charAt(o);
+        return c == '{' || c == '}' || c == ';' ? o + 1 : -1;
+    }
+
+    /**
+     * Line breaks are counted exactly like the {@link Scanner} counts them, i.e. a CR, an LF, or a CR followed by an
+     * LF, and each line starts immediately after the CR or LF (so that the LF of a CR-LF sequence is the first
+     * character of the following line).
+     *
+     * @return The offsets of the first characters of all lines of the <var>text</var>
+     */
+    private static int[]
+    lineStarts(CharSequence text) {
+
+        int[] result = new int[16];
+        int   n      = 1;
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\r' || (c == '\n' && (i == 0 || text.charAt(i - 1) != '\r'))) {
+                if (n == result.length) result = Arrays.copyOf(result, 2 * n);
+                result[n++] = i + 1;
+            }
+        }
+
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * @return The line number that the {@link Scanner} reports for the character at the <var>offset</var>
+     */
+    private static int
+    lineNumber(int[] lineStarts, int offset) {
+        int idx = Arrays.binarySearch(lineStarts, offset);
+        return idx >= 0 ? idx + 1 : -idx - 1;
+    }
+
+    /**
+     * Other than {@link #lineNumber(int[], int)}, this method also works for CR and LF characters, which the {@link
+     * Scanner} counts to the <em>following</em> line (with column number zero).
+     *
+     * @return The line number that the {@link Scanner} reports for the character at the <var>offset</var>
+     */
+    private static int
+    lineNumber(CharSequence text, int[] lineStarts, int offset) {
+        char c = text.charAt(offset);
+        return IncrementalParser.lineNumber(lineStarts, c == '\r' || c == '\n' ? offset + 1 : offset);
+    }
+
+    /**
+     * @return The column number that the {@link Scanner} reports for the character at the <var>offset</var>
+     */
+    private static int
+    columnNumber(CharSequence text, int[] lineStarts, int offset) {
+
+        int o = lineStarts[IncrementalParser.lineNumber(lineStarts, offset) - 1];
+
+        int result = 0;
+        for (; o <= offset; o++) result = IncrementalParser.nextColumnNumber(result, text.charAt(o));
+        return result;
+    }
+
+    /**
+     * @return The offset of the character that the {@link Scanner} reports at the given line and column number, or
+     *         -1 iff there is no such character
+     */
+    private static int
+    offset(CharSequence text, int[] lineStarts, int lineNumber, int columnNumber) {
+
+        if (lineNumber < 1 || lineNumber > lineStarts.length) return -1;
+
+        int cn = 0;
+        for (int o = lineStarts[lineNumber - 1], length = text.length(); o < length; o++) {
+            char c = text.charAt(o);
+            if (c == '\r' || c == '\n') {
+                if (c == '\n' && o == lineStarts[lineNumber - 1] && o > 0 && text.charAt(o - 1) == '\r') continue;
+                return -1;
+            }
+            cn = IncrementalParser.nextColumnNumber(cn, c);
+            if (cn == columnNumber) return o;
+            if (cn > columnNumber) return -1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Counts columns exactly like the {@link Scanner} does.
+     */
+    private static int
+    nextColumnNumber(int columnNumber, char c) {
+        if (c == '\r' || c == '\n') return 0;
+        if (c == '\t') return columnNumber - columnNumber % 8 + 8;
+        return columnNumber + 1;
+    }
+
+    /**
+     * @return Whether the <var>cs</var> contains a backslash followed by "u", which may be the start of a unicode
+     *         escape (JLS11 3.3)
+     */
+    private static boolean
+    mayContainUnicodeEscape(CharSequence cs) {
+        for (int i = cs.length() - 2; i >= 0; i--) {
+            if (cs.charAt(i) == '\\' && cs.charAt(i + 1) == 'u') return true;
+        }
+        return false;
+    }
+}
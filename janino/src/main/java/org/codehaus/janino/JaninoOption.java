@@ -46,4 +46,35 @@ enum JaninoOption {
      * Contrary to the JLS, allow <em>any</em> expression as a resource in a TRY-with-resources statement.
      */
     EXPRESSIONS_IN_TRY_WITH_RESOURCES_ALLOWED,
+
+    /**
+     * If the target version is 9 or higher, implement string concatenation like JAVAC 9+ does, i.e. through {@code
+     * invokedynamic} and {@code java.lang.invoke.StringConcatFactory.makeConcatWithConstants()}, instead of through
+     * {@link String#concat(String)} and {@link StringBuilder}. For target versions below 9, this option has no effect.
+     */
+    INVOKEDYNAMIC_STRING_CONCATENATION,
+
+    /**
+     * Parse with a {@link NameTable}, so that equal qualified names share one {@code String[]}, even across the
+     * compilation units of one compilation. This reduces the memory footprint of large (particularly generated)
+     * compilation units, at the cost of a hash lookup per name.
+     */
+    COMPACT_AST,
+
+    /**
+     * Generate tighter bytecode, at the cost of some extra compilation time:
+     * <ul>
+     *   <li>Compare INT values with zero through {@code IF*} instead of {@code ICONST_0} and {@code IF_ICMP*}.</li>
+     *   <li>Branches to a {@code GOTO} instruction branch directly to the destination of the {@code GOTO}.</li>
+     *   <li>
+     *     A conditional branch across an immediately following {@code GOTO} (as it is generated e.g. for {@code
+     *     if (x) break;}) is replaced with one negated conditional branch.
+     *   </li>
+     * </ul>
+     * <p>
+     *   Smaller methods are more likely to be inlined by the JIT compiler (e.g. HotSpot's {@code -XX:MaxInlineSize}),
+     *   and are faster to interpret.
+     * </p>
+     */
+    PEEPHOLE_OPTIMIZATION,
 }
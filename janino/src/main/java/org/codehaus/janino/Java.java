@@ -3721,7 +3721,7 @@ class Java {
 
         @Override public void
         fixUp() {
-            int x = this.offset % 4;
+            int x = this.getOffset() % 4;
             if (x != 0) {
                 CodeContext ca = this.getCodeContext();
                 ca.pushInserter(this);
@@ -6279,10 +6279,10 @@ class Java {
             if (this.type != null) buf.append(", ").append(this.type);
 
             Offset s = this.start;
-            if (s != null) buf.append(", start offset ").append(s.offset);
+            if (s != null) buf.append(", start offset ").append(s.getOffset());
 
             Offset e = this.end;
-            if (e != null) buf.append(", end offset ").append(e.offset);
+            if (e != null) buf.append(", end offset ").append(e.getOffset());
 
             buf.append(")");
 
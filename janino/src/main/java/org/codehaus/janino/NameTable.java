@@ -0,0 +1,107 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.codehaus.janino;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.commons.nullanalysis.Nullable;
+
+/**
+ * Interns identifiers and qualified names, so that equal names in the ASTs that a {@link Parser} with this name table
+ * produces are represented by one and the same {@link String} or {@code String[]} object. That reduces the memory
+ * footprint of large ASTs considerably, because (particularly in generated code) the same names appear again and
+ * again.
+ * <p>
+ *   One name table is typically shared by the parsers of all compilation units of one compilation, so that e.g. the
+ *   qualified names in the import declarations are shared as well. Instances are thread-safe.
+ * </p>
+ * <p>
+ *   Notice that the {@code String[]} fields of the AST (e.g. {@link Java.AmbiguousName#identifiers}) then refer to
+ *   shared arrays; these must not be modified.
+ * </p>
+ *
+ * @see Parser#setNameTable(NameTable)
+ * @see JaninoOption#COMPACT_AST
+ */
+public
+class NameTable {
+
+    private final ConcurrentMap<String, String>  identifiers    = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Name, String[]> qualifiedNames = new ConcurrentHashMap<>();
+
+    /**
+     * @return A string that is equal to the <var>identifier</var>
+     */
+    public String
+    intern(String identifier) {
+        String result = (String) this.identifiers.putIfAbsent(identifier, identifier);
+        return result != null ? result : identifier;
+    }
+
+    /**
+     * @param qualifiedName Is modified iff it is not yet known to this name table, and then becomes part of it
+     * @return              An array that is equal to the <var>qualifiedName</var>
+     */
+    public String[]
+    intern(String[] qualifiedName) {
+
+        String[] result = (String[]) this.qualifiedNames.get(new Name(qualifiedName));
+        if (result != null) return result;
+
+        for (int i = 0; i < qualifiedName.length; i++) qualifiedName[i] = this.intern(qualifiedName[i]);
+
+        result = (String[]) this.qualifiedNames.putIfAbsent(new Name(qualifiedName), qualifiedName);
+        return result != null ? result : qualifiedName;
+    }
+
+    /**
+     * Wraps a {@code String[]} as a key for a {@link java.util.Map}.
+     */
+    private static final
+    class Name {
+
+        private final String[] identifiers;
+        private final int      hashCode;
+
+        Name(String[] identifiers) {
+            this.identifiers = identifiers;
+            this.hashCode    = Arrays.hashCode(identifiers);
+        }
+
+        @Override public int
+        hashCode() { return this.hashCode; }
+
+        @Override public boolean
+        equals(@Nullable Object o) {
+            return (
+                o instanceof Name
+                && ((Name) o).hashCode == this.hashCode
+                && Arrays.equals(((Name) o).identifiers, this.identifiers)
+            );
+        }
+    }
+}
@@ -425,7 +425,7 @@ class Parser {
         l.add(this.read(TokenType.IDENTIFIER));
         for (;;) {
             if (!this.peek(".")) {
-                String[] identifiers = (String[]) l.toArray(new String[l.size()]);
+                String[] identifiers = this.intern((String[]) l.toArray(new String[l.size()]));
                 return (
                     isStatic
                     ? new AbstractCompilationUnit.SingleStaticImportDeclaration(loc, identifiers)
@@ -434,7 +434,7 @@ class Parser {
             }
             this.read(".");
             if (this.peekRead("*")) {
-                String[] identifiers = (String[]) l.toArray(new String[l.size()]);
+                String[] identifiers = this.intern((String[]) l.toArray(new String[l.size()]));
                 return (
                     isStatic
                     ? new AbstractCompilationUnit.StaticImportOnDemandDeclaration(loc, identifiers)
@@ -452,13 +452,20 @@ class Parser {
      */
     public String[]
     parseQualifiedIdentifier() throws CompileException, IOException {
+
+        // Most qualified identifiers consist of only one identifier.
+        String identifier = this.read(TokenType.IDENTIFIER);
+        if (!this.peek(".") || this.peekNextButOne().type != TokenType.IDENTIFIER) {
+            return this.intern(new String[] { identifier });
+        }
+
         List<String> l = new ArrayList<>();
-        l.add(this.read(TokenType.IDENTIFIER));
-        while (this.peek(".") && this.peekNextButOne().type == TokenType.IDENTIFIER) {
+        l.add(identifier);
+        do {
             this.read();
             l.add(this.read(TokenType.IDENTIFIER));
-        }
-        return (String[]) l.toArray(new String[l.size()]);
+        } while (this.peek(".") && this.peekNextButOne().type == TokenType.IDENTIFIER);
+        return this.intern((String[]) l.toArray(new String[l.size()]));
     }
 
     /**
@@ -2765,7 +2772,7 @@ class Parser {
     public Atom
     parseAssignmentExpression() throws CompileException, IOException {
         Atom a = this.parseConditionalExpression();
-        if (this.peek("=", "+=", "-=", "*=", "/=", "&=", "|=", "^=", "%=", "<<=", ">>=", ">>>=") != -1) {
+        if (this.peek(Parser.ASSIGNMENT_OPERATORS) != -1) {
             final Lvalue lhs      = a.toLvalueOrCompileException();
             Location     location = this.location();
             String       operator = this.read(TokenType.OPERATOR); // An interned string!
@@ -2909,7 +2916,7 @@ class Parser {
     parseEqualityExpression() throws CompileException, IOException  {
         Atom a = this.parseRelationalExpression();
 
-        while (this.peek("==", "!=") != -1) {
+        while (this.peek(Parser.EQUALITY_OPERATORS) != -1) {
             a = new BinaryOperation(
                 this.location(),                                              // location
                 a.toRvalueOrCompileException(),                               // lhs
@@ -2944,7 +2951,7 @@ class Parser {
                     this.parseType()
                 );
             } else
-            if (this.peek("<", ">", "<=", ">=") != -1) {
+            if (this.peek(Parser.RELATIONAL_OPERATORS) != -1) {
 
                 if (
                     this.preferParametrizedTypes
@@ -3040,7 +3047,7 @@ class Parser {
     parseShiftExpression() throws CompileException, IOException  {
         Atom a = this.parseAdditiveExpression();
 
-        while (this.peek("<<", ">>", ">>>") != -1) {
+        while (this.peek(Parser.SHIFT_OPERATORS) != -1) {
             a = new BinaryOperation(
                 this.location(),                                            // location
                 a.toRvalueOrCompileException(),                             // lhs
@@ -3061,7 +3068,7 @@ class Parser {
     parseAdditiveExpression() throws CompileException, IOException  {
         Atom a = this.parseMultiplicativeExpression();
 
-        while (this.peek("+", "-") != -1) {
+        while (this.peek(Parser.ADDITIVE_OPERATORS) != -1) {
             a = new BinaryOperation(
                 this.location(),                                                  // location
                 a.toRvalueOrCompileException(),                                   // lhs
@@ -3082,7 +3089,7 @@ class Parser {
     parseMultiplicativeExpression() throws CompileException, IOException {
         Atom a = this.parseUnaryExpression();
 
-        while (this.peek("*", "/", "%") != -1) {
+        while (this.peek(Parser.MULTIPLICATIVE_OPERATORS) != -1) {
             a = new BinaryOperation(
                 this.location(),                                         // location
                 a.toRvalueOrCompileException(),                          // lhs
@@ -3105,7 +3112,7 @@ class Parser {
      */
     public Atom
     parseUnaryExpression() throws CompileException, IOException {
-        if (this.peek("++", "--") != -1) {
+        if (this.peek(Parser.INCREMENT_DECREMENT_OPERATORS) != -1) {
             return new Crement(
                 this.location(),                                         // location
                 this.read().value,                                       // operator
@@ -3113,7 +3120,7 @@ class Parser {
             );
         }
 
-        if (this.peek("+", "-", "~", "!") != -1) {
+        if (this.peek(Parser.PREFIX_OPERATORS) != -1) {
             return new UnaryOperation(
                 this.location(),                                         // location
                 this.read().value,                                       // operator
@@ -3123,7 +3130,7 @@ class Parser {
 
         Atom a = this.parsePrimary();
 
-        while (this.peek(".", "[") != -1) {
+        while (this.peek(Parser.SELECTOR_PREFIXES) != -1) {
             a = this.parseSelector(a);
         }
 
@@ -3158,7 +3165,7 @@ class Parser {
             }
         }
 
-        while (this.peek("++", "--") != -1) {
+        while (this.peek(Parser.INCREMENT_DECREMENT_OPERATORS) != -1) {
             a = new Crement(
                 this.location(),                // location
                 a.toLvalueOrCompileException(), // operand
@@ -3215,7 +3222,7 @@ class Parser {
         if (this.peekRead("(")) {
 
             if (
-                this.peek("boolean", "char", "byte", "short", "int", "long", "float", "double") != -1
+                this.peek(Parser.PRIMITIVE_TYPE_KEYWORDS) != -1
                 && !this.peekNextButOne(TokenType.IDENTIFIER)
             ) {
 
@@ -3264,7 +3271,7 @@ class Parser {
                 }
 
                 if (names.length != 1) throw this.compileException("Lambda expected");
-                a = new AmbiguousName(loc, new String[] { names[0] });
+                a = new AmbiguousName(loc, this.intern(new String[] { names[0] }));
             } else {
                 a = this.parseExpressionOrType();
             }
@@ -3285,8 +3292,8 @@ class Parser {
             if (
                 this.peekLiteral()
                 || this.peek(TokenType.IDENTIFIER)
-                || this.peek("(", "~", "!") != -1
-                || this.peek("this", "super", "new") != -1
+                || this.peek(Parser.CAST_OPERAND_PREFIXES) != -1
+                || this.peek(Parser.CAST_OPERAND_KEYWORDS) != -1
             ) {
                 // '(' Expression ')' UnaryExpression
                 return new Cast(
@@ -3446,7 +3453,7 @@ class Parser {
         }
 
         // PrimitiveType
-        if (this.peek("boolean", "char", "byte", "short", "int", "long", "float", "double") != -1) {
+        if (this.peek(Parser.PRIMITIVE_TYPE_KEYWORDS) != -1) {
             Type res      = this.parseType();
             int  brackets = this.parseBracketsOpt();
             for (int i = 0; i < brackets; ++i) res = new ArrayType(res);
@@ -3808,11 +3815,31 @@ class Parser {
 
     private boolean
     peekLiteral() throws CompileException, IOException {
-        return this.peek(
-            TokenType.INTEGER_LITERAL, TokenType.FLOATING_POINT_LITERAL, TokenType.BOOLEAN_LITERAL,
-            TokenType.CHARACTER_LITERAL, TokenType.STRING_LITERAL, TokenType.NULL_LITERAL
-        ) != -1;
+        return this.peek(Parser.LITERAL_TOKEN_TYPES) != -1;
     }
+    private static final TokenType[] LITERAL_TOKEN_TYPES = {
+        TokenType.INTEGER_LITERAL, TokenType.FLOATING_POINT_LITERAL, TokenType.BOOLEAN_LITERAL,
+        TokenType.CHARACTER_LITERAL, TokenType.STRING_LITERAL, TokenType.NULL_LITERAL,
+    };
+
+    // The following arrays are passed to "peek(String...)" in the hot paths of expression parsing, so that these
+    // don't allocate a varargs array on every call.
+    private static final String[] ASSIGNMENT_OPERATORS          = {
+        "=", "+=", "-=", "*=", "/=", "&=", "|=", "^=", "%=", "<<=", ">>=", ">>>=",
+    };
+    private static final String[] EQUALITY_OPERATORS            = { "==", "!=" };
+    private static final String[] RELATIONAL_OPERATORS          = { "<", ">", "<=", ">=" };
+    private static final String[] SHIFT_OPERATORS               = { "<<", ">>", ">>>" };
+    private static final String[] ADDITIVE_OPERATORS            = { "+", "-" };
+    private static final String[] MULTIPLICATIVE_OPERATORS      = { "*", "/", "%" };
+    private static final String[] INCREMENT_DECREMENT_OPERATORS = { "++", "--" };
+    private static final String[] PREFIX_OPERATORS              = { "+", "-", "~", "!" };
+    private static final String[] SELECTOR_PREFIXES             = { ".", "[" };
+    private static final String[] PRIMITIVE_TYPE_KEYWORDS       = {
+        "boolean", "char", "byte", "short", "int", "long", "float", "double",
+    };
+    private static final String[] CAST_OPERAND_PREFIXES         = { "(", "~", "!" };
+    private static final String[] CAST_OPERAND_KEYWORDS         = { "this", "super", "new" };
 
     /**
      * Issues a warning if the given string does not comply with the package naming conventions.
@@ -3993,6 +4020,22 @@ class Parser {
     // Used for elaborate warning handling.
     @Nullable private WarningHandler warningHandler;
 
+    /**
+     * Configures this parser to intern all qualified names that it parses in the given <var>nameTable</var>, which
+     * makes the produced ASTs more compact. The default is {@code null}, which means that each qualified name is
+     * represented by a new {@code String[]}.
+     */
+    public void
+    setNameTable(@Nullable NameTable nameTable) { this.nameTable = nameTable; }
+
+    @Nullable private NameTable nameTable;
+
+    private String[]
+    intern(String[] qualifiedName) {
+        NameTable nt = this.nameTable;
+        return nt == null ? qualifiedName : nt.intern(qualifiedName);
+    }
+
     private void
     warning(String handle, String message) throws CompileException {
         this.warning(handle, message, this.location());
@@ -32,12 +32,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 
 import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.commons.compiler.Location;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
 import org.codehaus.commons.compiler.io.Readers;
 import org.codehaus.commons.nullanalysis.Nullable;
 
@@ -45,7 +43,7 @@ import org.codehaus.commons.nullanalysis.Nullable;
  * Splits up a character stream into tokens and returns them as {@link java.lang.String String} objects.
  */
 public
-class Scanner {
+class Scanner implements TokenSource {
 
     /**
      * Setting this system property to 'true' enables source-level debugging. Typically, this means that compilation
@@ -221,8 +219,19 @@ class Scanner {
             fileName = temporaryFile.getAbsolutePath();
         }
 
+        // If the code is already in memory, then scan it directly, instead of reading it through the Reader. Unicode
+        // escapes (if any) are processed in one go. (Only iff the source contains an invalid escape sequence, it is
+        // read through the UnicodeUnescapeReader, which reports it at the right location.)
+        CharSequence source = null;
+        if (in instanceof CharSequenceReader) {
+            CharSequence raw = ((CharSequenceReader) in).readRemaining();
+            source = UnicodeUnescapeReader.unescape(raw);
+            if (source == null) in = new CharSequenceReader(raw);
+        }
+
         this.fileName             = fileName;
-        this.in                   = new UnicodeUnescapeReader(in);
+        this.in                   = source != null ? in : new UnicodeUnescapeReader(in);
+        this.source               = source;
         this.nextCharLineNumber   = initialLineNumber;
         this.nextCharColumnNumber = initialColumnNumber;
     }
@@ -254,7 +263,7 @@ class Scanner {
     /**
      * @return The {@link Location} of the previously read (or peeked) token.
      */
-    public Location
+    @Override public Location
     location() { return new Location(this.fileName, this.tokenLineNumber, this.tokenColumnNumber); }
 
     private Token
@@ -267,11 +276,27 @@ class Scanner {
      */
     private final StringBuilder sb = new StringBuilder();
 
+    /**
+     * The value of the currently scanned token iff it is a keyword, an operator, a boolean literal or the null literal
+     * (in which case it is a string constant), or an identifier (in which case it is canonicalized through {@link
+     * #identifiers}); {@code null} otherwise.
+     */
+    @Nullable private String constantTokenValue;
+
+    /**
+     * Open-addressing hash table of the values of all identifier tokens produced so far, so that each distinct
+     * identifier is materialized as a {@link String} only once per scanner. The length is a power of two.
+     */
+    private String[] identifiers = new String[Scanner.INITIAL_IDENTIFIERS_SIZE];
+    private int      identifierCount;
+
+    private static final int INITIAL_IDENTIFIERS_SIZE = 256;
+
     /**
      * Produces and returns the next token. Notice that end-of-input is <em>not</em> signalized with a {@code null}
      * product, but by an {@link TokenType#END_OF_INPUT}-type token.
      */
-    public Token
+    @Override public Token
     produce() throws CompileException, IOException {
 
         if (this.peek() == -1) return this.token(TokenType.END_OF_INPUT, "end-of-input");
@@ -288,17 +313,14 @@ class Scanner {
         this.tokenColumnNumber = this.nextCharColumnNumber;
 
         this.sb.setLength(0);
+        this.constantTokenValue = null;
 
-        TokenType tokenType  = this.scan();
-        String    tokenValue = this.sb.toString();
+        TokenType tokenType = this.scan();
 
-        // We want to be able to use REFERENCE EQUALITY for these...
-        if (
-            tokenType == TokenType.KEYWORD
-            || tokenType == TokenType.BOOLEAN_LITERAL
-            || tokenType == TokenType.NULL_LITERAL
-            || tokenType == TokenType.OPERATOR
-        ) tokenValue = tokenValue.intern();
+        // We want to be able to use REFERENCE EQUALITY for keywords, operators, boolean literals and the null literal;
+        // because these are string constants, they are already interned.
+        String tokenValue = this.constantTokenValue;
+        if (tokenValue == null) tokenValue = this.sb.toString();
 
         return this.token(tokenType, tokenValue);
     }
@@ -317,9 +339,9 @@ class Scanner {
         // Scan a token that begins with "/".
         if (this.peekRead('/')) {
 
-            if (this.peekRead(-1)) return TokenType.OPERATOR; // E.g. "/"
+            if (this.peekRead(-1)) return this.operator("/");
 
-            if (this.peekRead('=')) return TokenType.OPERATOR; // E.g. "/="
+            if (this.peekRead('=')) return this.operator("/=");
 
             if (this.peekRead('/')) { // C++-style comment.
 
@@ -345,21 +367,28 @@ class Scanner {
                 }
             }
 
-            return TokenType.OPERATOR; // E.g. "/"
+            return this.operator("/");
         }
 
         // Scan identifier.
         if (Character.isJavaIdentifierStart((char) this.peek())) {
             this.read();
             while (Character.isJavaIdentifierPart((char) this.peek())) this.read();
-            String s = this.sb.toString();
-            if ("true".equals(s))  return TokenType.BOOLEAN_LITERAL;
-            if ("false".equals(s)) return TokenType.BOOLEAN_LITERAL;
-            if ("null".equals(s))  return TokenType.NULL_LITERAL;
 
-            if (Scanner.JAVA_KEYWORDS.contains(s)) return TokenType.KEYWORD;
+            int hash = Scanner.hash(this.sb);
 
-            return TokenType.IDENTIFIER;
+            String keyword = Scanner.findKeyword(this.sb, hash);
+            if (keyword == null) {
+                this.constantTokenValue = this.identifier(hash);
+                return TokenType.IDENTIFIER;
+            }
+
+            this.constantTokenValue = keyword;
+            if ("true".equals(keyword))  return TokenType.BOOLEAN_LITERAL;
+            if ("false".equals(keyword)) return TokenType.BOOLEAN_LITERAL;
+            if ("null".equals(keyword))  return TokenType.NULL_LITERAL;
+
+            return TokenType.KEYWORD;
         }
 
         // Scan numeric literal.
@@ -390,11 +419,9 @@ class Scanner {
         }
 
         // Scan operator (including what Java calls "separators").
-        if (Scanner.JAVA_OPERATORS.contains(String.valueOf((char) this.peek()))) {
-            do {
-                this.read();
-            } while (Scanner.JAVA_OPERATORS.contains(this.sb.toString() + (char) this.peek()));
-            return TokenType.OPERATOR;
+        {
+            String operator = this.scanOperator();
+            if (operator != null) return this.operator(operator);
         }
 
         throw new CompileException(
@@ -403,6 +430,156 @@ class Scanner {
         );
     }
 
+    private TokenType
+    operator(String value) {
+        this.constantTokenValue = value;
+        return TokenType.OPERATOR;
+    }
+
+    /**
+     * Scans the longest operator or separator (JLS11 3.11, 3.12) that begins with the next character, except those
+     * that begin with "/".
+     *
+     * @return The operator as a string constant, or {@code null} iff the next character is not the first character of
+     *         an operator
+     */
+    @Nullable private String
+    scanOperator() throws CompileException, IOException {
+
+        switch (this.peek()) {
+
+        // SUPPRESS CHECKSTYLE OneStatementPerLine:14
+        case '(': this.read(); return "(";
+        case ')': this.read(); return ")";
+        case '{': this.read(); return "{";
+        case '}': this.read(); return "}";
+        case '[': this.read(); return "[";
+        case ']': this.read(); return "]";
+        case ';': this.read(); return ";";
+        case ',': this.read(); return ",";
+        case '.': this.read(); return ".";
+        case '@': this.read(); return "@";
+        case '~': this.read(); return "~";
+        case '?': this.read(); return "?";
+        case ':': this.read(); return this.peekRead(':') ? "::" : ":";
+        case '=': this.read(); return this.peekRead('=') ? "==" : "=";
+        case '!': this.read(); return this.peekRead('=') ? "!=" : "!";
+        case '*': this.read(); return this.peekRead('=') ? "*=" : "*";
+        case '^': this.read(); return this.peekRead('=') ? "^=" : "^";
+        case '%': this.read(); return this.peekRead('=') ? "%=" : "%";
+
+        case '+':
+            this.read();
+            return this.peekRead('+') ? "++" : this.peekRead('=') ? "+=" : "+";
+
+        case '-':
+            this.read();
+            return this.peekRead('-') ? "--" : this.peekRead('=') ? "-=" : this.peekRead('>') ? "->" : "-";
+
+        case '&':
+            this.read();
+            return this.peekRead('&') ? "&&" : this.peekRead('=') ? "&=" : "&";
+
+        case '|':
+            this.read();
+            return this.peekRead('|') ? "||" : this.peekRead('=') ? "|=" : "|";
+
+        case '<':
+            this.read();
+            if (this.peekRead('<')) return this.peekRead('=') ? "<<=" : "<<";
+            return this.peekRead('=') ? "<=" : "<";
+
+        case '>':
+            this.read();
+            if (this.peekRead('>')) {
+                if (this.peekRead('>')) return this.peekRead('=') ? ">>>=" : ">>>";
+                return this.peekRead('=') ? ">>=" : ">>";
+            }
+            return this.peekRead('=') ? ">=" : ">";
+
+        default:
+            return null;
+        }
+    }
+
+    /**
+     * @param hash The {@link #hash(CharSequence)} of <var>cs</var>
+     * @return       The keyword (or "true", "false" or "null") that equals <var>cs</var>, as a string constant, or
+     *               {@code null} iff <var>cs</var> is not a keyword
+     */
+    @Nullable private static String
+    findKeyword(CharSequence cs, int hash) {
+
+        int length = cs.length();
+        if (length < 2 || length > 12) return null;
+
+        String[] table = Scanner.KEYWORDS;
+        int      mask  = table.length - 1;
+        for (int i = Scanner.spread(hash) & mask;; i = (i + 1) & mask) {
+            String keyword = table[i];
+            if (keyword == null) return null;
+            if (keyword.length() == length && Scanner.regionEquals(keyword, cs)) return keyword;
+        }
+    }
+
+    /**
+     * @param hash The {@link #hash(CharSequence)} of the identifier in {@link #sb}
+     * @return     The value of the identifier in {@link #sb}; the same {@link String} object for equal identifiers
+     */
+    private String
+    identifier(int hash) {
+
+        String[] table  = this.identifiers;
+        int      mask   = table.length - 1;
+        int      length = this.sb.length();
+
+        int i = Scanner.spread(hash) & mask;
+        for (;; i = (i + 1) & mask) {
+            String identifier = table[i];
+            if (identifier == null) break;
+            if (identifier.length() == length && Scanner.regionEquals(identifier, this.sb)) return identifier;
+        }
+
+        String result = this.sb.toString();
+        table[i] = result;
+
+        // Keep the load factor below 50%.
+        if (++this.identifierCount > table.length >> 1) {
+            String[] newTable = new String[table.length << 1];
+            int      newMask  = newTable.length - 1;
+            for (String identifier : table) {
+                if (identifier == null) continue;
+                int j = Scanner.spread(identifier.hashCode()) & newMask;
+                while (newTable[j] != null) j = (j + 1) & newMask;
+                newTable[j] = identifier;
+            }
+            this.identifiers = newTable;
+        }
+
+        return result;
+    }
+
+    /**
+     * @return The same value as {@link String#hashCode()} would for the characters of <var>cs</var>
+     */
+    private static int
+    hash(CharSequence cs) {
+        int result = 0;
+        for (int i = 0, length = cs.length(); i < length; i++) result = 31 * result + cs.charAt(i);
+        return result;
+    }
+
+    private static boolean
+    regionEquals(String s, CharSequence cs) {
+        for (int i = s.length() - 1; i >= 0; i--) {
+            if (s.charAt(i) != cs.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int
+    spread(int hashCode) { return hashCode ^ (hashCode >>> 7); }
+
     private TokenType
     scanNumericLiteral() throws CompileException, IOException {
 
@@ -775,11 +952,30 @@ class Scanner {
     private int
     internalRead() throws IOException, CompileException {
 
-        int result;
-        try {
-            result = this.in.read();
-        } catch (UnicodeUnescapeException ex) {
-            throw new CompileException(ex.getMessage(), this.location(), ex);
+        int          result;
+        CharSequence source = this.source;
+        if (source != null) {
+            result = this.sourceOffset < source.length() ? (int) source.charAt(this.sourceOffset++) : -1;
+        } else
+        if (this.bufferOffset < this.bufferLimit) {
+            result = this.buffer[this.bufferOffset++];
+        } else
+        {
+
+            // Read from the UnicodeUnescapeReader in chunks, which is much faster than char by char.
+            if (this.buffer.length == 0) this.buffer = new char[4096];
+            try {
+                int n = this.in.read(this.buffer);
+                if (n <= 0) {
+                    result = -1;
+                } else {
+                    result            = this.buffer[0];
+                    this.bufferOffset = 1;
+                    this.bufferLimit  = n;
+                }
+            } catch (UnicodeUnescapeException ex) {
+                throw new CompileException(ex.getMessage(), this.location(), ex);
+            }
         }
         if (result == '\r') {
             ++this.nextCharLineNumber;
@@ -808,6 +1004,19 @@ class Scanner {
 
     @Nullable private final String fileName;
     private final Reader           in;
+
+    /**
+     * Iff not {@code null}, then characters are read from here instead of from {@link #in}.
+     */
+    @Nullable private final CharSequence source;
+    private int                          sourceOffset;
+
+    /**
+     * Characters that were read from {@link #in}, but not yet scanned. Allocated on the first read.
+     */
+    private char[] buffer = new char[0];
+    private int    bufferOffset, bufferLimit;
+
     private boolean                ignoreWhiteSpace;
     private int                    nextChar       = -1;
     private int                    nextButOneChar = -1;
@@ -826,40 +1035,40 @@ class Scanner {
      */
     private int tokenColumnNumber;
 
-    private static final Set<String> JAVA_KEYWORDS = new HashSet<>(Arrays.asList(
-
-        // SUPPRESS CHECKSTYLE WrapMethod:16
-
-        "abstract", "assert",
-        "boolean", "break", "byte",
-        "case", "catch", "char", "class", "const", "continue",
-        "default", "do", "double",
-        "else", "enum", "extends",
-        "final", "finally", "float", "for",
-        "goto",
-        "if", "implements", "import", "instanceof", "int", "interface",
-        "long",
-        "native", "new",
-        "package", "private", "protected", "public",
-        "return",
-        "short", "static", "strictfp", "super", "switch", "synchronized",
-        "this", "throw", "throws", "transient", "try",
-        "void", "volatile",
-        "while"
-    ));
-
-    private static final Set<String> JAVA_OPERATORS = new HashSet<>(Arrays.asList(
-
-        // SUPPRESS CHECKSTYLE WrapMethod:9
-
-        // Separators:
-        "(", ")", "{", "}", "[", "]", ";", ",", ".", "@",
-        "::",                                                                // <= Since Java 9
-
-        // Operators:
-        "=",  ">",  "<",  "!",  "~",  "?",  ":",  "->",
-        "==", "<=", ">=", "!=", "&&", "||", "++", "--",
-        "+",  "-",  "*",  "/",  "&",  "|",  "^",  "%",  "<<",  ">>",  ">>>",
-        "+=", "-=", "*=", "/=", "&=", "|=", "^=", "%=", "<<=", ">>=", ">>>=" // SUPPRESS CHECKSTYLE Wrap
-    ));
+    /**
+     * Open-addressing hash table of all keywords, plus "true", "false" and "null"; see {@link
+     * #findKeyword(CharSequence, int)}. The length is a power of two.
+     */
+    private static final String[] KEYWORDS = new String[256];
+    static {
+        String[] keywords = {
+
+            // SUPPRESS CHECKSTYLE WrapMethod:16
+
+            "abstract", "assert",
+            "boolean", "break", "byte",
+            "case", "catch", "char", "class", "const", "continue",
+            "default", "do", "double",
+            "else", "enum", "extends",
+            "final", "finally", "float", "for",
+            "goto",
+            "if", "implements", "import", "instanceof", "int", "interface",
+            "long",
+            "native", "new",
+            "package", "private", "protected", "public",
+            "return",
+            "short", "static", "strictfp", "super", "switch", "synchronized",
+            "this", "throw", "throws", "transient", "try",
+            "void", "volatile",
+            "while",
+            "true", "false", "null",
+        };
+
+        int mask = Scanner.KEYWORDS.length - 1;
+        for (String keyword : keywords) {
+            int i = Scanner.spread(keyword.hashCode()) & mask;
+            while (Scanner.KEYWORDS[i] != null) i = (i + 1) & mask;
+            Scanner.KEYWORDS[i] = keyword;
+        }
+    }
 }
@@ -28,7 +28,6 @@ package org.codehaus.janino;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -50,6 +49,7 @@ import org.codehaus.commons.compiler.InternalCompilerException;
 import org.codehaus.commons.compiler.Location;
 import org.codehaus.commons.compiler.MultiCookable;
 import org.codehaus.commons.compiler.WarningHandler;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
 import org.codehaus.commons.nullanalysis.Nullable;
 import org.codehaus.janino.Java.AbstractClassDeclaration;
 import org.codehaus.janino.Java.AbstractCompilationUnit.ImportDeclaration;
@@ -90,6 +90,7 @@ class ScriptEvaluator extends MultiCookable implements IScriptEvaluator {
     private int                      sourceVersion = -1;
     @Nullable private WarningHandler warningHandler;
     private final ClassBodyEvaluator cbe           = new ClassBodyEvaluator();
+    @Nullable private BytecodeCache  bytecodeCache;
 
     /**
      * Represents one script that this {@link ScriptEvaluator} declares. Typically there exactly <em>one</em> such
@@ -180,6 +181,12 @@ class ScriptEvaluator extends MultiCookable implements IScriptEvaluator {
         return this;
     }
 
+    /**
+     * @see SimpleCompiler#setBytecodeCache(BytecodeCache)
+     */
+    public void
+    setBytecodeCache(@Nullable BytecodeCache bytecodeCache) { this.bytecodeCache = bytecodeCache; }
+
     /**
      * @throws IllegalArgumentException <var>count</var> is different from previous invocations of
      *                                  this method
@@ -615,7 +622,7 @@ class ScriptEvaluator extends MultiCookable implements IScriptEvaluator {
 
     @Override public void
     cook(@Nullable String fileName, Reader reader) throws CompileException, IOException {
-        this.cook(new Scanner(fileName, reader));
+        this.cook(new String[] { fileName }, new Reader[] { reader });
     }
 
     /**
@@ -634,12 +641,63 @@ class ScriptEvaluator extends MultiCookable implements IScriptEvaluator {
         this.setScriptCount(fileNames.length);
         this.setScriptCount(readers.length);
 
+        BytecodeCache bc  = this.bytecodeCache;
+        String        key = null;
+        if (bc != null) {
+            String[] texts = BytecodeCache.readAll(readers);
+
+            List<Object> keyComponents = new ArrayList<>();
+            keyComponents.add(ScriptEvaluator.class);
+            keyComponents.add(fileNames);
+            keyComponents.add(texts);
+            this.addCacheKeyComponents(keyComponents);
+            key = BytecodeCache.key(keyComponents.toArray());
+
+            Map<String, byte[]> bytecodes = bc.get(key);
+            if (bytecodes != null) {
+                this.cookBytecodes(bytecodes);
+                return;
+            }
+
+            readers = BytecodeCache.stringReaders(texts);
+        }
+
         Scanner[] scanners = new Scanner[readers.length];
         for (int i = 0; i < readers.length; ++i) scanners[i] = new Scanner(fileNames[i], readers[i]);
 
         this.cook(scanners);
+
+        if (bc != null) {
+            assert key != null;
+            bc.put(key, this.getBytecodes());
+        }
+    }
+
+    /**
+     * @see SimpleCompiler#addCacheKeyComponents(List)
+     */
+    void
+    addCacheKeyComponents(List<Object> result) {
+        result.add(this.defaultReturnType);
+        assert this.scripts != null;
+        for (Script script : this.scripts) {
+            result.add(script.overrideMethod);
+            result.add(script.staticMethod);
+            result.add(script.returnType);
+            result.add(script.methodName);
+            result.add(script.parameterNames);
+            result.add(script.parameterTypes);
+            result.add(script.thrownExceptions);
+        }
+        this.cbe.addCacheKeyComponents(result);
     }
 
+    /**
+     * @see SimpleCompiler#cookBytecodes(Map)
+     */
+    void
+    cookBytecodes(Map<String /*className*/, byte[] /*bytecode*/> bytecodes) { this.cbe.cookBytecodes(bytecodes); }
+
     /**
      * Cooks a <em>set</em> of scripts into one class.
      * Notice that if <em>any</em> of the scripts causes trouble, the entire compilation will fail.
@@ -727,6 +785,36 @@ class ScriptEvaluator extends MultiCookable implements IScriptEvaluator {
         );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override public CompileException[]
+    checkSyntax(String... scripts) {
+
+        CompileException[] result = new CompileException[scripts.length];
+        for (int i = 0; i < scripts.length; i++) {
+            try {
+                Parser parser = new Parser(new Scanner(null, new CharSequenceReader(scripts[i])));
+                parser.setSourceVersion(this.sourceVersion);
+                parser.setWarningHandler(this.warningHandler);
+
+                if (scripts.length == 1) {
+                    while (parser.peek("import")) parser.parseImportDeclaration();
+                }
+
+                this.makeStatements(i, parser, new ArrayList<BlockStatement>(), new ArrayList<MethodDeclarator>());
+            } catch (CompileException ce) {
+                result[i] = ce;
+            } catch (IOException ioe) {
+                throw new InternalCompilerException("SNO: CharSequenceReader throws IOException", ioe);
+            } catch (StackOverflowError soe) {
+                result[i] = new CompileException("Script is nested too deeply", null, soe);
+            }
+        }
+
+        return result;
+    }
+
     void
     cook(
         @Nullable String          fileName,
@@ -1234,12 +1322,12 @@ class ScriptEvaluator extends MultiCookable implements IScriptEvaluator {
     createFastEvaluator(String script, Class<T> interfaceToImplement, String[] parameterNames) throws CompileException {
         try {
             return this.createFastEvaluator(
-                new StringReader(script),
+                new CharSequenceReader(script),
                 interfaceToImplement,
                 parameterNames
             );
         } catch (IOException ex) {
-            throw new InternalCompilerException("IOException despite StringReader", ex);
+            throw new InternalCompilerException("IOException despite CharSequenceReader", ex);
         }
     }
 
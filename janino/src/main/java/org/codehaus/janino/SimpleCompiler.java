@@ -25,6 +25,7 @@
 
 package org.codehaus.janino;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -37,6 +38,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -47,6 +49,7 @@ import org.codehaus.commons.compiler.ISimpleCompiler;
 import org.codehaus.commons.compiler.InternalCompilerException;
 import org.codehaus.commons.compiler.Location;
 import org.codehaus.commons.compiler.WarningHandler;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
 import org.codehaus.commons.compiler.util.Disassembler;
 import org.codehaus.commons.compiler.util.SystemProperties;
 import org.codehaus.commons.compiler.util.reflect.ByteArrayClassLoader;
@@ -86,8 +89,10 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
 
     private EnumSet<JaninoOption> options = EnumSet.noneOf(JaninoOption.class);
 
+    @Nullable private BytecodeCache bytecodeCache;
+
     /**
-     * {@code Null} before cooking, non-{@code null} after cooking.
+     * {@code Null} before cooking, non-{@code null} after cooking (computed lazily after {@link #cookBytecodes(Map)}).
      */
     @Nullable private Collection<ClassFile> classFiles;
 
@@ -210,13 +215,72 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
         this.debugVars   = debugVars;
     }
 
+    /**
+     * If non-{@code null}, then {@link #cook(String, Reader)} (and all the other {@code cook()} methods that read
+     * source code from strings, streams, readers and files) first look up the generated bytecode in the given
+     * <var>bytecodeCache</var>, and, on a cache miss, store the generated bytecode there.
+     */
+    public void
+    setBytecodeCache(@Nullable BytecodeCache bytecodeCache) { this.bytecodeCache = bytecodeCache; }
+
     /**
      * Scans, parses and compiles a given compilation unit from the given {@link Reader}. After completion, {@link
      * #getClassLoader()} returns a {@link ClassLoader} that allows for access to the compiled classes.
+     *
+     * @see #setBytecodeCache(BytecodeCache)
      */
     @Override public final void
     cook(@Nullable String fileName, Reader r) throws CompileException, IOException {
-        this.cook(new Scanner(fileName, r));
+
+        BytecodeCache bc = this.bytecodeCache;
+        if (bc == null) {
+            this.cook(new Scanner(fileName, r));
+            return;
+        }
+
+        String text = BytecodeCache.readAll(new Reader[] { r })[0];
+
+        List<Object> keyComponents = new ArrayList<>();
+        keyComponents.add(SimpleCompiler.class);
+        keyComponents.add(fileName);
+        keyComponents.add(text);
+        this.addCacheKeyComponents(keyComponents);
+        String key = BytecodeCache.key(keyComponents.toArray());
+
+        Map<String, byte[]> bytecodes = bc.get(key);
+        if (bytecodes != null) {
+            this.cookBytecodes(bytecodes);
+            return;
+        }
+
+        this.cook(new Scanner(fileName, new CharSequenceReader(text)));
+        bc.put(key, this.getBytecodes());
+    }
+
+    /**
+     * Adds all configuration settings that affect the generated bytecode to the <var>result</var>.
+     *
+     * @see BytecodeCache#key(Object[])
+     */
+    void
+    addCacheKeyComponents(List<Object> result) {
+        result.add(System.getProperty("java.specification.version"));
+        result.add(SystemProperties.getClassProperty(UnitCompiler.class, "defaultTargetVersion"));
+        result.add(this.debugSource);
+        result.add(this.debugLines);
+        result.add(this.debugVars);
+        result.add(this.sourceVersion);
+        result.add(this.targetVersion);
+        result.add(this.options);
+    }
+
+    /**
+     * Instead of compiling anything, "cooks" this {@link SimpleCompiler} from previously generated bytecodes.
+     */
+    void
+    cookBytecodes(Map<String /*className*/, byte[] /*bytecode*/> bytecodes) {
+        this.assertUncooked();
+        this.getBytecodesCache = bytecodes;
     }
 
     /**
@@ -238,6 +302,7 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
         Parser parser = new Parser(scanner);
         parser.setSourceVersion(this.sourceVersion);
         parser.setWarningHandler(this.warningHandler);
+        if (this.options.contains(JaninoOption.COMPACT_AST)) parser.setNameTable(new NameTable());
 
         AbstractCompilationUnit acu;
         try {
@@ -532,7 +597,9 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
      */
     private void
     assertUncooked() {
-        if (this.classFiles != null) throw new IllegalStateException("Must only be called before \"cook()\"");
+        if (this.classFiles != null || this.getBytecodesCache != null) {
+            throw new IllegalStateException("Must only be called before \"cook()\"");
+        }
     }
 
     /**
@@ -544,8 +611,21 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
     assertCooked() {
 
         Collection<ClassFile> result = this.classFiles;
-        if (result == null) throw new IllegalStateException("Must only be called after \"cook()\"");
+        if (result != null) return result;
+
+        // Was this SimpleCompiler "cooked" from cached bytecodes?
+        Map<String, byte[]> bytecodes = this.getBytecodesCache;
+        if (bytecodes == null) throw new IllegalStateException("Must only be called after \"cook()\"");
+
+        result = new ArrayList<>();
+        for (byte[] bytecode : bytecodes.values()) {
+            try {
+                result.add(new ClassFile(new ByteArrayInputStream(bytecode)));
+            } catch (IOException ioe) {
+                throw new InternalCompilerException("Reading cached class file", ioe);
+            }
+        }
 
-        return result;
+        return (this.classFiles = result);
     }
 }
@@ -34,14 +34,22 @@ import org.codehaus.janino.util.ClassFile.StackMapTableAttribute.VerificationTyp
 class StackMap {
 
     /**
-     * Elements are never changed. Notice that, according to the JVMS, each local variable or operend, including those
-     * of type LONG and DOUBLE, is represented by <em>one</em> {@link VerificationTypeInfo} object
+     * The local variable stack and the operand stack, represented as persistent (immutable) linked lists, so that
+     * the many {@link StackMap}s of a method share their common bottom elements, and pushing or popping an element
+     * takes constant time and memory. Notice that, according to the JVMS, each local variable or operend, including
+     * those of type LONG and DOUBLE, is represented by <em>one</em> {@link VerificationTypeInfo} object.
      */
-    private final VerificationTypeInfo[] locals, operands;
+    @Nullable private final Element locals, operands;
 
     StackMap(VerificationTypeInfo[] locals, VerificationTypeInfo[] operands) {
-        this.locals    = (VerificationTypeInfo[]) locals.clone();
-        this.operands  = (VerificationTypeInfo[]) operands.clone();
+        this.locals   = StackMap.toElements(locals);
+        this.operands = StackMap.toElements(operands);
+    }
+
+    private
+    StackMap(@Nullable Element locals, @Nullable Element operands) {
+        this.locals   = locals;
+        this.operands = operands;
     }
 
     // -----------------------
@@ -52,23 +60,59 @@ class StackMap {
      */
     StackMap
     pushLocal(VerificationTypeInfo local) {
-        return new StackMap(StackMap.addToArray(this.locals, local), this.operands);
+        return new StackMap(new Element(local, this.locals), this.operands);
     }
 
     /**
      * @return A {@link StackMap} with a local variable stack with one element less, and the same operand stack
      */
     StackMap
-    popLocal() { return new StackMap(StackMap.removeLastFromArray(this.locals), this.operands); }
+    popLocal() {
+        Element l = this.locals;
+        if (l == null) throw new InternalCompilerException("Local variable stack underflow");
+        return new StackMap(l.next, this.operands);
+    }
 
     /**
      * @return The top element of the local variable stack
      */
     VerificationTypeInfo
-    peekLocal() { return this.locals[this.locals.length - 1]; }
+    peekLocal() {
+        Element l = this.locals;
+        if (l == null) throw new InternalCompilerException("Local variable stack underflow");
+        return l.value;
+    }
 
     VerificationTypeInfo[]
-    locals() { return (VerificationTypeInfo[]) this.locals.clone(); }
+    locals() { return StackMap.toArray(this.locals); }
+
+    /**
+     * @param lvIndex The index of a local variable (LONG and DOUBLE local variables occupy two indexes)
+     * @return        The element of the local variable stack that represents the local variable with index
+     *                <var>lvIndex</var>, or {@code null} iff there is no such element
+     */
+    @Nullable VerificationTypeInfo
+    getLocal(int lvIndex) {
+        for (Element l = this.locals; l != null; l = l.next) {
+            int i = l.size - l.value.category();
+            if (i == lvIndex) return l.value;
+            if (i < lvIndex) break;
+        }
+        return null;
+    }
+
+    /**
+     * @return The number of elements of the local variable stack; equivalent with, but much faster than {@code
+     *         locals().length}
+     */
+    int
+    localsCount() { return StackMap.count(this.locals); }
+
+    /**
+     * @return A {@link StackMap} with the given local variable stack, and the same operand stack
+     */
+    StackMap
+    withLocals(VerificationTypeInfo[] locals) { return new StackMap(StackMap.toElements(locals), this.operands); }
 
     // -----------------------
 
@@ -78,62 +122,128 @@ class StackMap {
      */
     StackMap
     pushOperand(VerificationTypeInfo operand) {
-        return new StackMap(this.locals, StackMap.addToArray(this.operands, operand));
+        return new StackMap(this.locals, new Element(operand, this.operands));
     }
 
     /**
      * @return A {@link StackMap} with the same local variable stack, and an operand stack with one element less
      */
     StackMap
-    popOperand() { return new StackMap(this.locals, StackMap.removeLastFromArray(this.operands)); }
+    popOperand() {
+        Element o = this.operands;
+        if (o == null) throw new InternalCompilerException("Operand stack underflow");
+        return new StackMap(this.locals, o.next);
+    }
 
     /**
      * @return The top element of the operand stack
      */
     VerificationTypeInfo
     peekOperand() {
-        if (this.operands.length == 0) throw new InternalCompilerException("Operand stack underflow");
-        return this.operands[this.operands.length - 1];
+        Element o = this.operands;
+        if (o == null) throw new InternalCompilerException("Operand stack underflow");
+        return o.value;
     }
 
     VerificationTypeInfo[]
-    operands() { return (VerificationTypeInfo[]) this.operands.clone(); }
+    operands() { return StackMap.toArray(this.operands); }
 
-    // -----------------------
+    /**
+     * @return The number of elements of the operand stack; equivalent with, but much faster than {@code
+     *         operands().length}
+     */
+    int
+    operandsCount() { return StackMap.count(this.operands); }
 
-    private static VerificationTypeInfo[]
-    addToArray(VerificationTypeInfo[] original, VerificationTypeInfo value) {
-        int                    l      = original.length;
-        VerificationTypeInfo[] result = new VerificationTypeInfo[l + 1];
+    /**
+     * @return The size of the operand stack in JVM words, i.e. LONG and DOUBLE operands count twice
+     */
+    int
+    operandsSize() {
+        Element o = this.operands;
+        return o == null ? 0 : o.size;
+    }
+
+    /**
+     * @return Whether the operand stacks of this and <var>that</var> {@link StackMap} are equal
+     */
+    boolean
+    operandsEqual(StackMap that) { return StackMap.equals(this.operands, that.operands); }
+
+    // -----------------------
 
-        int i;
-        for (i = 0; i < l; i++) result[i] = original[i];
-        result[i] = value;
+    /**
+     * One element of a persistent stack. Elements are never changed.
+     */
+    private static final
+    class Element {
+
+        final VerificationTypeInfo value;
+        @Nullable final Element    next;
+
+        /**
+         * The number of elements from this one to the bottom of the stack.
+         */
+        final int count;
+
+        /**
+         * The sum of the {@link VerificationTypeInfo#category() categories} of the elements from this one to the
+         * bottom of the stack.
+         */
+        final int size;
+
+        Element(VerificationTypeInfo value, @Nullable Element next) {
+            this.value = value;
+            this.next  = next;
+            this.count = next == null ? 1 : next.count + 1;
+            this.size  = next == null ? value.category() : next.size + value.category();
+        }
+    }
 
+    @Nullable private static Element
+    toElements(VerificationTypeInfo[] values) {
+        Element result = null;
+        for (VerificationTypeInfo value : values) result = new Element(value, result);
         return result;
     }
 
     private static VerificationTypeInfo[]
-    removeLastFromArray(VerificationTypeInfo[] original) {
-        int                    l      = original.length - 1;
-        VerificationTypeInfo[] result = new VerificationTypeInfo[l];
+    toArray(@Nullable Element e) {
+        VerificationTypeInfo[] result = new VerificationTypeInfo[StackMap.count(e)];
+        for (int i = result.length - 1; i >= 0; i--) {
+            assert e != null;
+            result[i] = e.value;
+            e         = e.next;
+        }
+        return result;
+    }
 
-        for (int i = 0; i < l; i++) result[i] = original[i];
+    private static int
+    count(@Nullable Element e) { return e == null ? 0 : e.count; }
 
-        return result;
+    private static boolean
+    equals(@Nullable Element e1, @Nullable Element e2) {
+
+        // Stacks are mostly derived from each other, so chances are good that they share their bottom elements.
+        for (; e1 != e2; e1 = e1.next, e2 = e2.next) {
+            if (e1 == null || e2 == null || e1.count != e2.count || !e1.value.equals(e2.value)) return false;
+        }
+        return true;
     }
 
     @Override public String
-    toString() { return "locals=" + Arrays.toString(this.locals) + ", stack=" + Arrays.toString(this.operands); }
+    toString() {
+        return "locals=" + Arrays.toString(this.locals()) + ", stack=" + Arrays.toString(this.operands());
+    }
 
     @Override public int
-    hashCode() { return Arrays.hashCode(this.locals) ^ Arrays.hashCode(this.operands); }
+    hashCode() { return Arrays.hashCode(this.locals()) ^ Arrays.hashCode(this.operands()); }
 
     @Override public boolean
     equals(@Nullable Object obj) {
         if (obj == this) return true;
         if (!(obj instanceof StackMap)) return false;
         StackMap that = (StackMap) obj;
-        return Arrays.equals(this.locals, that.locals) && Arrays.equals(this.operands, that.operands);
+        return StackMap.equals(this.locals, that.locals) && StackMap.equals(this.operands, that.operands);
     }
 }
@@ -0,0 +1,295 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2016 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.Location;
+import org.codehaus.commons.nullanalysis.Nullable;
+
+/**
+ * The tokens of a compilation unit (or an expression, or a script, ...) in a compact binary form, as produced by a
+ * {@link Scanner}. Replaying a recording into a {@link Parser} separates the cost of parsing from the cost of
+ * scanning, and saves the scanning altogether where the same source is parsed again and again.
+ * <p>
+ *   White space and comments are not recorded, because the {@link TokenStreamImpl} discards them anyway.
+ * </p>
+ * <p>
+ *   Example:
+ * </p>
+ * <pre>
+ *   TokenRecording tr = TokenRecording.record(new Scanner(fileName, reader));
+ *   byte[] ba = tr.toByteArray(); // E.g. for caching.
+ *   ...
+ *   Java.AbstractCompilationUnit acu = TokenRecording.fromByteArray(ba).newParser().parseAbstractCompilationUnit();
+ * </pre>
+ */
+public final
+class TokenRecording {
+
+    /**
+     * The first byte of each {@link #toByteArray() binary form}; changes whenever the binary format changes.
+     */
+    private static final byte FORMAT_VERSION = 1;
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    /**
+     * The binary form of the recording:
+     * <pre>
+     *   recording := FORMAT_VERSION string(file-name) { token }
+     *   token     := byte(type) signed(line-number-delta) signed(column-number) string-ref(value)
+     * </pre>
+     * The last token is always the {@link TokenType#END_OF_INPUT} token. A <em>string</em> is an unsigned (length+1),
+     * or 0 for {@code null}, followed by the characters as unsigned numbers. A <em>string-ref</em> is the index of a
+     * string in the table of strings recorded so far, where an index equal to the current size of that table
+     * introduces a new string, which follows. Numbers are stored with seven bits per byte; <em>signed</em> numbers are
+     * zig-zag-encoded first.
+     */
+    private final byte[] bytes;
+
+    private
+    TokenRecording(byte[] bytes) { this.bytes = bytes; }
+
+    /**
+     * Reads all tokens from the <var>scanner</var>, up to and including the {@link TokenType#END_OF_INPUT} token, and
+     * records them.
+     */
+    public static TokenRecording
+    record(Scanner scanner) throws CompileException, IOException {
+
+        scanner.setIgnoreWhiteSpace(true);
+
+        Encoder              e       = new Encoder();
+        Map<String, Integer> strings = new HashMap<String, Integer>();
+
+        e.writeByte(TokenRecording.FORMAT_VERSION);
+        e.writeString(scanner.getFileName());
+
+        int previousLineNumber = 0;
+        for (;;) {
+            Token t = scanner.produce();
+
+            if (
+                t.type == TokenType.WHITE_SPACE
+                || t.type == TokenType.C_PLUS_PLUS_STYLE_COMMENT
+                || t.type == TokenType.C_STYLE_COMMENT
+            ) continue;
+
+            Location location = t.getLocation();
+
+            e.writeByte(t.type.ordinal());
+            e.writeSigned(location.getLineNumber() - previousLineNumber);
+            e.writeSigned(location.getColumnNumber());
+
+            Integer index = (Integer) strings.get(t.value);
+            if (index != null) {
+                e.writeUnsigned(index);
+            } else {
+                e.writeUnsigned(strings.size());
+                e.writeString(t.value);
+                strings.put(t.value, strings.size());
+            }
+
+            if (t.type == TokenType.END_OF_INPUT) break;
+
+            previousLineNumber = location.getLineNumber();
+        }
+
+        return new TokenRecording(e.toByteArray());
+    }
+
+    /**
+     * Restores a recording from its {@link #toByteArray() binary form}.
+     *
+     * @throws IllegalArgumentException <var>ba</var> is not the binary form of a recording of this version of JANINO
+     */
+    public static TokenRecording
+    fromByteArray(byte[] ba) {
+
+        if (ba.length == 0 || ba[0] != TokenRecording.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported token recording format");
+        }
+
+        return new TokenRecording((byte[]) ba.clone());
+    }
+
+    /**
+     * @return The binary form of this recording, e.g. for caching or storing it
+     * @see    #fromByteArray(byte[])
+     */
+    public byte[]
+    toByteArray() { return (byte[]) this.bytes.clone(); }
+
+    /**
+     * @return A new {@link TokenSource} that produces the recorded tokens; after the {@link TokenType#END_OF_INPUT}
+     *         token, it produces that token again and again (like the {@link Scanner} does)
+     */
+    public TokenSource
+    replay() { return new Replayer(); }
+
+    /**
+     * @return A new {@link Parser} that parses the recorded tokens
+     */
+    public Parser
+    newParser() throws IOException {
+        Replayer r = new Replayer();
+
+        // The scanner only provides the file name; it is never asked to produce any tokens.
+        return new Parser(new Scanner(r.fileName, new StringReader("")), new TokenStreamImpl(r));
+    }
+
+    private
+    class Replayer implements TokenSource {
+
+        @Nullable final String fileName;
+
+        private int                pos;
+        private final List<String> strings = new ArrayList<String>();
+        private int                previousLineNumber;
+        @Nullable private Token    previousToken;
+
+        Replayer() {
+            this.pos      = 1; // Skip the FORMAT_VERSION.
+            this.fileName = this.readString();
+        }
+
+        @Override public Token
+        produce() {
+
+            Token t = this.previousToken;
+            if (t != null && t.type == TokenType.END_OF_INPUT) return t;
+
+            TokenType type         = TokenRecording.TOKEN_TYPES[TokenRecording.this.bytes[this.pos++]];
+            int       lineNumber   = this.previousLineNumber + this.readSigned();
+            int       columnNumber = this.readSigned();
+
+            String value;
+            int    index = this.readUnsigned();
+            if (index < this.strings.size()) {
+                value = (String) this.strings.get(index);
+            } else {
+                value = this.readString();
+                assert value != null;
+
+                // Like the scanner, produce string constants for keywords, operators and the like, so that they can
+                // be reference-compared.
+                if (
+                    type == TokenType.KEYWORD
+                    || type == TokenType.OPERATOR
+                    || type == TokenType.BOOLEAN_LITERAL
+                    || type == TokenType.NULL_LITERAL
+                    || type == TokenType.END_OF_INPUT
+                ) value = value.intern();
+
+                this.strings.add(value);
+            }
+
+            this.previousLineNumber = lineNumber;
+            return (this.previousToken = new Token(this.fileName, lineNumber, columnNumber, type, value));
+        }
+
+        @Override public Location
+        location() {
+            Token t = this.previousToken;
+            return t != null ? t.getLocation() : new Location(this.fileName, 0, 0);
+        }
+
+        private int
+        readUnsigned() {
+            byte[] ba     = TokenRecording.this.bytes;
+            int    result = 0;
+            for (int shift = 0;; shift += 7) {
+                byte b = ba[this.pos++];
+                result |= (b & 0x7f) << shift;
+                if (b >= 0) return result;
+            }
+        }
+
+        private int
+        readSigned() {
+            int u = this.readUnsigned();
+            return (u >>> 1) ^ -(u & 1);
+        }
+
+        @Nullable private String
+        readString() {
+            int length = this.readUnsigned() - 1;
+            if (length == -1) return null;
+
+            char[] ca = new char[length];
+            for (int i = 0; i < length; i++) ca[i] = (char) this.readUnsigned();
+            return new String(ca);
+        }
+    }
+
+    private static
+    class Encoder {
+
+        private byte[] buffer = new byte[1024];
+        private int    size;
+
+        void
+        writeByte(int b) {
+            if (this.size == this.buffer.length) this.buffer = Arrays.copyOf(this.buffer, this.size << 1);
+            this.buffer[this.size++] = (byte) b;
+        }
+
+        void
+        writeUnsigned(int value) {
+            while ((value & ~0x7f) != 0) {
+                this.writeByte(0x80 | (value & 0x7f));
+                value >>>= 7;
+            }
+            this.writeByte(value);
+        }
+
+        void
+        writeSigned(int value) { this.writeUnsigned((value << 1) ^ (value >> 31)); }
+
+        void
+        writeString(@Nullable String s) {
+
+            if (s == null) {
+                this.writeUnsigned(0);
+                return;
+            }
+
+            this.writeUnsigned(s.length() + 1);
+            for (int i = 0; i < s.length(); i++) this.writeUnsigned(s.charAt(i));
+        }
+
+        byte[]
+        toByteArray() { return Arrays.copyOf(this.buffer, this.size); }
+    }
+}
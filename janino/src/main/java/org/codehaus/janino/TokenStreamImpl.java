@@ -38,10 +38,20 @@ import org.codehaus.commons.nullanalysis.Nullable;
 public
 class TokenStreamImpl implements TokenStream {
 
-    private final Scanner scanner;
+    private final TokenSource source;
 
     public
-    TokenStreamImpl(Scanner scanner) { (this.scanner = scanner).setIgnoreWhiteSpace(true); }
+    TokenStreamImpl(Scanner scanner) {
+        this((TokenSource) scanner);
+        scanner.setIgnoreWhiteSpace(true);
+    }
+
+    /**
+     * Reads the tokens from an arbitrary {@link TokenSource}, e.g. a {@link TokenRecording#replay() replayed token
+     * recording}. White space and comment tokens are skipped.
+     */
+    public
+    TokenStreamImpl(TokenSource source) { this.source = source; }
 
     /**
      * The optional JAVADOC comment preceding the {@link #nextToken}.
@@ -52,7 +62,7 @@ class TokenStreamImpl implements TokenStream {
     produceToken() throws CompileException, IOException {
 
         for (;;) {
-            Token token = this.scanner.produce();
+            Token token = this.source.produce();
 
             switch (token.type) {
 
@@ -63,7 +73,7 @@ class TokenStreamImpl implements TokenStream {
             case C_STYLE_COMMENT:
                 if (token.value.startsWith("/**")) {
                     if (TokenStreamImpl.this.docComment != null) {
-                        TokenStreamImpl.this.warning("MDC", "Misplaced doc comment", this.scanner.location());
+                        TokenStreamImpl.this.warning("MDC", "Misplaced doc comment", this.source.location());
                         TokenStreamImpl.this.docComment = null;
                     }
                 }
@@ -307,7 +317,7 @@ class TokenStreamImpl implements TokenStream {
 
     @Override public Location
     location() {
-        return this.previousToken != null ? this.previousToken.getLocation() : this.scanner.location();
+        return this.previousToken != null ? this.previousToken.getLocation() : this.source.location();
     }
 
     private static int
@@ -335,7 +345,7 @@ class TokenStreamImpl implements TokenStream {
     @Nullable private WarningHandler warningHandler;
 
     @Override public String
-    toString() { return this.nextToken + "/" + this.nextButOneToken + "/" + this.scanner.location(); }
+    toString() { return this.nextToken + "/" + this.nextButOneToken + "/" + this.source.location(); }
 
     /**
      * Issues a warning with the given message and location and returns. This is done through
@@ -359,7 +369,7 @@ class TokenStreamImpl implements TokenStream {
      * Convenience method for throwing a {@link CompileException}.
      */
     protected final CompileException
-    compileException(String message) { return new CompileException(message, this.scanner.location()); }
+    compileException(String message) { return new CompileException(message, this.source.location()); }
 
     private static String
     join(@Nullable Object[] oa, String glue) {
@@ -57,7 +57,7 @@ class UnicodeUnescapeReader extends FilterReader {
 
         // Read next character.
         if (this.unreadChar == -1) {
-            c = this.in.read();
+            c = this.readRaw();
         } else {
             c               = this.unreadChar;
             this.unreadChar = -1;
@@ -71,7 +71,7 @@ class UnicodeUnescapeReader extends FilterReader {
         }
 
         // Read one character ahead and check if it is a "u".
-        c = this.in.read();
+        c = this.readRaw();
         if (c != 'u') {
             this.unreadChar              = c;
             this.oddPrecedingBackslashes = true;
@@ -80,14 +80,17 @@ class UnicodeUnescapeReader extends FilterReader {
 
         // Skip redundant "u"s.
         do {
-            c = this.in.read();
+            c = this.readRaw();
             if (c == -1) throw new UnicodeUnescapeException("Incomplete escape sequence");
         } while (c == 'u');
 
         // Decode escape sequence.
         char[] ca = new char[4];
         ca[0] = (char) c;
-        if (this.in.read(ca, 1, 3) != 3) throw new UnicodeUnescapeException("Incomplete escape sequence");
+        for (int i = 1; i < 4; i++) {
+            if ((c = this.readRaw()) == -1) throw new UnicodeUnescapeException("Incomplete escape sequence");
+            ca[i] = (char) c;
+        }
         try {
             return Integer.parseInt(new String(ca), 16);
         } catch (NumberFormatException ex) {
@@ -96,19 +99,133 @@ class UnicodeUnescapeReader extends FilterReader {
     }
 
     /**
-     * Overrides {@link FilterReader#read(char[], int, int)}.
+     * Overrides {@link FilterReader#read(char[], int, int)}. Reads a chunk of characters from the underlying reader
+     * in one go, and, iff the chunk contains no backslash (which is the normal case), returns it as is. Otherwise
+     * returns only the characters before the first backslash, or, iff the chunk starts with a backslash, the
+     * character that {@link #read()} produces.
+     *
+     * @throws UnicodeUnescapeException Invalid escape sequence encountered
      */
     @Override public int
     read(@Nullable char[] cbuf, int off, int len) throws IOException {
         assert cbuf != null;
         if (len == 0) return 0;
-        int res = 0;
-        do {
-            int c = this.read();
-            if (c == -1) break;
-            cbuf[off++] = (char) c;
-        } while (++res < len);
-        return res == 0 ? -1 : res;
+
+        if (this.unreadChar == -1 && !this.oddPrecedingBackslashes) {
+
+            // Read a chunk of characters, either from the pushback buffer or from the underlying reader.
+            int n;
+            if (this.pushbackOffset < this.pushbackLimit) {
+                n = Math.min(len, this.pushbackLimit - this.pushbackOffset);
+                System.arraycopy(this.pushback, this.pushbackOffset, cbuf, off, n);
+                this.pushbackOffset += n;
+            } else {
+                n = this.in.read(cbuf, off, len);
+                if (n <= 0) return n;
+            }
+
+            int end = off + n;
+            for (int i = off; i < end; i++) {
+                if (cbuf[i] == '\\') {
+
+                    // Push back the characters from the backslash on, and return those before it.
+                    this.pushBack(cbuf, i, end - i);
+                    n = i - off;
+                    break;
+                }
+            }
+            if (n > 0) return n;
+        }
+
+        int c = this.read();
+        if (c == -1) return -1;
+        cbuf[off] = (char) c;
+        return 1;
+    }
+
+    private int
+    readRaw() throws IOException {
+        if (this.pushbackOffset < this.pushbackLimit) return this.pushback[this.pushbackOffset++];
+        return this.in.read();
+    }
+
+    /**
+     * Arranges for the given characters to be read again. They must either be the characters that were just read
+     * from the pushback buffer, or the pushback buffer must be empty.
+     */
+    private void
+    pushBack(char[] cbuf, int off, int len) {
+
+        if (this.pushbackOffset == this.pushbackLimit) {
+            if (this.pushback.length < len) this.pushback = new char[len];
+            System.arraycopy(cbuf, off, this.pushback, 0, len);
+            this.pushbackOffset = 0;
+            this.pushbackLimit  = len;
+        } else {
+            this.pushbackOffset -= len;
+        }
+    }
+
+    /**
+     * Unescapes all unicode escapes in the <var>cs</var> in one go, exactly like reading it through a {@link
+     * UnicodeUnescapeReader} would. Only the regions between the escapes are copied, and the search for escapes
+     * uses {@link String#indexOf(String, int)}, which is intrinsified by most JVMs.
+     *
+     * @return <var>cs</var> iff it contains no unicode escapes, or {@code null} iff it contains an invalid escape
+     *         sequence
+     */
+    @Nullable static CharSequence
+    unescape(CharSequence cs) {
+
+        int           length = cs.length();
+        StringBuilder result = null;
+        int           copied = 0; // Offset of the first char that is not yet copied to "result".
+
+        for (int i = 0;;) {
+            int idx = UnicodeUnescapeReader.indexOfBackslashU(cs, i);
+            if (idx == -1) break;
+
+            // The backslash is the start of an escape sequence iff it is preceded by an even number of backslashes.
+            // (Backslashes before "i" don't count, because they are part of the previous escape sequence.)
+            int b = idx;
+            while (b > i && cs.charAt(b - 1) == '\\') b--;
+            if ((idx - b) % 2 != 0) {
+                i = idx + 1;
+                continue;
+            }
+
+            // Skip redundant "u"s.
+            int j = idx + 2;
+            while (j < length && cs.charAt(j) == 'u') j++;
+            if (j + 4 > length) return null;
+
+            int c = 0;
+            for (int k = j; k < j + 4; k++) {
+                int d = Character.digit(cs.charAt(k), 16);
+                if (d == -1) return null;
+                c = (c << 4) + d;
+            }
+
+            if (result == null) result = new StringBuilder(length);
+            result.append(cs, copied, idx).append((char) c);
+            i = copied = j + 4;
+        }
+
+        return result == null ? cs : result.append(cs, copied, length);
+    }
+
+    /**
+     * @return The index of the first backslash that is followed by a "u", at or after <var>fromIndex</var>, or -1
+     */
+    private static int
+    indexOfBackslashU(CharSequence cs, int fromIndex) {
+
+        if (cs instanceof String) return ((String) cs).indexOf("\\u", fromIndex);
+
+        for (int i = fromIndex, end = cs.length() - 1; i < end; i++) {
+            if (cs.charAt(i) == '\\' && cs.charAt(i + 1) == 'u') return i;
+        }
+        return -1;
     }
 
     /**
@@ -127,4 +244,10 @@ class UnicodeUnescapeReader extends FilterReader {
 
     private int     unreadChar = -1; // -1 == none
     private boolean oddPrecedingBackslashes;
+
+    /**
+     * Characters that were read from the underlying reader, but must be processed again.
+     */
+    private char[] pushback = new char[0];
+    private int    pushbackOffset, pushbackLimit;
 }
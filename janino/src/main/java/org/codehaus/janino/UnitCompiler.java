@@ -221,6 +221,7 @@ import org.codehaus.janino.Visitor.RvalueVisitor;
 import org.codehaus.janino.Visitor.TryStatementResourceVisitor;
 import org.codehaus.janino.Visitor.TypeDeclarationVisitor;
 import org.codehaus.janino.Visitor.TypeVisitor;
+import org.codehaus.janino.util.AbstractTraverser;
 import org.codehaus.janino.util.Annotatable;
 import org.codehaus.janino.util.ClassFile;
 import org.codehaus.janino.util.ClassFile.ClassFileException;
@@ -258,6 +259,16 @@ class UnitCompiler {
      */
     private static final int STRING_CONCAT_LIMIT = 3;
 
+    /**
+     * The maximum number of argument slots that {@code java.lang.invoke.StringConcatFactory} accepts.
+     */
+    private static final int MAX_STRING_CONCAT_FACTORY_ARGUMENT_SLOTS = 200;
+
+    private static final String MD_STRING_CONCAT_FACTORY__MAKE_CONCAT_WITH_CONSTANTS = (
+        "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;"
+        + "[Ljava/lang/Object;)Ljava/lang/invoke/CallSite;"
+    );
+
     /**
      * Special value for the <var>orientation</var> parameter of the {@link #compileBoolean(Java.Rvalue,
      * CodeContext.Offset, boolean)} methods, indicating that the code should be generated such that execution branches
@@ -1652,6 +1663,15 @@ class UnitCompiler {
 
     private boolean
     compileStatements(List<? extends BlockStatement> statements) throws CompileException {
+
+        // With debugging information for local variables, keep each variable until the end of its block, so that
+        // debuggers can show it.
+        Map<BlockStatement, List<VariableDeclarator>> deadLocalVariables = (
+            this.debugVars
+            ? null
+            : UnitCompiler.getDeadLocalVariables(statements)
+        );
+
         boolean previousStatementCanCompleteNormally = true;
         for (BlockStatement bs : statements) {
             if (!previousStatementCanCompleteNormally && this.generatesCode(bs)) {
@@ -1665,10 +1685,118 @@ class UnitCompiler {
             } catch (AssertionError ae) {
                 throw new InternalCompilerException(bs.getLocation(), null, ae);
             }
+
+            // Release the slots of the local variables that are not mentioned by any of the following statements.
+            if (deadLocalVariables != null) {
+                List<VariableDeclarator> vds = (List<VariableDeclarator>) deadLocalVariables.get(bs);
+                if (vds != null) {
+                    for (VariableDeclarator vd : vds) {
+                        LocalVariable lv = vd.localVariable;
+                        if (lv == null) continue;
+                        LocalVariableSlot slot = lv.slot;
+                        if (slot == null) continue;
+                        this.getCodeContext().releaseLocalVariable(
+                            slot,
+                            Descriptor.size(UnitCompiler.rawTypeOf(lv.type).getDescriptor())
+                        );
+                    }
+                }
+            }
         }
         return previousStatementCanCompleteNormally;
     }
 
+    /**
+     * Determines, for each local variable declared by the <var>statements</var>, the last statement that mentions
+     * the variable's name; after that statement, the variable is dead. (Even if the statements are executed again,
+     * e.g. as the body of a loop, the definite assignment rules (JLS8 16) guarantee that the variable is assigned
+     * before it is read.)
+     *
+     * @return The declarators of the local variables that die with each statement, or {@code null} if there are
+     *         none, or if a local class declaration makes the analysis impossible (its instances capture local
+     *         variables when they are created, i.e. possibly in a later statement)
+     */
+    @Nullable private static Map<BlockStatement, List<VariableDeclarator>>
+    getDeadLocalVariables(List<? extends BlockStatement> statements) {
+
+        if (statements.size() < 2) return null;
+
+        // The local variables whose last mention is not yet known.
+        final Map<String, VariableDeclarator> undecided = new HashMap<>();
+        for (BlockStatement bs : statements) {
+            if (bs instanceof LocalClassDeclarationStatement) return null;
+            if (bs instanceof LocalVariableDeclarationStatement) {
+                for (VariableDeclarator vd : ((LocalVariableDeclarationStatement) bs).variableDeclarators) {
+                    undecided.put(vd.name, vd);
+                }
+            }
+        }
+        if (undecided.isEmpty()) return null;
+
+        final Set<String> undecidedNames = undecided.keySet();
+
+        final Set<String> mentionedNames = new HashSet<>();
+
+        AbstractTraverser<RuntimeException> mentionFinder = new AbstractTraverser<RuntimeException>() {
+
+            @Override public void
+            traverseAmbiguousName(AmbiguousName an) {
+                if (undecidedNames.contains(an.identifiers[0])) mentionedNames.add(an.identifiers[0]);
+                super.traverseAmbiguousName(an);
+            }
+
+            // The inherited method traverses only the top-level node of an rvalue initializer.
+            @Override public void
+            traverseArrayInitializerOrRvalue(ArrayInitializerOrRvalue aiorv) {
+                if (aiorv instanceof Rvalue) {
+                    this.visitAtom((Rvalue) aiorv);
+                } else {
+                    super.traverseArrayInitializerOrRvalue(aiorv);
+                }
+            }
+
+            // Once all undecided names are mentioned, there is no need to look any deeper.
+            @Override public void
+            traverseBlock(Block b) {
+                if (mentionedNames.size() < undecidedNames.size()) super.traverseBlock(b);
+            }
+
+            // Local variable accesses have no name, and lambda bodies and method references are not traversed, so
+            // assume that these mention every local variable.
+
+            @Override public void
+            traverseLocalVariableAccess(LocalVariableAccess lva) { mentionedNames.addAll(undecidedNames); }
+
+            @Override public void
+            traverseLambdaExpression(LambdaExpression le) { mentionedNames.addAll(undecidedNames); }
+
+            @Override public void
+            traverseMethodReference(MethodReference mr) { mentionedNames.addAll(undecidedNames); }
+        };
+
+        // Scan the statements backwards, so that the first mention found is the last mention.
+        Map<BlockStatement, List<VariableDeclarator>> result = new HashMap<>();
+        for (int i = statements.size() - 1; i >= 0 && !undecidedNames.isEmpty(); i--) {
+            BlockStatement bs = (BlockStatement) statements.get(i);
+
+            mentionedNames.clear();
+            mentionFinder.visitBlockStatement(bs);
+            if (bs instanceof LocalVariableDeclarationStatement) {
+                for (VariableDeclarator vd : ((LocalVariableDeclarationStatement) bs).variableDeclarators) {
+                    if (undecidedNames.contains(vd.name)) mentionedNames.add(vd.name);
+                }
+            }
+
+            List<VariableDeclarator> vds = new ArrayList<>();
+            for (String name : mentionedNames) vds.add((VariableDeclarator) undecided.remove(name));
+
+            // The last statement needs no releases, because the enclosing scope ends right after it.
+            if (i < statements.size() - 1 && !vds.isEmpty()) result.put(bs, vds);
+        }
+
+        return result.isEmpty() ? null : result;
+    }
+
     private boolean
     compile2(DoStatement ds) throws CompileException {
         Object cvc = this.getConstantValue(ds.condition);
@@ -2086,8 +2214,22 @@ class UnitCompiler {
     private boolean
     compile2(SwitchStatement ss) throws CompileException {
 
-        SwitchKind kind;
-        short      ssvLvIndex = -1; // Only relevant if kind == STRING.
+        // The switch block is a scope (JLS8 6.3), so the slots of the local variables declared in the switch block
+        // statement groups can be reused after the SWITCH statement.
+        this.getCodeContext().saveLocalVariables();
+        try {
+            return this.compileSwitchStatement(ss);
+        } finally {
+            this.getCodeContext().restoreLocalVariables();
+        }
+    }
+
+    private boolean
+    compileSwitchStatement(SwitchStatement ss) throws CompileException {
+
+        SwitchKind                  kind;
+        @Nullable LocalVariableSlot ssvLv      = null; // Only relevant if kind == STRING.
+        short                       ssvLvIndex = -1;   // Only relevant if kind == STRING.
 
         StackMap smBeforeSwitch = this.codeContext.currentInserter().getStackMap();
 
@@ -2240,7 +2382,8 @@ class UnitCompiler {
             // on the string's hash code, we need to check for string equality with the CASE
             // labels.
             this.dup(ss);
-            ssvLvIndex = this.getCodeContext().allocateLocalVariable((short) 1);
+            ssvLv      = this.getCodeContext().allocateLocalVariable((short) 1, null, null);
+            ssvLvIndex = ssvLv.getSlotIndex();
             this.store(
                 ss,                                      // locatable
                 this.iClassLoader.TYPE_java_lang_String, // lvType
@@ -2326,6 +2469,10 @@ class UnitCompiler {
 
                 this.gotO(ss, defaultLabelOffset);
             }
+
+            // The hidden local variable is dead now; the statement groups may reuse its slot.
+            assert ssvLv != null;
+            this.getCodeContext().releaseLocalVariable(ssvLv, (short) 1);
         }
 
         // Compile statement groups.
@@ -3262,7 +3409,7 @@ class UnitCompiler {
         }
 
         boolean catchCcn = false; // "At least one catch clause can complete normally"
-        if (beginningOfBody.offset != afterBody.offset) { // Avoid zero-length exception table entries.
+        if (beginningOfBody.getOffset() != afterBody.getOffset()) { // Avoid zero-length exception table entries.
             for (int i = 0; i < tryStatement.catchClauses.size(); ++i) {
                 this.getCodeContext().currentInserter().setStackMap(smBeforeBody);
 
@@ -3677,6 +3824,7 @@ class UnitCompiler {
         if (this.compileErrorCount > 0) return;
 
         // Fix up and reallocate as needed.
+        if (this.options.contains(JaninoOption.PEEPHOLE_OPTIMIZATION)) codeContext.optimizeBranches();
         codeContext.fixUpAndRelocate();
         if (this.debugVars) {
             UnitCompiler.makeLocalVariableNames(codeContext, mi);
@@ -4507,6 +4655,38 @@ class UnitCompiler {
                 }
             }
 
+            // Comparison of an INT value with zero.
+            if (this.options.contains(JaninoOption.PEEPHOLE_OPTIMIZATION)) {
+                Rvalue operand = (
+                    UnitCompiler.isIntZero(this.getConstantValue(bo.rhs)) ? bo.lhs :
+                    UnitCompiler.isIntZero(this.getConstantValue(bo.lhs)) ? bo.rhs :
+                    null
+                );
+                if (operand != null) {
+                    IType operandType = this.getType(operand);
+                    IType unboxedType = this.getUnboxedType(operandType);
+                    if (
+                        unboxedType == IClass.INT
+                        || unboxedType == IClass.SHORT
+                        || unboxedType == IClass.BYTE
+                        || unboxedType == IClass.CHAR
+                    ) {
+                        this.compileGetValue(operand);
+                        this.numericPromotion(
+                            operand,
+                            this.convertToPrimitiveNumericType(operand, operandType),
+                            IClass.INT
+                        );
+
+                        // "0 < x" => "x > 0"
+                        int op = operand == bo.lhs ? opIdx : UnitCompiler.MIRRORED_OP_IDX[opIdx];
+
+                        this.ifxx(bo, orientation == UnitCompiler.JUMP_IF_FALSE ? op ^ 1 : op, dst);
+                        return;
+                    }
+                }
+            }
+
             IType lhsType = this.compileGetValue(bo.lhs);
             IType rhsType = this.getType(bo.rhs);
 
@@ -5362,7 +5542,7 @@ class UnitCompiler {
         IClass[]  parameterTypes = iMethod.getParameterTypes();
         Rvalue[]  adjustedArgs   = null;
         final int actualSize     = mi.arguments.length;
-        if (iMethod.isVarargs() && iMethod.argsNeedAdjust()) {
+        if (iMethod.isVarargs() && this.argsNeedAdjust.contains(iMethod)) {
             adjustedArgs = new Rvalue[parameterTypes.length];
             Rvalue[]       lastArgs = new Rvalue[actualSize - parameterTypes.length + 1];
             final Location loc      = mi.getLocation();
@@ -8241,6 +8421,12 @@ class UnitCompiler {
         // At this point "tmp" contains an optimized sequence of Strings (representing constant portions) and Rvalues
         // (non-constant portions).
 
+        if (
+            this.options.contains(JaninoOption.INVOKEDYNAMIC_STRING_CONCATENATION)
+            && this.getTargetVersion() >= 9
+            && this.compileStringConcatenationWithInvokedynamic(locatable, tmp)
+        ) return this.iClassLoader.TYPE_java_lang_String;
+
         if (tmp.size() <= UnitCompiler.STRING_CONCAT_LIMIT - 1) {
 
             // String concatenation through "a.concat(b).concat(c)".
@@ -8286,6 +8472,101 @@ class UnitCompiler {
         return this.iClassLoader.TYPE_java_lang_String;
     }
 
+    /**
+     * Implements string concatenation like JAVAC 9+ does, i.e. through one {@code invokedynamic} instruction that is
+     * linked by {@code java.lang.invoke.StringConcatFactory.makeConcatWithConstants()}. The constant portions go into
+     * the "recipe"; only the non-constant portions are passed as arguments.
+     *
+     * @param operands The operands following the first operand (which is already on the operand stack, converted to
+     *                 {@link String}), where constant portions are represented as {@link SimpleConstant}s
+     * @return         {@code false} iff the concatenation has too many non-constant operands for {@code
+     *                 StringConcatFactory}, and no code was generated
+     */
+    private boolean
+    compileStringConcatenationWithInvokedynamic(Locatable locatable, List<Rvalue> operands)
+    throws CompileException {
+
+        // "StringConcatFactory" accepts at most 200 argument slots.
+        int argumentSlots = 1;
+        for (Rvalue operand : operands) {
+            if (this.getConstantValue(operand) != UnitCompiler.NOT_CONSTANT) continue;
+            IType t = this.getType(operand);
+            argumentSlots += t == IClass.LONG || t == IClass.DOUBLE ? 2 : 1;
+        }
+        if (argumentSlots > UnitCompiler.MAX_STRING_CONCAT_FACTORY_ARGUMENT_SLOTS) return false;
+
+        // Push the non-constant operands, and compose the recipe, where "\1" stands for an argument and "\2" for a
+        // static constant argument.
+        ClassFile     cf          = this.getCodeContext().getClassFile();
+        StringBuilder recipe      = new StringBuilder("\1");
+        List<String>  argumentFds = new ArrayList<>();
+        List<Short>   constants   = new ArrayList<>();
+        argumentFds.add(Descriptor.JAVA_LANG_STRING);
+        for (Rvalue operand : operands) {
+
+            Object cv = this.getConstantValue(operand);
+            if (cv != UnitCompiler.NOT_CONSTANT) {
+                String s = String.valueOf(cv);
+                if (
+                    s.indexOf('\1') == -1
+                    && s.indexOf('\2') == -1
+                    && recipe.length() + s.length() < 65536 / 3
+                ) {
+                    recipe.append(s);
+                } else {
+                    recipe.append('\2');
+                    constants.add(cf.addConstantStringInfo(s));
+                }
+                continue;
+            }
+
+            IClass t = UnitCompiler.rawTypeOf(this.compileGetValue(operand));
+            argumentFds.add(
+                t.isPrimitive()                              ? t.getDescriptor()          :
+                t == this.iClassLoader.TYPE_java_lang_String ? Descriptor.JAVA_LANG_STRING :
+                Descriptor.JAVA_LANG_OBJECT
+            );
+            recipe.append('\1');
+        }
+
+        short[] bootstrapArguments = new short[1 + constants.size()];
+        bootstrapArguments[0] = cf.addConstantStringInfo(recipe.toString());
+        for (int i = 0; i < constants.size(); i++) bootstrapArguments[1 + i] = (Short) constants.get(i);
+
+        short bootstrapMethodAttrIndex = cf.addBootstrapMethod(
+            cf.addConstantMethodHandleInfo(
+                ClassFile.ConstantMethodHandleInfo.REF_INVOKE_STATIC,
+                cf.addConstantMethodrefInfo(
+                    "Ljava/lang/invoke/StringConcatFactory;",
+                    "makeConcatWithConstants",
+                    UnitCompiler.MD_STRING_CONCAT_FACTORY__MAKE_CONCAT_WITH_CONSTANTS
+                )
+            ),
+            bootstrapArguments
+        );
+
+        MethodDescriptor md = new MethodDescriptor(
+            Descriptor.JAVA_LANG_STRING,
+            (String[]) argumentFds.toArray(new String[argumentFds.size()])
+        );
+
+        this.addLineNumberOffset(locatable);
+        for (int i = md.parameterFds.length - 1; i >= 0; i--) {
+            this.getCodeContext().popOperandAssignableTo(md.parameterFds[i]);
+        }
+        this.write(Opcode.INVOKEDYNAMIC);
+        this.writeShort(cf.addConstantInvokeDynamicInfo(
+            bootstrapMethodAttrIndex,
+            "makeConcatWithConstants",
+            md.toString()
+        ));
+        this.writeByte(0);
+        this.writeByte(0);
+        this.getCodeContext().pushObjectOperand(Descriptor.JAVA_LANG_STRING);
+
+        return true;
+    }
+
     /**
      * Helper interface for string conversion.
      */
@@ -8528,7 +8809,7 @@ class UnitCompiler {
         Rvalue[] adjustedArgs   = null;
         IClass[] parameterTypes = iConstructor.getParameterTypes();
         int      actualSize     = arguments.length;
-        if (iConstructor.isVarargs() && iConstructor.argsNeedAdjust()) {
+        if (iConstructor.isVarargs() && this.argsNeedAdjust.contains(iConstructor)) {
             adjustedArgs = new Rvalue[parameterTypes.length];
             Rvalue[] lastArgs = new Rvalue[actualSize - parameterTypes.length + 1];
             for (int i = 0, j = parameterTypes.length - 1; i < lastArgs.length; ++i, ++j) {
@@ -9774,7 +10055,11 @@ class UnitCompiler {
 
                 // Varargs has lower priority.
                 if (isVarargs) {
-                    ii.setArgsNeedAdjust(argsNeedAdjust);
+                    if (argsNeedAdjust) {
+                        this.argsNeedAdjust.add(ii);
+                    } else {
+                        this.argsNeedAdjust.remove(ii);
+                    }
                     varargApplicables.add(ii);
                 } else {
                     applicableIInvocables.add(ii);
@@ -12453,6 +12738,24 @@ class UnitCompiler {
 
     private static final int LE = 5;
 
+    /**
+     * Maps {@code a OP b} to {@code b OP' a}, e.g. {@link #LT} to {@link #GT}.
+     */
+    private static final int[] MIRRORED_OP_IDX = {
+        UnitCompiler.EQ, UnitCompiler.NE, UnitCompiler.GT, UnitCompiler.LE, UnitCompiler.LT, UnitCompiler.GE,
+    };
+
+    /**
+     * @return Whether <var>cv</var> is a constant value of type BYTE, SHORT, CHAR or INT, with value zero
+     */
+    private static boolean
+    isIntZero(@Nullable Object cv) {
+        return (
+            (cv instanceof Integer || cv instanceof Short || cv instanceof Byte) && ((Number) cv).intValue() == 0
+            || cv instanceof Character && ((Character) cv).charValue() == 0
+        );
+    }
+
     private void
     ifnonnull(Locatable locatable, CodeContext.Offset dst) {
         this.getCodeContext().writeBranch(Opcode.IFNONNULL, dst);
@@ -13600,19 +13903,20 @@ class UnitCompiler {
         StackMap cism = this.getCodeContext().currentInserter().getStackMap();
         assert cism != null;
 
-        int nextLvIndex = 0;
-        for (VerificationTypeInfo vti : cism.locals()) {
-            if (nextLvIndex == lvIndex) return vti;
-            nextLvIndex += vti.category();
-        }
+        VerificationTypeInfo result = cism.getLocal(lvIndex);
+        if (result == null) throw new InternalCompilerException("Invalid local variable index " + lvIndex);
 
-        throw new InternalCompilerException("Invalid local variable index " + lvIndex);
+        return result;
     }
 
     private void
     updateLocalVariableInCurrentStackMap(short lvIndex, VerificationTypeInfo vti) {
 
-        final Inserter         ci     = this.getCodeContext().currentInserter();
+        final Inserter ci = this.getCodeContext().currentInserter();
+
+        // Replace VTI with equal VTI?
+        if (vti.equals(ci.getStackMap().getLocal(lvIndex))) return;
+
         VerificationTypeInfo[] locals = ci.getStackMap().locals();
 
         int nextLvIndex = 0;
@@ -13629,10 +13933,17 @@ class UnitCompiler {
                     locals[i] = vti;
                 } else
                 if (vti2.category() == 1 && vti.category() == 2) { // Replace two category 1 VTIs with one category 2 VTI?
-                    assert locals[i + 1].category() == 1;
                     locals[i] = vti;
-                    System.arraycopy(locals, i + 2, locals, i + 1, locals.length - i - 2);
-                    locals = (VerificationTypeInfo[]) Arrays.copyOf(locals, locals.length - 1);
+                    if (i + 1 < locals.length) {
+                        if (locals[i + 1].category() == 2) {
+
+                            // The next VTI is that of a dead local variable; its second slot remains.
+                            locals[i + 1] = StackMapTableAttribute.TOP_VARIABLE_INFO;
+                        } else {
+                            System.arraycopy(locals, i + 2, locals, i + 1, locals.length - i - 2);
+                            locals = (VerificationTypeInfo[]) Arrays.copyOf(locals, locals.length - 1);
+                        }
+                    }
                 } else
                 if (vti2.category() == 2 && vti.category() == 1) { // Replace one category 2 VTI with two category 1 VTIs?
                     locals = (VerificationTypeInfo[]) Arrays.copyOf(locals, locals.length + 1);
@@ -13644,7 +13955,7 @@ class UnitCompiler {
                     throw new AssertionError(vti2.category() + " vs. " + vti.category());
                 }
 
-                ci.setStackMap(new StackMap(locals, ci.getStackMap().operands()));
+                ci.setStackMap(ci.getStackMap().withLocals(locals));
                 return;
             }
             nextLvIndex += vti2.category();
@@ -13674,6 +13985,13 @@ class UnitCompiler {
 
     private final IClassLoader iClassLoader;
 
+    /**
+     * The variable-arity invocables for which {@link #findMostSpecificIInvocable(Locatable, IInvocable[], IClass[],
+     * boolean, Scope)} determined that the arguments must be wrapped in an array. (This state is kept here and not in
+     * the {@link IInvocable}, because {@link IClass}es may be shared between concurrent compilations.)
+     */
+    private final Set<IInvocable> argsNeedAdjust = new HashSet<>();
+
     /**
      * Non-{@code null} while {@link #compileUnit(boolean, boolean, boolean, ClassFileConsumer)} is executing.
      */
@@ -0,0 +1,145 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
+import org.codehaus.commons.compiler.io.Readers;
+import org.codehaus.janino.Parser;
+import org.codehaus.janino.Scanner;
+import org.codehaus.janino.TokenRecording;
+import org.codehaus.janino.TokenSource;
+import org.codehaus.janino.TokenType;
+
+/**
+ * Measures the cost of scanning and the cost of parsing separately, by {@link TokenRecording recording} the tokens of
+ * the given source files and replaying them into the {@link Parser}:
+ * <pre>
+ *     java org.codehaus.janino.tools.ParserBenchmark [ -iterations <var>n</var> ] <var>file</var>.java ...
+ * </pre>
+ * For each phase, the files are processed <var>n</var> times to warm up the JVM, and then another <var>n</var> times
+ * to measure the average time.
+ */
+public final
+class ParserBenchmark {
+    private ParserBenchmark() {}
+
+    public static void // SUPPRESS CHECKSTYLE JavadocMethod
+    main(String[] args) throws CompileException, IOException {
+
+        int iterations = 20;
+
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("-"); i++) {
+            String arg = args[i];
+            if ("-iterations".equals(arg)) {
+                iterations = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Unexpected command line option \"" + arg + "\"");
+                System.exit(1);
+            }
+        }
+
+        final List<String>         fileNames  = new ArrayList<String>();
+        final List<CharSequence>   sources    = new ArrayList<CharSequence>();
+        final List<TokenRecording> recordings = new ArrayList<TokenRecording>();
+        for (; i < args.length; i++) {
+            CharSequence source = Readers.readAll(new File(args[i]), Charset.defaultCharset());
+            fileNames.add(args[i]);
+            sources.add(source);
+            recordings.add(TokenRecording.record(new Scanner(args[i], new CharSequenceReader(source))));
+        }
+
+        ParserBenchmark.run("Scan", iterations, new Phase() {
+
+            @Override public void
+            execute() throws CompileException, IOException {
+                for (int j = 0; j < sources.size(); j++) {
+                    Scanner s = new Scanner(
+                        (String) fileNames.get(j),
+                        new CharSequenceReader((CharSequence) sources.get(j))
+                    );
+                    s.setIgnoreWhiteSpace(true);
+                    while (s.produce().type != TokenType.END_OF_INPUT);
+                }
+            }
+        });
+
+        ParserBenchmark.run("Replay", iterations, new Phase() {
+
+            @Override public void
+            execute() throws CompileException, IOException {
+                for (TokenRecording r : recordings) {
+                    TokenSource ts = r.replay();
+                    while (ts.produce().type != TokenType.END_OF_INPUT);
+                }
+            }
+        });
+
+        ParserBenchmark.run("Replay + parse", iterations, new Phase() {
+
+            @Override public void
+            execute() throws CompileException, IOException {
+                for (TokenRecording r : recordings) r.newParser().parseAbstractCompilationUnit();
+            }
+        });
+
+        ParserBenchmark.run("Scan + parse", iterations, new Phase() {
+
+            @Override public void
+            execute() throws CompileException, IOException {
+                for (int j = 0; j < sources.size(); j++) {
+                    new Parser(
+                        new Scanner((String) fileNames.get(j), new CharSequenceReader((CharSequence) sources.get(j)))
+                    ).parseAbstractCompilationUnit();
+                }
+            }
+        });
+    }
+
+    private
+    interface Phase {
+        void execute() throws CompileException, IOException;
+    }
+
+    private static void
+    run(String name, int iterations, Phase phase) throws CompileException, IOException {
+
+        for (int i = 0; i < iterations; i++) phase.execute();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) phase.execute();
+        long end = System.nanoTime();
+
+        System.out.printf("%-16s %10.3f ms%n", name, (end - start) / 1E6 / iterations);
+    }
+}
@@ -103,7 +103,6 @@ class ClassFile implements Annotatable {
 
         this.constantPool  = new ArrayList<>();
         this.constantPool.add(null); // Add fake "0" index entry.
-        this.constantPoolMap = new HashMap<>();
 
         // Some sanity checks on the access flags, according to JVMS8 4.1.
         if ((accessFlags & Mod.INTERFACE) != 0) {
@@ -168,6 +167,16 @@ class ClassFile implements Annotatable {
         return (SignatureAttribute) this.findAttribute(this.attributes, "Signature");
     }
 
+    /**
+     * Finds the {@code BootstrapMethods} attribute of this class file.
+     *
+     * @return {@code null} if this class has no "BootstrapMethods" attribute
+     */
+    @Nullable public BootstrapMethodsAttribute
+    getBootstrapMethodsAttribute() {
+        return (BootstrapMethodsAttribute) this.findAttribute(this.attributes, "BootstrapMethods");
+    }
+
     /**
      * Finds the named attribute in the <var>attributes</var>.
      *
@@ -177,8 +186,8 @@ class ClassFile implements Annotatable {
     @Nullable private AttributeInfo
     findAttribute(List<AttributeInfo> attributes, String attributeName) throws ClassFormatError {
 
-        Short nameIndex = (Short) this.constantPoolMap.get(new ConstantUtf8Info(attributeName));
-        if (nameIndex == null) return null;
+        short nameIndex = this.findConstantUtf8Info(attributeName);
+        if (nameIndex == 0) return null;
 
         AttributeInfo result = null;
         for (AttributeInfo ai : attributes) {
@@ -204,6 +213,39 @@ class ClassFile implements Annotatable {
         ica.getEntries().add(entry);
     }
 
+    /**
+     * Creates a {@code BootstrapMethods} attribute if it does not exist, then adds an entry to the {@code
+     * BootstrapMethods} attribute, unless an equal entry exists.
+     *
+     * @param bootstrapMethodRef Constant pool index of a "CONSTANT_MethodHandle_info" structure
+     * @param bootstrapArguments Constant pool indexes of the static arguments
+     * @return                   The index of the already existing or newly created entry, suitable for {@link
+     *                           #addConstantInvokeDynamicInfo(short, String, String)}
+     */
+    public short
+    addBootstrapMethod(short bootstrapMethodRef, short[] bootstrapArguments) {
+        BootstrapMethodsAttribute bma = this.getBootstrapMethodsAttribute();
+        if (bma == null) {
+            bma = new BootstrapMethodsAttribute(this.addConstantUtf8Info("BootstrapMethods"));
+            this.attributes.add(bma);
+        }
+
+        BootstrapMethodsAttribute.Entry entry = new BootstrapMethodsAttribute.Entry(
+            bootstrapMethodRef,
+            bootstrapArguments
+        );
+
+        List<BootstrapMethodsAttribute.Entry> entries = bma.getEntries();
+
+        int idx = entries.indexOf(entry);
+        if (idx == -1) {
+            idx = entries.size();
+            if (idx > 0xffff) throw new ClassFileException("Too many bootstrap methods");
+            entries.add(entry);
+        }
+        return (short) idx;
+    }
+
     /**
      * Finds the {@code Runtime[In]visibleAnnotations} attribute in the <var>attributes</var>.
      *
@@ -301,8 +343,7 @@ class ClassFile implements Annotatable {
 //            );
 //        }
 
-        this.constantPool    = new ArrayList<>();
-        this.constantPoolMap = new HashMap<>();
+        this.constantPool = new ArrayList<>();
         this.loadConstantPool(dis);                                                // constant_pool_count, constant_pool
 
         this.accessFlags  = dis.readShort();                                       // access_flags
@@ -412,6 +453,43 @@ class ClassFile implements Annotatable {
         ));
     }
 
+    /**
+     * Adds a "CONSTANT_MethodHandle_info" structure to the class file.
+     *
+     * @param referenceKind  One of the {@code REF_...} constants declared in {@link ConstantMethodHandleInfo}
+     * @param referenceIndex Constant pool index of a "CONSTANT_Fieldref_info", "CONSTANT_Methodref_info" or
+     *                       "CONSTANT_InterfaceMethodref_info" structure
+     * @see                  JVMS8 4.4.8
+     */
+    public short
+    addConstantMethodHandleInfo(byte referenceKind, short referenceIndex) {
+        return this.addToConstantPool(new ConstantMethodHandleInfo(referenceKind, referenceIndex));
+    }
+
+    /**
+     * Adds a "CONSTANT_MethodType_info" structure to the class file.
+     *
+     * @see JVMS8 4.4.9
+     */
+    public short
+    addConstantMethodTypeInfo(String methodMd) {
+        return this.addToConstantPool(new ConstantMethodTypeInfo(this.addConstantUtf8Info(methodMd)));
+    }
+
+    /**
+     * Adds a "CONSTANT_InvokeDynamic_info" structure to the class file.
+     *
+     * @param bootstrapMethodAttrIndex The value returned by {@link #addBootstrapMethod(short, short[])}
+     * @see                            JVMS8 4.4.10
+     */
+    public short
+    addConstantInvokeDynamicInfo(short bootstrapMethodAttrIndex, String methodName, String methodMd) {
+        return this.addToConstantPool(new ConstantInvokeDynamicInfo(
+            bootstrapMethodAttrIndex,
+            this.addConstantNameAndTypeInfo(methodName, methodMd)
+        ));
+    }
+
     /**
      * Adds a "CONSTANT_String_info" structure to the class file.
      *
@@ -490,6 +568,11 @@ class ClassFile implements Annotatable {
      */
     public short
     addConstantUtf8Info(final String s) {
+
+        // Check whether an equal entry already exists; avoid creating a new "ConstantUtf8Info" in that case.
+        short index = this.findConstantUtf8Info(s);
+        if (index != 0) return index;
+
         return this.addToConstantPool(new ConstantUtf8Info(s));
     }
 
@@ -532,8 +615,8 @@ class ClassFile implements Annotatable {
     addToConstantPool(ConstantPoolInfo cpi) {
 
         // Check whether an equal entry already exists.
-        Short index = (Short) this.constantPoolMap.get(cpi);
-        if (index != null) return index.shortValue();
+        short index = this.findInConstantPool(cpi);
+        if (index != 0) return index;
 
         // The current size of the constant pool is the index of the new entry.
         final short res = (short) this.constantPool.size();
@@ -551,12 +634,73 @@ class ClassFile implements Annotatable {
             );
         }
 
-        // Also put the new entry into the "constantPoolMap" for fast access.
-        this.constantPoolMap.put(cpi, res);
+        // Also put the new entry into the "constantPoolIndexes" for fast access.
+        this.indexConstantPoolEntry(cpi, 0xffff & res);
 
         return res;
     }
 
+    /**
+     * @return The index of the constant pool entry that equals <var>cpi</var>, or 0 iff there is no such entry
+     */
+    private short
+    findInConstantPool(ConstantPoolInfo cpi) {
+        int[] table = this.constantPoolIndexes;
+        int   mask  = table.length - 1;
+        for (int i = ClassFile.spread(cpi.hashCode()) & mask;; i = (i + 1) & mask) {
+            int index = table[i];
+            if (index == 0) return 0;
+            if (cpi.equals(this.constantPool.get(index))) return (short) index;
+        }
+    }
+
+    /**
+     * Equivalent with {@code findInConstantPool(new ConstantUtf8Info(s))}, but avoids the allocation.
+     *
+     * @return The index of the "CONSTANT_Utf8_info" entry for <var>s</var>, or 0 iff there is no such entry
+     */
+    private short
+    findConstantUtf8Info(String s) {
+        int[] table = this.constantPoolIndexes;
+        int   mask  = table.length - 1;
+        for (int i = ClassFile.spread(s.hashCode()) & mask;; i = (i + 1) & mask) {
+            int index = table[i];
+            if (index == 0) return 0;
+            ConstantPoolInfo cpi = (ConstantPoolInfo) this.constantPool.get(index);
+            if (cpi instanceof ConstantUtf8Info && ((ConstantUtf8Info) cpi).s.equals(s)) return (short) index;
+        }
+    }
+
+    /**
+     * Enters the constant pool entry <var>cpi</var>, which has the given <var>index</var>, into the {@link
+     * #constantPoolIndexes} hash table. Grows the table as necessary to keep the load factor at or below 50%.
+     */
+    private void
+    indexConstantPoolEntry(ConstantPoolInfo cpi, int index) {
+
+        if (2 * ++this.constantPoolIndexCount > this.constantPoolIndexes.length) {
+            int[] oldTable = this.constantPoolIndexes;
+            int[] newTable = new int[2 * oldTable.length];
+            int   mask     = newTable.length - 1;
+            for (int oldIndex : oldTable) {
+                if (oldIndex == 0) continue;
+                int i = ClassFile.spread(this.constantPool.get(oldIndex).hashCode()) & mask;
+                while (newTable[i] != 0) i = (i + 1) & mask;
+                newTable[i] = oldIndex;
+            }
+            this.constantPoolIndexes = newTable;
+        }
+
+        int[] table = this.constantPoolIndexes;
+        int   mask  = table.length - 1;
+        int   i     = ClassFile.spread(cpi.hashCode()) & mask;
+        while (table[i] != 0) i = (i + 1) & mask;
+        table[i] = index;
+    }
+
+    private static int
+    spread(int hashCode) { return hashCode ^ (hashCode >>> 16); }
+
     /**
      * Creates a {@link FieldInfo} and adds it to this class. The return value can be used e.g. to add attributes
      * ({@code Deprecated}, ...) to the field.
@@ -731,14 +875,15 @@ class ClassFile implements Annotatable {
     private void
     loadConstantPool(DataInputStream dis) throws IOException {
         this.constantPool.clear();
-        this.constantPoolMap.clear();
+        this.constantPoolIndexes    = new int[ClassFile.INITIAL_CONSTANT_POOL_INDEXES_SIZE];
+        this.constantPoolIndexCount = 0;
 
         int constantPoolCount = dis.readUnsignedShort(); // constant_pool_count
         this.constantPool.add(null);
         for (int i = 1; i < constantPoolCount; ++i) {
             ConstantPoolInfo cpi = ConstantPoolInfo.loadConstantPoolInfo(dis);
             this.constantPool.add(cpi);
-            this.constantPoolMap.put(cpi, (short) i);
+            this.indexConstantPoolEntry(cpi, i);
             if (cpi.isWide()) {
                 this.constantPool.add(null);
                 ++i;
@@ -798,8 +943,13 @@ class ClassFile implements Annotatable {
      */
     public void
     store(OutputStream os) throws IOException {
-        DataOutputStream dos = os instanceof DataOutputStream ? (DataOutputStream) os : new DataOutputStream(os);
+        ClassFileOutputStream cfos = new ClassFileOutputStream();
+        this.store(cfos);
+        cfos.writeTo(os);
+    }
 
+    private void
+    store(ClassFileOutputStream dos) throws IOException {
         dos.writeInt(ClassFile.CLASS_FILE_MAGIC);            // magic
         dos.writeShort(this.minorVersion);                   // minor_version
         dos.writeShort(this.majorVersion);                   // major_version
@@ -900,14 +1050,79 @@ class ClassFile implements Annotatable {
      */
     public byte[]
     toByteArray() {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ClassFileOutputStream cfos = new ClassFileOutputStream();
         try {
-            this.store(baos);
+            this.store(cfos);
         } catch (IOException ex) {
-            // ByteArrayOutputStream should never throw IOExceptions.
+            // ClassFileOutputStream should never throw IOExceptions.
             throw new ClassFileException(ex.toString(), ex);
         }
-        return baos.toByteArray();
+        return cfos.toByteArray();
+    }
+
+    /**
+     * A {@link DataOutputStream} that writes into one growable byte array. Because it knows its current position, it
+     * can back-patch the {@code attribute_length} of an attribute after its body was written, which avoids buffering
+     * and copying the body of each (nested) attribute.
+     */
+    private static
+    class ClassFileOutputStream extends DataOutputStream {
+
+        ClassFileOutputStream() { super(new Buffer()); }
+
+        /**
+         * @return The number of bytes written so far
+         */
+        int
+        position() { return ((Buffer) this.out).position(); }
+
+        /**
+         * Overwrites the four bytes at the given <var>position</var> with the <var>value</var>, in big-endian order.
+         */
+        void
+        patchInt(int position, int value) { ((Buffer) this.out).patchInt(position, value); }
+
+        byte[]
+        toByteArray() { return ((Buffer) this.out).toByteArray(); }
+
+        void
+        writeTo(OutputStream os) throws IOException { ((Buffer) this.out).writeTo(os); }
+
+        /**
+         * An unsynchronized variant of {@link ByteArrayOutputStream}.
+         */
+        private static
+        class Buffer extends ByteArrayOutputStream {
+
+            Buffer() { super(1024); }
+
+            int
+            position() { return this.count; }
+
+            void
+            patchInt(int position, int value) {
+                this.buf[position]     = (byte) (value >> 24);
+                this.buf[position + 1] = (byte) (value >> 16);
+                this.buf[position + 2] = (byte) (value >> 8);
+                this.buf[position + 3] = (byte) value;
+            }
+
+            @Override public void
+            write(int b) {
+                if (this.count == this.buf.length) this.buf = Arrays.copyOf(this.buf, 2 * this.buf.length);
+                this.buf[this.count++] = (byte) b;
+            }
+
+            @Override public void
+            write(byte[] b, int off, int len) {
+                int newCount = this.count + len;
+                if (newCount > this.buf.length) {
+                    this.buf = Arrays.copyOf(this.buf, Math.max(newCount, 2 * this.buf.length));
+                }
+                System.arraycopy(b, off, this.buf, this.count, len);
+                this.count = newCount;
+            }
+        }
     }
 
     private static final int CLASS_FILE_MAGIC = 0xcafebabe;
@@ -1006,8 +1221,14 @@ class ClassFile implements Annotatable {
      */
     private final List<AttributeInfo> attributes;
 
-    // Convenience.
-    private final Map<ConstantPoolInfo, Short> constantPoolMap;
+    /**
+     * Open-addressing hash table that maps the constant pool entries to their indexes, without boxing the indexes;
+     * each element is a constant pool index, or 0 for an empty slot. The length is always a power of two.
+     */
+    private int[] constantPoolIndexes = new int[ClassFile.INITIAL_CONSTANT_POOL_INDEXES_SIZE];
+    private int   constantPoolIndexCount;
+
+    private static final int INITIAL_CONSTANT_POOL_INDEXES_SIZE = 256;
 
     /**
      * Base for various the constant pool table entry types.
@@ -1603,6 +1824,17 @@ class ClassFile implements Annotatable {
     public static
     class ConstantMethodHandleInfo extends ConstantPoolInfo {
 
+        // SUPPRESS CHECKSTYLE JavadocVariable:9
+        public static final byte REF_GET_FIELD          = 1;
+        public static final byte REF_GET_STATIC         = 2;
+        public static final byte REF_PUT_FIELD          = 3;
+        public static final byte REF_PUT_STATIC         = 4;
+        public static final byte REF_INVOKE_VIRTUAL     = 5;
+        public static final byte REF_INVOKE_STATIC      = 6;
+        public static final byte REF_INVOKE_SPECIAL     = 7;
+        public static final byte REF_NEW_INVOKE_SPECIAL = 8;
+        public static final byte REF_INVOKE_INTERFACE   = 9;
+
         private final byte  referenceKind;
         private final short referenceIndex;
 
@@ -1961,6 +2193,18 @@ class ClassFile implements Annotatable {
         public void
         store(DataOutputStream dos) throws IOException {
 
+            // Write the body in place, and then back-patch its length.
+            if (dos instanceof ClassFileOutputStream) {
+                ClassFileOutputStream cfos = (ClassFileOutputStream) dos;
+
+                cfos.writeShort(this.nameIndex); // attribute_name_index;
+                cfos.writeInt(0);                // attribute_length
+                int start = cfos.position();
+                this.storeBody(cfos);            // info
+                cfos.patchInt(start - 4, cfos.position() - start);
+                return;
+            }
+
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
             this.storeBody(new DataOutputStream(baos));
 
@@ -2012,6 +2256,9 @@ class ClassFile implements Annotatable {
         if ("Synthetic".equals(attributeName)) {
             result = SyntheticAttribute.loadBody(attributeNameIndex, bdis);
         } else
+        if ("BootstrapMethods".equals(attributeName)) {
+            result = BootstrapMethodsAttribute.loadBody(attributeNameIndex, bdis);
+        } else
         if ("Signature".equals(attributeName)) {
             result = SignatureAttribute.loadBody(attributeNameIndex, bdis);
         } else
@@ -2327,6 +2574,90 @@ class ClassFile implements Annotatable {
         storeBody(DataOutputStream dos) throws IOException { dos.writeShort(this.signatureIndex); }
     }
 
+    /**
+     * Representation of a {@code BootstrapMethods} attribute (see JVMS8 4.7.23).
+     */
+    public static
+    class BootstrapMethodsAttribute extends AttributeInfo {
+
+        private final List<Entry> entries;
+
+        BootstrapMethodsAttribute(short attributeNameIndex) {
+            super(attributeNameIndex);
+            this.entries = new ArrayList<>();
+        }
+
+        BootstrapMethodsAttribute(short attributeNameIndex, Entry[] entries) {
+            super(attributeNameIndex);
+            this.entries = new ArrayList<>(Arrays.asList(entries));
+        }
+
+        /**
+         * @return A reference to the modifiable list of {@code bootstrap_methods}
+         */
+        public List<Entry>
+        getEntries() { return this.entries; }
+
+        private static AttributeInfo
+        loadBody(short attributeNameIndex, DataInputStream dis) throws IOException {
+
+            Entry[] bms = new Entry[dis.readUnsignedShort()];               // num_bootstrap_methods
+            for (int i = 0; i < bms.length; i++) {                          // bootstrap_methods
+                short   ref  = dis.readShort();                             // bootstrap_method_ref
+                short[] args = new short[dis.readUnsignedShort()];          // num_bootstrap_arguments
+                for (int j = 0; j < args.length; j++) args[j] = dis.readShort(); // bootstrap_arguments
+                bms[i] = new Entry(ref, args);
+            }
+            return new BootstrapMethodsAttribute(attributeNameIndex, bms);
+        }
+
+        // Implement "AttributeInfo".
+        @Override protected void
+        storeBody(DataOutputStream dos) throws IOException {
+            dos.writeShort(this.entries.size());                            // num_bootstrap_methods
+            for (Entry e : this.entries) {                                  // bootstrap_methods
+                dos.writeShort(e.bootstrapMethodRef);                       // bootstrap_method_ref
+                dos.writeShort(e.bootstrapArguments.length);                // num_bootstrap_arguments
+                for (short a : e.bootstrapArguments) dos.writeShort(a);     // bootstrap_arguments
+            }
+        }
+
+        /**
+         * The structure of the {@code bootstrap_methods} array, as described in JVMS8 4.7.23.
+         */
+        public static
+        class Entry {
+
+            /**
+             * Constant pool index of a "CONSTANT_MethodHandle_info" structure.
+             */
+            public final short bootstrapMethodRef;
+
+            /**
+             * Constant pool indexes of the static arguments of the bootstrap method.
+             */
+            public final short[] bootstrapArguments;
+
+            public
+            Entry(short bootstrapMethodRef, short[] bootstrapArguments) {
+                this.bootstrapMethodRef = bootstrapMethodRef;
+                this.bootstrapArguments = bootstrapArguments;
+            }
+
+            @Override public boolean
+            equals(@Nullable Object o) {
+                return (
+                    o instanceof Entry
+                    && ((Entry) o).bootstrapMethodRef == this.bootstrapMethodRef
+                    && Arrays.equals(((Entry) o).bootstrapArguments, this.bootstrapArguments)
+                );
+            }
+
+            @Override public int
+            hashCode() { return this.bootstrapMethodRef + 31 * Arrays.hashCode(this.bootstrapArguments); }
+        }
+    }
+
     /**
      * Representation of a {@code SourceFile} attribute (see JVMS 4.7.7).
      */
@@ -31,6 +31,7 @@ import java.util.Collection;
 import java.util.List;
 
 import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.Location;
 import org.codehaus.commons.nullanalysis.Nullable;
 import org.codehaus.janino.Java.AbstractCompilationUnit;
 import org.codehaus.janino.Java.AbstractCompilationUnit.ImportDeclaration;
@@ -187,6 +188,13 @@ class DeepCopier {
     public
     DeepCopier() {}
 
+    /**
+     * Determines the location of each copied AST element. This implementation returns <var>subject</var>, so that
+     * the copy has the same location as the original; derived classes may override it, e.g. to relocate the copy.
+     */
+    public Location
+    copyLocation(Location subject) { return subject; }
+
     // ------------------------- Visitors that implement the copying of abstract AST elements
 
     private final AbstractCompilationUnitVisitor<AbstractCompilationUnit, CompileException>
@@ -487,34 +495,37 @@ class DeepCopier {
 
     public PackageDeclaration
     copyPackageDeclaration(PackageDeclaration subject) throws CompileException {
-        return new PackageDeclaration(subject.getLocation(), subject.packageName);
+        return new PackageDeclaration(this.copyLocation(subject.getLocation()), subject.packageName);
     }
 
     public ImportDeclaration
     copySingleTypeImportDeclaration(SingleTypeImportDeclaration stid) throws CompileException {
-        return new SingleTypeImportDeclaration(stid.getLocation(), stid.identifiers.clone());
+        return new SingleTypeImportDeclaration(this.copyLocation(stid.getLocation()), stid.identifiers.clone());
     }
 
     public ImportDeclaration
     copyTypeImportOnDemandDeclaration(TypeImportOnDemandDeclaration tiodd) throws CompileException {
-        return new TypeImportOnDemandDeclaration(tiodd.getLocation(), tiodd.identifiers.clone());
+        return new TypeImportOnDemandDeclaration(this.copyLocation(tiodd.getLocation()), tiodd.identifiers.clone());
     }
 
     public ImportDeclaration
     copySingleStaticImportDeclaration(SingleStaticImportDeclaration stid) throws CompileException {
-        return new SingleStaticImportDeclaration(stid.getLocation(), stid.identifiers.clone());
+        return new SingleStaticImportDeclaration(this.copyLocation(stid.getLocation()), stid.identifiers.clone());
     }
 
     public ImportDeclaration
     copyStaticImportOnDemandDeclaration(StaticImportOnDemandDeclaration siodd) throws CompileException {
-        return new StaticImportOnDemandDeclaration(siodd.getLocation(), siodd.identifiers.clone());
+        return new StaticImportOnDemandDeclaration(this.copyLocation(siodd.getLocation()), siodd.identifiers.clone());
     }
 
     public AnonymousClassDeclaration
     copyAnonymousClassDeclaration(AnonymousClassDeclaration subject) throws CompileException {
 
         AnonymousClassDeclaration
-        result = new AnonymousClassDeclaration(subject.getLocation(), this.copyType(subject.baseType));
+        result = new AnonymousClassDeclaration(
+            this.copyLocation(subject.getLocation()),
+            this.copyType(subject.baseType)
+        );
 
         for (FieldDeclarationOrInitializer fdoi : subject.fieldDeclarationsAndInitializers) {
             result.addFieldDeclarationOrInitializer(this.copyFieldDeclarationOrInitializer(fdoi));
@@ -536,7 +547,7 @@ class DeepCopier {
     copyLocalClassDeclaration(LocalClassDeclaration subject) throws CompileException {
 
         LocalClassDeclaration result = new LocalClassDeclaration(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             subject.name,
@@ -564,7 +575,7 @@ class DeepCopier {
     public TypeDeclaration
     copyPackageMemberClassDeclaration(PackageMemberClassDeclaration subject) throws CompileException {
         PackageMemberClassDeclaration result = new PackageMemberClassDeclaration(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             subject.name,
@@ -591,7 +602,7 @@ class DeepCopier {
     copyMemberInterfaceDeclaration(MemberInterfaceDeclaration subject) throws CompileException {
 
         MemberInterfaceDeclaration result = new MemberInterfaceDeclaration(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             subject.name,
@@ -613,7 +624,7 @@ class DeepCopier {
     copyPackageMemberInterfaceDeclaration(final PackageMemberInterfaceDeclaration subject) throws CompileException {
 
         PackageMemberInterfaceDeclaration result = new PackageMemberInterfaceDeclaration(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             subject.name,
@@ -638,7 +649,7 @@ class DeepCopier {
     copyMemberClassDeclaration(MemberClassDeclaration subject) throws CompileException {
 
         MemberClassDeclaration result = new MemberClassDeclaration(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             subject.name,
@@ -666,7 +677,7 @@ class DeepCopier {
     public ConstructorDeclarator
     copyConstructorDeclarator(ConstructorDeclarator subject) throws CompileException {
         return new ConstructorDeclarator(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             this.copyFormalParameters(subject.formalParameters),
@@ -680,7 +691,7 @@ class DeepCopier {
     copyInitializer(Initializer subject) throws CompileException {
 
         return new Initializer(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyModifiers(subject.modifiers),
             this.copyBlock(subject.block)
         );
@@ -689,7 +700,7 @@ class DeepCopier {
     public MethodDeclarator
     copyMethodDeclarator(MethodDeclarator subject) throws CompileException {
         return new MethodDeclarator(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             this.copyOptionalTypeParameters(subject.typeParameters),
@@ -705,7 +716,7 @@ class DeepCopier {
     public FieldDeclaration
     copyFieldDeclaration(FieldDeclaration subject) throws CompileException {
         return new FieldDeclaration(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.modifiers),
             this.copyType(subject.type),
@@ -716,7 +727,7 @@ class DeepCopier {
     public VariableDeclarator
     copyVariableDeclarator(VariableDeclarator subject) throws CompileException {
         return new VariableDeclarator(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.name,
             subject.brackets,
             this.copyOptionalArrayInitializerOrRvalue(subject.initializer)
@@ -725,12 +736,12 @@ class DeepCopier {
 
     public BlockStatement
     copyLabeledStatement(LabeledStatement ls) throws CompileException {
-        return new LabeledStatement(ls.getLocation(), ls.label, this.copyStatement(ls.body));
+        return new LabeledStatement(this.copyLocation(ls.getLocation()), ls.label, this.copyStatement(ls.body));
     }
 
     public Block
     copyBlock(Block b) throws CompileException {
-        Block result = new Block(b.getLocation());
+        Block result = new Block(this.copyLocation(b.getLocation()));
         for (BlockStatement bs : b.statements) result.addStatement(this.copyBlockStatement(bs));
         return result;
     }
@@ -743,7 +754,7 @@ class DeepCopier {
     public BlockStatement
     copyIfStatement(IfStatement is) throws CompileException {
         return new IfStatement(
-            is.getLocation(),
+            this.copyLocation(is.getLocation()),
             this.copyRvalue(is.condition),
             this.copyBlockStatement(is.thenStatement),
             this.copyOptionalBlockStatement(is.elseStatement)
@@ -753,7 +764,7 @@ class DeepCopier {
     public BlockStatement
     copyForStatement(ForStatement fs) throws CompileException {
         return new ForStatement(
-            fs.getLocation(),
+            this.copyLocation(fs.getLocation()),
             this.copyOptionalBlockStatement(fs.init),
             this.copyOptionalRvalue(fs.condition),
             this.copyOptionalRvalues(fs.update),
@@ -764,7 +775,7 @@ class DeepCopier {
     public BlockStatement
     copyForEachStatement(ForEachStatement fes) throws CompileException {
         return new ForEachStatement(
-            fes.getLocation(),
+            this.copyLocation(fes.getLocation()),
             this.copyFormalParameter(fes.currentElement),
             this.copyRvalue(fes.expression),
             this.copyBlockStatement(fes.body)
@@ -774,7 +785,7 @@ class DeepCopier {
     public BlockStatement
     copyWhileStatement(WhileStatement ws) throws CompileException {
         return new WhileStatement(
-            ws.getLocation(),
+            this.copyLocation(ws.getLocation()),
             this.copyRvalue(ws.condition),
             this.copyBlockStatement(ws.body)
         );
@@ -783,7 +794,7 @@ class DeepCopier {
     public BlockStatement
     copyTryStatement(TryStatement ts) throws CompileException {
         return new TryStatement(
-            ts.getLocation(),
+            this.copyLocation(ts.getLocation()),
             this.copyResources(ts.resources),
             this.copyBlockStatement(ts.body),
             this.copyCatchClauses(ts.catchClauses),
@@ -794,7 +805,7 @@ class DeepCopier {
     public CatchClause
     copyCatchClause(CatchClause subject) throws CompileException {
         return new CatchClause(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyCatchParameter(subject.catchParameter),
             this.copyBlockStatement(subject.body)
         );
@@ -803,7 +814,7 @@ class DeepCopier {
     public BlockStatement
     copySwitchStatement(SwitchStatement subject) throws CompileException {
         return new SwitchStatement(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyRvalue(subject.condition),
             this.copySwitchBlockStatementGroups(subject.sbsgs)
         );
@@ -812,7 +823,7 @@ class DeepCopier {
     public SwitchBlockStatementGroup
     copySwitchBlockStatementGroup(SwitchBlockStatementGroup subject) throws CompileException {
         return new SwitchBlockStatementGroup(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyRvalues(subject.caseLabels),
             subject.hasDefaultLabel,
             this.copyBlockStatements(subject.blockStatements)
@@ -822,7 +833,7 @@ class DeepCopier {
     public BlockStatement
     copySynchronizedStatement(SynchronizedStatement subject) throws CompileException {
         return new SynchronizedStatement(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyRvalue(subject.expression),
             this.copyBlockStatement(subject.body)
         );
@@ -831,7 +842,7 @@ class DeepCopier {
     public BlockStatement
     copyDoStatement(DoStatement subject) throws CompileException {
         return new DoStatement(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyBlockStatement(subject.body),
             this.copyRvalue(subject.condition)
         );
@@ -840,7 +851,7 @@ class DeepCopier {
     public BlockStatement
     copyLocalVariableDeclarationStatement(LocalVariableDeclarationStatement subject) throws CompileException {
         return new LocalVariableDeclarationStatement(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyModifiers(subject.modifiers),
             this.copyType(subject.type),
             this.copyVariableDeclarators(subject.variableDeclarators)
@@ -849,28 +860,31 @@ class DeepCopier {
 
     public BlockStatement
     copyReturnStatement(ReturnStatement subject) throws CompileException {
-        return new ReturnStatement(subject.getLocation(), this.copyOptionalRvalue(subject.returnValue));
+        return new ReturnStatement(
+            this.copyLocation(subject.getLocation()),
+            this.copyOptionalRvalue(subject.returnValue)
+        );
     }
 
     public BlockStatement
     copyThrowStatement(ThrowStatement subject) throws CompileException {
-        return new ThrowStatement(subject.getLocation(), this.copyRvalue(subject.expression));
+        return new ThrowStatement(this.copyLocation(subject.getLocation()), this.copyRvalue(subject.expression));
     }
 
     public BlockStatement
     copyBreakStatement(BreakStatement subject) throws CompileException {
-        return new BreakStatement(subject.getLocation(), subject.label);
+        return new BreakStatement(this.copyLocation(subject.getLocation()), subject.label);
     }
 
     public BlockStatement
     copyContinueStatement(ContinueStatement subject) throws CompileException {
-        return new ContinueStatement(subject.getLocation(), subject.label);
+        return new ContinueStatement(this.copyLocation(subject.getLocation()), subject.label);
     }
 
     public BlockStatement
     copyAssertStatement(AssertStatement subject) throws CompileException {
         return new AssertStatement(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyRvalue(subject.expression1),
             this.copyOptionalRvalue(subject.expression2)
         );
@@ -878,7 +892,7 @@ class DeepCopier {
 
     public BlockStatement
     copyEmptyStatement(EmptyStatement subject) throws CompileException {
-        return new EmptyStatement(subject.getLocation());
+        return new EmptyStatement(this.copyLocation(subject.getLocation()));
     }
 
     public BlockStatement
@@ -888,18 +902,18 @@ class DeepCopier {
 
     public Atom
     copyPackage(Package subject) throws CompileException {
-        return new Package(subject.getLocation(), subject.name);
+        return new Package(this.copyLocation(subject.getLocation()), subject.name);
     }
 
     public Rvalue
     copyArrayLength(ArrayLength subject) throws CompileException {
-        return new ArrayLength(subject.getLocation(), this.copyRvalue(subject.lhs));
+        return new ArrayLength(this.copyLocation(subject.getLocation()), this.copyRvalue(subject.lhs));
     }
 
     public Rvalue
     copyAssignment(Assignment subject) throws CompileException {
         return new Assignment(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyLvalue(subject.lhs),
             subject.operator,
             this.copyRvalue(subject.rhs)
@@ -909,7 +923,7 @@ class DeepCopier {
     public Rvalue
     copyUnaryOperation(UnaryOperation subject) throws CompileException {
         return new UnaryOperation(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.operator,
             this.copyRvalue(subject.operand)
         );
@@ -918,7 +932,7 @@ class DeepCopier {
     public Rvalue
     copyBinaryOperation(BinaryOperation subject) throws CompileException {
         return new BinaryOperation(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyRvalue(subject.lhs),
             subject.operator,
             this.copyRvalue(subject.rhs)
@@ -927,18 +941,22 @@ class DeepCopier {
 
     public Rvalue
     copyCast(Cast subject) throws CompileException {
-        return new Cast(subject.getLocation(), this.copyType(subject.targetType), this.copyRvalue(subject.value));
+        return new Cast(
+            this.copyLocation(subject.getLocation()),
+            this.copyType(subject.targetType),
+            this.copyRvalue(subject.value)
+        );
     }
 
     public Rvalue
     copyClassLiteral(ClassLiteral subject) throws CompileException {
-        return new ClassLiteral(subject.getLocation(), this.copyType(subject.type));
+        return new ClassLiteral(this.copyLocation(subject.getLocation()), this.copyType(subject.type));
     }
 
     public Rvalue
     copyConditionalExpression(ConditionalExpression subject) throws CompileException {
         return new ConditionalExpression(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyRvalue(subject.lhs),
             this.copyRvalue(subject.mhs),
             this.copyRvalue(subject.rhs)
@@ -949,20 +967,24 @@ class DeepCopier {
     copyCrement(Crement subject) throws CompileException {
         return (
             subject.pre
-            ? new Crement(subject.getLocation(), subject.operator, this.copyLvalue(subject.operand))
-            : new Crement(subject.getLocation(), this.copyLvalue(subject.operand), subject.operator)
+            ? new Crement(this.copyLocation(subject.getLocation()), subject.operator, this.copyLvalue(subject.operand))
+            : new Crement(this.copyLocation(subject.getLocation()), this.copyLvalue(subject.operand), subject.operator)
         );
     }
 
     public Rvalue
     copyInstanceof(Instanceof subject) throws CompileException {
-        return new Instanceof(subject.getLocation(), this.copyRvalue(subject.lhs), this.copyType(subject.rhs));
+        return new Instanceof(
+            this.copyLocation(subject.getLocation()),
+            this.copyRvalue(subject.lhs),
+            this.copyType(subject.rhs)
+        );
     }
 
     public Rvalue
     copyMethodInvocation(MethodInvocation subject) throws CompileException {
         return new MethodInvocation(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyOptionalAtom(subject.target),
             subject.methodName,
             this.copyRvalues(subject.arguments)
@@ -972,7 +994,7 @@ class DeepCopier {
     public Rvalue
     copySuperclassMethodInvocation(SuperclassMethodInvocation subject) throws CompileException {
         return new SuperclassMethodInvocation(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.methodName,
             this.copyRvalues(subject.arguments)
         );
@@ -980,32 +1002,32 @@ class DeepCopier {
 
     public Rvalue
     copyIntegerLiteral(IntegerLiteral subject) throws CompileException {
-        return new IntegerLiteral(subject.getLocation(), subject.value);
+        return new IntegerLiteral(this.copyLocation(subject.getLocation()), subject.value);
     }
 
     public Rvalue
     copyFloatingPointLiteral(FloatingPointLiteral subject) throws CompileException {
-        return new FloatingPointLiteral(subject.getLocation(), subject.value);
+        return new FloatingPointLiteral(this.copyLocation(subject.getLocation()), subject.value);
     }
 
     public Rvalue
     copyBooleanLiteral(BooleanLiteral subject) throws CompileException {
-        return new BooleanLiteral(subject.getLocation(), subject.value);
+        return new BooleanLiteral(this.copyLocation(subject.getLocation()), subject.value);
     }
 
     public Rvalue
     copyCharacterLiteral(CharacterLiteral subject) throws CompileException {
-        return new CharacterLiteral(subject.getLocation(), subject.value);
+        return new CharacterLiteral(this.copyLocation(subject.getLocation()), subject.value);
     }
 
     public Rvalue
     copyStringLiteral(StringLiteral subject) throws CompileException {
-        return new StringLiteral(subject.getLocation(), subject.value);
+        return new StringLiteral(this.copyLocation(subject.getLocation()), subject.value);
     }
 
     public Rvalue
     copyNullLiteral(NullLiteral subject) throws CompileException {
-        return new NullLiteral(subject.getLocation());
+        return new NullLiteral(this.copyLocation(subject.getLocation()));
     }
 
     public Rvalue
@@ -1014,7 +1036,7 @@ class DeepCopier {
     public Rvalue
     copyNewAnonymousClassInstance(NewAnonymousClassInstance subject) throws CompileException {
         return new NewAnonymousClassInstance(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyOptionalRvalue(subject.qualification),
             this.copyAnonymousClassDeclaration(subject.anonymousClassDeclaration),
             this.copyRvalues(subject.arguments)
@@ -1024,7 +1046,7 @@ class DeepCopier {
     public Rvalue
     copyNewArray(NewArray subject) throws CompileException {
         return new NewArray(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyType(subject.type),
             this.copyRvalues(subject.dimExprs),
             subject.dims
@@ -1034,7 +1056,7 @@ class DeepCopier {
     public Rvalue
     copyNewInitializedArray(NewInitializedArray subject) throws CompileException {
         return new NewInitializedArray(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyOptionalArrayType(subject.arrayType),
             this.copyArrayInitializer(subject.arrayInitializer)
         );
@@ -1042,7 +1064,10 @@ class DeepCopier {
 
     public ArrayInitializer
     copyArrayInitializer(ArrayInitializer subject) throws CompileException {
-        return new ArrayInitializer(subject.getLocation(), this.copyArrayInitializerOrRvalues(subject.values));
+        return new ArrayInitializer(
+            this.copyLocation(subject.getLocation()),
+            this.copyArrayInitializerOrRvalues(subject.values)
+        );
     }
 
     public Rvalue
@@ -1050,13 +1075,13 @@ class DeepCopier {
         return (
             subject.type != null
             ? new NewClassInstance(
-                subject.getLocation(),
+                this.copyLocation(subject.getLocation()),
                 this.copyOptionalRvalue(subject.qualification),
                 this.copyType(DeepCopier.assertNotNull(subject.type)),
                 this.copyRvalues(subject.arguments)
             )
             : new NewClassInstance(
-                subject.getLocation(),
+                this.copyLocation(subject.getLocation()),
                 this.copyOptionalRvalue(subject.qualification),
                 DeepCopier.assertNotNull(subject.iType),
                 this.copyRvalues(subject.arguments)
@@ -1069,28 +1094,31 @@ class DeepCopier {
 
     public Rvalue
     copyQualifiedThisReference(QualifiedThisReference subject) throws CompileException {
-        return new QualifiedThisReference(subject.getLocation(), this.copyType(subject.qualification));
+        return new QualifiedThisReference(
+            this.copyLocation(subject.getLocation()),
+            this.copyType(subject.qualification)
+        );
     }
 
     public Rvalue
     copyThisReference(ThisReference subject) throws CompileException {
-        return new ThisReference(subject.getLocation());
+        return new ThisReference(this.copyLocation(subject.getLocation()));
     }
 
     public Rvalue
     copyLambdaExpression(LambdaExpression subject) {
-        return new LambdaExpression(subject.getLocation(), subject.parameters, subject.body);
+        return new LambdaExpression(this.copyLocation(subject.getLocation()), subject.parameters, subject.body);
     }
 
     public Rvalue
     copyArrayCreationReference(ArrayCreationReference subject) throws CompileException {
-        return new ArrayCreationReference(subject.getLocation(), this.copyArrayType(subject.type));
+        return new ArrayCreationReference(this.copyLocation(subject.getLocation()), this.copyArrayType(subject.type));
     }
 
     public Rvalue
     copyClassInstanceCreationReference(ClassInstanceCreationReference subject) throws CompileException {
         return new ClassInstanceCreationReference(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyType(subject.type),
             this.copyOptionalTypeArguments(subject.typeArguments)
         );
@@ -1098,7 +1126,11 @@ class DeepCopier {
 
     public Rvalue
     copyMethodReference(MethodReference subject) throws CompileException {
-        return new MethodReference(subject.getLocation(), this.copyAtom(subject.lhs), subject.methodName);
+        return new MethodReference(
+            this.copyLocation(subject.getLocation()),
+            this.copyAtom(subject.lhs),
+            subject.methodName
+        );
     }
 
     public ArrayType
@@ -1108,13 +1140,13 @@ class DeepCopier {
 
     public Type
     copyPrimitiveType(PrimitiveType bt) throws CompileException {
-        return new PrimitiveType(bt.getLocation(), bt.primitive);
+        return new PrimitiveType(this.copyLocation(bt.getLocation()), bt.primitive);
     }
 
     public ReferenceType
     copyReferenceType(ReferenceType subject) throws CompileException {
         return new ReferenceType(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyAnnotations(subject.annotations),
             subject.identifiers,
             this.copyOptionalTypeArguments(subject.typeArguments)
@@ -1123,21 +1155,30 @@ class DeepCopier {
 
     public Type
     copyRvalueMemberType(RvalueMemberType subject) throws CompileException {
-        return new RvalueMemberType(subject.getLocation(), this.copyRvalue(subject.rvalue), subject.identifier);
+        return new RvalueMemberType(
+            this.copyLocation(subject.getLocation()),
+            this.copyRvalue(subject.rvalue),
+            subject.identifier
+        );
     }
 
     public Type
-    copySimpleType(SimpleType st) throws CompileException { return new SimpleType(st.getLocation(), st.iType); }
+    copySimpleType(SimpleType st) throws CompileException {
+        return new SimpleType(this.copyLocation(st.getLocation()), st.iType);
+    }
 
     public ConstructorInvocation
     copyAlternateConstructorInvocation(AlternateConstructorInvocation subject) throws CompileException {
-        return new AlternateConstructorInvocation(subject.getLocation(), this.copyRvalues(subject.arguments));
+        return new AlternateConstructorInvocation(
+            this.copyLocation(subject.getLocation()),
+            this.copyRvalues(subject.arguments)
+        );
     }
 
     public ConstructorInvocation
     copySuperConstructorInvocation(SuperConstructorInvocation subject) throws CompileException {
         return new SuperConstructorInvocation(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyOptionalRvalue(subject.qualification),
             this.copyRvalues(subject.arguments)
         );
@@ -1145,13 +1186,16 @@ class DeepCopier {
 
     public Lvalue
     copyAmbiguousName(AmbiguousName subject) throws CompileException {
-        return new AmbiguousName(subject.getLocation(), Arrays.copyOf(subject.identifiers, subject.n));
+        return new AmbiguousName(
+            this.copyLocation(subject.getLocation()),
+            Arrays.copyOf(subject.identifiers, subject.n)
+        );
     }
 
     public Lvalue
     copyArrayAccessExpression(ArrayAccessExpression subject) throws CompileException {
         return new ArrayAccessExpression(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyRvalue(subject.lhs),
             this.copyRvalue(subject.index)
         );
@@ -1159,18 +1203,22 @@ class DeepCopier {
 
     public Lvalue
     copyFieldAccess(FieldAccess subject) throws CompileException {
-        return new FieldAccess(subject.getLocation(), this.copyAtom(subject.lhs), subject.field);
+        return new FieldAccess(this.copyLocation(subject.getLocation()), this.copyAtom(subject.lhs), subject.field);
     }
 
     public Lvalue
     copyFieldAccessExpression(FieldAccessExpression subject) throws CompileException {
-        return new FieldAccessExpression(subject.getLocation(), this.copyAtom(subject.lhs), subject.fieldName);
+        return new FieldAccessExpression(
+            this.copyLocation(subject.getLocation()),
+            this.copyAtom(subject.lhs),
+            subject.fieldName
+        );
     }
 
     public Lvalue
     copySuperclassFieldAccessExpression(SuperclassFieldAccessExpression subject) throws CompileException {
         return new SuperclassFieldAccessExpression(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyOptionalType(subject.qualification),
             subject.fieldName
         );
@@ -1183,12 +1231,15 @@ class DeepCopier {
 
     public Lvalue
     copyParenthesizedExpression(ParenthesizedExpression subject) throws CompileException {
-        return new ParenthesizedExpression(subject.getLocation(), this.copyRvalue(subject.value));
+        return new ParenthesizedExpression(this.copyLocation(subject.getLocation()), this.copyRvalue(subject.value));
     }
 
     public ElementValue
     copyElementValueArrayInitializer(ElementValueArrayInitializer subject) throws CompileException {
-        return new ElementValueArrayInitializer(this.copyElementValues(subject.elementValues), subject.getLocation());
+        return new ElementValueArrayInitializer(
+            this.copyElementValues(subject.elementValues),
+            this.copyLocation(subject.getLocation())
+        );
     }
 
     public Annotation
@@ -1220,7 +1271,7 @@ class DeepCopier {
     public FormalParameters
     copyFormalParameters(FunctionDeclarator.FormalParameters subject) throws CompileException {
         return new FormalParameters(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyFormalParameters(subject.parameters),
             subject.variableArity
         );
@@ -1230,7 +1281,7 @@ class DeepCopier {
     copyFormalParameter(FunctionDeclarator.FormalParameter subject) throws CompileException {
 
         return new FormalParameter(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyModifiers(subject.modifiers),
             this.copyType(subject.type),
             subject.name
@@ -1239,14 +1290,19 @@ class DeepCopier {
 
     public CatchParameter
     copyCatchParameter(CatchParameter subject) throws CompileException {
-        return new CatchParameter(subject.getLocation(), subject.finaL, this.copyTypes(subject.types), subject.name);
+        return new CatchParameter(
+            this.copyLocation(subject.getLocation()),
+            subject.finaL,
+            this.copyTypes(subject.types),
+            subject.name
+        );
     }
 
     public EnumConstant
     copyEnumConstant(EnumConstant subject) throws CompileException {
 
         EnumConstant result = new EnumConstant(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.docComment,
             this.copyModifiers(subject.getModifiers()),
             subject.name,
@@ -1264,7 +1320,7 @@ class DeepCopier {
     copyPackageMemberEnumDeclaration(PackageMemberEnumDeclaration subject) throws CompileException {
 
         PackageMemberEnumDeclaration result = new PackageMemberEnumDeclaration(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             subject.name,
@@ -1294,7 +1350,7 @@ class DeepCopier {
     copyMemberEnumDeclaration(MemberEnumDeclaration subject) throws CompileException {
 
         MemberEnumDeclaration result = new MemberEnumDeclaration(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             subject.name,
@@ -1324,7 +1380,7 @@ class DeepCopier {
     copyPackageMemberAnnotationTypeDeclaration(PackageMemberAnnotationTypeDeclaration subject) throws CompileException {
 
         PackageMemberAnnotationTypeDeclaration result = new PackageMemberAnnotationTypeDeclaration(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             subject.name
@@ -1341,7 +1397,7 @@ class DeepCopier {
     copyMemberAnnotationTypeDeclaration(MemberAnnotationTypeDeclaration subject) throws CompileException {
 
         MemberAnnotationTypeDeclaration result = new MemberAnnotationTypeDeclaration(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             subject.getDocComment(),
             this.copyModifiers(subject.getModifiers()),
             subject.name
@@ -1363,7 +1419,7 @@ class DeepCopier {
     public TryStatement.Resource
     copyLocalVariableDeclaratorResource(LocalVariableDeclaratorResource subject) throws CompileException {
         return new LocalVariableDeclaratorResource(
-            subject.getLocation(),
+            this.copyLocation(subject.getLocation()),
             this.copyModifiers(subject.modifiers),
             this.copyType(subject.type),
             this.copyVariableDeclarator(subject.variableDeclarator)
@@ -1372,7 +1428,10 @@ class DeepCopier {
 
     public TryStatement.Resource
     copyVariableAccessResource(VariableAccessResource subject) throws CompileException {
-        return new VariableAccessResource(subject.getLocation(), this.copyRvalue(subject.variableAccess));
+        return new VariableAccessResource(
+            this.copyLocation(subject.getLocation()),
+            this.copyRvalue(subject.variableAccess)
+        );
     }
 
     public Modifier[]
@@ -1388,7 +1447,9 @@ class DeepCopier {
     }
 
     public AccessModifier
-    copyAccessModifier(AccessModifier am) { return new AccessModifier(am.keyword, am.getLocation()); }
+    copyAccessModifier(AccessModifier am) {
+        return new AccessModifier(am.keyword, this.copyLocation(am.getLocation()));
+    }
 
     public TypeParameter
     copyTypeParameter(TypeParameter subject) throws CompileException {
@@ -59,6 +59,7 @@ import org.codehaus.janino.Java.LabeledStatement;
 import org.codehaus.janino.Java.LocalVariableDeclarationStatement;
 import org.codehaus.janino.Java.MethodDeclarator;
 import org.codehaus.janino.Java.PackageMemberClassDeclaration;
+import org.codehaus.janino.Java.PackageMemberTypeDeclaration;
 import org.codehaus.janino.Java.Primitive;
 import org.codehaus.janino.Java.PrimitiveType;
 import org.codehaus.janino.Java.ReturnStatement;
@@ -67,6 +68,8 @@ import org.codehaus.janino.Java.ThisReference;
 import org.codehaus.janino.Java.Type;
 import org.codehaus.janino.Java.TypeDeclaration;
 import org.codehaus.janino.Java.VariableDeclarator;
+import org.codehaus.janino.ClassBodyEvaluator;
+import org.codehaus.janino.IncrementalParser;
 import org.codehaus.janino.Parser;
 import org.codehaus.janino.Scanner;
 import org.codehaus.janino.SimpleCompiler;
@@ -641,6 +644,116 @@ class AstTest {
         );
     }
 
+    @Test public void
+    testIncrementalParser() throws Exception {
+
+        String text = (
+            ""
+            + "package pkg;\n"
+            + "\n"
+            + "public class A {\n"
+            + "    int m() { return 1; }\n"
+            + "\n"
+            + "    /** Doc. */\n"
+            + "    int n() { return 2; }\n"
+            + "    int f = 3;\n"
+            + "}\n"
+            + "\n"
+            + "class B {\n"
+            + "    int g = 4;\n"
+            + "    int p() { return g; }\n"
+            + "}\n"
+        );
+        IncrementalParser ip = new IncrementalParser("A.java", text);
+
+        // An edit within a method declaration.
+        ip.edit(text.indexOf("1;"), 1, "7 +\n8");
+        AstTest.assertIncrementalParseEqualsFullParse(ip);
+
+        // An edit that adds a class body declaration.
+        ip.setText(ip.getText().replace("int f = 3;", "int f = 3;\n    int o() { return f; }"));
+        AstTest.assertIncrementalParseEqualsFullParse(ip);
+
+        // An edit of a field declaration between method declarations, which adds a line.
+        ip.setText(ip.getText().replace("int f = 3;", "int f =\n        33;"));
+        AstTest.assertIncrementalParseEqualsFullParse(ip);
+
+        // An edit in the class declaration header.
+        ip.setText(ip.getText().replace("class A", "class A implements Cloneable"));
+        AstTest.assertIncrementalParseEqualsFullParse(ip);
+
+        // An edit that breaks the syntax.
+        try {
+            ip.edit(ip.getText().indexOf("return 2"), 6, "retur");
+            Assert.fail("CompileException expected");
+        } catch (CompileException ce) {
+            Assert.assertEquals(8, ce.getLocation().getLineNumber());
+        }
+    }
+
+    @Test public void
+    testIncrementalParserClassBody() throws Exception {
+
+        IncrementalParser ip = new IncrementalParser(null, (
+            ""
+            + "import java.util.*;\n"
+            + "\n"
+            + "public static int a() { return 1; }\n"
+            + "public static int b() { return a(); }\n"
+        ), "SC");
+
+        ip.edit(ip.getText().indexOf("1;"), 1, "42");
+
+        ClassBodyEvaluator cbe = new ClassBodyEvaluator();
+        cbe.setClassName("SC");
+        ip.cook(cbe);
+        Assert.assertEquals(42, cbe.getClazz().getMethod("b").invoke(null));
+
+        // Cooking modifies the AST; verify that the IncrementalParser's AST is unaffected.
+        cbe = new ClassBodyEvaluator();
+        cbe.setClassName("SC");
+        ip.cook(cbe);
+        Assert.assertEquals(42, cbe.getClazz().getMethod("a").invoke(null));
+    }
+
+    private static void
+    assertIncrementalParseEqualsFullParse(IncrementalParser ip) throws CompileException, IOException {
+
+        AbstractCompilationUnit expected = new Parser(
+            new Scanner("A.java", new StringReader(ip.getText()))
+        ).parseAbstractCompilationUnit();
+        AbstractCompilationUnit actual = ip.getCompilationUnit();
+
+        Assert.assertEquals(AstTest.unparse(expected), AstTest.unparse(actual));
+
+        PackageMemberTypeDeclaration[]
+        expectedPmtds = ((CompilationUnit) expected).getPackageMemberTypeDeclarations(),
+        actualPmtds   = ((CompilationUnit) actual).getPackageMemberTypeDeclarations();
+
+        Assert.assertEquals(expectedPmtds.length, actualPmtds.length);
+        for (int j = 0; j < expectedPmtds.length; j++) {
+            List<MethodDeclarator>
+            expectedMds = expectedPmtds[j].getMethodDeclarations(),
+            actualMds   = actualPmtds[j].getMethodDeclarations();
+
+            Assert.assertEquals(expectedMds.size(), actualMds.size());
+            for (int i = 0; i < expectedMds.size(); i++) {
+                Assert.assertEquals(
+                    expectedMds.get(i).getLocation().toString(),
+                    actualMds.get(i).getLocation().toString()
+                );
+
+                List<? extends BlockStatement> expectedStatements = expectedMds.get(i).statements;
+                List<? extends BlockStatement> actualStatements   = actualMds.get(i).statements;
+                assert expectedStatements != null && actualStatements != null;
+                Assert.assertEquals(
+                    expectedStatements.get(0).getLocation().toString(),
+                    actualStatements.get(0).getLocation().toString()
+                );
+            }
+        }
+    }
+
     public static String
     unparse(AbstractCompilationUnit acu) {
         StringWriter sw = new StringWriter();
@@ -0,0 +1,225 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino.tests;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.util.reflect.ByteArrayClassLoader;
+import org.codehaus.commons.compiler.util.resource.MapResourceCreator;
+import org.codehaus.commons.compiler.util.resource.MapResourceFinder;
+import org.codehaus.commons.compiler.util.resource.Resource;
+import org.codehaus.commons.compiler.util.resource.StringResource;
+import org.codehaus.commons.nullanalysis.Nullable;
+import org.codehaus.janino.Compiler;
+import org.junit.Assert;
+import org.junit.Test;
+
+// SUPPRESS CHECKSTYLE JavadocMethod:9999
+
+/**
+ * Unit tests for the JANINO {@link Compiler}.
+ */
+public
+class CompilerTest {
+
+    @Test public void
+    testParallelCompilation() throws Exception {
+
+        // Units "A*" are compiled explicitly, units "B*" are found on the source path.
+        Resource[]        sourceResources = new Resource[20];
+        MapResourceFinder sourceFinder    = new MapResourceFinder();
+        for (int i = 0; i < sourceResources.length; i++) {
+            sourceResources[i] = new StringResource("pkg/A" + i + ".java", (
+                ""
+                + "package pkg;\n"
+                + "public class A" + i + " {\n"
+                + "    public static int meth(int x) { return B" + (i % 5) + ".meth(x) + A" + ((i + 1) % 20) + ".C; }\n"
+                + "    public static final int C = " + i + ";\n"
+                + "    Runnable r = new Runnable() { public void run() { System.out.println(\"A" + i + "\"); } };\n"
+                + "    class Inner { int get() { return C * 2; } }\n"
+                + "}\n"
+            ));
+        }
+        for (int i = 0; i < 5; i++) {
+            sourceFinder.addResource("pkg/B" + i + ".java", (
+                ""
+                + "package pkg;\n"
+                + "public class B" + i + " {\n"
+                + "    public static int meth(int x) { return x * " + i + " + String.valueOf(x).length(); }\n"
+                + "}\n"
+            ));
+        }
+
+        Map<String, byte[]> sequential = CompilerTest.compile(sourceResources, sourceFinder, 1, null);
+        Assert.assertEquals(65, sequential.size());
+
+        ExecutorService parseExecutor = Executors.newFixedThreadPool(3);
+        try {
+            for (int parallelism : new int[] { 1, 2, 3, 8 }) {
+                for (Executor pe : new Executor[] { null, parseExecutor }) {
+                    if (parallelism == 1 && pe == null) continue;
+
+                    Map<String, byte[]> parallel = CompilerTest.compile(sourceResources, sourceFinder, parallelism, pe);
+                    Assert.assertEquals(sequential.keySet(), parallel.keySet());
+                    for (Map.Entry<String, byte[]> e : sequential.entrySet()) {
+                        Assert.assertTrue(e.getKey(), Arrays.equals(e.getValue(), parallel.get(e.getKey())));
+                    }
+                }
+            }
+        } finally {
+            parseExecutor.shutdown();
+        }
+    }
+
+    @Test public void
+    testParallelCompilationError() throws Exception {
+
+        Resource[] sourceResources = {
+            new StringResource("pkg/A.java", "package pkg; public class A { int meth() { return B.meth(); } }"),
+            new StringResource("pkg/B.java", "package pkg; public class B { static int meth() { return \"\"; } }"),
+            new StringResource("pkg/C.java", "package pkg; public class C {}"),
+        };
+        try {
+            CompilerTest.compile(sourceResources, new MapResourceFinder(), 3, null);
+            Assert.fail("CompileException expected");
+        } catch (CompileException ce) {
+            Assert.assertTrue(ce.getMessage(), ce.getMessage().contains("pkg/B.java"));
+        }
+    }
+
+    @Test public void
+    testParseExecutorSyntaxError() throws Exception {
+
+        Resource[] sourceResources = {
+            new StringResource("pkg/A.java", "package pkg; public class A { int meth() { return B.meth(); } }"),
+            new StringResource("pkg/B.java", "package pkg; public class B { static int meth() { return 1 } }"),
+        };
+        ExecutorService parseExecutor = Executors.newFixedThreadPool(2);
+        try {
+            for (int parallelism : new int[] { 1, 2 }) {
+                try {
+                    CompilerTest.compile(sourceResources, new MapResourceFinder(), parallelism, parseExecutor);
+                    Assert.fail("CompileException expected");
+                } catch (CompileException ce) {
+                    Assert.assertTrue(ce.getMessage(), ce.getMessage().contains("pkg/B.java"));
+                }
+            }
+        } finally {
+            parseExecutor.shutdown();
+        }
+    }
+
+    @Test public void
+    testLargeSourceFiles() throws Exception {
+
+        // Source files of 64 KiB and more are memory-mapped; check that pure ASCII and non-ASCII (UTF-8) content is
+        // decoded correctly.
+        StringBuilder filler = new StringBuilder();
+        for (int i = 0; i < 2000; i++) filler.append("    // Filler line #").append(i).append(" ...............\n");
+
+        File dir = File.createTempFile("janino", ".tmp");
+        Assert.assertTrue(dir.delete() && dir.mkdir());
+        try {
+            File a = new File(dir, "A.java");
+            File b = new File(dir, "B.java");
+            CompilerTest.write(a, (
+                "public class A {\n"
+                + filler
+                + "    public static String meth() { return \"A\" + B.meth(); }\n"
+                + "}\n"
+            ));
+            CompilerTest.write(b, (
+                "public class B {\n"
+                + filler
+                + "    public static String meth() { return \"\u00e4\u20ac\"; }\n"
+                + "}\n"
+            ));
+            Assert.assertTrue(a.length() >= 65536);
+
+            Map<String, byte[]> classes = new HashMap<>();
+
+            Compiler compiler = new Compiler();
+            compiler.setClassFileCreator(new MapResourceCreator(classes));
+            compiler.setSourceCharset(Charset.forName("UTF-8"));
+            compiler.compile(new File[] { a, b });
+
+            Map<String, byte[]> classes2 = new HashMap<>();
+            for (Map.Entry<String, byte[]> e : classes.entrySet()) {
+                classes2.put(e.getKey().replace('/', '.').replaceFirst("\\.class$", ""), e.getValue());
+            }
+            Class<?> classA = new ByteArrayClassLoader(classes2).loadClass("A");
+            Assert.assertEquals("A\u00e4\u20ac", classA.getMethod("meth").invoke(null));
+        } finally {
+            for (File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+
+    private static void
+    write(File file, String text) throws IOException {
+        Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            w.write(text);
+        } finally {
+            w.close();
+        }
+    }
+
+    private static Map<String, byte[]>
+    compile(
+        Resource[]         sourceResources,
+        MapResourceFinder  sourceFinder,
+        int                parallelism,
+        @Nullable Executor parseExecutor
+    ) throws Exception {
+
+        Map<String, byte[]> classes = new HashMap<>();
+
+        Compiler compiler = new Compiler();
+        compiler.setSourceFinder(sourceFinder);
+        compiler.setClassFileFinder(new MapResourceFinder(classes));
+        compiler.setClassFileCreator(new MapResourceCreator(classes));
+        compiler.setDebugLines(true);
+        compiler.setDebugVars(true);
+        compiler.setParallelism(parallelism);
+        compiler.setParseExecutor(parseExecutor);
+        compiler.compile(sourceResources);
+
+        return classes;
+    }
+}
@@ -25,12 +25,27 @@
 
 package org.codehaus.janino.tests;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.InternalCompilerException;
+import org.codehaus.commons.compiler.util.resource.MapResourceCreator;
+import org.codehaus.commons.compiler.util.resource.Resource;
+import org.codehaus.commons.compiler.util.resource.ResourceFinder;
+import org.codehaus.commons.nullanalysis.Nullable;
+import org.codehaus.janino.BatchExpressionEvaluator;
+import org.codehaus.janino.BytecodeCache;
+import org.codehaus.janino.CodeContext.CodeTooLargeException;
 import org.codehaus.janino.ExpressionEvaluator;
+import org.codehaus.janino.ExpressionTemplate;
 import org.codehaus.janino.Scanner;
 import org.codehaus.janino.ScriptEvaluator;
 import org.junit.Assert;
@@ -65,4 +80,193 @@ class ExpressionEvaluatorTest {
         );
         Assert.assertEquals(new HashSet<>(Arrays.asList("b", "d")), parameterNames);
     }
+
+    @Test public void
+    testBytecodeCache() throws Exception {
+
+        final MapResourceCreator rc   = new MapResourceCreator();
+        final int[]              hits = new int[1];
+        ResourceFinder           rf   = new ResourceFinder() {
+
+            @Override @Nullable public Resource
+            findResource(final String resourceName) {
+                final byte[] data = rc.getMap().get(resourceName);
+                if (data == null) return null;
+                hits[0]++;
+                return new Resource() {
+                    @Override public InputStream open()         { return new ByteArrayInputStream(data); }
+                    @Override public String      getFileName()  { return resourceName;                   }
+                    @Override public long        lastModified() { return 0;                              }
+                };
+            }
+        };
+        BytecodeCache bc = new BytecodeCache(rf, rc);
+
+        // Cache miss.
+        Assert.assertEquals(7, ExpressionEvaluatorTest.evaluate(bc, "a + b", new String[] { "a", "b" }, 3, 4));
+        Assert.assertEquals(0, hits[0]);
+        Assert.assertEquals(1, rc.getMap().size());
+
+        // Cache hit.
+        Assert.assertEquals(7, ExpressionEvaluatorTest.evaluate(bc, "a + b", new String[] { "a", "b" }, 3, 4));
+        Assert.assertEquals(1, hits[0]);
+        Assert.assertEquals(1, rc.getMap().size());
+
+        // Different parameter names, thus different cache key.
+        Assert.assertEquals(7, ExpressionEvaluatorTest.evaluate(bc, "b + a", new String[] { "b", "a" }, 3, 4));
+        Assert.assertEquals(-1, ExpressionEvaluatorTest.evaluate(bc, "b - a", new String[] { "b", "a" }, 3, 4));
+        Assert.assertEquals(1, hits[0]);
+        Assert.assertEquals(3, rc.getMap().size());
+
+        // A partially written cache entry is a cache miss.
+        for (Map.Entry<String, byte[]> e : rc.getMap().entrySet()) {
+            e.setValue(Arrays.copyOf(e.getValue(), e.getValue().length - 1));
+        }
+        Assert.assertEquals(7, ExpressionEvaluatorTest.evaluate(bc, "a + b", new String[] { "a", "b" }, 3, 4));
+        Assert.assertEquals(2, hits[0]);
+        Assert.assertEquals(7, ExpressionEvaluatorTest.evaluate(bc, "a + b", new String[] { "a", "b" }, 3, 4));
+        Assert.assertEquals(3, hits[0]);
+    }
+
+    @Test public void
+    testBatchExpressionEvaluator() throws Exception {
+
+        BatchExpressionEvaluator bee = new BatchExpressionEvaluator();
+        bee.setMaxExpressionsPerClass(2);
+
+        Method[] methods = bee.cook(
+            new String[]     { "a + b",                  "s.length()",       "a * 2",         "s + \"!\""       },
+            new Class<?>[]   { int.class,                int.class,          long.class,      null             },
+            new String[][]   { { "a", "b" },             { "s" },            { "a" },         { "s" }          },
+            new Class<?>[][] { { int.class, int.class }, { String.class },   { int.class },   { String.class } }
+        );
+        Assert.assertEquals(2, bee.getGeneratedClassCount());
+        Assert.assertEquals(7, methods[0].invoke(null, 3, 4));
+        Assert.assertEquals(3, methods[1].invoke(null, "abc"));
+        Assert.assertEquals(6L, methods[2].invoke(null, 3));
+        Assert.assertEquals("abc!", methods[3].invoke(null, "abc"));
+        Assert.assertSame(methods[0].getDeclaringClass(), methods[1].getDeclaringClass());
+        Assert.assertTrue(methods[1].getDeclaringClass() != methods[2].getDeclaringClass());
+
+        // Fast evaluators.
+        bee = new BatchExpressionEvaluator();
+        List<IntBinaryOperator> evaluators = bee.createFastEvaluators(
+            new String[]   { "x + y",        "x - y",        "x * y"        },
+            IntBinaryOperator.class,
+            new String[][] { { "x", "y" },   { "x", "y" },   { "y", "x" }   }
+        );
+        Assert.assertEquals(2, bee.getGeneratedClassCount());
+        Assert.assertEquals(7,  evaluators.get(0).applyAsInt(3, 4));
+        Assert.assertEquals(-1, evaluators.get(1).applyAsInt(3, 4));
+        Assert.assertEquals(12, evaluators.get(2).applyAsInt(3, 4));
+    }
+
+    @Test public void
+    testBatchExpressionEvaluatorSplitsLargeClasses() throws Exception {
+
+        // Each expression adds 80 entries to the constant pool, so 1000 expressions do not fit into one class file.
+        int          n               = 1000;
+        String[]     expressions     = new String[n];
+        String[][]   parameterNames  = new String[n][];
+        Class<?>[][] parameterTypes  = new Class<?>[n][];
+        for (int i = 0; i < n; i++) {
+            StringBuilder sb = new StringBuilder("java.util.Arrays.asList(");
+            for (int j = 0; j < 40; j++) {
+                if (j > 0) sb.append(", ");
+                sb.append('"').append(i).append('_').append(j).append('"');
+            }
+            expressions[i]    = sb.append(").size() + a").toString();
+            parameterNames[i] = new String[] { "a" };
+            parameterTypes[i] = new Class<?>[] { int.class };
+        }
+
+        BatchExpressionEvaluator bee     = new BatchExpressionEvaluator();
+        Method[]                 methods = bee.cook(expressions, null, parameterNames, parameterTypes);
+
+        Assert.assertTrue(bee.getGeneratedClassCount() > 1);
+        Assert.assertEquals(40,  methods[0].invoke(null, 0));
+        Assert.assertEquals(999, methods[n - 1].invoke(null, 959));
+    }
+
+    @Test public void
+    testCodeTooLarge() throws Exception {
+
+        // Each array element takes 8 bytes of code, so the method grows beyond 64 KB.
+        StringBuilder sb = new StringBuilder("new int[] { 1000");
+        for (int i = 1; i < 10000; i++) sb.append(", 1000");
+        String expression = sb.append(" }.length").toString();
+
+        try {
+            new ExpressionEvaluator().cook(expression);
+            Assert.fail();
+        } catch (CompileException ce) {
+            ExpressionEvaluatorTest.assertCausedBy(CodeTooLargeException.class, ce);
+        } catch (InternalCompilerException ice) {
+            ExpressionEvaluatorTest.assertCausedBy(CodeTooLargeException.class, ice);
+        }
+    }
+
+    private static void
+    assertCausedBy(Class<? extends Throwable> expected, Throwable t) {
+        for (Throwable t2 = t; t2 != null; t2 = t2.getCause()) {
+            if (expected.isInstance(t2)) return;
+        }
+        throw new AssertionError("Not caused by " + expected.getName() + ": " + t);
+    }
+
+    @Test public void
+    testExpressionTemplate() throws Exception {
+
+        String             expression = "import java.util.Collections;\n Collections.nCopies(2, a + b).toString()";
+        ExpressionTemplate template   = new ExpressionTemplate(expression);
+
+        for (int i = 0; i < 2; i++) {
+            Class<?>[] parameterTypes = (
+                i == 0
+                ? new Class<?>[] { int.class, int.class }
+                : new Class<?>[] { String.class, Object.class }
+            );
+
+            ExpressionEvaluator ee1 = new ExpressionEvaluator();
+            ee1.setParameters(new String[] { "a", "b" }, parameterTypes);
+            ee1.setExpressionType(Object.class);
+            ee1.cook(expression);
+
+            ExpressionEvaluator ee2 = new ExpressionEvaluator();
+            ee2.setParameters(new String[] { "a", "b" }, parameterTypes);
+            ee2.setExpressionType(Object.class);
+            template.cook(ee2);
+
+            Assert.assertEquals(ee1.getBytecodes().keySet(), ee2.getBytecodes().keySet());
+            for (Map.Entry<String, byte[]> e : ee1.getBytecodes().entrySet()) {
+                Assert.assertArrayEquals(e.getKey(), e.getValue(), ee2.getBytecodes().get(e.getKey()));
+            }
+
+            Object[] arguments = i == 0 ? new Object[] { 1, 2 } : new Object[] { "x", 7 };
+            Assert.assertEquals(i == 0 ? "[3, 3]" : "[x7, x7]", ee2.evaluate(arguments));
+        }
+
+        // Type errors are reported per cook, at the right location.
+        ExpressionEvaluator ee = new ExpressionEvaluator();
+        ee.setParameters(new String[] { "a", "b" }, new Class<?>[] { boolean.class, boolean.class });
+        try {
+            template.cook(ee);
+            Assert.fail("CompileException expected");
+        } catch (CompileException ce) {
+            Assert.assertTrue(ce.getMessage(), ce.getMessage().startsWith("Line 2, Column "));
+        }
+    }
+
+    public
+    interface IntBinaryOperator { int applyAsInt(int left, int right); }
+
+    private static Object
+    evaluate(BytecodeCache bc, String expression, String[] parameterNames, int arg1, int arg2) throws Exception {
+        ExpressionEvaluator ee = new ExpressionEvaluator();
+        ee.setBytecodeCache(bc);
+        ee.setParameters(parameterNames, new Class<?>[] { int.class, int.class });
+        ee.setExpressionType(int.class);
+        ee.cook(expression);
+        return ee.evaluate(new Object[] { arg1, arg2 });
+    }
 }
@@ -25,15 +25,21 @@
 
 package org.codehaus.janino.tests;
 
+import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.Java;
 import org.codehaus.janino.JaninoOption;
+import org.codehaus.janino.NameTable;
+import org.codehaus.janino.Parser;
+import org.codehaus.janino.Scanner;
 import org.codehaus.janino.ScriptEvaluator;
 import org.codehaus.janino.SimpleCompiler;
 import org.codehaus.janino.UnitCompiler;
@@ -92,6 +98,168 @@ class OptionsTest {
         OptionsTest.assertScriptExecutable(script, JaninoOption.EXPRESSIONS_IN_TRY_WITH_RESOURCES_ALLOWED);
     }
 
+    /**
+     * Tests {@link JaninoOption#INVOKEDYNAMIC_STRING_CONCATENATION}.
+     */
+    @Test public void
+    testInvokedynamicStringConcatenation() throws Exception {
+
+        // "StringConcatFactory" only exists in JRE 9+.
+        try {
+            Class.forName("java.lang.invoke.StringConcatFactory");
+        } catch (ClassNotFoundException cnfe) {
+            return;
+        }
+
+        String cu = (
+            ""
+            + "public class Foo {\n"
+            + "    public static String\n"
+            + "    meth(String s, int i, long l, char c, boolean z, Object o, double d, byte b) {\n"
+            + "        return s + i + \"<\\1\\2>\" + l + c + z + o + d + b + 'x' + 7 + null + s;\n"
+            + "    }\n"
+            + "    public static String\n"
+            + "    meth2(Object o) {\n"
+            + "        String result = \"\";\n"
+            + "        result += o;\n"
+            + "        result += 3L;\n"
+            + "        return result;\n"
+            + "    }\n"
+            + "}\n"
+        );
+
+        for (boolean indy : new boolean[] { false, true }) {
+            SimpleCompiler sc = new SimpleCompiler();
+            sc.setTargetVersion(11);
+            if (indy) sc.options(EnumSet.of(JaninoOption.INVOKEDYNAMIC_STRING_CONCATENATION));
+            sc.cook(cu);
+
+            Assert.assertEquals(
+                indy,
+                new String(sc.getBytecodes().get("Foo"), "ISO-8859-1").contains("StringConcatFactory")
+            );
+
+            Class<?> c = sc.getClassLoader().loadClass("Foo");
+            Assert.assertEquals(
+                "A1<\1\2>2ctrueB1.59x7nullA",
+                c.getMethod(
+                    "meth",
+                    String.class,
+                    int.class,
+                    long.class,
+                    char.class,
+                    boolean.class,
+                    Object.class,
+                    double.class,
+                    byte.class
+                ).invoke(null, "A", 1, 2L, 'c', true, "B", 1.5, (byte) 9)
+            );
+            Assert.assertEquals("null3", c.getMethod("meth2", Object.class).invoke(null, (Object) null));
+        }
+    }
+
+    /**
+     * Tests {@link JaninoOption#COMPACT_AST}.
+     */
+    @Test public void
+    testCompactAst() throws Exception {
+
+        String cu = (
+            ""
+            + "import java.util.List;\n"
+            + "public class Foo {\n"
+            + "    public static java.util.List<String> list = new java.util.ArrayList<String>();\n"
+            + "    public static java.util.List<String> get(java.util.List<String> l) { return l; }\n"
+            + "    public static int meth(java.util.List<String> l, int x) {\n"
+            + "        java.util.List<String> l2 = Foo.list;\n"
+            + "        l2.add(String.valueOf(x));\n"
+            + "        return l.size() + Foo.list.size() + x;\n"
+            + "    }\n"
+            + "}\n"
+        );
+
+        // Equal qualified names must be represented by the same array.
+        NameTable nameTable = new NameTable();
+        Parser    parser    = new Parser(new Scanner(null, new StringReader(cu)));
+        parser.setNameTable(nameTable);
+        Java.CompilationUnit
+        compilationUnit = (Java.CompilationUnit) parser.parseAbstractCompilationUnit();
+
+        Java.MethodDeclarator
+        md = compilationUnit.getPackageMemberTypeDeclarations()[0].getMethodDeclarations().get(0);
+        Assert.assertSame(
+            ((Java.ReferenceType) md.type).identifiers,
+            ((Java.ReferenceType) md.formalParameters.parameters[0].type).identifiers
+        );
+        Java.AbstractCompilationUnit.SingleTypeImportDeclaration
+        stid = (Java.AbstractCompilationUnit.SingleTypeImportDeclaration) compilationUnit.importDeclarations[0];
+        Assert.assertSame(
+            stid.identifiers,
+            ((Java.ReferenceType) md.type).identifiers
+        );
+
+        // The generated code must be the same with and without the option.
+        SimpleCompiler sc1 = new SimpleCompiler();
+        sc1.cook(cu);
+        SimpleCompiler sc2 = new SimpleCompiler();
+        sc2.options(EnumSet.of(JaninoOption.COMPACT_AST));
+        sc2.cook(cu);
+        Assert.assertArrayEquals(sc1.getBytecodes().get("Foo"), sc2.getBytecodes().get("Foo"));
+        Assert.assertEquals(
+            4,
+            sc2.getClassLoader().loadClass("Foo").getMethod("meth", List.class, int.class).invoke(
+                null,
+                Arrays.asList("a", "b"),
+                1
+            )
+        );
+    }
+
+    /**
+     * Tests {@link JaninoOption#PEEPHOLE_OPTIMIZATION}.
+     */
+    @Test public void
+    testPeepholeOptimization() throws Exception {
+        String cu = (
+            ""
+            + "public class Foo {\n"
+            + "    public static int meth(int x, int n) {\n"
+            + "        int result = 0;\n"
+            + "        for (int i = 0; i < n; i++) {\n"
+            + "            if (i == 0) continue;\n"
+            + "            if (0 > x) break;\n"
+            + "            if (x != 0) {\n"
+            + "                if (i % 3 == 0) {\n"
+            + "                    result += i;\n"
+            + "                } else {\n"
+            + "                    result -= x;\n"
+            + "                }\n"
+            + "            } else {\n"
+            + "                result++;\n"
+            + "            }\n"
+            + "        }\n"
+            + "        return 0 <= result ? result : -result;\n"
+            + "    }\n"
+            + "}\n"
+        );
+
+        // The optimized code must be smaller, and must compute the same results.
+        SimpleCompiler sc1 = new SimpleCompiler();
+        sc1.cook(cu);
+        SimpleCompiler sc2 = new SimpleCompiler();
+        sc2.options(EnumSet.of(JaninoOption.PEEPHOLE_OPTIMIZATION));
+        sc2.cook(cu);
+        Assert.assertTrue(sc2.getBytecodes().get("Foo").length < sc1.getBytecodes().get("Foo").length);
+        for (int x = -2; x <= 2; x++) {
+            for (int n = 0; n <= 7; n++) {
+                Assert.assertEquals(
+                    sc1.getClassLoader().loadClass("Foo").getMethod("meth", int.class, int.class).invoke(null, x, n),
+                    sc2.getClassLoader().loadClass("Foo").getMethod("meth", int.class, int.class).invoke(null, x, n)
+                );
+            }
+        }
+    }
+
     private static void
     assertScriptExecutable(String script, JaninoOption... options)
     throws CompileException, InvocationTargetException {
@@ -0,0 +1,249 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2026 Arno Unkrig. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.io.CharSequenceReader;
+import org.codehaus.commons.compiler.io.Readers;
+import org.codehaus.janino.Java;
+import org.codehaus.janino.Parser;
+import org.codehaus.janino.Scanner;
+import org.codehaus.janino.Token;
+import org.codehaus.janino.TokenRecording;
+import org.codehaus.janino.TokenSource;
+import org.codehaus.janino.TokenType;
+import org.codehaus.janino.Unparser;
+import org.junit.Assert;
+import org.junit.Test;
+
+// SUPPRESS CHECKSTYLE JavadocMethod:9999
+
+/**
+ * Unit tests for the {@link Scanner}.
+ */
+public
+class ScannerTest {
+
+    private static final String
+    SOURCE = (
+        ""
+        + "package pkg;\r\n"
+        + "/** doc */ public class Foo extends Bar implements Baz {\n"
+        + "\tint x = 0x7fL, y = 077, z = 0b1_0, w = 1_000;  // comment\n"
+        + "\tdouble d = .5e-3 + 1.f + 0x1.8p1 + 2D;\n"
+        + "\tchar c = '\\n', c2 = '\\377'; String s = \"a\\tb\";\n"
+        + "\tboolean b = true != false && null == null || !b;\n"
+        + "\tvoid meth() { x >>>= 1; x >>= 2; x <<= 3; x >>> 1; x >> 1; x << 1; x >= 1; x <= 1; x -> x; Foo::bar; }\n"
+        + "\tvoid meth2() { x++; x--; x += 1; x -= 1; x *= 1; x /= 1; x %= 1; x &= 1; x |= 1; x ^= 1; x ? x : ~x; }\n"
+        + "\t@Override synchronized instanceof implements interface\n"
+        + "}\n"
+    );
+
+    @Test public void
+    testCharSequenceInput() throws Exception {
+
+        // Reading from a "CharSequenceReader" must produce exactly the same tokens as reading from any other reader.
+        List<Token> expected = ScannerTest.scan(new StringReader(ScannerTest.SOURCE));
+        List<Token> actual   = ScannerTest.scan(new CharSequenceReader(ScannerTest.SOURCE));
+
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Token e = (Token) expected.get(i), a = (Token) actual.get(i);
+            Assert.assertEquals(e.type, a.type);
+            Assert.assertEquals(e.value, a.value);
+            Assert.assertEquals(e.getLocation().toString(), a.getLocation().toString());
+
+            // Keywords, operators and "true", "false", "null" must be interned.
+            if (
+                a.type == TokenType.KEYWORD
+                || a.type == TokenType.OPERATOR
+                || a.type == TokenType.BOOLEAN_LITERAL
+                || a.type == TokenType.NULL_LITERAL
+            ) Assert.assertSame(a.value.intern(), a.value);
+        }
+    }
+
+    @Test public void
+    testOperators() throws Exception {
+        List<Token> tokens = ScannerTest.scan(new CharSequenceReader(">>>=>>>>=>>-->=<<=::->.@"));
+        StringBuilder sb = new StringBuilder();
+        for (Token t : tokens) {
+            Assert.assertEquals(TokenType.OPERATOR, t.type);
+            sb.append(t.value).append(' ');
+        }
+        Assert.assertEquals(">>>= >>> >= >> -- >= <<= :: -> . @ ", sb.toString());
+    }
+
+    @Test public void
+    testUnicodeEscapes() throws Exception {
+        List<Token> tokens = ScannerTest.scan(new CharSequenceReader("\\u0069nt i\\u003d 7;"));
+        Assert.assertEquals(5, tokens.size());
+        Assert.assertEquals(TokenType.KEYWORD, ((Token) tokens.get(0)).type);
+        Assert.assertEquals("int", ((Token) tokens.get(0)).value);
+        Assert.assertEquals("=", ((Token) tokens.get(2)).value);
+    }
+
+    @Test public void
+    testUnicodeEscapeInputs() throws Exception {
+
+        // Unescaping in one go (CharSequenceReader), in chunks (StringReader) and char by char must produce the same
+        // tokens, locations and errors.
+        String[] sources = {
+            "\\u0069nt i\\u003d 7;",
+            "String s = \"a\\\\u0041b\", t = \"\\\\\\u0041\";",
+            "char c = '\\u005c\\u005c';\tint\\uuuu0020x\\u003d\r\n1;",
+            "int x = 1;\n\t  \\u00g1",
+            "int x = 1; \\u00",
+            "\\",
+        };
+        for (final String source : sources) {
+            String expected = ScannerTest.scanToString(new Reader() {
+
+                final Reader delegate = new StringReader(source);
+
+                @Override public int
+                read(char[] cbuf, int off, int len) throws IOException {
+                    return this.delegate.read(cbuf, off, len == 0 ? 0 : 1);
+                }
+
+                @Override public void
+                close() {}
+            });
+            Assert.assertEquals(source, expected, ScannerTest.scanToString(new StringReader(source)));
+            Assert.assertEquals(source, expected, ScannerTest.scanToString(new CharSequenceReader(source)));
+        }
+    }
+
+    @Test public void
+    testIdentifierValuesAreShared() throws Exception {
+
+        // Generate enough distinct identifiers to force the scanner's identifier table to grow.
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) sb.append("id").append(i).append(" x").append(i % 3).append(' ');
+        sb.append("id0 id999");
+
+        List<Token> tokens = ScannerTest.scan(new StringReader(sb.toString()));
+        Assert.assertEquals(2002, tokens.size());
+        Assert.assertEquals("id0", ((Token) tokens.get(2000)).value);
+        Assert.assertSame(((Token) tokens.get(0)).value, ((Token) tokens.get(2000)).value);
+        Assert.assertSame(((Token) tokens.get(1998)).value, ((Token) tokens.get(2001)).value);
+        Assert.assertSame(((Token) tokens.get(1)).value, ((Token) tokens.get(7)).value);
+    }
+
+    @Test public void
+    testTokenRecording() throws Exception {
+
+        // Replaying a recording must produce the same tokens (except white space and comments) as the scanner.
+        TokenRecording tr = TokenRecording.fromByteArray(
+            TokenRecording.record(new Scanner("Foo.java", new StringReader(ScannerTest.SOURCE))).toByteArray()
+        );
+
+        Scanner scanner = new Scanner("Foo.java", new StringReader(ScannerTest.SOURCE));
+        scanner.setIgnoreWhiteSpace(true);
+        TokenSource replay = tr.replay();
+        for (;;) {
+            Token e = scanner.produce();
+            if (e.type == TokenType.C_STYLE_COMMENT || e.type == TokenType.C_PLUS_PLUS_STYLE_COMMENT) continue;
+
+            Token a = replay.produce();
+            Assert.assertEquals(e.type, a.type);
+            Assert.assertEquals(e.value, a.value);
+            Assert.assertEquals(e.getLocation().toString(), a.getLocation().toString());
+            Assert.assertEquals(e.getLocation().toString(), replay.location().toString());
+            if (a.type == TokenType.KEYWORD || a.type == TokenType.OPERATOR) {
+                Assert.assertSame(a.value.intern(), a.value);
+            }
+
+            if (e.type == TokenType.END_OF_INPUT) break;
+        }
+        Assert.assertEquals(TokenType.END_OF_INPUT, replay.produce().type);
+
+        // Parsing the replayed tokens must produce the same AST as parsing the source.
+        File         file   = new File("src/main/java/org/codehaus/janino/Parser.java");
+        CharSequence source = Readers.readAll(file, Charset.forName("UTF-8"));
+
+        Java.AbstractCompilationUnit expected = new Parser(
+            new Scanner(file.getPath(), new CharSequenceReader(source))
+        ).parseAbstractCompilationUnit();
+        Java.AbstractCompilationUnit actual = TokenRecording.record(
+            new Scanner(file.getPath(), new CharSequenceReader(source))
+        ).newParser().parseAbstractCompilationUnit();
+
+        Assert.assertEquals(expected.fileName, actual.fileName);
+        Assert.assertEquals(ScannerTest.unparse(expected), ScannerTest.unparse(actual));
+
+        try {
+            TokenRecording.fromByteArray(new byte[] { 99 });
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException iae) {
+            Assert.assertEquals("Unsupported token recording format", iae.getMessage());
+        }
+    }
+
+    private static String
+    unparse(Java.AbstractCompilationUnit acu) {
+        StringWriter sw = new StringWriter();
+        Unparser.unparse(acu, sw);
+        return sw.toString();
+    }
+
+    /**
+     * @return The types, values and locations of all tokens, followed by the scan error, if any
+     */
+    private static String
+    scanToString(Reader r) throws IOException {
+
+        StringBuilder sb = new StringBuilder();
+        try {
+            for (Token t : ScannerTest.scan(r)) {
+                sb.append(t.type).append(' ').append(t.value).append(' ').append(t.getLocation()).append('\n');
+            }
+        } catch (CompileException ce) {
+            sb.append(ce.getMessage());
+        }
+        return sb.toString();
+    }
+
+    private static List<Token>
+    scan(Reader r) throws CompileException, IOException {
+
+        Scanner scanner = new Scanner(null, r);
+        scanner.setIgnoreWhiteSpace(true);
+
+        List<Token> result = new ArrayList<>();
+        for (Token t = scanner.produce(); t.type != TokenType.END_OF_INPUT; t = scanner.produce()) result.add(t);
+        return result;
+    }
+}
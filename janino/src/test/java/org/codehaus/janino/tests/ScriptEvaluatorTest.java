@@ -73,4 +73,93 @@ class ScriptEvaluatorTest {
             Assert.assertTrue(ce.getMessage().contains("Private member cannot be accessed"));
         }
     }
+
+    @Test public void
+    testNestedWhileLoops() throws Exception {
+
+        // The bodies of WHILE loops are inserted before their conditions; make the inner body so large (> 32 KB) that
+        // the backward branches must be widened, and put a SWITCH statement (which needs padding) into it.
+        StringBuilder sb = new StringBuilder();
+        sb.append("int x = 0, n = 0;\n");
+        sb.append("while (x < 3) {\n");
+        sb.append("    int y = 0;\n");
+        sb.append("    while (y < 2 && x >= 0) {\n");
+        sb.append("        switch (y) { case 0: n += 1; break; case 1: n += 10; break; }\n");
+        for (int i = 0; i < 6000; i++) sb.append("        n += y - y;\n");
+        sb.append("        y++;\n");
+        sb.append("    }\n");
+        sb.append("    x++;\n");
+        sb.append("}\n");
+        sb.append("return n;\n");
+
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setReturnType(int.class);
+        se.cook(sb.toString());
+        Assert.assertEquals(33, se.evaluate(new Object[0]));
+    }
+
+    @Test public void
+    testBranchRelaxation() throws Exception {
+
+        // The "if (a)" branch is generated first and is (just) in range, but the "break lbl" branch inside its body
+        // is not; widening the latter must not put the former out of range. Vary the code size byte by byte around
+        // that boundary.
+        for (int k = 5455; k <= 5462; k++) {
+            for (int m = 0; m < 3; m++) {
+                StringBuilder sb = new StringBuilder();
+                sb.append("int n = 0, y = 7;\n");
+                sb.append("lbl: {\n");
+                sb.append("    if (a) {\n");
+                sb.append("        if (b) break lbl;\n");
+                for (int i = 0; i < k; i++) sb.append("        n += y - y;\n");
+                for (int i = 0; i < m; i++) sb.append("        n++;\n");
+                sb.append("    }\n");
+                for (int i = 0; i < 10; i++) sb.append("    n++;\n");
+                sb.append("}\n");
+                sb.append("return n;\n");
+
+                ScriptEvaluator se = new ScriptEvaluator();
+                se.setParameters(new String[] { "a", "b" }, new Class[] { boolean.class, boolean.class });
+                se.setReturnType(int.class);
+                se.cook(sb.toString());
+                Assert.assertEquals(10 + m, se.evaluate(new Object[] { true, false }));
+                Assert.assertEquals(10,     se.evaluate(new Object[] { false, false }));
+                Assert.assertEquals(0,      se.evaluate(new Object[] { true, true }));
+            }
+        }
+    }
+
+    @Test public void
+    testDeadLocalVariableSlots() throws Exception {
+
+        // "k" is dead after the second statement, so "t" reuses its slot; "t" is unassigned at the beginning of the
+        // TRY statement, so the exception handler's stack map frame must not declare the slot as an "int". Then
+        // "t" and "n" die, and "l" and the STRING SWITCH's hidden variable take their slots.
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setParameters(new String[] { "x" }, new Class[] { int.class });
+        se.setReturnType(int.class);
+        se.cook(
+            ""
+            + "int k = x + 1;\n"
+            + "int n = k * 2;\n"
+            + "String t;\n"
+            + "try {\n"
+            + "    t = n > 4 ? \"many\" : \"few\";\n"
+            + "    if (n == 4) throw new IllegalStateException();\n"
+            + "} catch (IllegalStateException ise) {\n"
+            + "    return -1;\n"
+            + "}\n"
+            + "long l = 100L * t.length() + n;\n"
+            + "switch (t) {\n"
+            + "case \"many\":\n"
+            + "    double d = l / 2.0;\n"
+            + "    return (int) d;\n"
+            + "default:\n"
+            + "    return (int) l;\n"
+            + "}\n"
+        );
+        Assert.assertEquals(302, se.evaluate(new Object[] { 0 }));
+        Assert.assertEquals(-1,  se.evaluate(new Object[] { 1 }));
+        Assert.assertEquals(203, se.evaluate(new Object[] { 2 }));
+    }
 }